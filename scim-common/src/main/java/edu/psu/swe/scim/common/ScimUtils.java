@@ -20,36 +20,34 @@
 package edu.psu.swe.scim.common;
 
 import java.lang.reflect.Field;
-import java.text.SimpleDateFormat;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
 import java.util.Date;
 import java.util.List;
 
 import com.google.common.collect.Lists;
 
+import edu.psu.swe.scim.spec.adapter.Iso8601DateTimeCodec;
+
 
 public final class ScimUtils {
   private ScimUtils() {
   }
   
   public static String toDateString(Date date) {
-    SimpleDateFormat dateFormat = new SimpleDateFormat(Constants.ISO_8601_DATE_FORMAT);
-    return dateFormat.format(date);
+    return Iso8601DateTimeCodec.toDateString(date);
   }
   
   public static String toDateTimeString(Date date) {
-    SimpleDateFormat dateTimeFormat = new SimpleDateFormat(Constants.ISO_8601_DATE_TIME_FORMAT);
-    return dateTimeFormat.format(date);
+    return Iso8601DateTimeCodec.toDateTimeString(date);
   }
   
   public static String toDateString(LocalDate ld) {
-    return ld.format(DateTimeFormatter.ISO_DATE);
+    return Iso8601DateTimeCodec.toDateString(ld);
   }
   
   public static String toDateTimeString(LocalDateTime ldt) {
-    return ldt.format(DateTimeFormatter.ISO_DATE_TIME);
+    return Iso8601DateTimeCodec.toDateTimeString(ldt);
   }
   
   //Removing the @Nonnull & @Nullable annotations, they are GPL licensed and not compliant with Apache 2.0
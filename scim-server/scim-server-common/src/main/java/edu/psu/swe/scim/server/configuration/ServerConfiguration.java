@@ -19,9 +19,14 @@
 
 package edu.psu.swe.scim.server.configuration;
 
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import javax.enterprise.context.ApplicationScoped;
 import javax.inject.Named;
@@ -29,6 +34,7 @@ import javax.inject.Named;
 import lombok.AccessLevel;
 import lombok.Data;
 import lombok.Setter;
+import lombok.Value;
 import edu.psu.swe.scim.spec.schema.ServiceProviderConfiguration.AuthenticationSchema;
 import edu.psu.swe.scim.spec.schema.ServiceProviderConfiguration.BulkConfiguration;
 import edu.psu.swe.scim.spec.schema.ServiceProviderConfiguration.FilterConfiguration;
@@ -49,6 +55,9 @@ public class ServerConfiguration {
   static final int BULK_MAXIMUM_PAYLOAD_SIZE = 1024;
   
   static final int FILTER_MAXIMUM_RESULTS = 100;
+  static final int FILTER_MAXIMUM_TERMS = 100;
+  static final int FILTER_MAXIMUM_DEPTH = 20;
+  static final int FILTER_MAXIMUM_UNINDEXED_CONTAINS = 5;
 
   String id = "spc";
   
@@ -64,9 +73,51 @@ public class ServerConfiguration {
   
   boolean supportsFilter = false;
   int filterMaxResults = FILTER_MAXIMUM_RESULTS;
+  int filterMaxTerms = FILTER_MAXIMUM_TERMS;
+  int filterMaxDepth = FILTER_MAXIMUM_DEPTH;
+  int filterMaxUnindexedContains = FILTER_MAXIMUM_UNINDEXED_CONTAINS;
+  
+  @Setter(AccessLevel.NONE)
+  Set<String> indexedAttributes = new HashSet<>();
+  
+  @Setter(AccessLevel.NONE)
+  Map<String, CacheConfiguration> findResultCaches = new HashMap<>();
   
   @Setter(AccessLevel.NONE)
   boolean supportsPatch = true;
+
+  /**
+   * Where provider calls that can run concurrently, such as the searches of
+   * the root search end-point, are executed, see
+   * edu.psu.swe.scim.server.utility.ProviderExecutor.
+   */
+  ProviderExecution providerExecution = ProviderExecution.MANAGED_EXECUTOR;
+  
+  /**
+   * How long a call to an asynchronous provider may take before it fails
+   * with 504 Gateway Timeout. A resilience configuration with a timeout
+   * replaces it for that resource type.
+   */
+  Duration asyncProviderTimeout = Duration.ofSeconds(30);
+
+  @Setter(AccessLevel.NONE)
+  Map<String, Integer> providerConcurrencyLimits = new HashMap<>();
+  
+  @Setter(AccessLevel.NONE)
+  Map<String, ResilienceConfiguration> providerResilienceConfigurations = new HashMap<>();
+
+  /**
+   * Check the values of attributes whose uniqueness is server or global
+   * against the ProviderRegistry's UniquenessIndex before they are handed to
+   * a provider, see edu.psu.swe.scim.server.provider.UniquenessCheckingProvider.
+   */
+  boolean uniquenessIndexEnabled = false;
+
+  /**
+   * Serialize resources with generated accessors instead of reflection, see
+   * ObjectMapperFactory.createAcceleratedObjectMapper().
+   */
+  boolean acceleratedSerialization = false;
   
   boolean supportsSort = false;
   
@@ -83,6 +134,98 @@ public class ServerConfiguration {
     authenticationSchemas.add(authenticationSchema);
   }
 
+  public Set<String> getIndexedAttributes() {
+    return Collections.unmodifiableSet(indexedAttributes);
+  }
+  
+  /**
+   * Marks an attribute (e.g. "userName" or "emails.value") as indexed by the
+   * providers so that "co" comparisons against it are not limited by
+   * filterMaxUnindexedContains.
+   */
+  public void addIndexedAttribute(String attributeName) {
+    indexedAttributes.add(attributeName.toLowerCase());
+  }
+
+  public Map<String, CacheConfiguration> getFindResultCaches() {
+    return Collections.unmodifiableMap(findResultCaches);
+  }
+
+  /**
+   * Caches the responses of Provider.find for the named resource type (e.g.
+   * "User"), see edu.psu.swe.scim.server.provider.FindResultCache. Cached
+   * responses may be stale for up to timeToLive when resources are changed
+   * other than through the provider.
+   */
+  public void enableFindResultCache(String resourceTypeName, int maximumSize, Duration timeToLive) {
+    if (maximumSize < 1) {
+      throw new IllegalArgumentException("The maximum size must be positive: " + maximumSize);
+    }
+    if (timeToLive.isNegative() || timeToLive.isZero()) {
+      throw new IllegalArgumentException("The time to live must be positive: " + timeToLive);
+    }
+    findResultCaches.put(resourceTypeName, new CacheConfiguration(maximumSize, timeToLive));
+  }
+
+  public void disableFindResultCache(String resourceTypeName) {
+    findResultCaches.remove(resourceTypeName);
+  }
+
+  public CacheConfiguration getFindResultCacheConfiguration(String resourceTypeName) {
+    return findResultCaches.get(resourceTypeName);
+  }
+
+  public Map<String, Integer> getProviderConcurrencyLimits() {
+    return Collections.unmodifiableMap(providerConcurrencyLimits);
+  }
+
+  /**
+   * Limits the number of calls that are made concurrently to the provider of
+   * the named resource type (e.g. "User"). Further calls wait for a call to
+   * complete.
+   */
+  public void setProviderConcurrencyLimit(String resourceTypeName, int maximumConcurrentCalls) {
+    if (maximumConcurrentCalls < 1) {
+      throw new IllegalArgumentException("The concurrency limit must be positive: " + maximumConcurrentCalls);
+    }
+    providerConcurrencyLimits.put(resourceTypeName, maximumConcurrentCalls);
+  }
+
+  public void removeProviderConcurrencyLimit(String resourceTypeName) {
+    providerConcurrencyLimits.remove(resourceTypeName);
+  }
+
+  public Integer getProviderConcurrencyLimit(String resourceTypeName) {
+    return providerConcurrencyLimits.get(resourceTypeName);
+  }
+
+  public Map<String, ResilienceConfiguration> getProviderResilienceConfigurations() {
+    return Collections.unmodifiableMap(providerResilienceConfigurations);
+  }
+
+  /**
+   * Guards the calls made to the provider of the named resource type (e.g.
+   * "User") with a bulkhead, a deadline and a circuit breaker, see
+   * edu.psu.swe.scim.server.provider.ResilientProvider.
+   */
+  public void setProviderResilience(String resourceTypeName, ResilienceConfiguration resilienceConfiguration) {
+    if (resilienceConfiguration.getMaximumConcurrentCalls() < 1) {
+      throw new IllegalArgumentException("The maximum number of concurrent calls must be positive: " + resilienceConfiguration.getMaximumConcurrentCalls());
+    }
+    if (resilienceConfiguration.getFailureThreshold() < 1) {
+      throw new IllegalArgumentException("The failure threshold must be positive: " + resilienceConfiguration.getFailureThreshold());
+    }
+    providerResilienceConfigurations.put(resourceTypeName, resilienceConfiguration);
+  }
+
+  public void removeProviderResilience(String resourceTypeName) {
+    providerResilienceConfigurations.remove(resourceTypeName);
+  }
+
+  public ResilienceConfiguration getProviderResilience(String resourceTypeName) {
+    return providerResilienceConfigurations.get(resourceTypeName);
+  }
+
   public SupportedConfiguration getChangePasswordConfiguration() {
     return createSupportedConfiguration(supportsChangePassword);
   }
@@ -123,4 +266,59 @@ public class ServerConfiguration {
     return supportedConfiguration;
   }
 
+  public enum ProviderExecution {
+    /**
+     * Provider calls are made one after the other on the request thread.
+     */
+    CALLING_THREAD,
+    /**
+     * Provider calls are made on the container's default managed executor.
+     */
+    MANAGED_EXECUTOR,
+    /**
+     * Provider calls are made on a virtual thread each, and independent bulk
+     * operations are performed concurrently. Each call runs with the context
+     * of the request, captured by the default context service. Falls back to
+     * the managed executor on JVMs without virtual threads or without a
+     * context service.
+     */
+    VIRTUAL_THREADS
+  }
+
+  @Value
+  public static class CacheConfiguration {
+    int maximumSize;
+    Duration timeToLive;
+  }
+
+  @Value
+  public static class ResilienceConfiguration {
+    /**
+     * The number of calls that may be made to the provider at once.
+     */
+    int maximumConcurrentCalls;
+    /**
+     * How long a call waits for one of the running calls to complete before
+     * it is rejected.
+     */
+    Duration maximumWait;
+    /**
+     * How long a call may take, or null for no deadline. Asynchronous
+     * providers are given the deadline on the request thread. Any other
+     * provider is called on the provider executor while the request thread
+     * waits, which takes two threads per call, and the call only sees the
+     * context the executor propagates, so transactions are not shared with
+     * the request.
+     */
+    Duration timeout;
+    /**
+     * The number of consecutive failed calls that opens the circuit.
+     */
+    int failureThreshold;
+    /**
+     * How long the circuit stays open before a trial call is let through.
+     */
+    Duration openDuration;
+  }
+
 }
@@ -0,0 +1,94 @@
+/*
+* Licensed to the Apache Software Foundation (ASF) under one
+* or more contributor license agreements.  See the NOTICE file
+* distributed with this work for additional information
+* regarding copyright ownership.  The ASF licenses this file
+* to you under the Apache License, Version 2.0 (the
+* "License"); you may not use this file except in compliance
+* with the License.  You may obtain a copy of the License at
+ 
+* http://www.apache.org/licenses/LICENSE-2.0
+
+* Unless required by applicable law or agreed to in writing,
+* software distributed under the License is distributed on an
+* "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+* KIND, either express or implied.  See the License for the
+* specific language governing permissions and limitations
+* under the License.
+*/
+
+package edu.psu.swe.scim.server.provider;
+
+import java.util.List;
+import java.util.concurrent.CompletionStage;
+
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.Response.Status;
+
+import edu.psu.swe.scim.server.exception.UnableToRetrieveExtensionsException;
+import edu.psu.swe.scim.server.rest.BaseResourceTypeResourceImpl;
+import edu.psu.swe.scim.spec.protocol.filter.FilterResponse;
+import edu.psu.swe.scim.spec.protocol.search.Filter;
+import edu.psu.swe.scim.spec.protocol.search.PageRequest;
+import edu.psu.swe.scim.spec.protocol.search.SortRequest;
+import edu.psu.swe.scim.spec.resources.ScimExtension;
+import edu.psu.swe.scim.spec.resources.ScimResource;
+
+/**
+ * A variant of {@link Provider} for persistence layers whose clients complete
+ * their calls asynchronously, e.g. a non-blocking LDAP or HTTP client. Each
+ * method returns immediately and completes the returned stage with the
+ * result, or exceptionally with the same exceptions the corresponding
+ * {@link Provider} method declares.
+ * <p>
+ * This is a convenience for adapting such clients only. The end-points
+ * implement the resource interfaces shared with the client, which return a
+ * Response, so they call the provider through an {@link AsyncProviderAdapter}
+ * that waits for each stage on the request thread. Every request in progress
+ * still holds a request thread, and a node serves no more concurrent requests
+ * than it would with a blocking {@link Provider}.
+ * <p>
+ * Register implementations with
+ * {@link ProviderRegistry#registerAsyncProvider}.
+ *
+ * @param <T> a SCIM ResourceType that extends ScimResource
+ */
+public interface AsyncProvider<T extends ScimResource> {
+
+  /**
+   * @see Provider#create(ScimResource)
+   */
+  CompletionStage<T> create(T resource);
+
+  /**
+   * @see Provider#update(UpdateRequest)
+   */
+  CompletionStage<T> update(UpdateRequest<T> updateRequest);
+
+  /**
+   * @see Provider#get(String)
+   */
+  CompletionStage<T> get(String id);
+
+  /**
+   * @see Provider#find(Filter, PageRequest, SortRequest)
+   */
+  CompletionStage<FilterResponse<T>> find(Filter filter, PageRequest pageRequest, SortRequest sortRequest);
+
+  /**
+   * @see Provider#delete(String)
+   */
+  CompletionStage<Void> delete(String id);
+
+  /**
+   * @see Provider#getExtensionList()
+   */
+  List<Class<? extends ScimExtension>> getExtensionList() throws UnableToRetrieveExtensionsException;
+
+  /**
+   * @see Provider#handleException(Throwable)
+   */
+  default Response handleException(Throwable unhandled) {
+    return BaseResourceTypeResourceImpl.createGenericExceptionResponse(unhandled, Status.INTERNAL_SERVER_ERROR);
+  }
+}
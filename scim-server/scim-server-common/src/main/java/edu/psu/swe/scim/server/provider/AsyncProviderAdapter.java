@@ -0,0 +1,144 @@
+/*
+* Licensed to the Apache Software Foundation (ASF) under one
+* or more contributor license agreements.  See the NOTICE file
+* distributed with this work for additional information
+* regarding copyright ownership.  The ASF licenses this file
+* to you under the Apache License, Version 2.0 (the
+* "License"); you may not use this file except in compliance
+* with the License.  You may obtain a copy of the License at
+ 
+* http://www.apache.org/licenses/LICENSE-2.0
+
+* Unless required by applicable law or agreed to in writing,
+* software distributed under the License is distributed on an
+* "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+* KIND, either express or implied.  See the License for the
+* specific language governing permissions and limitations
+* under the License.
+*/
+
+package edu.psu.swe.scim.server.provider;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.Response.Status;
+
+import edu.psu.swe.scim.server.exception.UnableToCreateResourceException;
+import edu.psu.swe.scim.server.exception.UnableToDeleteResourceException;
+import edu.psu.swe.scim.server.exception.UnableToRetrieveExtensionsException;
+import edu.psu.swe.scim.server.exception.UnableToRetrieveResourceException;
+import edu.psu.swe.scim.server.exception.UnableToUpdateResourceException;
+import edu.psu.swe.scim.spec.protocol.filter.FilterResponse;
+import edu.psu.swe.scim.spec.protocol.search.Filter;
+import edu.psu.swe.scim.spec.protocol.search.PageRequest;
+import edu.psu.swe.scim.spec.protocol.search.SortRequest;
+import edu.psu.swe.scim.spec.resources.ScimExtension;
+import edu.psu.swe.scim.spec.resources.ScimResource;
+
+/**
+ * Presents an {@link AsyncProvider} as a {@link Provider} by waiting for each
+ * stage to complete on the calling thread, so that asynchronous providers can
+ * be used by the end-points and decorators that call providers
+ * synchronously. A stage that does not complete within the timeout is
+ * cancelled and the call fails with 504 Gateway Timeout, so a stuck provider
+ * can't hold request threads forever.
+ *
+ * @param <T> a SCIM ResourceType that extends ScimResource
+ */
+public class AsyncProviderAdapter<T extends ScimResource> implements Provider<T> {
+
+  @FunctionalInterface
+  interface ExceptionFactory<E extends Exception> {
+    E create(Status status, String message, Throwable cause);
+  }
+
+  private final AsyncProvider<T> asyncProvider;
+
+  private final long timeoutNanos;
+
+  public AsyncProviderAdapter(AsyncProvider<T> asyncProvider, Duration timeout) {
+    this.asyncProvider = asyncProvider;
+    this.timeoutNanos = timeout.toNanos();
+  }
+
+  public AsyncProvider<T> getAsyncProvider() {
+    return asyncProvider;
+  }
+
+  public Duration getTimeout() {
+    return Duration.ofNanos(timeoutNanos);
+  }
+
+  @Override
+  public T create(T resource) throws UnableToCreateResourceException {
+    return await(asyncProvider.create(resource), timeoutNanos, UnableToCreateResourceException.class, UnableToCreateResourceException::new);
+  }
+
+  @Override
+  public T update(UpdateRequest<T> updateRequest) throws UnableToUpdateResourceException {
+    return await(asyncProvider.update(updateRequest), timeoutNanos, UnableToUpdateResourceException.class, UnableToUpdateResourceException::new);
+  }
+
+  @Override
+  public T get(String id) throws UnableToRetrieveResourceException {
+    return await(asyncProvider.get(id), timeoutNanos, UnableToRetrieveResourceException.class, UnableToRetrieveResourceException::new);
+  }
+
+  @Override
+  public FilterResponse<T> find(Filter filter, PageRequest pageRequest, SortRequest sortRequest) throws UnableToRetrieveResourceException {
+    return await(asyncProvider.find(filter, pageRequest, sortRequest), timeoutNanos, UnableToRetrieveResourceException.class, UnableToRetrieveResourceException::new);
+  }
+
+  @Override
+  public void delete(String id) throws UnableToDeleteResourceException {
+    await(asyncProvider.delete(id), timeoutNanos, UnableToDeleteResourceException.class, UnableToDeleteResourceException::new);
+  }
+
+  @Override
+  public List<Class<? extends ScimExtension>> getExtensionList() throws UnableToRetrieveExtensionsException {
+    return asyncProvider.getExtensionList();
+  }
+
+  @Override
+  public Response handleException(Throwable unhandled) {
+    return asyncProvider.handleException(unhandled);
+  }
+
+  /**
+   * Waits for the stage and rethrows the exception it completed with. The
+   * exception the provider declares and runtime exceptions are rethrown as
+   * they are, any other exception is wrapped.
+   */
+  static <V, E extends Exception> V await(CompletionStage<V> stage, long timeoutNanos, Class<E> declared, ExceptionFactory<E> wrapper) throws E {
+    CompletableFuture<V> future = stage.toCompletableFuture();
+    try {
+      return future.get(timeoutNanos, TimeUnit.NANOSECONDS);
+    } catch (TimeoutException e) {
+      future.cancel(true);
+      throw wrapper.create(Status.GATEWAY_TIMEOUT, "Timed out waiting for the provider", e);
+    } catch (InterruptedException e) {
+      Thread.currentThread()
+            .interrupt();
+      throw wrapper.create(Status.INTERNAL_SERVER_ERROR, "Interrupted while waiting for the provider", e);
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (declared.isInstance(cause)) {
+        throw declared.cast(cause);
+      }
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      }
+      if (cause instanceof Error) {
+        throw (Error) cause;
+      }
+      throw wrapper.create(Status.INTERNAL_SERVER_ERROR, cause.getMessage(), cause);
+    }
+  }
+}
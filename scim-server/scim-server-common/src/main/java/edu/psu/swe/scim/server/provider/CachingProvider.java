@@ -0,0 +1,101 @@
+/*
+* Licensed to the Apache Software Foundation (ASF) under one
+* or more contributor license agreements.  See the NOTICE file
+* distributed with this work for additional information
+* regarding copyright ownership.  The ASF licenses this file
+* to you under the Apache License, Version 2.0 (the
+* "License"); you may not use this file except in compliance
+* with the License.  You may obtain a copy of the License at
+ 
+* http://www.apache.org/licenses/LICENSE-2.0
+
+* Unless required by applicable law or agreed to in writing,
+* software distributed under the License is distributed on an
+* "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+* KIND, either express or implied.  See the License for the
+* specific language governing permissions and limitations
+* under the License.
+*/
+
+package edu.psu.swe.scim.server.provider;
+
+import edu.psu.swe.scim.server.exception.UnableToCreateResourceException;
+import edu.psu.swe.scim.server.exception.UnableToDeleteResourceException;
+import edu.psu.swe.scim.server.exception.UnableToRetrieveResourceException;
+import edu.psu.swe.scim.server.exception.UnableToUpdateResourceException;
+import edu.psu.swe.scim.spec.resources.ScimResource;
+
+/**
+ * Reads resources through a {@link ResourceCache} so that repeated reads of
+ * the same id, e.g. the read that precedes every PUT and PATCH, do not reach
+ * the backing provider. Writes made through this provider invalidate the id
+ * they touch; writes made by other means are only picked up once the cached
+ * entry expires.
+ * <p>
+ * The cache keeps copies of its own and hands out copies of them, because
+ * the REST layer and {@link UpdateRequest} change the resources they are
+ * given.
+ *
+ * @param <T> a SCIM ResourceType that extends ScimResource
+ */
+public class CachingProvider<T extends ScimResource> extends DelegatingProvider<T> {
+
+  private final ResourceCache<T> cache;
+
+  public CachingProvider(Provider<T> delegate, ResourceCache<T> cache) {
+    super(delegate);
+    this.cache = cache;
+  }
+
+  public ResourceCache<T> getCache() {
+    return cache;
+  }
+
+  @Override
+  public T get(String id) throws UnableToRetrieveResourceException {
+    T resource = cache.get(id);
+    if (resource != null) {
+      return ResourceCopier.copy(resource);
+    }
+
+    long stamp = cache.getModificationCount();
+    resource = super.get(id);
+    cache.put(id, ResourceCopier.copyForCache(resource), stamp);
+    return resource;
+  }
+
+  @Override
+  public T create(T resource) throws UnableToCreateResourceException {
+    long stamp = cache.getModificationCount();
+    T created = super.create(resource);
+    if (created != null) {
+      cache.replace(created.getId(), ResourceCopier.copyForCache(created), stamp);
+    }
+    return created;
+  }
+
+  @Override
+  public T update(UpdateRequest<T> updateRequest) throws UnableToUpdateResourceException {
+    String id = updateRequest.getId();
+    long stamp = cache.invalidate(id);
+    T updated;
+    try {
+      updated = super.update(updateRequest);
+    } catch (UnableToUpdateResourceException | RuntimeException e) {
+      cache.invalidate(id);
+      throw e;
+    }
+    cache.replace(id, ResourceCopier.copyForCache(updated), stamp);
+    return updated;
+  }
+
+  @Override
+  public void delete(String id) throws UnableToDeleteResourceException {
+    cache.invalidate(id);
+    try {
+      super.delete(id);
+    } finally {
+      cache.invalidate(id);
+    }
+  }
+}
@@ -0,0 +1,143 @@
+/*
+* Licensed to the Apache Software Foundation (ASF) under one
+* or more contributor license agreements.  See the NOTICE file
+* distributed with this work for additional information
+* regarding copyright ownership.  The ASF licenses this file
+* to you under the Apache License, Version 2.0 (the
+* "License"); you may not use this file except in compliance
+* with the License.  You may obtain a copy of the License at
+ 
+* http://www.apache.org/licenses/LICENSE-2.0
+
+* Unless required by applicable law or agreed to in writing,
+* software distributed under the License is distributed on an
+* "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+* KIND, either express or implied.  See the License for the
+* specific language governing permissions and limitations
+* under the License.
+*/
+
+package edu.psu.swe.scim.server.provider;
+
+import java.time.Duration;
+import java.util.function.LongSupplier;
+
+/**
+ * Stops calls to a failing provider. After failureThreshold consecutive
+ * failures the circuit opens and calls are rejected without reaching the
+ * provider. Once openDuration has passed a single trial call is let through:
+ * the circuit closes again when it succeeds and reopens when it fails.
+ * <p>
+ * Every change of state starts a new generation and each permit records the
+ * generation it was granted in. Results of calls that were granted before the
+ * last change are ignored, so a slow call that started while the circuit was
+ * closed can neither close an open circuit nor end another call's trial.
+ */
+public class CircuitBreaker {
+
+  /**
+   * Returned by {@link #tryAcquire()} when the call may not be made.
+   */
+  public static final long NO_PERMIT = -1;
+
+  public enum State {
+    CLOSED, OPEN, HALF_OPEN
+  }
+
+  private final int failureThreshold;
+
+  private final long openNanos;
+
+  private final LongSupplier ticker;
+
+  private State state = State.CLOSED;
+
+  private long generation;
+
+  private int consecutiveFailures;
+
+  private long openedAt;
+
+  private boolean trialInFlight;
+
+  public CircuitBreaker(int failureThreshold, Duration openDuration) {
+    this(failureThreshold, openDuration, System::nanoTime);
+  }
+
+  CircuitBreaker(int failureThreshold, Duration openDuration, LongSupplier ticker) {
+    if (failureThreshold < 1) {
+      throw new IllegalArgumentException("The failure threshold must be positive: " + failureThreshold);
+    }
+    this.failureThreshold = failureThreshold;
+    this.openNanos = openDuration.toNanos();
+    this.ticker = ticker;
+  }
+
+  public synchronized State getState() {
+    return state;
+  }
+
+  /**
+   * @return {@link #NO_PERMIT} if the call may not be made, otherwise a
+   *         permit that must be passed to exactly one of
+   *         {@link #onSuccess(long)}, {@link #onFailure(long)} or
+   *         {@link #onAbandoned(long)}.
+   */
+  public synchronized long tryAcquire() {
+    switch (state) {
+    case CLOSED:
+      return generation;
+    case OPEN:
+      if (ticker.getAsLong() - openedAt < openNanos) {
+        return NO_PERMIT;
+      }
+      transitionTo(State.HALF_OPEN);
+      trialInFlight = true;
+      return generation;
+    default:
+      if (trialInFlight) {
+        return NO_PERMIT;
+      }
+      trialInFlight = true;
+      return generation;
+    }
+  }
+
+  public synchronized void onSuccess(long permit) {
+    if (permit != generation) {
+      return;
+    }
+    consecutiveFailures = 0;
+    if (state == State.HALF_OPEN) {
+      transitionTo(State.CLOSED);
+    }
+  }
+
+  public synchronized void onFailure(long permit) {
+    if (permit != generation) {
+      return;
+    }
+    consecutiveFailures++;
+    if (state == State.HALF_OPEN || consecutiveFailures >= failureThreshold) {
+      transitionTo(State.OPEN);
+      openedAt = ticker.getAsLong();
+    }
+  }
+
+  /**
+   * Records that an acquired call was not made, e.g. because the bulkhead
+   * was full.
+   */
+  public synchronized void onAbandoned(long permit) {
+    if (permit == generation) {
+      trialInFlight = false;
+    }
+  }
+
+  private void transitionTo(State next) {
+    state = next;
+    generation++;
+    consecutiveFailures = 0;
+    trialInFlight = false;
+  }
+}
@@ -0,0 +1,114 @@
+/*
+* Licensed to the Apache Software Foundation (ASF) under one
+* or more contributor license agreements.  See the NOTICE file
+* distributed with this work for additional information
+* regarding copyright ownership.  The ASF licenses this file
+* to you under the Apache License, Version 2.0 (the
+* "License"); you may not use this file except in compliance
+* with the License.  You may obtain a copy of the License at
+ 
+* http://www.apache.org/licenses/LICENSE-2.0
+
+* Unless required by applicable law or agreed to in writing,
+* software distributed under the License is distributed on an
+* "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+* KIND, either express or implied.  See the License for the
+* specific language governing permissions and limitations
+* under the License.
+*/
+
+package edu.psu.swe.scim.server.provider;
+
+import java.time.Duration;
+
+import edu.psu.swe.scim.server.exception.UnableToCreateResourceException;
+import edu.psu.swe.scim.server.exception.UnableToDeleteResourceException;
+import edu.psu.swe.scim.server.exception.UnableToRetrieveResourceException;
+import edu.psu.swe.scim.server.exception.UnableToUpdateResourceException;
+import edu.psu.swe.scim.spec.protocol.filter.FilterResponse;
+import edu.psu.swe.scim.spec.protocol.search.Filter;
+import edu.psu.swe.scim.spec.protocol.search.PageRequest;
+import edu.psu.swe.scim.spec.protocol.search.SortRequest;
+import edu.psu.swe.scim.spec.resources.ScimResource;
+
+/**
+ * Shares one provider call between concurrent identical gets and finds, see
+ * {@link SingleFlight}. A write through this provider makes later reads of
+ * the affected keys start a new call, so they observe the write.
+ *
+ * @param <T> a SCIM ResourceType that extends ScimResource
+ */
+public class CoalescingProvider<T extends ScimResource> extends DelegatingProvider<T> {
+
+  private final Flights<T> flights;
+
+  public CoalescingProvider(Provider<T> delegate, Flights<T> flights) {
+    super(delegate);
+    this.flights = flights;
+  }
+
+  public Flights<T> getFlights() {
+    return flights;
+  }
+
+  @Override
+  public T get(String id) throws UnableToRetrieveResourceException {
+    return flights.gets.execute(id, () -> super.get(id));
+  }
+
+  @Override
+  public FilterResponse<T> find(Filter filter, PageRequest pageRequest, SortRequest sortRequest) throws UnableToRetrieveResourceException {
+    return flights.finds.execute(FindResultCache.key(filter, pageRequest, sortRequest), () -> super.find(filter, pageRequest, sortRequest));
+  }
+
+  @Override
+  public T create(T resource) throws UnableToCreateResourceException {
+    try {
+      return super.create(resource);
+    } finally {
+      flights.finds.forgetAll();
+    }
+  }
+
+  @Override
+  public T update(UpdateRequest<T> updateRequest) throws UnableToUpdateResourceException {
+    try {
+      return super.update(updateRequest);
+    } finally {
+      flights.gets.forget(updateRequest.getId());
+      flights.finds.forgetAll();
+    }
+  }
+
+  @Override
+  public void delete(String id) throws UnableToDeleteResourceException {
+    try {
+      super.delete(id);
+    } finally {
+      flights.gets.forget(id);
+      flights.finds.forgetAll();
+    }
+  }
+
+  /**
+   * The calls in flight for one resource type, shared by all the
+   * CoalescingProvider instances of that type.
+   *
+   * @param <T> a SCIM ResourceType that extends ScimResource
+   */
+  public static class Flights<T extends ScimResource> {
+
+    final SingleFlight<String, T> gets;
+
+    final SingleFlight<FindResultCache.Key, FilterResponse<T>> finds;
+
+    public Flights(Duration timeout) {
+      gets = new SingleFlight<>(timeout, ResourceCopier::copy);
+      finds = new SingleFlight<>(timeout, ResourceCopier::copy);
+    }
+
+    public long getCoalescedCount() {
+      return gets.getCoalescedCount() + finds.getCoalescedCount();
+    }
+  }
+}
@@ -0,0 +1,163 @@
+/*
+* Licensed to the Apache Software Foundation (ASF) under one
+* or more contributor license agreements.  See the NOTICE file
+* distributed with this work for additional information
+* regarding copyright ownership.  The ASF licenses this file
+* to you under the Apache License, Version 2.0 (the
+* "License"); you may not use this file except in compliance
+* with the License.  You may obtain a copy of the License at
+ 
+* http://www.apache.org/licenses/LICENSE-2.0
+
+* Unless required by applicable law or agreed to in writing,
+* software distributed under the License is distributed on an
+* "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+* KIND, either express or implied.  See the License for the
+* specific language governing permissions and limitations
+* under the License.
+*/
+
+package edu.psu.swe.scim.server.provider;
+
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import javax.ws.rs.core.Response.Status;
+
+import edu.psu.swe.scim.server.exception.UnableToCreateResourceException;
+import edu.psu.swe.scim.server.exception.UnableToDeleteResourceException;
+import edu.psu.swe.scim.server.exception.UnableToRetrieveResourceException;
+import edu.psu.swe.scim.server.exception.UnableToUpdateResourceException;
+import edu.psu.swe.scim.spec.protocol.filter.FilterResponse;
+import edu.psu.swe.scim.spec.protocol.search.Filter;
+import edu.psu.swe.scim.spec.protocol.search.PageRequest;
+import edu.psu.swe.scim.spec.protocol.search.SortRequest;
+import edu.psu.swe.scim.spec.resources.ScimResource;
+
+/**
+ * Limits the number of calls that are made concurrently to a provider, so
+ * that running requests on many threads does not flood its backend. Calls
+ * over the limit wait, in arrival order, for a running call to complete.
+ *
+ * @param <T> a SCIM ResourceType that extends ScimResource
+ */
+public class ConcurrencyLimitingProvider<T extends ScimResource> extends DelegatingProvider<T> {
+
+  private final Limiter limiter;
+
+  public ConcurrencyLimitingProvider(Provider<T> delegate, Limiter limiter) {
+    super(delegate);
+    this.limiter = limiter;
+  }
+
+  public Limiter getLimiter() {
+    return limiter;
+  }
+
+  @Override
+  public T create(T resource) throws UnableToCreateResourceException {
+    limiter.acquire(e -> new UnableToCreateResourceException(Status.INTERNAL_SERVER_ERROR, e.getMessage(), e));
+    try {
+      return super.create(resource);
+    } finally {
+      limiter.release();
+    }
+  }
+
+  @Override
+  public T update(UpdateRequest<T> updateRequest) throws UnableToUpdateResourceException {
+    limiter.acquire(e -> new UnableToUpdateResourceException(Status.INTERNAL_SERVER_ERROR, e.getMessage(), e));
+    try {
+      return super.update(updateRequest);
+    } finally {
+      limiter.release();
+    }
+  }
+
+  @Override
+  public T get(String id) throws UnableToRetrieveResourceException {
+    limiter.acquire(e -> new UnableToRetrieveResourceException(Status.INTERNAL_SERVER_ERROR, e.getMessage(), e));
+    try {
+      return super.get(id);
+    } finally {
+      limiter.release();
+    }
+  }
+
+  @Override
+  public FilterResponse<T> find(Filter filter, PageRequest pageRequest, SortRequest sortRequest) throws UnableToRetrieveResourceException {
+    limiter.acquire(e -> new UnableToRetrieveResourceException(Status.INTERNAL_SERVER_ERROR, e.getMessage(), e));
+    try {
+      return super.find(filter, pageRequest, sortRequest);
+    } finally {
+      limiter.release();
+    }
+  }
+
+  @Override
+  public void delete(String id) throws UnableToDeleteResourceException {
+    limiter.acquire(e -> new UnableToDeleteResourceException(Status.INTERNAL_SERVER_ERROR, e.getMessage(), e));
+    try {
+      super.delete(id);
+    } finally {
+      limiter.release();
+    }
+  }
+
+  /**
+   * The permits of one resource type, shared by all the
+   * ConcurrencyLimitingProvider instances of that type.
+   */
+  public static class Limiter {
+
+    private final int maximumConcurrentCalls;
+
+    private final Semaphore permits;
+
+    public Limiter(int maximumConcurrentCalls) {
+      this.maximumConcurrentCalls = maximumConcurrentCalls;
+      this.permits = new Semaphore(maximumConcurrentCalls, true);
+    }
+
+    public int getMaximumConcurrentCalls() {
+      return maximumConcurrentCalls;
+    }
+
+    public int getActiveCalls() {
+      return maximumConcurrentCalls - permits.availablePermits();
+    }
+
+    public int getWaitingCalls() {
+      return permits.getQueueLength();
+    }
+
+    <E extends Exception> void acquire(Function<InterruptedException, E> onInterrupt) throws E {
+      try {
+        permits.acquire();
+      } catch (InterruptedException e) {
+        Thread.currentThread()
+              .interrupt();
+        throw onInterrupt.apply(e);
+      }
+    }
+
+    /**
+     * @return false if no permit became available within the wait.
+     */
+    <E extends Exception> boolean tryAcquire(Duration wait, Function<InterruptedException, E> onInterrupt) throws E {
+      try {
+        return permits.tryAcquire(wait.toNanos(), TimeUnit.NANOSECONDS);
+      } catch (InterruptedException e) {
+        Thread.currentThread()
+              .interrupt();
+        throw onInterrupt.apply(e);
+      }
+    }
+
+    void release() {
+      permits.release();
+    }
+  }
+}
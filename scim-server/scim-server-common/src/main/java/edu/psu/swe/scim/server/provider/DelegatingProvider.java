@@ -0,0 +1,115 @@
+/*
+* Licensed to the Apache Software Foundation (ASF) under one
+* or more contributor license agreements.  See the NOTICE file
+* distributed with this work for additional information
+* regarding copyright ownership.  The ASF licenses this file
+* to you under the Apache License, Version 2.0 (the
+* "License"); you may not use this file except in compliance
+* with the License.  You may obtain a copy of the License at
+ 
+* http://www.apache.org/licenses/LICENSE-2.0
+
+* Unless required by applicable law or agreed to in writing,
+* software distributed under the License is distributed on an
+* "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+* KIND, either express or implied.  See the License for the
+* specific language governing permissions and limitations
+* under the License.
+*/
+
+package edu.psu.swe.scim.server.provider;
+
+import java.util.List;
+
+import javax.ws.rs.core.Response;
+
+import edu.psu.swe.scim.server.exception.UnableToCreateResourceException;
+import edu.psu.swe.scim.server.exception.UnableToDeleteResourceException;
+import edu.psu.swe.scim.server.exception.UnableToRetrieveExtensionsException;
+import edu.psu.swe.scim.server.exception.UnableToRetrieveResourceException;
+import edu.psu.swe.scim.server.exception.UnableToUpdateResourceException;
+import edu.psu.swe.scim.spec.protocol.filter.FilterResponse;
+import edu.psu.swe.scim.spec.protocol.search.Filter;
+import edu.psu.swe.scim.spec.protocol.search.PageRequest;
+import edu.psu.swe.scim.spec.protocol.search.SortRequest;
+import edu.psu.swe.scim.spec.resources.ScimExtension;
+import edu.psu.swe.scim.spec.resources.ScimResource;
+
+/**
+ * Base class for providers that decorate another provider. Every method is
+ * forwarded to the delegate, subclasses override the ones they change.
+ *
+ * @param <T> a SCIM ResourceType that extends ScimResource
+ */
+public abstract class DelegatingProvider<T extends ScimResource> implements Provider<T> {
+
+  private final Provider<T> delegate;
+
+  protected DelegatingProvider(Provider<T> delegate) {
+    this.delegate = delegate;
+  }
+
+  public Provider<T> getDelegate() {
+    return delegate;
+  }
+
+  /**
+   * Returns the provider at the bottom of a chain of decorators, e.g. to read
+   * the annotations of the provider implementation.
+   */
+  public static Provider<?> unwrap(Provider<?> provider) {
+    Provider<?> current = provider;
+    while (current instanceof DelegatingProvider) {
+      current = ((DelegatingProvider<?>) current).getDelegate();
+    }
+    return current;
+  }
+
+  /**
+   * Returns the class of the provider implementation, looking through
+   * decorators and the adapter of asynchronous providers.
+   */
+  public static Class<?> getImplementationClass(Provider<?> provider) {
+    Provider<?> unwrapped = unwrap(provider);
+    if (unwrapped instanceof AsyncProviderAdapter) {
+      return ((AsyncProviderAdapter<?>) unwrapped).getAsyncProvider()
+                                                  .getClass();
+    }
+    return unwrapped.getClass();
+  }
+
+  @Override
+  public T create(T resource) throws UnableToCreateResourceException {
+    return delegate.create(resource);
+  }
+
+  @Override
+  public T update(UpdateRequest<T> updateRequest) throws UnableToUpdateResourceException {
+    return delegate.update(updateRequest);
+  }
+
+  @Override
+  public T get(String id) throws UnableToRetrieveResourceException {
+    return delegate.get(id);
+  }
+
+  @Override
+  public FilterResponse<T> find(Filter filter, PageRequest pageRequest, SortRequest sortRequest) throws UnableToRetrieveResourceException {
+    return delegate.find(filter, pageRequest, sortRequest);
+  }
+
+  @Override
+  public void delete(String id) throws UnableToDeleteResourceException {
+    delegate.delete(id);
+  }
+
+  @Override
+  public List<Class<? extends ScimExtension>> getExtensionList() throws UnableToRetrieveExtensionsException {
+    return delegate.getExtensionList();
+  }
+
+  @Override
+  public Response handleException(Throwable unhandled) {
+    return delegate.handleException(unhandled);
+  }
+}
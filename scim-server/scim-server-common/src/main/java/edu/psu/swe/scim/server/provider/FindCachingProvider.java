@@ -0,0 +1,100 @@
+/*
+* Licensed to the Apache Software Foundation (ASF) under one
+* or more contributor license agreements.  See the NOTICE file
+* distributed with this work for additional information
+* regarding copyright ownership.  The ASF licenses this file
+* to you under the Apache License, Version 2.0 (the
+* "License"); you may not use this file except in compliance
+* with the License.  You may obtain a copy of the License at
+ 
+* http://www.apache.org/licenses/LICENSE-2.0
+
+* Unless required by applicable law or agreed to in writing,
+* software distributed under the License is distributed on an
+* "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+* KIND, either express or implied.  See the License for the
+* specific language governing permissions and limitations
+* under the License.
+*/
+
+package edu.psu.swe.scim.server.provider;
+
+import edu.psu.swe.scim.server.exception.UnableToCreateResourceException;
+import edu.psu.swe.scim.server.exception.UnableToDeleteResourceException;
+import edu.psu.swe.scim.server.exception.UnableToRetrieveResourceException;
+import edu.psu.swe.scim.server.exception.UnableToUpdateResourceException;
+import edu.psu.swe.scim.spec.protocol.filter.FilterResponse;
+import edu.psu.swe.scim.spec.protocol.search.Filter;
+import edu.psu.swe.scim.spec.protocol.search.PageRequest;
+import edu.psu.swe.scim.spec.protocol.search.SortRequest;
+import edu.psu.swe.scim.spec.resources.ScimResource;
+
+/**
+ * Answers repeated finds from a {@link FindResultCache}. Any write made
+ * through this provider drops all cached finds of the resource type, since
+ * it may change which resources match. Writes made by other means, including
+ * writes to other resource types that change e.g. group membership, are only
+ * picked up once the cached entries expire.
+ * <p>
+ * Like {@link CachingProvider}, the cache keeps copies of its own and hands
+ * out copies of them.
+ *
+ * @param <T> a SCIM ResourceType that extends ScimResource
+ */
+public class FindCachingProvider<T extends ScimResource> extends DelegatingProvider<T> {
+
+  private final FindResultCache<T> cache;
+
+  public FindCachingProvider(Provider<T> delegate, FindResultCache<T> cache) {
+    super(delegate);
+    this.cache = cache;
+  }
+
+  public FindResultCache<T> getCache() {
+    return cache;
+  }
+
+  @Override
+  public FilterResponse<T> find(Filter filter, PageRequest pageRequest, SortRequest sortRequest) throws UnableToRetrieveResourceException {
+    FindResultCache.Key key = FindResultCache.key(filter, pageRequest, sortRequest);
+    FilterResponse<T> response = cache.get(key);
+    if (response != null) {
+      return ResourceCopier.copy(response);
+    }
+
+    long stamp = cache.getModificationCount();
+    response = super.find(filter, pageRequest, sortRequest);
+    cache.put(key, ResourceCopier.copyForCache(response), stamp);
+    return response;
+  }
+
+  @Override
+  public T create(T resource) throws UnableToCreateResourceException {
+    cache.invalidateAll();
+    try {
+      return super.create(resource);
+    } finally {
+      cache.invalidateAll();
+    }
+  }
+
+  @Override
+  public T update(UpdateRequest<T> updateRequest) throws UnableToUpdateResourceException {
+    cache.invalidateAll();
+    try {
+      return super.update(updateRequest);
+    } finally {
+      cache.invalidateAll();
+    }
+  }
+
+  @Override
+  public void delete(String id) throws UnableToDeleteResourceException {
+    cache.invalidateAll();
+    try {
+      super.delete(id);
+    } finally {
+      cache.invalidateAll();
+    }
+  }
+}
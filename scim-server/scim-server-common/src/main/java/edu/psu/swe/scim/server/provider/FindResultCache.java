@@ -0,0 +1,99 @@
+/*
+* Licensed to the Apache Software Foundation (ASF) under one
+* or more contributor license agreements.  See the NOTICE file
+* distributed with this work for additional information
+* regarding copyright ownership.  The ASF licenses this file
+* to you under the Apache License, Version 2.0 (the
+* "License"); you may not use this file except in compliance
+* with the License.  You may obtain a copy of the License at
+ 
+* http://www.apache.org/licenses/LICENSE-2.0
+
+* Unless required by applicable law or agreed to in writing,
+* software distributed under the License is distributed on an
+* "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+* KIND, either express or implied.  See the License for the
+* specific language governing permissions and limitations
+* under the License.
+*/
+
+package edu.psu.swe.scim.server.provider;
+
+import java.util.function.LongSupplier;
+
+import edu.psu.swe.scim.server.configuration.ServerConfiguration.CacheConfiguration;
+import edu.psu.swe.scim.spec.protocol.attribute.AttributeReference;
+import edu.psu.swe.scim.spec.protocol.filter.FilterResponse;
+import edu.psu.swe.scim.spec.protocol.search.Filter;
+import edu.psu.swe.scim.spec.protocol.search.PageRequest;
+import edu.psu.swe.scim.spec.protocol.search.SortOrder;
+import edu.psu.swe.scim.spec.protocol.search.SortRequest;
+import edu.psu.swe.scim.spec.resources.ScimResource;
+import lombok.Value;
+
+/**
+ * Holds the responses of {@link Provider#find} for one resource type, keyed
+ * by the normalized filter, the page and the sort order. Empty responses are
+ * cached as well, so repeated existence checks such as
+ * <code>userName eq "bjensen"</code> do not reach the provider.
+ *
+ * @param <T> a SCIM ResourceType that extends ScimResource
+ */
+public class FindResultCache<T extends ScimResource> extends ResultCache<FindResultCache.Key, FilterResponse<T>> {
+
+  private final CacheConfiguration configuration;
+
+  public FindResultCache(CacheConfiguration configuration) {
+    super(configuration.getMaximumSize(), configuration.getTimeToLive());
+    this.configuration = configuration;
+  }
+
+  FindResultCache(CacheConfiguration configuration, LongSupplier ticker) {
+    super(configuration.getMaximumSize(), configuration.getTimeToLive(), ticker);
+    this.configuration = configuration;
+  }
+
+  public CacheConfiguration getConfiguration() {
+    return configuration;
+  }
+
+  /**
+   * Builds the key of a find. The filter is rendered from its parsed
+   * expression so that filters that only differ in case of operators or
+   * whitespace share an entry.
+   */
+  public static Key key(Filter filter, PageRequest pageRequest, SortRequest sortRequest) {
+    String filterText = null;
+    if (filter != null) {
+      filterText = filter.getExpression() != null ? filter.getExpression()
+                                                          .toFilter()
+                                                  : filter.getFilter();
+    }
+
+    Integer startIndex = null;
+    Integer count = null;
+    if (pageRequest != null) {
+      startIndex = pageRequest.getStartIndex();
+      count = pageRequest.getCount();
+    }
+
+    String sortBy = null;
+    SortOrder sortOrder = null;
+    if (sortRequest != null) {
+      AttributeReference sortByReference = sortRequest.getSortBy();
+      sortBy = sortByReference != null ? sortByReference.getFullyQualifiedAttributeName() : null;
+      sortOrder = sortRequest.getSortOrder();
+    }
+
+    return new Key(filterText, startIndex, count, sortBy, sortOrder);
+  }
+
+  @Value
+  public static class Key {
+    String filter;
+    Integer startIndex;
+    Integer count;
+    String sortBy;
+    SortOrder sortOrder;
+  }
+}
@@ -0,0 +1,113 @@
+/*
+* Licensed to the Apache Software Foundation (ASF) under one
+* or more contributor license agreements.  See the NOTICE file
+* distributed with this work for additional information
+* regarding copyright ownership.  The ASF licenses this file
+* to you under the Apache License, Version 2.0 (the
+* "License"); you may not use this file except in compliance
+* with the License.  You may obtain a copy of the License at
+ 
+* http://www.apache.org/licenses/LICENSE-2.0
+
+* Unless required by applicable law or agreed to in writing,
+* software distributed under the License is distributed on an
+* "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+* KIND, either express or implied.  See the License for the
+* specific language governing permissions and limitations
+* under the License.
+*/
+
+package edu.psu.swe.scim.server.provider;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Holds the index in memory, so the values it knows about are lost when the
+ * server restarts and are not shared between servers. Every operation takes
+ * time proportional to the number of values involved, not to the size of the
+ * index.
+ */
+public class InMemoryUniquenessIndex implements UniquenessIndex {
+
+  private final Map<UniqueValue, String> owners = new HashMap<>();
+
+  private final Map<String, Set<UniqueValue>> valuesByOwner = new HashMap<>();
+
+  @Override
+  public synchronized Set<UniqueValue> reserve(String owner, Set<UniqueValue> values) {
+    Set<UniqueValue> conflicts = null;
+    for (UniqueValue value : values) {
+      String existing = owners.get(value);
+      if (existing != null && !existing.equals(owner)) {
+        if (conflicts == null) {
+          conflicts = new HashSet<>();
+        }
+        conflicts.add(value);
+      }
+    }
+    if (conflicts != null) {
+      return conflicts;
+    }
+
+    if (!values.isEmpty()) {
+      Set<UniqueValue> held = valuesByOwner.computeIfAbsent(owner, o -> new HashSet<>());
+      for (UniqueValue value : values) {
+        owners.put(value, owner);
+        held.add(value);
+      }
+    }
+    return Collections.emptySet();
+  }
+
+  @Override
+  public synchronized void retain(String owner, Set<UniqueValue> retained) {
+    Set<UniqueValue> held = valuesByOwner.get(owner);
+    if (held == null) {
+      return;
+    }
+    for (Iterator<UniqueValue> iterator = held.iterator(); iterator.hasNext();) {
+      UniqueValue value = iterator.next();
+      if (!retained.contains(value)) {
+        owners.remove(value);
+        iterator.remove();
+      }
+    }
+    if (held.isEmpty()) {
+      valuesByOwner.remove(owner);
+    }
+  }
+
+  @Override
+  public synchronized void release(String owner) {
+    Set<UniqueValue> held = valuesByOwner.remove(owner);
+    if (held != null) {
+      for (UniqueValue value : held) {
+        owners.remove(value);
+      }
+    }
+  }
+
+  @Override
+  public synchronized void transfer(String owner, String newOwner) {
+    Set<UniqueValue> held = valuesByOwner.remove(owner);
+    if (held == null) {
+      return;
+    }
+    for (UniqueValue value : held) {
+      owners.put(value, newOwner);
+    }
+    valuesByOwner.merge(newOwner, held, (existing, transferred) -> {
+      existing.addAll(transferred);
+      return existing;
+    });
+  }
+
+  public synchronized int size() {
+    return owners.size();
+  }
+}
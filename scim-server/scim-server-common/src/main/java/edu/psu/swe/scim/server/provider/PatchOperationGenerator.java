@@ -0,0 +1,443 @@
+/*
+* Licensed to the Apache Software Foundation (ASF) under one
+* or more contributor license agreements.  See the NOTICE file
+* distributed with this work for additional information
+* regarding copyright ownership.  The ASF licenses this file
+* to you under the Apache License, Version 2.0 (the
+* "License"); you may not use this file except in compliance
+* with the License.  You may obtain a copy of the License at
+ 
+* http://www.apache.org/licenses/LICENSE-2.0
+
+* Unless required by applicable law or agreed to in writing,
+* software distributed under the License is distributed on an
+* "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+* KIND, either express or implied.  See the License for the
+* specific language governing permissions and limitations
+* under the License.
+*/
+
+package edu.psu.swe.scim.server.provider;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+import lombok.extern.slf4j.Slf4j;
+
+import edu.psu.swe.scim.server.schema.Registry;
+import edu.psu.swe.scim.spec.protocol.attribute.AttributeReference;
+import edu.psu.swe.scim.spec.protocol.data.PatchOperation;
+import edu.psu.swe.scim.spec.protocol.data.PatchOperation.Type;
+import edu.psu.swe.scim.spec.protocol.data.PatchOperationPath;
+import edu.psu.swe.scim.spec.protocol.filter.AttributeComparisonExpression;
+import edu.psu.swe.scim.spec.protocol.filter.CompareOperator;
+import edu.psu.swe.scim.spec.protocol.filter.FilterExpression;
+import edu.psu.swe.scim.spec.protocol.filter.ValuePathExpression;
+import edu.psu.swe.scim.spec.resources.ScimExtension;
+import edu.psu.swe.scim.spec.resources.ScimResource;
+import edu.psu.swe.scim.spec.resources.TypedAttribute;
+import edu.psu.swe.scim.spec.schema.AttributeAccessor;
+import edu.psu.swe.scim.spec.schema.AttributeContainer;
+import edu.psu.swe.scim.spec.schema.Schema;
+import edu.psu.swe.scim.spec.schema.Schema.Attribute;
+
+/**
+ * Creates the patch operations that turn one resource into another. Both
+ * object graphs are walked side by side along the attributes of their schemas
+ * and operations are emitted for the values that differ.
+ * <p>
+ * Elements of multi-valued attributes are paired by their type, or by their
+ * value when they have no type, rather than by their position. The pairing is
+ * a hash join, so it takes linear time and leaves the collections as they
+ * were. Elements that
+ * only the original has are removed with a filter on that key, elements that
+ * only the new resource has are added and paired elements are compared
+ * attribute by attribute. An empty collection is treated the same as a
+ * missing one.
+ */
+@Slf4j
+class PatchOperationGenerator {
+
+  private static final String TYPE = "type";
+  private static final String VALUE = "value";
+
+  // Only the elements that are added are sorted, so the operations come out in
+  // a predictable order
+  private static final PrioritySortingComparitor ADDED_ORDER = new PrioritySortingComparitor(Collections.emptySet());
+
+  private final Registry registry;
+
+  PatchOperationGenerator(Registry registry) {
+    this.registry = registry;
+  }
+
+  List<PatchOperation> generate(ScimResource original, ScimResource resource, Schema schema) {
+    List<PatchOperation> operations = new ArrayList<>();
+    diffAttributes(operations, null, schema, original, resource);
+
+    Map<String, ScimExtension> originalExtensions = original.getExtensions();
+    Map<String, ScimExtension> resourceExtensions = resource.getExtensions();
+    Set<String> urns = new LinkedHashSet<>(originalExtensions.keySet());
+    urns.addAll(resourceExtensions.keySet());
+
+    for (String urn : urns) {
+      ScimExtension originalExtension = originalExtensions.get(urn);
+      ScimExtension resourceExtension = resourceExtensions.get(urn);
+
+      if (originalExtension == null) {
+        operations.add(operation(Type.ADD, new AttributeReference(urn, null), null, resourceExtension));
+      } else if (resourceExtension == null) {
+        operations.add(operation(Type.REMOVE, new AttributeReference(urn, null), null, null));
+      } else {
+        Schema extensionSchema = registry.getSchema(urn);
+        if (extensionSchema != null) {
+          diffAttributes(operations, urn, extensionSchema, originalExtension, resourceExtension);
+        } else if (!originalExtension.equals(resourceExtension)) {
+          log.warn("No schema is registered for extension {}, replacing it as a whole", urn);
+          operations.add(operation(Type.REPLACE, new AttributeReference(urn, null), null, resourceExtension));
+        }
+      }
+    }
+
+    return operations;
+  }
+
+  /**
+   * @return the ordinals, within {@link AttributeContainer#getAttributes()},
+   *         of the attributes whose values differ. Either object may be null,
+   *         in which case every attribute the other one has a value for has
+   *         changed. The values are first compared in place, see
+   *         {@link #isEqual(Attribute, Object, Object)}. Only values that
+   *         differ, e.g. collections in a different order, are diffed, and
+   *         that diff stops at the first difference without building any
+   *         operations.
+   */
+  BitSet changedAttributes(String urn, AttributeContainer container, Object original, Object resource) {
+    BitSet changed = new BitSet();
+    if (original == resource) {
+      return changed;
+    }
+
+    List<Attribute> attributes = container.getAttributes();
+    for (int i = 0; i < attributes.size(); i++) {
+      AttributeAccessor accessor = attributes.get(i)
+                                             .getAccessor();
+      if (accessor == null) {
+        continue;
+      }
+
+      if (original == null || resource == null) {
+        Object value = emptyToNull(accessor.get(original != null ? original : resource));
+        changed.set(i, value != null);
+      } else {
+        Object originalValue = accessor.get(original);
+        Object resourceValue = accessor.get(resource);
+        if (!isEqual(attributes.get(i), originalValue, resourceValue)) {
+          changed.set(i, diffValues(null, urn, attributes.get(i), originalValue, resourceValue));
+        }
+      }
+    }
+    return changed;
+  }
+
+  /**
+   * Compares two values of the attribute without pairing the elements of
+   * collections. Complex values are compared sub-attribute by sub-attribute
+   * rather than with equals, which some of them implement over only part of
+   * their attributes, and collections element by element in order.
+   *
+   * @return true if the values are the same; false if they differ or if
+   *         they only differ in the order of their elements.
+   */
+  private static boolean isEqual(Attribute attribute, Object originalValue, Object resourceValue) {
+    if (originalValue == resourceValue) {
+      return true;
+    }
+
+    if (attribute.isMultiValued()) {
+      Collection<?> originals = (Collection<?>) emptyToNull(originalValue);
+      Collection<?> resources = (Collection<?>) emptyToNull(resourceValue);
+      if (originals == null || resources == null) {
+        return originals == resources;
+      }
+      if (originals.size() != resources.size()) {
+        return false;
+      }
+      Iterator<?> resourceIterator = resources.iterator();
+      for (Object original : originals) {
+        if (!isEqualElement(attribute, original, resourceIterator.next())) {
+          return false;
+        }
+      }
+      return true;
+    }
+    return isEqualElement(attribute, originalValue, resourceValue);
+  }
+
+  private static boolean isEqualElement(Attribute attribute, Object original, Object resource) {
+    if (original == resource) {
+      return true;
+    }
+    if (attribute.getType() != Attribute.Type.COMPLEX) {
+      return Objects.equals(emptyToNull(original), emptyToNull(resource));
+    }
+    if (original == null || resource == null) {
+      return false;
+    }
+    for (Attribute subAttribute : attribute.getAttributes()) {
+      AttributeAccessor accessor = subAttribute.getAccessor();
+      if (accessor != null && !Objects.equals(emptyToNull(accessor.get(original)), emptyToNull(accessor.get(resource)))) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private void diffAttributes(List<PatchOperation> operations, String urn, AttributeContainer container, Object original, Object resource) {
+    for (Attribute attribute : container.getAttributes()) {
+      AttributeAccessor accessor = attribute.getAccessor();
+      if (accessor != null) {
+        diffValues(operations, urn, attribute, accessor.get(original), accessor.get(resource));
+      }
+    }
+  }
+
+  /**
+   * Adds the operations that turn the original value of the attribute into
+   * the new one. When operations is null the values are only compared, which
+   * stops at the first difference.
+   *
+   * @return true if the values differ.
+   */
+  private boolean diffValues(List<PatchOperation> operations, String urn, Attribute attribute, Object originalValue, Object resourceValue) {
+    if (originalValue == resourceValue) {
+      return false;
+    }
+
+    String name = attribute.getName();
+    if (attribute.isMultiValued()) {
+      return diffMultiValued(operations, urn, attribute, (Collection<?>) originalValue, (Collection<?>) resourceValue);
+    } else if (attribute.getType() == Attribute.Type.COMPLEX) {
+      if (originalValue == null) {
+        return add(operations, Type.ADD, urn, name, null, null, resourceValue);
+      } else if (resourceValue == null) {
+        return add(operations, Type.REMOVE, urn, name, null, null, null);
+      } else {
+        return diffSubAttributes(operations, urn, attribute, null, originalValue, resourceValue);
+      }
+    } else {
+      return diffValue(operations, urn, name, null, null, originalValue, resourceValue);
+    }
+  }
+
+  /**
+   * Compares the sub-attributes of a complex value, or of a pair of elements of
+   * a multi-valued attribute when a filter is given. Sub-attributes are
+   * compared as whole values because a path cannot reach any deeper.
+   */
+  private boolean diffSubAttributes(List<PatchOperation> operations, String urn, Attribute attribute, FilterExpression filter, Object original, Object resource) {
+    boolean changed = false;
+    for (Attribute subAttribute : attribute.getAttributes()) {
+      AttributeAccessor accessor = subAttribute.getAccessor();
+      if (accessor == null) {
+        continue;
+      }
+
+      if (diffValue(operations, urn, attribute.getName(), subAttribute.getName(), filter, accessor.get(original), accessor.get(resource))) {
+        if (operations == null) {
+          return true;
+        }
+        changed = true;
+      }
+    }
+    return changed;
+  }
+
+  private boolean diffMultiValued(List<PatchOperation> operations, String urn, Attribute attribute, Collection<?> originals, Collection<?> resources) {
+    boolean noOriginals = originals == null || originals.isEmpty();
+    boolean noResources = resources == null || resources.isEmpty();
+    String name = attribute.getName();
+
+    if (noOriginals && noResources) {
+      return false;
+    }
+    if (noResources) {
+      return add(operations, Type.REMOVE, urn, name, null, null, null);
+    }
+
+    // Pair the elements by key with a hash join. Elements that share a key are
+    // paired in the order they appear in.
+    List<Object> resourceKeys = new ArrayList<>(resources.size());
+    Map<Object, Deque<Object>> resourcesByKey = new HashMap<>();
+    for (Object resource : resources) {
+      Object key = resource != null ? key(resource, attribute) : null;
+      resourceKeys.add(key);
+      if (resource != null) {
+        resourcesByKey.computeIfAbsent(key, k -> new ArrayDeque<>())
+                      .add(resource);
+      }
+    }
+
+    boolean changed = false;
+    Map<Object, Integer> matchedCounts = new HashMap<>();
+    if (!noOriginals) {
+      boolean complex = attribute.getType() == Attribute.Type.COMPLEX;
+      for (Object original : originals) {
+        if (original == null) {
+          continue;
+        }
+
+        Object key = key(original, attribute);
+        Deque<Object> candidates = resourcesByKey.get(key);
+        Object match = candidates != null ? candidates.poll() : null;
+
+        // The filter is only needed for the operations
+        FilterExpression filter = operations != null ? filter(original, attribute) : null;
+        if (match == null) {
+          if (operations == null) {
+            return true;
+          }
+          add(operations, Type.REMOVE, urn, name, null, filter, null);
+          changed = true;
+        } else {
+          matchedCounts.merge(key, 1, Integer::sum);
+          if (complex && match != original && diffSubAttributes(operations, urn, attribute, filter, original, match)) {
+            if (operations == null) {
+              return true;
+            }
+            changed = true;
+          }
+        }
+      }
+    }
+
+    // The paired elements are the first ones with each key
+    List<Object> added = new ArrayList<>();
+    int i = 0;
+    for (Object resource : resources) {
+      Object key = resourceKeys.get(i++);
+      if (resource == null) {
+        continue;
+      }
+      Integer matched = matchedCounts.get(key);
+      if (matched != null && matched > 0) {
+        matchedCounts.put(key, matched - 1);
+      } else {
+        added.add(resource);
+      }
+    }
+
+    if (added.isEmpty()) {
+      return changed;
+    }
+    if (operations != null) {
+      added.sort(ADDED_ORDER);
+      for (Object resource : added) {
+        add(operations, Type.ADD, urn, name, null, null, resource);
+      }
+    }
+    return true;
+  }
+
+  private static boolean diffValue(List<PatchOperation> operations, String urn, String name, String subName, FilterExpression filter, Object original, Object resource) {
+    Object originalValue = emptyToNull(original);
+    Object resourceValue = emptyToNull(resource);
+
+    if (Objects.equals(originalValue, resourceValue)) {
+      return false;
+    }
+
+    if (originalValue == null) {
+      return add(operations, Type.ADD, urn, name, subName, filter, resourceValue);
+    } else if (resourceValue == null) {
+      return add(operations, Type.REMOVE, urn, name, subName, filter, null);
+    } else {
+      return add(operations, Type.REPLACE, urn, name, subName, filter, resourceValue);
+    }
+  }
+
+  /**
+   * Adds the operation unless the values are only being compared.
+   *
+   * @return true, as the operation is a difference.
+   */
+  private static boolean add(List<PatchOperation> operations, Type type, String urn, String name, String subName, FilterExpression filter, Object value) {
+    if (operations != null) {
+      operations.add(operation(type, new AttributeReference(urn, name, subName), filter, value));
+    }
+    return true;
+  }
+
+  private static Object emptyToNull(Object value) {
+    if (value instanceof Collection && ((Collection<?>) value).isEmpty()) {
+      return null;
+    }
+    return value;
+  }
+
+  /**
+   * @return the value elements of a multi-valued attribute are paired by.
+   */
+  private static Object key(Object element, Attribute attribute) {
+    if (element instanceof TypedAttribute) {
+      return ((TypedAttribute) element).getType();
+    }
+
+    AttributeAccessor valueAccessor = valueAccessor(attribute);
+    if (valueAccessor != null && element != null) {
+      return valueAccessor.get(element);
+    }
+    return element;
+  }
+
+  private static FilterExpression filter(Object element, Attribute attribute) {
+    if (element instanceof TypedAttribute) {
+      String type = ((TypedAttribute) element).getType();
+      return new AttributeComparisonExpression(new AttributeReference(TYPE), CompareOperator.EQ, type);
+    }
+
+    Object value = element;
+    AttributeAccessor valueAccessor = valueAccessor(attribute);
+    if (valueAccessor != null && element != null) {
+      value = valueAccessor.get(element);
+    } else if (attribute.getType() == Attribute.Type.COMPLEX) {
+      log.info("Attribute: {} doesn't implement TypedAttribute or have a value, can't create ValueFilterExpression", element != null ? element.getClass() : null);
+      value = "?";
+    }
+
+    if (value instanceof Enum) {
+      value = ((Enum<?>) value).name();
+    }
+    return new AttributeComparisonExpression(new AttributeReference(VALUE), CompareOperator.EQ, value != null ? value.toString() : null);
+  }
+
+  private static AttributeAccessor valueAccessor(Attribute attribute) {
+    if (attribute.getType() != Attribute.Type.COMPLEX) {
+      return null;
+    }
+    Attribute valueAttribute = attribute.getAttribute(VALUE);
+    return valueAttribute != null ? valueAttribute.getAccessor() : null;
+  }
+
+  private static PatchOperation operation(Type type, AttributeReference attributeReference, FilterExpression filter, Object value) {
+    PatchOperationPath patchOperationPath = new PatchOperationPath();
+    patchOperationPath.setValuePathExpression(new ValuePathExpression(attributeReference, filter));
+
+    PatchOperation operation = new PatchOperation();
+    operation.setOperation(type);
+    operation.setPath(patchOperationPath);
+    operation.setValue(value);
+    return operation;
+  }
+}
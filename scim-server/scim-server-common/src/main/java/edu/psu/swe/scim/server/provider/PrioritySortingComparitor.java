@@ -43,6 +43,9 @@ public class PrioritySortingComparitor implements Comparator<Object> {
 
     Comparable c1 = getComparableValue(o1);
     Comparable c2 = getComparableValue(o2);
+    if (c1 == null || c2 == null) {
+      return c1 == c2 ? 0 : (c1 == null ? -1 : 1);
+    }
     
     boolean o1Priority = priorities.contains(c1);
     boolean o2Priority = priorities.contains(c2);
@@ -80,15 +80,20 @@ public interface Provider<T extends ScimResource> {
   
   /**
    * Finds and retrieves all ScimResource objects known to the persistence
-   * layer that match the criteria specified by the passed Filter.  The results
-   * may be truncated by the scope specified by the passed PageRequest and
-   * the order of the returned resources may be controlled by the passed
-   * SortRequest.
+   * layer that match the criteria specified by the passed Filter, in the
+   * order of the passed SortRequest and truncated to the passed PageRequest,
+   * or not truncated at all when the PageRequest is null.  Providers that
+   * cannot sort natively may use
+   * {@link edu.psu.swe.scim.server.utility.SortUtil} to produce the sorted
+   * page. The resource type end-points pass a null PageRequest when the
+   * ServerConfiguration supports sort and a sortBy is requested, because
+   * they then sort and page the returned resources themselves.
    * 
    * @param filter The filter that determines the ScimResources that will be
    *        part of the ResultList
    * @param pageRequest For paged requests, this object specifies the start
-   *        index and number of ScimResources that should be returned.
+   *        index and number of ScimResources that should be returned, null
+   *        for all of them.
    * @param sortRequest Specifies which fields the returned ScimResources
    *        should be sorted by and whether the sort order is ascending or
    *        descending.
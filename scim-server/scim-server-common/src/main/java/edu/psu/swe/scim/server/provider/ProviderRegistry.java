@@ -21,18 +21,30 @@ package edu.psu.swe.scim.server.provider;
 
 import java.lang.reflect.Field;
 import java.lang.reflect.ParameterizedType;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-
-import javax.ejb.Lock;
-import javax.ejb.LockType;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import javax.ejb.ConcurrencyManagement;
+import javax.ejb.ConcurrencyManagementType;
 import javax.ejb.Singleton;
 import javax.ejb.Startup;
 import javax.enterprise.inject.Instance;
@@ -42,9 +54,13 @@ import javax.xml.bind.annotation.XmlEnumValue;
 import com.fasterxml.jackson.core.JsonProcessingException;
 
 import edu.psu.swe.scim.common.ScimUtils;
+import edu.psu.swe.scim.server.configuration.ServerConfiguration;
+import edu.psu.swe.scim.server.configuration.ServerConfiguration.CacheConfiguration;
+import edu.psu.swe.scim.server.configuration.ServerConfiguration.ResilienceConfiguration;
 import edu.psu.swe.scim.server.exception.InvalidProviderException;
 import edu.psu.swe.scim.server.exception.UnableToRetrieveExtensionsException;
 import edu.psu.swe.scim.server.schema.Registry;
+import edu.psu.swe.scim.server.utility.ProviderExecutor;
 import edu.psu.swe.scim.spec.annotation.ScimAttribute;
 import edu.psu.swe.scim.spec.annotation.ScimExtensionType;
 import edu.psu.swe.scim.spec.annotation.ScimResourceIdReference;
@@ -54,43 +70,48 @@ import edu.psu.swe.scim.spec.extension.ScimExtensionRegistry;
 import edu.psu.swe.scim.spec.resources.BaseResource;
 import edu.psu.swe.scim.spec.resources.ScimExtension;
 import edu.psu.swe.scim.spec.resources.ScimResource;
+import edu.psu.swe.scim.spec.schema.AttributeAccessor;
+import edu.psu.swe.scim.spec.schema.GeneratedSchema;
+import edu.psu.swe.scim.spec.schema.ResourceReference;
 import edu.psu.swe.scim.spec.schema.ResourceType;
 import edu.psu.swe.scim.spec.schema.Schema;
 import edu.psu.swe.scim.spec.schema.Schema.Attribute;
 import edu.psu.swe.scim.spec.schema.Schema.Attribute.AddAction;
 import edu.psu.swe.scim.spec.schema.Schema.Attribute.Type;
+import edu.psu.swe.scim.spec.schema.Schema.Attribute.Uniqueness;
 import lombok.Data;
+import lombok.Value;
 import lombok.extern.slf4j.Slf4j;
 
+/**
+ * Maps each resource class to its provider. The map is an immutable snapshot
+ * published through a volatile field; {@link #registerProvider} copies it, so
+ * looking up a provider does not take a lock.
+ */
 @Singleton
 @Startup
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
 @Data
 @Slf4j
 public class ProviderRegistry {
 
-  private static final String STRING_TYPE_IDENTIFIER = "class java.lang.String";
-  private static final String CHARACTER_ARRAY_TYPE_IDENTIFIER = "class [C";
-  private static final String BIG_C_CHARACTER_ARRAY_TYPE_IDENTIFIER = "class [Ljava.lang.Character;";
-  private static final String INT_TYPE_IDENTIFIER = "int";
-  private static final String INTEGER_TYPE_IDENTIFIER = "class java.lang.Integer";
-  private static final String FLOAT_TYPE_IDENTIFIER = "float";
-  private static final String BIG_F_FLOAT_TYPE_IDENTIFIER = "class java.lang.Float";
-  private static final String DOUBLE_TYPE_IDENTIFIER = "double";
-  private static final String BIG_D_DOUBLE_TYPE_IDENTIFIER = "class java.lang.Double";
-  private static final String BOOLEAN_TYPE_IDENTIFIER = "boolean";
-  private static final String BIG_B_BOOLEAN_TYPE_IDENTIFIER = "class java.lang.Boolean";
-  private static final String LOCAL_TIME_TYPE_IDENTIFER = "class java.time.LocalTime";
-  private static final String LOCAL_DATE_TYPE_IDENTIFER = "class java.time.LocalDate";
-  private static final String LOCAL_DATE_TIME_TYPE_IDENTIFIER = "class java.time.LocalDateTime";
-  private static final String DATE_TYPE_IDENTIFIER = "class java.util.Date";
-  private static final String BYTE_ARRAY_TYPE_IDENTIFIER = "class [B";
-  private static final String RESOURCE_REFERENCE_TYPE_IDENTIFIER = "class edu.psu.swe.scim.spec.schema.ResourceReference$ReferenceType";
+  // Must match the types in ScimSchemaProcessor, which builds the same schema
+  // at compile time
+  private static final Map<Class<?>, Type> ATTRIBUTE_TYPES = createAttributeTypes();
+
+  private static final Duration DEFAULT_ASYNC_PROVIDER_TIMEOUT = new ServerConfiguration().getAsyncProviderTimeout();
 
   @Inject
   Registry registry;
 
   @Inject
   ScimExtensionRegistry scimExtensionRegistry;
+
+  @Inject
+  ServerConfiguration serverConfiguration;
+
+  @Inject
+  ProviderExecutor providerExecutor;
   
   public ProviderRegistry() {}
   
@@ -99,14 +120,70 @@ public class ProviderRegistry {
     this.scimExtensionRegistry = scimExtensionRegistry;
   }
 
-  private Map<Class<? extends ScimResource>, Instance<? extends Provider<? extends ScimResource>>> providerMap = new HashMap<>();
+  private volatile Map<Class<? extends ScimResource>, Instance<? extends Provider<? extends ScimResource>>> providerMap = Collections.emptyMap();
+
+  private volatile Map<Class<? extends ScimResource>, Instance<? extends AsyncProvider<? extends ScimResource>>> asyncProviderMap = Collections.emptyMap();
+
+  private volatile Map<Class<? extends ScimResource>, ResourceCache<? extends ScimResource>> resourceCacheMap = Collections.emptyMap();
+
+  private volatile Map<Class<? extends ScimResource>, CoalescingProvider.Flights<? extends ScimResource>> flightsMap = Collections.emptyMap();
+
+  private final ConcurrentMap<Class<? extends ScimResource>, FindResultCache<? extends ScimResource>> findResultCacheMap = new ConcurrentHashMap<>();
+
+  private final ConcurrentMap<Class<? extends ScimResource>, ConcurrencyLimitingProvider.Limiter> limiterMap = new ConcurrentHashMap<>();
+
+  private final ConcurrentMap<Class<? extends ScimResource>, ResilientProvider.Resilience> resilienceMap = new ConcurrentHashMap<>();
+
+  private volatile UniquenessIndex uniquenessIndex = new InMemoryUniquenessIndex();
+
+  private final ConcurrentMap<Class<? extends ScimResource>, Decoration> decorationMap = new ConcurrentHashMap<>();
+
+  private final ConcurrentMap<Class<? extends ScimResource>, List<Attribute>> uniqueAttributesMap = new ConcurrentHashMap<>();
 
-  @Lock(LockType.WRITE)
-  public <T extends ScimResource> void registerProvider(Class<T> clazz, Instance<? extends Provider<T>> providerInstance) throws InvalidProviderException, JsonProcessingException, UnableToRetrieveExtensionsException {
+  // Bumped whenever registry state that the decorator chains are built from
+  // changes, so that chains built before are rebuilt
+  private volatile long decorationGeneration;
+
+  public synchronized <T extends ScimResource> void registerProvider(Class<T> clazz, Instance<? extends Provider<T>> providerInstance) throws InvalidProviderException, JsonProcessingException, UnableToRetrieveExtensionsException {
 
     Provider<T> provider = providerInstance.get();
 
-    ResourceType resourceType = generateResourceType(clazz, provider);
+    registerResourceType(clazz, provider.getExtensionList());
+
+    Map<Class<? extends ScimResource>, Instance<? extends Provider<? extends ScimResource>>> copy = new HashMap<>(providerMap);
+    copy.put(clazz, providerInstance);
+    providerMap = Collections.unmodifiableMap(copy);
+
+    Map<Class<? extends ScimResource>, Instance<? extends AsyncProvider<? extends ScimResource>>> asyncCopy = new HashMap<>(asyncProviderMap);
+    asyncCopy.remove(clazz);
+    asyncProviderMap = Collections.unmodifiableMap(asyncCopy);
+    invalidateDecorations();
+  }
+
+  /**
+   * Registers a provider that completes its calls asynchronously. The
+   * end-points call it through an {@link AsyncProviderAdapter}, which is what
+   * {@link #getProvider(Class)} returns for the type.
+   */
+  public synchronized <T extends ScimResource> void registerAsyncProvider(Class<T> clazz, Instance<? extends AsyncProvider<T>> asyncProviderInstance) throws InvalidProviderException, JsonProcessingException, UnableToRetrieveExtensionsException {
+
+    AsyncProvider<T> asyncProvider = asyncProviderInstance.get();
+
+    registerResourceType(clazz, asyncProvider.getExtensionList());
+
+    Map<Class<? extends ScimResource>, Instance<? extends AsyncProvider<? extends ScimResource>>> asyncCopy = new HashMap<>(asyncProviderMap);
+    asyncCopy.put(clazz, asyncProviderInstance);
+    asyncProviderMap = Collections.unmodifiableMap(asyncCopy);
+
+    Map<Class<? extends ScimResource>, Instance<? extends Provider<? extends ScimResource>>> copy = new HashMap<>(providerMap);
+    copy.remove(clazz);
+    providerMap = Collections.unmodifiableMap(copy);
+    invalidateDecorations();
+  }
+
+  private <T extends ScimResource> void registerResourceType(Class<T> clazz, List<Class<? extends ScimExtension>> extensionList) throws InvalidProviderException, JsonProcessingException {
+
+    ResourceType resourceType = generateResourceType(clazz, extensionList);
 
     log.info("Calling addSchema on the base class: {}", clazz);
     registry.addSchema(generateBaseSchema(clazz));
@@ -117,8 +194,6 @@ public class ProviderRegistry {
     registry.addScimResourceSchemaUrn(schemaUrn, clazz);
     registry.addScimResourceEndPoint(endpoint, clazz);
 
-    List<Class<? extends ScimExtension>> extensionList = provider.getExtensionList();
-
     if (extensionList != null) {
       for (Class<? extends ScimExtension> scimExtension : extensionList) {
         log.info("Registering a extension of type: " + scimExtension);
@@ -130,22 +205,315 @@ public class ProviderRegistry {
     }
 
     registry.addResourceType(resourceType);
-    providerMap.put(clazz, providerInstance);
   }
 
   @Deprecated
-  @Lock(LockType.READ)
   @SuppressWarnings("unchecked")
   public <T extends ScimResource> Provider<T> getProvider(Class<T> clazz) {
     Instance<? extends Provider<? extends ScimResource>> providerInstance = providerMap.get(clazz);
-    if (providerInstance == null) {
+    if (providerInstance != null) {
+      Provider<T> provider = (Provider<T>) providerInstance.get();
+      return getDecorated(clazz, provider, () -> provider);
+    }
+
+    AsyncProvider<T> asyncProvider = getAsyncProvider(clazz);
+    if (asyncProvider != null) {
+      return getDecorated(clazz, asyncProvider, () -> new AsyncProviderAdapter<>(asyncProvider, getAsyncProviderTimeout(clazz)));
+    }
+    return null;
+  }
+
+  /**
+   * Returns the provider, which was looked up without this registry, wrapped
+   * in the decorators of the given type. The chain is shared with
+   * {@link #getProvider(Class)} and only rebuilt when the provider instance
+   * or the configuration changes.
+   */
+  public <T extends ScimResource> Provider<T> getDecorated(Class<T> clazz, Provider<T> provider) {
+    if (provider == null) {
+      return null;
+    }
+    return getDecorated(clazz, provider, () -> provider);
+  }
+
+  /**
+   * Returns the decorator chain of the given type, which is built once for
+   * the provider instance and kept until the configuration it was built from
+   * changes.
+   */
+  @SuppressWarnings("unchecked")
+  private <T extends ScimResource> Provider<T> getDecorated(Class<T> clazz, Object source, Supplier<Provider<T>> provider) {
+    long generation = decorationGeneration;
+    DecorationKey key = getDecorationKey(clazz);
+    Decoration decoration = decorationMap.get(clazz);
+    if (decoration == null || decoration.getSource() != source || decoration.getGeneration() != generation || !decoration.getKey().equals(key)) {
+      decoration = new Decoration(source, generation, key, decorate(clazz, provider.get()));
+      decorationMap.put(clazz, decoration);
+    }
+    return (Provider<T>) decoration.getDecorated();
+  }
+
+  /**
+   * Returns how long the adapter of an asynchronous provider waits, which is
+   * the timeout of the type's resilience configuration if it has one.
+   */
+  private Duration getAsyncProviderTimeout(Class<? extends ScimResource> clazz) {
+    ResilienceConfiguration resilience = getConfiguration(clazz, ServerConfiguration::getProviderResilience);
+    if (resilience != null && resilience.getTimeout() != null) {
+      return resilience.getTimeout();
+    }
+    return serverConfiguration != null ? serverConfiguration.getAsyncProviderTimeout() : DEFAULT_ASYNC_PROVIDER_TIMEOUT;
+  }
+
+  private DecorationKey getDecorationKey(Class<? extends ScimResource> clazz) {
+    return new DecorationKey(getConfiguration(clazz, ServerConfiguration::getProviderResilience),
+                             getConfiguration(clazz, ServerConfiguration::getProviderConcurrencyLimit),
+                             getConfiguration(clazz, ServerConfiguration::getFindResultCacheConfiguration),
+                             serverConfiguration != null && serverConfiguration.isUniquenessIndexEnabled(),
+                             serverConfiguration != null ? serverConfiguration.getAsyncProviderTimeout() : null,
+                             providerExecutor != null ? providerExecutor.getExecutorService() : null);
+  }
+
+  private void invalidateDecorations() {
+    decorationGeneration++;
+    decorationMap.clear();
+    uniqueAttributesMap.clear();
+  }
+
+  public synchronized void setUniquenessIndex(UniquenessIndex uniquenessIndex) {
+    this.uniquenessIndex = uniquenessIndex;
+    invalidateDecorations();
+  }
+
+  /**
+   * @return the asynchronous provider registered for the type or null if the
+   *         type has a synchronous provider or none at all.
+   */
+  @SuppressWarnings("unchecked")
+  public <T extends ScimResource> AsyncProvider<T> getAsyncProvider(Class<T> clazz) {
+    Instance<? extends AsyncProvider<? extends ScimResource>> asyncProviderInstance = asyncProviderMap.get(clazz);
+    if (asyncProviderInstance == null) {
+      return null;
+    }
+    return (AsyncProvider<T>) asyncProviderInstance.get();
+  }
+
+  /**
+   * Reads resources of the given type through a {@link ResourceCache} that
+   * holds at most maximumSize resources for at most timeToLive. Replaces any
+   * cache that was enabled before.
+   */
+  public synchronized <T extends ScimResource> ResourceCache<T> enableResourceCache(Class<T> clazz, int maximumSize, Duration timeToLive) {
+    ResourceCache<T> resourceCache = new ResourceCache<>(maximumSize, timeToLive);
+
+    Map<Class<? extends ScimResource>, ResourceCache<? extends ScimResource>> copy = new HashMap<>(resourceCacheMap);
+    copy.put(clazz, resourceCache);
+    resourceCacheMap = Collections.unmodifiableMap(copy);
+    invalidateDecorations();
+    return resourceCache;
+  }
+
+  public synchronized void disableResourceCache(Class<? extends ScimResource> clazz) {
+    Map<Class<? extends ScimResource>, ResourceCache<? extends ScimResource>> copy = new HashMap<>(resourceCacheMap);
+    copy.remove(clazz);
+    resourceCacheMap = Collections.unmodifiableMap(copy);
+    invalidateDecorations();
+  }
+
+  @SuppressWarnings("unchecked")
+  public <T extends ScimResource> ResourceCache<T> getResourceCache(Class<T> clazz) {
+    return (ResourceCache<T>) resourceCacheMap.get(clazz);
+  }
+
+  /**
+   * @return the statistics of the resource cache of the given type or null if
+   *         caching is not enabled for it.
+   */
+  public ResultCache.Statistics getResourceCacheStatistics(Class<? extends ScimResource> clazz) {
+    ResourceCache<?> resourceCache = resourceCacheMap.get(clazz);
+    return resourceCache != null ? resourceCache.getStatistics() : null;
+  }
+
+  /**
+   * Lets concurrent identical gets and finds of the given type share one
+   * provider call. Callers wait at most timeout for a call made by another
+   * caller.
+   */
+  public synchronized <T extends ScimResource> CoalescingProvider.Flights<T> enableRequestCoalescing(Class<T> clazz, Duration timeout) {
+    CoalescingProvider.Flights<T> flights = new CoalescingProvider.Flights<>(timeout);
+
+    Map<Class<? extends ScimResource>, CoalescingProvider.Flights<? extends ScimResource>> copy = new HashMap<>(flightsMap);
+    copy.put(clazz, flights);
+    flightsMap = Collections.unmodifiableMap(copy);
+    invalidateDecorations();
+    return flights;
+  }
+
+  public synchronized void disableRequestCoalescing(Class<? extends ScimResource> clazz) {
+    Map<Class<? extends ScimResource>, CoalescingProvider.Flights<? extends ScimResource>> copy = new HashMap<>(flightsMap);
+    copy.remove(clazz);
+    flightsMap = Collections.unmodifiableMap(copy);
+    invalidateDecorations();
+  }
+
+  @SuppressWarnings("unchecked")
+  public <T extends ScimResource> CoalescingProvider.Flights<T> getFlights(Class<T> clazz) {
+    return (CoalescingProvider.Flights<T>) flightsMap.get(clazz);
+  }
+
+  /**
+   * Returns the find result cache of the given type, which is created when
+   * the ServerConfiguration first enables it for the type's name and dropped
+   * when the configuration changes.
+   */
+  @SuppressWarnings("unchecked")
+  public <T extends ScimResource> FindResultCache<T> getFindResultCache(Class<T> clazz) {
+    CacheConfiguration configuration = getConfiguration(clazz, ServerConfiguration::getFindResultCacheConfiguration);
+    return (FindResultCache<T>) getConfigured(findResultCacheMap, clazz, configuration, FindResultCache::new, FindResultCache::getConfiguration);
+  }
+
+  /**
+   * Returns the concurrency limiter of the given type, which follows the
+   * limit the ServerConfiguration sets for the type's name.
+   */
+  public ConcurrencyLimitingProvider.Limiter getConcurrencyLimiter(Class<? extends ScimResource> clazz) {
+    Integer limit = getConfiguration(clazz, ServerConfiguration::getProviderConcurrencyLimit);
+    return getConfigured(limiterMap, clazz, limit, ConcurrencyLimitingProvider.Limiter::new, ConcurrencyLimitingProvider.Limiter::getMaximumConcurrentCalls);
+  }
+
+  /**
+   * Returns the bulkhead and circuit breaker of the given type, which follow
+   * the resilience configuration the ServerConfiguration sets for the type's
+   * name. A changed configuration starts with a closed circuit.
+   */
+  public ResilientProvider.Resilience getResilience(Class<? extends ScimResource> clazz) {
+    ResilienceConfiguration configuration = getConfiguration(clazz, ServerConfiguration::getProviderResilience);
+    return getConfigured(resilienceMap, clazz, configuration, ResilientProvider.Resilience::new, ResilientProvider.Resilience::getConfiguration);
+  }
+
+  /**
+   * Returns the singular attributes of the type's base schema whose values
+   * must be unique within the type or globally.
+   */
+  public List<Attribute> getUniqueAttributes(Class<? extends ScimResource> clazz) {
+    return uniqueAttributesMap.computeIfAbsent(clazz, this::findUniqueAttributes);
+  }
+
+  private List<Attribute> findUniqueAttributes(Class<? extends ScimResource> clazz) {
+    ScimResourceType scimResourceType = clazz.getAnnotation(ScimResourceType.class);
+    Schema schema = scimResourceType != null && registry != null ? registry.getSchema(scimResourceType.schema()) : null;
+    if (schema == null || schema.getAttributes() == null) {
+      return Collections.emptyList();
+    }
+
+    List<Attribute> uniqueAttributes = new ArrayList<>();
+    for (Attribute attribute : schema.getAttributes()) {
+      Uniqueness uniqueness = attribute.getUniqueness();
+      if ((uniqueness == Uniqueness.SERVER || uniqueness == Uniqueness.GLOBAL) && !attribute.isMultiValued() && attribute.getType() != Type.COMPLEX && attribute.getAccessor() != null) {
+        uniqueAttributes.add(attribute);
+      }
+    }
+    return Collections.unmodifiableList(uniqueAttributes);
+  }
+
+  private <C> C getConfiguration(Class<? extends ScimResource> clazz, BiFunction<ServerConfiguration, String, C> lookup) {
+    ScimResourceType scimResourceType = clazz.getAnnotation(ScimResourceType.class);
+    if (serverConfiguration == null || scimResourceType == null) {
       return null;
     }
+    return lookup.apply(serverConfiguration, scimResourceType.name());
+  }
 
-    return (Provider<T>) providerInstance.get();
+  /**
+   * Returns the component of the given type that was created from the
+   * configuration, creating it if the configuration changed and dropping it
+   * if there is no configuration.
+   */
+  private static <C, V> V getConfigured(ConcurrentMap<Class<? extends ScimResource>, V> map, Class<? extends ScimResource> clazz, C configuration, Function<C, V> factory, Function<V, C> configurationOf) {
+    if (configuration == null) {
+      map.remove(clazz);
+      return null;
+    }
+
+    V component = map.get(clazz);
+    if (component == null || !configuration.equals(configurationOf.apply(component))) {
+      component = map.merge(clazz, factory.apply(configuration), (existing, created) -> configuration.equals(configurationOf.apply(existing)) ? existing : created);
+    }
+    return component;
   }
 
-  private ResourceType generateResourceType(Class<? extends ScimResource> base, Provider<? extends ScimResource> provider) throws InvalidProviderException, UnableToRetrieveExtensionsException {
+  /**
+   * Wraps the provider for the given type with the decorators that are
+   * enabled for that type. Calls coalesce beneath the caches, so only cache
+   * misses are shared, and the concurrency limit applies to the calls that
+   * reach the provider. The resilience guards sit next to the provider so
+   * that only calls that reach it count towards its circuit breaker, and
+   * conflicting values are rejected before any of the other decorators.
+   * Providers that are looked up without this registry must be decorated as
+   * well, preferably through {@link #getDecorated(Class, Provider)}, which
+   * reuses the chain.
+   */
+  public <T extends ScimResource> Provider<T> decorate(Class<T> clazz, Provider<T> provider) {
+    if (provider == null) {
+      return null;
+    }
+    Provider<T> decorated = provider;
+    ResilientProvider.Resilience resilience = getResilience(clazz);
+    if (resilience != null) {
+      decorated = new ResilientProvider<>(decorated, resilience, providerExecutor != null ? providerExecutor.getExecutorService() : null);
+    }
+    ConcurrencyLimitingProvider.Limiter limiter = getConcurrencyLimiter(clazz);
+    if (limiter != null) {
+      decorated = new ConcurrencyLimitingProvider<>(decorated, limiter);
+    }
+    CoalescingProvider.Flights<T> flights = getFlights(clazz);
+    if (flights != null) {
+      decorated = new CoalescingProvider<>(decorated, flights);
+    }
+    ResourceCache<T> resourceCache = getResourceCache(clazz);
+    if (resourceCache != null) {
+      decorated = new CachingProvider<>(decorated, resourceCache);
+    }
+    FindResultCache<T> findResultCache = getFindResultCache(clazz);
+    if (findResultCache != null) {
+      decorated = new FindCachingProvider<>(decorated, findResultCache);
+    }
+    if (serverConfiguration != null && serverConfiguration.isUniquenessIndexEnabled()) {
+      List<Attribute> uniqueAttributes = getUniqueAttributes(clazz);
+      if (!uniqueAttributes.isEmpty()) {
+        decorated = new UniquenessCheckingProvider<>(decorated, uniquenessIndex, clazz.getAnnotation(ScimResourceType.class)
+                                                                                  .name(), uniqueAttributes);
+      }
+    }
+    return decorated;
+  }
+
+  /**
+   * The values of the ServerConfiguration that a decorator chain was built
+   * from, including the executor its provider execution selects.
+   */
+  @Value
+  private static class DecorationKey {
+    ResilienceConfiguration resilience;
+    Integer concurrencyLimit;
+    CacheConfiguration findResultCache;
+    boolean uniquenessIndexEnabled;
+    Duration asyncProviderTimeout;
+    ExecutorService executorService;
+  }
+
+  /**
+   * A decorator chain together with what it was built from.
+   */
+  @Value
+  private static class Decoration {
+    Object source;
+    long generation;
+    DecorationKey key;
+    Provider<?> decorated;
+  }
+
+  private ResourceType generateResourceType(Class<? extends ScimResource> base, List<Class<? extends ScimExtension>> extensionList) throws InvalidProviderException {
 
     ScimResourceType scimResourceType = base.getAnnotation(ScimResourceType.class);
 
@@ -160,8 +528,6 @@ public class ProviderRegistry {
     resourceType.setEndpoint(scimResourceType.endpoint());
     resourceType.setSchemaUrn(scimResourceType.schema());
 
-    List<Class<? extends ScimExtension>> extensionList = provider.getExtensionList();
-
     if (extensionList != null) {
 
       List<ResourceType.SchemaExtentionConfiguration> extensionSchemaList = new ArrayList<>();
@@ -187,6 +553,11 @@ public class ProviderRegistry {
   }
 
   private static Schema generateBaseSchema(Class<?> clazz) throws InvalidProviderException {
+    GeneratedSchema generatedSchema = GeneratedSchema.forClass(clazz);
+    if (generatedSchema != null) {
+      return generatedSchema.createSchema();
+    }
+
     List<Field> fieldList = ScimUtils.getFieldsUpTo(clazz, BaseResource.class);
 
     return generateSchema(clazz, fieldList);
@@ -194,7 +565,14 @@ public class ProviderRegistry {
   
   private static Schema generateExtensionSchema(Class<?> clazz) throws InvalidProviderException {
     log.debug("----> In generateExtensionSchema");
-    
+
+    // A class that is also a resource type had its schema generated as a
+    // resource, without the fields of BaseResource
+    GeneratedSchema generatedSchema = clazz.isAnnotationPresent(ScimResourceType.class) ? null : GeneratedSchema.forClass(clazz);
+    if (generatedSchema != null) {
+      return generatedSchema.createSchema();
+    }
+
     return generateSchema(clazz, ScimUtils.getFieldsUpTo(clazz, Object.class));
   }
   
@@ -257,7 +635,6 @@ public class ProviderRegistry {
       }
 
       String attributeName;
-      f.setAccessible(true);
 
       if (sa.name() == null || sa.name().isEmpty()) {
         attributeName = f.getName();
@@ -272,6 +649,7 @@ public class ProviderRegistry {
 
       //TODO - Fix this to look for the two types of canonical attributes
       Attribute attribute = new Attribute();
+      attribute.setAccessor(AttributeAccessor.of(f));
       attribute.setField(f);
       attribute.setName(attributeName);
       attribute.setUrn(urn);
@@ -312,72 +690,28 @@ public class ProviderRegistry {
       attribute.setCaseExact(sa.caseExact());
       attribute.setDescription(sa.description());
 
-      String typeName = null;
-      if (Collection.class.isAssignableFrom(f.getType())) {
+      // Character and byte arrays hold a single string or binary value, any
+      // other array or collection holds multiple values
+      Class<?> attributeClass = f.getType();
+      if (Collection.class.isAssignableFrom(attributeClass)) {
         log.debug("We have a collection");
         ParameterizedType stringListType = (ParameterizedType) f.getGenericType();
-        Class<?> attributeContainedClass = (Class<?>) stringListType.getActualTypeArguments()[0];
-        typeName = attributeContainedClass.getTypeName();
+        attributeClass = (Class<?>) stringListType.getActualTypeArguments()[0];
         attribute.setMultiValued(true);
-      } else if (f.getType().isArray()) {
+      } else if (attributeClass.isArray() && !ATTRIBUTE_TYPES.containsKey(attributeClass)) {
         log.debug("We have an array");
-        Class<?> componentType = f.getType().getComponentType();
-        typeName = componentType.getTypeName();
+        attributeClass = attributeClass.getComponentType();
         attribute.setMultiValued(true);
       } else {
-        typeName = f.getType().toString();
         attribute.setMultiValued(false);
       }
 
-      // attribute.setType(sa.type());
-      boolean attributeIsAString = false;
-      log.debug("Attempting to set the attribute type, raw value = " + typeName);
-      switch (typeName) {
-      case STRING_TYPE_IDENTIFIER:
-      case CHARACTER_ARRAY_TYPE_IDENTIFIER:
-      case BIG_C_CHARACTER_ARRAY_TYPE_IDENTIFIER:
-        log.debug("Setting type to String");
-        attribute.setType(Type.STRING);
-        attributeIsAString = true;
-        break;
-      case INT_TYPE_IDENTIFIER:
-      case INTEGER_TYPE_IDENTIFIER:
-        log.debug("Setting type to integer");
-        attribute.setType(Type.INTEGER);
-        break;
-      case FLOAT_TYPE_IDENTIFIER:
-      case BIG_F_FLOAT_TYPE_IDENTIFIER:
-      case DOUBLE_TYPE_IDENTIFIER:
-      case BIG_D_DOUBLE_TYPE_IDENTIFIER:
-        log.debug("Setting type to decimal");
-        attribute.setType(Type.DECIMAL);
-        break;
-      case BOOLEAN_TYPE_IDENTIFIER:
-      case BIG_B_BOOLEAN_TYPE_IDENTIFIER:
-        log.debug("Setting type to boolean");
-        attribute.setType(Type.BOOLEAN);
-        break;
-      case BYTE_ARRAY_TYPE_IDENTIFIER:
-        log.debug("Setting type to binary");
-        attribute.setType(Type.BINARY);
-        break;
-      case DATE_TYPE_IDENTIFIER:
-      case LOCAL_DATE_TIME_TYPE_IDENTIFIER:
-      case LOCAL_TIME_TYPE_IDENTIFER:
-      case LOCAL_DATE_TYPE_IDENTIFER:
-        log.debug("Setting type to date time");
-        attribute.setType(Type.DATE_TIME);
-        break;
-      case RESOURCE_REFERENCE_TYPE_IDENTIFIER:
-        log.debug("Setting type to reference");
-        attribute.setType(Type.REFERENCE);
-        break;
-      default:
-        log.debug("Setting type to complex");
-        attribute.setType(Type.COMPLEX);
-      }
+      Type type = ATTRIBUTE_TYPES.getOrDefault(attributeClass, Type.COMPLEX);
+      log.debug("Setting the type of " + attributeClass + " to " + type);
+      attribute.setType(type);
+
       if (f.getAnnotation(ScimResourceIdReference.class) != null) {
-        if (attributeIsAString) {
+        if (type == Type.STRING) {
           attribute.setScimResourceIdReference(true);
         } else {
           log.warn("Field annotated with @edu.psu.swe.scim.spec.annotation.ScimResourceIdReference must be a string: {}", f);
@@ -405,7 +739,6 @@ public class ProviderRegistry {
         Class<?> componentType;
         if (!attribute.isMultiValued()) {
           componentType = f.getType();
-          attribute.setSubAttributes(createAttributes(urn, Arrays.asList(f.getType().getDeclaredFields()), invalidAttributes, nameBase + "." + f.getName()), AddAction.APPEND);
         } else if (f.getType().isArray()) {
           componentType = f.getType().getComponentType();
         } else {
@@ -425,7 +758,27 @@ public class ProviderRegistry {
     return attributeList;
   }
 
-  
+  private static Map<Class<?>, Type> createAttributeTypes() {
+    Map<Class<?>, Type> attributeTypes = new HashMap<>();
+    attributeTypes.put(String.class, Type.STRING);
+    attributeTypes.put(char[].class, Type.STRING);
+    attributeTypes.put(Character[].class, Type.STRING);
+    attributeTypes.put(int.class, Type.INTEGER);
+    attributeTypes.put(Integer.class, Type.INTEGER);
+    attributeTypes.put(float.class, Type.DECIMAL);
+    attributeTypes.put(Float.class, Type.DECIMAL);
+    attributeTypes.put(double.class, Type.DECIMAL);
+    attributeTypes.put(Double.class, Type.DECIMAL);
+    attributeTypes.put(boolean.class, Type.BOOLEAN);
+    attributeTypes.put(Boolean.class, Type.BOOLEAN);
+    attributeTypes.put(byte[].class, Type.BINARY);
+    attributeTypes.put(Date.class, Type.DATE_TIME);
+    attributeTypes.put(LocalDateTime.class, Type.DATE_TIME);
+    attributeTypes.put(LocalTime.class, Type.DATE_TIME);
+    attributeTypes.put(LocalDate.class, Type.DATE_TIME);
+    attributeTypes.put(ResourceReference.ReferenceType.class, Type.REFERENCE);
+    return Collections.unmodifiableMap(attributeTypes);
+  }
 
   // private Provider<ScimGroup> groupProvider = null;
   // private Provider<ScimUser> userProvider = null;
@@ -0,0 +1,294 @@
+/*
+* Licensed to the Apache Software Foundation (ASF) under one
+* or more contributor license agreements.  See the NOTICE file
+* distributed with this work for additional information
+* regarding copyright ownership.  The ASF licenses this file
+* to you under the Apache License, Version 2.0 (the
+* "License"); you may not use this file except in compliance
+* with the License.  You may obtain a copy of the License at
+ 
+* http://www.apache.org/licenses/LICENSE-2.0
+
+* Unless required by applicable law or agreed to in writing,
+* software distributed under the License is distributed on an
+* "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+* KIND, either express or implied.  See the License for the
+* specific language governing permissions and limitations
+* under the License.
+*/
+
+package edu.psu.swe.scim.server.provider;
+
+import java.time.Duration;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+
+import javax.ws.rs.core.Response.Status;
+import javax.ws.rs.core.Response.Status.Family;
+
+import edu.psu.swe.scim.server.configuration.ServerConfiguration.ResilienceConfiguration;
+import edu.psu.swe.scim.server.exception.UnableToCreateResourceException;
+import edu.psu.swe.scim.server.exception.UnableToDeleteResourceException;
+import edu.psu.swe.scim.server.exception.UnableToRetrieveResourceException;
+import edu.psu.swe.scim.server.exception.UnableToUpdateResourceException;
+import edu.psu.swe.scim.spec.protocol.filter.FilterResponse;
+import edu.psu.swe.scim.spec.protocol.search.Filter;
+import edu.psu.swe.scim.spec.protocol.search.PageRequest;
+import edu.psu.swe.scim.spec.protocol.search.SortRequest;
+import edu.psu.swe.scim.spec.resources.ScimResource;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Protects the server from a slow or failing provider. Each call passes
+ * through
+ * <ul>
+ * <li>a bulkhead, which rejects the call when the configured number of calls
+ * are already running and none completes within the maximum wait,</li>
+ * <li>a circuit breaker, which rejects calls while the provider is failing,
+ * see {@link CircuitBreaker}, and</li>
+ * <li>a deadline, after which the caller stops waiting for the provider.</li>
+ * </ul>
+ * Rejected calls fail with a status of 503 (Service Unavailable) and calls
+ * that miss their deadline with 504 (Gateway Timeout), which the end-points
+ * return as an ErrorResponse.
+ * <p>
+ * An {@link AsyncProviderAdapter} enforces the deadline itself, so calls to
+ * an asynchronous provider stay on the calling thread. For other providers
+ * the deadline can only be enforced when there is an executor to run the
+ * call on. Without one, the call is made on the calling thread and a call
+ * that completes late is counted as a failure by the circuit breaker. A call
+ * that missed its deadline keeps its bulkhead permit until it completes, so
+ * a stalled backend is not given more calls than the bulkhead allows.
+ *
+ * @param <T> a SCIM ResourceType that extends ScimResource
+ */
+@Slf4j
+public class ResilientProvider<T extends ScimResource> extends DelegatingProvider<T> {
+
+  private static final Failures<UnableToCreateResourceException> CREATE = new Failures<>(UnableToCreateResourceException.class, UnableToCreateResourceException::new, UnableToCreateResourceException::getStatus);
+
+  private static final Failures<UnableToUpdateResourceException> UPDATE = new Failures<>(UnableToUpdateResourceException.class, UnableToUpdateResourceException::new, UnableToUpdateResourceException::getStatus);
+
+  private static final Failures<UnableToRetrieveResourceException> RETRIEVE = new Failures<>(UnableToRetrieveResourceException.class, UnableToRetrieveResourceException::new, UnableToRetrieveResourceException::getStatus);
+
+  private static final Failures<UnableToDeleteResourceException> DELETE = new Failures<>(UnableToDeleteResourceException.class, UnableToDeleteResourceException::new, UnableToDeleteResourceException::getStatus);
+
+  private final Resilience resilience;
+
+  private final ExecutorService executorService;
+
+  /**
+   * @param executorService the executor that calls with a deadline are run
+   *          on, or null to make every call on the calling thread.
+   */
+  public ResilientProvider(Provider<T> delegate, Resilience resilience, ExecutorService executorService) {
+    super(delegate);
+    this.resilience = resilience;
+    this.executorService = executorService;
+  }
+
+  public Resilience getResilience() {
+    return resilience;
+  }
+
+  @Override
+  public T create(T resource) throws UnableToCreateResourceException {
+    return call(() -> getDelegate().create(resource), CREATE);
+  }
+
+  @Override
+  public T update(UpdateRequest<T> updateRequest) throws UnableToUpdateResourceException {
+    return call(() -> getDelegate().update(updateRequest), UPDATE);
+  }
+
+  @Override
+  public T get(String id) throws UnableToRetrieveResourceException {
+    return call(() -> getDelegate().get(id), RETRIEVE);
+  }
+
+  @Override
+  public FilterResponse<T> find(Filter filter, PageRequest pageRequest, SortRequest sortRequest) throws UnableToRetrieveResourceException {
+    return call(() -> getDelegate().find(filter, pageRequest, sortRequest), RETRIEVE);
+  }
+
+  @Override
+  public void delete(String id) throws UnableToDeleteResourceException {
+    call(() -> {
+      getDelegate().delete(id);
+      return null;
+    }, DELETE);
+  }
+
+  private <V, E extends Exception> V call(Call<V, E> call, Failures<E> failures) throws E {
+    ResilienceConfiguration configuration = resilience.getConfiguration();
+    CircuitBreaker circuitBreaker = resilience.getCircuitBreaker();
+    ConcurrencyLimitingProvider.Limiter bulkhead = resilience.getBulkhead();
+
+    long permit = circuitBreaker.tryAcquire();
+    if (permit == CircuitBreaker.NO_PERMIT) {
+      throw failures.create(Status.SERVICE_UNAVAILABLE, "The provider is unavailable after repeated failures", null);
+    }
+    if (!bulkhead.tryAcquire(configuration.getMaximumWait(), e -> failures.create(Status.SERVICE_UNAVAILABLE, "Interrupted while waiting for the provider", e))) {
+      circuitBreaker.onAbandoned(permit);
+      throw failures.create(Status.SERVICE_UNAVAILABLE, "The provider is already handling " + bulkhead.getMaximumConcurrentCalls() + " calls");
+    }
+
+    try {
+      long started = System.nanoTime();
+      V result = invoke(call, failures, configuration.getTimeout(), bulkhead);
+      Duration timeout = configuration.getTimeout();
+      if (timeout != null && System.nanoTime() - started > timeout.toNanos()) {
+        log.warn("Provider call completed after its deadline of " + timeout);
+        circuitBreaker.onFailure(permit);
+      } else {
+        circuitBreaker.onSuccess(permit);
+      }
+      return result;
+    } catch (Throwable t) {
+      if (failures.isFailure(t)) {
+        circuitBreaker.onFailure(permit);
+      } else {
+        circuitBreaker.onSuccess(permit);
+      }
+      throw t;
+    }
+  }
+
+  /**
+   * Makes the call, releasing its bulkhead permit when the call completes.
+   */
+  private <V, E extends Exception> V invoke(Call<V, E> call, Failures<E> failures, Duration timeout, ConcurrencyLimitingProvider.Limiter bulkhead) throws E {
+    if (timeout == null || executorService == null || getDelegate() instanceof AsyncProviderAdapter) {
+      try {
+        return call.call();
+      } finally {
+        bulkhead.release();
+      }
+    }
+
+    Future<V> future;
+    try {
+      future = executorService.submit(() -> {
+        try {
+          return call.call();
+        } finally {
+          bulkhead.release();
+        }
+      });
+    } catch (RuntimeException e) {
+      bulkhead.release();
+      throw failures.create(Status.SERVICE_UNAVAILABLE, "The provider call could not be scheduled", e);
+    }
+
+    try {
+      return future.get(timeout.toNanos(), TimeUnit.NANOSECONDS);
+    } catch (TimeoutException e) {
+      future.cancel(true);
+      throw failures.create(Status.GATEWAY_TIMEOUT, "The provider did not respond within " + timeout, e);
+    } catch (InterruptedException e) {
+      future.cancel(true);
+      Thread.currentThread()
+            .interrupt();
+      throw failures.create(Status.INTERNAL_SERVER_ERROR, "Interrupted while waiting for the provider", e);
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (failures.type.isInstance(cause)) {
+        throw failures.type.cast(cause);
+      }
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      }
+      if (cause instanceof Error) {
+        throw (Error) cause;
+      }
+      throw failures.create(Status.INTERNAL_SERVER_ERROR, cause.getMessage(), cause);
+    }
+  }
+
+  /**
+   * The bulkhead and circuit breaker of one resource type, shared by all the
+   * ResilientProvider instances of that type.
+   */
+  public static class Resilience {
+
+    private final ResilienceConfiguration configuration;
+
+    private final ConcurrencyLimitingProvider.Limiter bulkhead;
+
+    private final CircuitBreaker circuitBreaker;
+
+    public Resilience(ResilienceConfiguration configuration) {
+      this(configuration, new CircuitBreaker(configuration.getFailureThreshold(), configuration.getOpenDuration()));
+    }
+
+    Resilience(ResilienceConfiguration configuration, CircuitBreaker circuitBreaker) {
+      this.configuration = configuration;
+      this.bulkhead = new ConcurrencyLimitingProvider.Limiter(configuration.getMaximumConcurrentCalls());
+      this.circuitBreaker = circuitBreaker;
+    }
+
+    public ResilienceConfiguration getConfiguration() {
+      return configuration;
+    }
+
+    public ConcurrencyLimitingProvider.Limiter getBulkhead() {
+      return bulkhead;
+    }
+
+    public CircuitBreaker getCircuitBreaker() {
+      return circuitBreaker;
+    }
+  }
+
+  @FunctionalInterface
+  private interface Call<V, E extends Exception> {
+    V call() throws E;
+  }
+
+  @FunctionalInterface
+  private interface ExceptionFactory<E extends Exception> {
+    E create(Status status, String message, Throwable cause);
+  }
+
+  /**
+   * How the failures of one kind of call are reported.
+   */
+  private static final class Failures<E extends Exception> {
+
+    final Class<E> type;
+
+    final ExceptionFactory<E> factory;
+
+    final Function<E, Status> statusOf;
+
+    Failures(Class<E> type, ExceptionFactory<E> factory, Function<E, Status> statusOf) {
+      this.type = type;
+      this.factory = factory;
+      this.statusOf = statusOf;
+    }
+
+    E create(Status status, String message) {
+      return create(status, message, null);
+    }
+
+    E create(Status status, String message, Throwable cause) {
+      return factory.create(status, message, cause);
+    }
+
+    /**
+     * Client errors, such as a resource that was not found, say nothing about
+     * the health of the provider and are not counted as failures.
+     */
+    boolean isFailure(Throwable t) {
+      if (!type.isInstance(t)) {
+        return true;
+      }
+      Status status = statusOf.apply(type.cast(t));
+      return status == null || status.getFamily() != Family.CLIENT_ERROR;
+    }
+  }
+}
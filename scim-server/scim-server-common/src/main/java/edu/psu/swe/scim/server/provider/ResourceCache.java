@@ -0,0 +1,70 @@
+/*
+* Licensed to the Apache Software Foundation (ASF) under one
+* or more contributor license agreements.  See the NOTICE file
+* distributed with this work for additional information
+* regarding copyright ownership.  The ASF licenses this file
+* to you under the Apache License, Version 2.0 (the
+* "License"); you may not use this file except in compliance
+* with the License.  You may obtain a copy of the License at
+ 
+* http://www.apache.org/licenses/LICENSE-2.0
+
+* Unless required by applicable law or agreed to in writing,
+* software distributed under the License is distributed on an
+* "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+* KIND, either express or implied.  See the License for the
+* specific language governing permissions and limitations
+* under the License.
+*/
+
+package edu.psu.swe.scim.server.provider;
+
+import java.time.Duration;
+import java.util.function.LongSupplier;
+
+import edu.psu.swe.scim.spec.resources.ScimResource;
+import edu.psu.swe.scim.spec.schema.Meta;
+
+/**
+ * Holds resources read through a {@link CachingProvider}, keyed by id. The
+ * REST layer copies a resource before filtering its attributes, so the
+ * cached instances are not modified.
+ *
+ * @param <T> a SCIM ResourceType that extends ScimResource
+ */
+public class ResourceCache<T extends ScimResource> extends ResultCache<String, T> {
+
+  public ResourceCache(int maximumSize, Duration timeToLive) {
+    super(maximumSize, timeToLive);
+  }
+
+  ResourceCache(int maximumSize, Duration timeToLive, LongSupplier ticker) {
+    super(maximumSize, timeToLive, ticker);
+  }
+
+  /**
+   * Completes a write that started with the stamp returned by
+   * {@link #invalidate(Object)}. The written resource replaces the cached one
+   * when it carries a Meta.version, which identifies the state it was written
+   * in, and no other write happened in the meantime. Otherwise the id is only
+   * invalidated.
+   */
+  public synchronized void replace(String id, T resource, long stamp) {
+    if (id == null) {
+      return;
+    }
+    boolean unchanged = isUnmodifiedSince(stamp);
+    invalidate(id);
+    if (unchanged && isVersioned(resource)) {
+      store(id, resource);
+    }
+  }
+
+  private static boolean isVersioned(ScimResource resource) {
+    if (resource == null) {
+      return false;
+    }
+    Meta meta = resource.getMeta();
+    return meta != null && meta.getVersion() != null;
+  }
+}
@@ -0,0 +1,95 @@
+/*
+* Licensed to the Apache Software Foundation (ASF) under one
+* or more contributor license agreements.  See the NOTICE file
+* distributed with this work for additional information
+* regarding copyright ownership.  The ASF licenses this file
+* to you under the Apache License, Version 2.0 (the
+* "License"); you may not use this file except in compliance
+* with the License.  You may obtain a copy of the License at
+ 
+* http://www.apache.org/licenses/LICENSE-2.0
+
+* Unless required by applicable law or agreed to in writing,
+* software distributed under the License is distributed on an
+* "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+* KIND, either express or implied.  See the License for the
+* specific language governing permissions and limitations
+* under the License.
+*/
+
+package edu.psu.swe.scim.server.provider;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.ws.rs.core.Response.Status;
+
+import edu.psu.swe.scim.server.exception.UnableToRetrieveResourceException;
+import edu.psu.swe.scim.server.utility.AttributeUtil;
+import edu.psu.swe.scim.spec.protocol.filter.FilterResponse;
+import edu.psu.swe.scim.spec.protocol.search.PageRequest;
+import edu.psu.swe.scim.spec.resources.ScimResource;
+
+/**
+ * Copies the resources that a cache or a coalesced call hands to more than
+ * one caller. The REST layer and update requests change the resources they
+ * are given, so every caller has to get an instance of its own.
+ */
+final class ResourceCopier {
+
+  private ResourceCopier() {
+    // Make this a utility class
+  }
+
+  static <T extends ScimResource> T copy(T resource) throws UnableToRetrieveResourceException {
+    if (resource == null) {
+      return null;
+    }
+    try {
+      return AttributeUtil.cloneScimResource(resource);
+    } catch (IOException e) {
+      throw new UnableToRetrieveResourceException(Status.INTERNAL_SERVER_ERROR, "Unable to copy resource " + resource.getId(), e);
+    }
+  }
+
+  /**
+   * Copies a resource that is about to be cached. A resource that can't be
+   * copied is not cached, which put and replace treat like a missing one.
+   */
+  static <T extends ScimResource> T copyForCache(T resource) {
+    try {
+      return copy(resource);
+    } catch (UnableToRetrieveResourceException e) {
+      return null;
+    }
+  }
+
+  static <T extends ScimResource> FilterResponse<T> copyForCache(FilterResponse<T> response) {
+    try {
+      return copy(response);
+    } catch (UnableToRetrieveResourceException e) {
+      return null;
+    }
+  }
+
+  static <T extends ScimResource> FilterResponse<T> copy(FilterResponse<T> response) throws UnableToRetrieveResourceException {
+    if (response == null) {
+      return null;
+    }
+    List<T> resources = null;
+    if (response.getResources() != null) {
+      resources = new ArrayList<>(response.getResources().size());
+      for (T resource : response.getResources()) {
+        resources.add(copy(resource));
+      }
+    }
+    PageRequest pageRequest = null;
+    if (response.getPageRequest() != null) {
+      pageRequest = new PageRequest();
+      pageRequest.setStartIndex(response.getPageRequest().getStartIndex());
+      pageRequest.setCount(response.getPageRequest().getCount());
+    }
+    return new FilterResponse<>(resources, pageRequest, response.getTotalResults());
+  }
+}
@@ -0,0 +1,197 @@
+/*
+* Licensed to the Apache Software Foundation (ASF) under one
+* or more contributor license agreements.  See the NOTICE file
+* distributed with this work for additional information
+* regarding copyright ownership.  The ASF licenses this file
+* to you under the Apache License, Version 2.0 (the
+* "License"); you may not use this file except in compliance
+* with the License.  You may obtain a copy of the License at
+ 
+* http://www.apache.org/licenses/LICENSE-2.0
+
+* Unless required by applicable law or agreed to in writing,
+* software distributed under the License is distributed on an
+* "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+* KIND, either express or implied.  See the License for the
+* specific language governing permissions and limitations
+* under the License.
+*/
+
+package edu.psu.swe.scim.server.provider;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.LongSupplier;
+
+import lombok.Value;
+
+/**
+ * Holds the results of provider calls. The number of entries is bounded, the
+ * least recently used entry is evicted first, and entries expire once they
+ * are older than the time to live.
+ * <p>
+ * Every invalidation bumps a modification count. A result is only stored if
+ * the count has not moved since the call that produced it started, so a slow
+ * read can not put back a result that was changed in the meantime.
+ * <p>
+ * Cached results are shared between requests and must not be modified, so
+ * the caching providers only hand out copies of them.
+ *
+ * @param <K> the key of the call
+ * @param <V> the result of the call
+ */
+public class ResultCache<K, V> {
+
+  private final int maximumSize;
+
+  private final long timeToLiveNanos;
+
+  private final LongSupplier ticker;
+
+  private final LinkedHashMap<K, Entry<V>> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+  private long modifications;
+
+  private long hits;
+
+  private long misses;
+
+  private long evictions;
+
+  private long expirations;
+
+  private long invalidations;
+
+  public ResultCache(int maximumSize, Duration timeToLive) {
+    this(maximumSize, timeToLive, System::nanoTime);
+  }
+
+  ResultCache(int maximumSize, Duration timeToLive, LongSupplier ticker) {
+    if (maximumSize < 1) {
+      throw new IllegalArgumentException("The maximum size must be positive: " + maximumSize);
+    }
+    if (timeToLive.isNegative() || timeToLive.isZero()) {
+      throw new IllegalArgumentException("The time to live must be positive: " + timeToLive);
+    }
+    this.maximumSize = maximumSize;
+    this.timeToLiveNanos = timeToLive.toNanos();
+    this.ticker = ticker;
+  }
+
+  /**
+   * @return the cached result or null if it is not cached or has expired.
+   */
+  public synchronized V get(K key) {
+    Entry<V> entry = entries.get(key);
+    if (entry == null) {
+      misses++;
+      return null;
+    }
+    if (ticker.getAsLong() - entry.loaded >= timeToLiveNanos) {
+      entries.remove(key);
+      expirations++;
+      misses++;
+      return null;
+    }
+    hits++;
+    return entry.value;
+  }
+
+  /**
+   * Captures the modification count before the provider is called, see
+   * {@link #put(Object, Object, long)}.
+   */
+  public synchronized long getModificationCount() {
+    return modifications;
+  }
+
+  /**
+   * Stores a result that was read from the provider, unless the cache was
+   * modified after the stamp was taken.
+   */
+  public synchronized void put(K key, V value, long stamp) {
+    if (key == null || value == null || stamp != modifications) {
+      return;
+    }
+    store(key, value);
+  }
+
+  /**
+   * Removes the result and returns the new modification count, which is the
+   * stamp for the write that follows.
+   */
+  public synchronized long invalidate(K key) {
+    if (key != null && entries.remove(key) != null) {
+      invalidations++;
+    }
+    return ++modifications;
+  }
+
+  /**
+   * Removes all results and returns the new modification count.
+   */
+  public synchronized long invalidateAll() {
+    invalidations += entries.size();
+    entries.clear();
+    return ++modifications;
+  }
+
+  public synchronized int size() {
+    return entries.size();
+  }
+
+  public synchronized Statistics getStatistics() {
+    return new Statistics(hits, misses, evictions, expirations, invalidations, entries.size());
+  }
+
+  /**
+   * Must be called while holding the lock of this cache.
+   */
+  protected boolean isUnmodifiedSince(long stamp) {
+    return stamp == modifications;
+  }
+
+  /**
+   * Must be called while holding the lock of this cache.
+   */
+  protected void store(K key, V value) {
+    entries.put(key, new Entry<>(value, ticker.getAsLong()));
+    if (entries.size() > maximumSize) {
+      Iterator<Map.Entry<K, Entry<V>>> iterator = entries.entrySet()
+                                                         .iterator();
+      iterator.next();
+      iterator.remove();
+      evictions++;
+    }
+  }
+
+  private static class Entry<V> {
+    final V value;
+    final long loaded;
+
+    Entry(V value, long loaded) {
+      this.value = value;
+      this.loaded = loaded;
+    }
+  }
+
+  /**
+   * A snapshot of the counters of a cache.
+   */
+  @Value
+  public static class Statistics {
+    long hitCount;
+    long missCount;
+    long evictionCount;
+    long expirationCount;
+    long invalidationCount;
+    int size;
+
+    public double getHitRate() {
+      long requests = hitCount + missCount;
+      return requests == 0 ? 1.0 : (double) hitCount / requests;
+    }
+  }
+}
@@ -0,0 +1,193 @@
+/*
+* Licensed to the Apache Software Foundation (ASF) under one
+* or more contributor license agreements.  See the NOTICE file
+* distributed with this work for additional information
+* regarding copyright ownership.  The ASF licenses this file
+* to you under the Apache License, Version 2.0 (the
+* "License"); you may not use this file except in compliance
+* with the License.  You may obtain a copy of the License at
+ 
+* http://www.apache.org/licenses/LICENSE-2.0
+
+* Unless required by applicable law or agreed to in writing,
+* software distributed under the License is distributed on an
+* "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+* KIND, either express or implied.  See the License for the
+* specific language governing permissions and limitations
+* under the License.
+*/
+
+package edu.psu.swe.scim.server.provider;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.ws.rs.core.Response.Status;
+
+import edu.psu.swe.scim.server.exception.UnableToRetrieveResourceException;
+
+/**
+ * Lets concurrent calls with the same key share one call to the provider.
+ * The first caller for a key, the leader, makes the call on its own thread.
+ * Callers that arrive while it is in flight wait for the leader's result, or
+ * its exception, for at most the timeout. Given a copy function, each of
+ * them gets a copy of the result so that callers can't see each other's
+ * changes. The leader keeps the result it was given and shares a copy taken
+ * before it returns, so the leader's caller can change its result while the
+ * others are still copying. That copy is only taken when another caller
+ * joined the call.
+ *
+ * @param <K> the key of the call
+ * @param <V> the result of the call
+ */
+public class SingleFlight<K, V> {
+
+  @FunctionalInterface
+  public interface Call<V> {
+    V call() throws UnableToRetrieveResourceException;
+  }
+
+  @FunctionalInterface
+  public interface Copy<V> {
+    V copy(V value) throws UnableToRetrieveResourceException;
+  }
+
+  private final ConcurrentMap<K, Flight<V>> inFlight = new ConcurrentHashMap<>();
+
+  private final long timeoutNanos;
+
+  private final Copy<V> copy;
+
+  private final AtomicLong coalesced = new AtomicLong();
+
+  /**
+   * Creates a SingleFlight whose callers share the leader's result.
+   */
+  public SingleFlight(Duration timeout) {
+    this(timeout, value -> value);
+  }
+
+  public SingleFlight(Duration timeout, Copy<V> copy) {
+    this.timeoutNanos = timeout.toNanos();
+    this.copy = copy;
+  }
+
+  public V execute(K key, Call<V> call) throws UnableToRetrieveResourceException {
+    Flight<V> leader = new Flight<>();
+    Flight<V> existing;
+    while ((existing = inFlight.putIfAbsent(key, leader)) != null) {
+      if (existing.join()) {
+        coalesced.incrementAndGet();
+        return copy.copy(await(key, existing.result));
+      }
+      // The call completed without anyone waiting for it, wait for it to be removed
+      Thread.yield();
+    }
+
+    V result;
+    try {
+      result = call.call();
+    } catch (UnableToRetrieveResourceException | RuntimeException | Error e) {
+      inFlight.remove(key, leader);
+      leader.result.completeExceptionally(e);
+      throw e;
+    }
+
+    inFlight.remove(key, leader);
+    if (leader.close()) {
+      try {
+        leader.result.complete(copy.copy(result));
+      } catch (UnableToRetrieveResourceException | RuntimeException | Error e) {
+        leader.result.completeExceptionally(e);
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Makes the next call for the key start a new call to the provider, e.g.
+   * after the resource was written. Callers already waiting keep waiting for
+   * the call in flight.
+   */
+  public void forget(K key) {
+    inFlight.remove(key);
+  }
+
+  public void forgetAll() {
+    inFlight.clear();
+  }
+
+  /**
+   * @return the number of calls that were answered by another caller's call.
+   */
+  public long getCoalescedCount() {
+    return coalesced.get();
+  }
+
+  private V await(K key, CompletableFuture<V> future) throws UnableToRetrieveResourceException {
+    try {
+      return future.get(timeoutNanos, TimeUnit.NANOSECONDS);
+    } catch (TimeoutException e) {
+      throw new UnableToRetrieveResourceException(Status.GATEWAY_TIMEOUT, "Timed out waiting for the provider call for " + key, e);
+    } catch (InterruptedException e) {
+      Thread.currentThread()
+            .interrupt();
+      throw new UnableToRetrieveResourceException(Status.INTERNAL_SERVER_ERROR, "Interrupted while waiting for the provider call for " + key, e);
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof UnableToRetrieveResourceException) {
+        UnableToRetrieveResourceException original = (UnableToRetrieveResourceException) cause;
+        throw new UnableToRetrieveResourceException(original.getStatus(), original.getMessage(), original);
+      }
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      }
+      if (cause instanceof Error) {
+        throw (Error) cause;
+      }
+      throw new UnableToRetrieveResourceException(Status.INTERNAL_SERVER_ERROR, cause.getMessage(), cause);
+    }
+  }
+
+  /**
+   * One call to the provider and the callers waiting for it. Callers can
+   * join until the leader closes the flight after its call succeeded.
+   */
+  private static final class Flight<V> {
+
+    private static final int CLOSED = -1;
+
+    final CompletableFuture<V> result = new CompletableFuture<>();
+
+    private final AtomicInteger followers = new AtomicInteger();
+
+    /**
+     * @return false if the flight was closed without sharing its result.
+     */
+    boolean join() {
+      int count;
+      do {
+        count = followers.get();
+        if (count == CLOSED) {
+          return false;
+        }
+      } while (!followers.compareAndSet(count, count + 1));
+      return true;
+    }
+
+    /**
+     * @return true if callers joined the flight and are waiting for its
+     *         result.
+     */
+    boolean close() {
+      return !followers.compareAndSet(0, CLOSED);
+    }
+  }
+}
@@ -0,0 +1,179 @@
+/*
+* Licensed to the Apache Software Foundation (ASF) under one
+* or more contributor license agreements.  See the NOTICE file
+* distributed with this work for additional information
+* regarding copyright ownership.  The ASF licenses this file
+* to you under the Apache License, Version 2.0 (the
+* "License"); you may not use this file except in compliance
+* with the License.  You may obtain a copy of the License at
+ 
+* http://www.apache.org/licenses/LICENSE-2.0
+
+* Unless required by applicable law or agreed to in writing,
+* software distributed under the License is distributed on an
+* "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+* KIND, either express or implied.  See the License for the
+* specific language governing permissions and limitations
+* under the License.
+*/
+
+package edu.psu.swe.scim.server.provider;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+import javax.ws.rs.core.Response.Status;
+
+import edu.psu.swe.scim.server.exception.UnableToCreateResourceException;
+import edu.psu.swe.scim.server.exception.UnableToDeleteResourceException;
+import edu.psu.swe.scim.server.exception.UnableToUpdateResourceException;
+import edu.psu.swe.scim.server.provider.UniquenessIndex.UniqueValue;
+import edu.psu.swe.scim.spec.resources.ScimResource;
+import edu.psu.swe.scim.spec.schema.Schema.Attribute;
+import edu.psu.swe.scim.spec.schema.Schema.Attribute.Uniqueness;
+
+/**
+ * Checks the values of the attributes that are declared unique against a
+ * {@link UniquenessIndex} before a resource is created or updated, and
+ * rejects conflicting values with a status of 409 (Conflict), which the
+ * end-points return as an ErrorResponse with a scimType of uniqueness. The
+ * values are reserved before the provider is called, so concurrent requests
+ * cannot both claim the same value.
+ * <p>
+ * Values that the index does not know about are left to the provider to
+ * check, so providers whose index is not complete must still detect
+ * conflicts themselves.
+ *
+ * @param <T> a SCIM ResourceType that extends ScimResource
+ */
+public class UniquenessCheckingProvider<T extends ScimResource> extends DelegatingProvider<T> {
+
+  private static final String PENDING_OWNER_PREFIX = "pending:";
+
+  private final UniquenessIndex uniquenessIndex;
+
+  private final String resourceTypeName;
+
+  private final List<Attribute> uniqueAttributes;
+
+  /**
+   * @param uniqueAttributes the singular attributes of the resource type's
+   *          base schema whose uniqueness is server or global.
+   */
+  public UniquenessCheckingProvider(Provider<T> delegate, UniquenessIndex uniquenessIndex, String resourceTypeName, List<Attribute> uniqueAttributes) {
+    super(delegate);
+    this.uniquenessIndex = uniquenessIndex;
+    this.resourceTypeName = resourceTypeName;
+    this.uniqueAttributes = uniqueAttributes;
+  }
+
+  public UniquenessIndex getUniquenessIndex() {
+    return uniquenessIndex;
+  }
+
+  @Override
+  public T create(T resource) throws UnableToCreateResourceException {
+    Set<UniqueValue> values = getUniqueValues(resource);
+    if (values.isEmpty()) {
+      return super.create(resource);
+    }
+
+    String owner = PENDING_OWNER_PREFIX + UUID.randomUUID();
+    Set<UniqueValue> conflicts = uniquenessIndex.reserve(owner, values);
+    if (!conflicts.isEmpty()) {
+      throw new UnableToCreateResourceException(Status.CONFLICT, describe(conflicts));
+    }
+
+    T created;
+    try {
+      created = super.create(resource);
+    } catch (Exception | Error e) {
+      uniquenessIndex.release(owner);
+      throw e;
+    }
+
+    if (created != null && created.getId() != null) {
+      String createdOwner = ownerOf(created.getId());
+      uniquenessIndex.transfer(owner, createdOwner);
+      uniquenessIndex.retain(createdOwner, getUniqueValues(created));
+    } else {
+      uniquenessIndex.release(owner);
+    }
+    return created;
+  }
+
+  @Override
+  public T update(UpdateRequest<T> updateRequest) throws UnableToUpdateResourceException {
+    String owner = ownerOf(updateRequest.getId());
+    if (updateRequest.isPatch()) {
+      // The resource of a patch request cannot be built here, leave it to the provider
+      return super.update(updateRequest);
+    }
+    T resource = updateRequest.getResource();
+
+    Set<UniqueValue> values = getUniqueValues(resource);
+    Set<UniqueValue> conflicts = uniquenessIndex.reserve(owner, values);
+    if (!conflicts.isEmpty()) {
+      throw new UnableToUpdateResourceException(Status.CONFLICT, describe(conflicts));
+    }
+
+    T updated;
+    try {
+      updated = super.update(updateRequest);
+    } catch (Exception | Error e) {
+      uniquenessIndex.retain(owner, getUniqueValues(updateRequest.getOriginal()));
+      throw e;
+    }
+
+    uniquenessIndex.retain(owner, getUniqueValues(updated != null ? updated : resource));
+    return updated;
+  }
+
+  @Override
+  public void delete(String id) throws UnableToDeleteResourceException {
+    super.delete(id);
+    uniquenessIndex.release(ownerOf(id));
+  }
+
+  /**
+   * Ids are only unique within a resource type, so the owner of a resource's
+   * values is its id qualified by the type's name.
+   */
+  private String ownerOf(String id) {
+    return resourceTypeName + ":" + id;
+  }
+
+  Set<UniqueValue> getUniqueValues(T resource) {
+    if (resource == null || uniqueAttributes.isEmpty()) {
+      return Collections.emptySet();
+    }
+
+    Set<UniqueValue> values = new HashSet<>();
+    for (Attribute attribute : uniqueAttributes) {
+      Object value = attribute.getAccessor()
+                              .get(resource);
+      if (value == null || "".equals(value)) {
+        continue;
+      }
+      if (value instanceof String && !attribute.isCaseExact()) {
+        value = ((String) value).toLowerCase();
+      }
+      String scope = attribute.getUniqueness() == Uniqueness.GLOBAL ? null : resourceTypeName;
+      values.add(new UniqueValue(scope, attribute.getUrn() + ":" + attribute.getName(), value));
+    }
+    return values;
+  }
+
+  private static String describe(Set<UniqueValue> conflicts) {
+    return conflicts.stream()
+                    .map(conflict -> conflict.getAttribute()
+                                             .substring(conflict.getAttribute()
+                                                                .lastIndexOf(':') + 1) + " \"" + conflict.getValue() + "\"")
+                    .sorted()
+                    .collect(Collectors.joining(", ", "The value of ", " is already in use"));
+  }
+}
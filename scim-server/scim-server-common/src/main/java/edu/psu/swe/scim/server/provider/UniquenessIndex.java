@@ -0,0 +1,75 @@
+/*
+* Licensed to the Apache Software Foundation (ASF) under one
+* or more contributor license agreements.  See the NOTICE file
+* distributed with this work for additional information
+* regarding copyright ownership.  The ASF licenses this file
+* to you under the Apache License, Version 2.0 (the
+* "License"); you may not use this file except in compliance
+* with the License.  You may obtain a copy of the License at
+ 
+* http://www.apache.org/licenses/LICENSE-2.0
+
+* Unless required by applicable law or agreed to in writing,
+* software distributed under the License is distributed on an
+* "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+* KIND, either express or implied.  See the License for the
+* specific language governing permissions and limitations
+* under the License.
+*/
+
+package edu.psu.swe.scim.server.provider;
+
+import java.util.Set;
+
+import lombok.Value;
+
+/**
+ * Records which resource holds each value of the attributes that are
+ * declared unique, so that a conflicting create or update can be rejected
+ * without asking the provider. Values are held by an owner, which is the
+ * name of the resource's type and its id, separated by a colon, or a
+ * placeholder while the resource is being created.
+ * <p>
+ * An index only knows about the values that were written through it. The
+ * default {@link InMemoryUniquenessIndex} starts out empty; an implementation
+ * backed by the providers' store can be set with
+ * {@link ProviderRegistry#setUniquenessIndex(UniquenessIndex)}.
+ */
+public interface UniquenessIndex {
+
+  /**
+   * Reserves the values for the owner. Either all of the values are reserved
+   * or, if any of them is held by another owner, none are.
+   *
+   * @return the values held by other owners, empty if the values were
+   *         reserved.
+   */
+  Set<UniqueValue> reserve(String owner, Set<UniqueValue> values);
+
+  /**
+   * Releases the values held by the owner that are not in retained.
+   */
+  void retain(String owner, Set<UniqueValue> retained);
+
+  /**
+   * Releases all of the values held by the owner.
+   */
+  void release(String owner);
+
+  /**
+   * Hands the values held by owner over to newOwner.
+   */
+  void transfer(String owner, String newOwner);
+
+  /**
+   * A value of a unique attribute. Values of attributes that are unique
+   * within their resource type are scoped by the type's name, values that
+   * are globally unique have no scope.
+   */
+  @Value
+  class UniqueValue {
+    String scope;
+    String attribute;
+    Object value;
+  }
+}
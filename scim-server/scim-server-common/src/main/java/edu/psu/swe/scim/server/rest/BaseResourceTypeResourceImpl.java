@@ -24,6 +24,7 @@ import java.io.UnsupportedEncodingException;
 import java.net.URI;
 import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
@@ -47,12 +48,14 @@ import org.slf4j.LoggerFactory;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
 
+import edu.psu.swe.scim.server.configuration.ServerConfiguration;
 import edu.psu.swe.scim.server.exception.AttributeDoesNotExistException;
 import edu.psu.swe.scim.server.exception.ScimServerException;
 import edu.psu.swe.scim.server.exception.UnableToCreateResourceException;
 import edu.psu.swe.scim.server.exception.UnableToDeleteResourceException;
 import edu.psu.swe.scim.server.exception.UnableToRetrieveResourceException;
 import edu.psu.swe.scim.server.exception.UnableToUpdateResourceException;
+import edu.psu.swe.scim.server.provider.DelegatingProvider;
 import edu.psu.swe.scim.server.provider.Provider;
 import edu.psu.swe.scim.server.provider.UpdateRequest;
 import edu.psu.swe.scim.server.provider.annotations.ScimProcessingExtension;
@@ -63,6 +66,8 @@ import edu.psu.swe.scim.server.provider.extensions.exceptions.ClientFilterExcept
 import edu.psu.swe.scim.server.utility.AttributeUtil;
 import edu.psu.swe.scim.server.utility.EndpointUtil;
 import edu.psu.swe.scim.server.utility.EtagGenerator;
+import edu.psu.swe.scim.server.utility.FilterCostAnalyzer;
+import edu.psu.swe.scim.server.utility.SortUtil;
 import edu.psu.swe.scim.spec.adapter.FilterWrapper;
 import edu.psu.swe.scim.spec.protocol.BaseResourceTypeResource;
 import edu.psu.swe.scim.spec.protocol.ErrorMessageType;
@@ -103,6 +108,15 @@ public abstract class BaseResourceTypeResourceImpl<T extends ScimResource> imple
   @Inject
   private EtagGenerator etagGenerator;
 
+  @Inject
+  private SortUtil sortUtil;
+
+  @Inject
+  private FilterCostAnalyzer filterCostAnalyzer;
+
+  @Inject
+  private ServerConfiguration serverConfiguration;
+
   @Inject
   private Instance<UpdateRequest<T>> updateRequestInstance;
 
@@ -350,15 +364,18 @@ public abstract class BaseResourceTypeResourceImpl<T extends ScimResource> imple
       }
 
       Filter filter = request.getFilter();
+      filterCostAnalyzer.checkFilter(filter);
       PageRequest pageRequest = request.getPageRequest();
       SortRequest sortRequest = request.getSortRequest();
 
       ListResponse<T> listResponse = new ListResponse<>();
+      boolean pagedByServer = isPagedByServer(serverConfiguration, sortRequest);
 
       endpointUtil.process(uriInfo);
       FilterResponse<T> filterResp = null;
       try {
-        filterResp = provider.find(filter, pageRequest, sortRequest);
+        // When the page is taken here the provider must return every match, see Provider.find
+        filterResp = provider.find(filter, pagedByServer ? null : pageRequest, sortRequest);
       } catch (UnableToRetrieveResourceException e1) {
         log.info("Caught an UnableToRetrieveResourceException " + e1.getMessage() + " : " + e1.getStatus()
                                                                                               .toString());
@@ -384,9 +401,24 @@ public abstract class BaseResourceTypeResourceImpl<T extends ScimResource> imple
         listResponse.setTotalResults(filterResp.getResources()
                                                .size());
 
+        Collection<T> resources = filterResp.getResources();
+        if (pagedByServer) {
+          try {
+            resources = sortUtil.sort(resources, sortRequest, pageRequest);
+          } catch (AttributeDoesNotExistException e) {
+            ErrorResponse er = new ErrorResponse(Status.BAD_REQUEST, "Unable to sort by " + e.getMessage());
+            er.setScimType(ErrorMessageType.INVALID_VALUE);
+            return er.toResponse();
+          }
+          listResponse.setItemsPerPage(resources.size());
+          if (pageRequest != null && pageRequest.getStartIndex() != null && pageRequest.getStartIndex() > 1) {
+            listResponse.setStartIndex(pageRequest.getStartIndex());
+          }
+        }
+
         List<T> results = new ArrayList<>();
 
-        for (T resource : filterResp.getResources()) {
+        for (T resource : resources) {
           EntityTag etag = null;
 
           try {
@@ -482,7 +514,7 @@ public abstract class BaseResourceTypeResourceImpl<T extends ScimResource> imple
         updateRequest.initWithResource(id, stored, resource);
         updated = provider.update(updateRequest);
       } catch (UnableToUpdateResourceException e1) {
-        return createGenericExceptionResponse(e1, e1.getStatus());
+        return createUpdateExceptionResponse(e1);
       } catch (Exception e1) {
         log.error("Uncaught provider exception", e1);
 
@@ -584,7 +616,7 @@ public abstract class BaseResourceTypeResourceImpl<T extends ScimResource> imple
         updateRequest.initWithPatch(id, stored, patchRequest.getPatchOperationList());
         updated = provider.update(updateRequest);
       } catch (UnableToUpdateResourceException e1) {
-        return createGenericExceptionResponse(e1, e1.getStatus());
+        return createUpdateExceptionResponse(e1);
       } catch (UnsupportedOperationException e2) {
         return createGenericExceptionResponse(e2, Status.NOT_IMPLEMENTED);
       } catch (Exception e1) {
@@ -671,9 +703,17 @@ public abstract class BaseResourceTypeResourceImpl<T extends ScimResource> imple
   }
 
   @SuppressWarnings("unchecked")
+  /**
+   * @return true if the end-point sorts and pages the results of a search
+   *         itself, in which case the provider is not given the page.
+   */
+  static boolean isPagedByServer(ServerConfiguration serverConfiguration, SortRequest sortRequest) {
+    return serverConfiguration.isSupportsSort() && sortRequest != null && sortRequest.getSortBy() != null;
+  }
+
   private T processFilterAttributeExtensions(Provider<T> provider, T resource, Set<AttributeReference> attributeReferences, Set<AttributeReference> excludedAttributeReferences) throws ClientFilterException {
-    ScimProcessingExtension annotation = provider.getClass()
-                                                 .getAnnotation(ScimProcessingExtension.class);
+    ScimProcessingExtension annotation = DelegatingProvider.getImplementationClass(provider)
+                                                           .getAnnotation(ScimProcessingExtension.class);
     if (annotation != null) {
       Class<? extends ProcessingExtension>[] value = annotation.value();
       for (Class<? extends ProcessingExtension> class1 : value) {
@@ -697,9 +737,23 @@ public abstract class BaseResourceTypeResourceImpl<T extends ScimResource> imple
       LOG.warn("Provider must supply an id for a resource");
       id = "unknown";
     }
-    return uriInfo.getAbsolutePathBuilder()
-                  .path(id)
-                  .build();
+    String location = endpointUtil.getLocation(resource.getClass(), id);
+    if (location == null) {
+      return uriInfo.getAbsolutePathBuilder()
+                    .path(id)
+                    .build();
+    }
+    return URI.create(location);
+  }
+
+  private static Response createUpdateExceptionResponse(UnableToUpdateResourceException e1) {
+    if (e1.getStatus() != Status.CONFLICT) {
+      return createGenericExceptionResponse(e1, e1.getStatus());
+    }
+
+    ErrorResponse er = new ErrorResponse(Status.CONFLICT, e1.getMessage() != null ? e1.getMessage() : ErrorMessageType.UNIQUENESS.getDetail());
+    er.setScimType(ErrorMessageType.UNIQUENESS);
+    return er.toResponse();
   }
 
   public static Response createGenericExceptionResponse(Throwable e1, Status status) {
@@ -19,15 +19,17 @@
 
 package edu.psu.swe.scim.server.rest;
 
-import java.lang.reflect.Field;
+import java.net.URI;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
 import java.util.regex.Pattern;
 
 import javax.ejb.Stateless;
@@ -36,6 +38,7 @@ import javax.enterprise.inject.spi.CDI;
 import javax.inject.Inject;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.Response.Status;
+import javax.ws.rs.core.UriBuilder;
 import javax.ws.rs.core.UriInfo;
 
 import edu.psu.swe.scim.server.exception.UnableToCreateResourceException;
@@ -46,6 +49,7 @@ import edu.psu.swe.scim.server.provider.Provider;
 import edu.psu.swe.scim.server.provider.ProviderRegistry;
 import edu.psu.swe.scim.server.provider.UpdateRequest;
 import edu.psu.swe.scim.server.schema.Registry;
+import edu.psu.swe.scim.server.utility.ProviderExecutor;
 import edu.psu.swe.scim.spec.protocol.BulkResource;
 import edu.psu.swe.scim.spec.protocol.data.BulkOperation;
 import edu.psu.swe.scim.spec.protocol.data.BulkOperation.Method;
@@ -55,6 +59,7 @@ import edu.psu.swe.scim.spec.protocol.data.BulkResponse;
 import edu.psu.swe.scim.spec.protocol.data.ErrorResponse;
 import edu.psu.swe.scim.spec.resources.BaseResource;
 import edu.psu.swe.scim.spec.resources.ScimResource;
+import edu.psu.swe.scim.spec.schema.AttributeAccessor;
 import edu.psu.swe.scim.spec.schema.Schema;
 import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -106,6 +111,9 @@ public class BulkResourceImpl implements BulkResource {
   @Inject
   Instance<UpdateRequest<ScimResource>> updateRequestInstance;
 
+  @Inject
+  ProviderExecutor providerExecutor;
+
   @Override
   public Response doBulk(BulkRequest request, UriInfo uriInfo) {
     BulkResponse response;
@@ -224,55 +232,24 @@ public class BulkResourceImpl implements BulkResource {
       }
     }
     // do the operations
-    for (BulkOperation operationResult : bulkOperations) {
-      boolean errorCountExceeded = errorCount >= maxErrorCount;
+    if (canPerformConcurrently(request, bulkOperations)) {
+      performConcurrently(allUnresolveds, bulkOperations, bulkIdKeyToOperationResult, transitiveReverseDependencies, uriInfo.getBaseUri());
+    } else {
+      for (BulkOperation operationResult : bulkOperations) {
+        boolean errorCountExceeded = errorCount >= maxErrorCount;
 
-      if (!errorCountExceeded && !(operationResult.getResponse() instanceof ErrorResponse)) {
-        try {
-          this.handleBulkOperationMethod(allUnresolveds, operationResult, bulkIdKeyToOperationResult, uriInfo);
-        } catch (UnableToCreateResourceException | UnableToDeleteResourceException | UnableToUpdateResourceException resourceException) {
-          log.error("Failed to do bulk operation", resourceException);
-
-          errorCount += errorCountIncrement;
-          String detail = resourceException.getLocalizedMessage();
-          Status status;
-
-          if (resourceException instanceof UnableToCreateResourceException) {
-            status = ((UnableToCreateResourceException) resourceException).getStatus();
-          } else if (resourceException instanceof UnableToDeleteResourceException) {
-            status = ((UnableToDeleteResourceException) resourceException).getStatus();
-          } else {
-            status = ((UnableToUpdateResourceException) resourceException).getStatus();
+        if (!errorCountExceeded && !(operationResult.getResponse() instanceof ErrorResponse)) {
+          if (!performOperation(allUnresolveds, operationResult, bulkIdKeyToOperationResult, transitiveReverseDependencies, uriInfo.getBaseUri())) {
+            errorCount += errorCountIncrement;
           }
-
-          createAndSetErrorResponse(operationResult, status, detail);
+        } else if (errorCountExceeded) {
+          createAndSetErrorResponse(operationResult, Status.CONFLICT, "failOnErrors count reached");
 
           if (operationResult.getBulkId() != null) {
             String bulkIdKey = "bulkId:" + operationResult.getBulkId();
 
             this.cleanup(bulkIdKey, transitiveReverseDependencies, bulkIdKeyToOperationResult);
           }
-        } catch (UnresolvableOperationException unresolvableOperationException) {
-          log.error("Could not resolve bulkId during Bulk Operation method handling", unresolvableOperationException);
-
-          errorCount += errorCountIncrement;
-          String detail = unresolvableOperationException.getLocalizedMessage();
-
-          createAndSetErrorResponse(operationResult, Status.CONFLICT, detail);
-
-          if (operationResult.getBulkId() != null) {
-            String bulkIdKey = "bulkId:" + operationResult.getBulkId();
-
-            this.cleanup(bulkIdKey, transitiveReverseDependencies, bulkIdKeyToOperationResult);
-          }
-        }
-      } else if (errorCountExceeded) {
-        createAndSetErrorResponse(operationResult, Status.CONFLICT, "failOnErrors count reached");
-
-        if (operationResult.getBulkId() != null) {
-          String bulkIdKey = "bulkId:" + operationResult.getBulkId();
-
-          this.cleanup(bulkIdKey, transitiveReverseDependencies, bulkIdKeyToOperationResult);
         }
       }
     }
@@ -334,6 +311,91 @@ public class BulkResourceImpl implements BulkResource {
                    .build();
   }
 
+  /**
+   * Performs the operation, setting an error response on it when it fails.
+   *
+   * @return true if the operation succeeded
+   */
+  private boolean performOperation(List<IWishJavaHadTuples> allUnresolveds, BulkOperation operationResult, Map<String, BulkOperation> bulkIdKeyToOperationResult, Map<String, Set<String>> transitiveReverseDependencies, URI baseUri) {
+    try {
+      this.handleBulkOperationMethod(allUnresolveds, operationResult, bulkIdKeyToOperationResult, baseUri);
+      return true;
+    } catch (UnableToCreateResourceException | UnableToDeleteResourceException | UnableToUpdateResourceException resourceException) {
+      log.error("Failed to do bulk operation", resourceException);
+
+      String detail = resourceException.getLocalizedMessage();
+      Status status;
+
+      if (resourceException instanceof UnableToCreateResourceException) {
+        status = ((UnableToCreateResourceException) resourceException).getStatus();
+      } else if (resourceException instanceof UnableToDeleteResourceException) {
+        status = ((UnableToDeleteResourceException) resourceException).getStatus();
+      } else {
+        status = ((UnableToUpdateResourceException) resourceException).getStatus();
+      }
+
+      createAndSetErrorResponse(operationResult, status, detail);
+    } catch (UnresolvableOperationException unresolvableOperationException) {
+      log.error("Could not resolve bulkId during Bulk Operation method handling", unresolvableOperationException);
+
+      String detail = unresolvableOperationException.getLocalizedMessage();
+
+      createAndSetErrorResponse(operationResult, Status.CONFLICT, detail);
+    }
+
+    if (operationResult.getBulkId() != null) {
+      String bulkIdKey = "bulkId:" + operationResult.getBulkId();
+
+      this.cleanup(bulkIdKey, transitiveReverseDependencies, bulkIdKeyToOperationResult);
+    }
+    return false;
+  }
+
+  /**
+   * Operations can be performed concurrently, in the virtual thread mode of
+   * the ProviderExecutor, when the result can not depend on their order: no
+   * operation has a bulkId (so any bulkId reference fails the same way in any
+   * order), failOnErrors is not set and no two operations target the same
+   * resource.
+   */
+  private boolean canPerformConcurrently(BulkRequest request, List<BulkOperation> bulkOperations) {
+    if (providerExecutor == null || !providerExecutor.isConcurrentBulk() || request.getFailOnErrors() > 0) {
+      return false;
+    }
+
+    Set<String> paths = new HashSet<>();
+    for (BulkOperation operation : bulkOperations) {
+      if (operation.getResponse() instanceof ErrorResponse) {
+        continue;
+      }
+      if (operation.getBulkId() != null) {
+        return false;
+      }
+      if (operation.getMethod() != Method.POST && !paths.add(operation.getPath())) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private void performConcurrently(List<IWishJavaHadTuples> allUnresolveds, List<BulkOperation> bulkOperations, Map<String, BulkOperation> bulkIdKeyToOperationResult, Map<String, Set<String>> transitiveReverseDependencies, URI baseUri) {
+    List<IWishJavaHadTuples> unresolveds = Collections.synchronizedList(allUnresolveds);
+    List<Callable<Boolean>> operations = new ArrayList<>();
+    for (BulkOperation operationResult : bulkOperations) {
+      if (!(operationResult.getResponse() instanceof ErrorResponse)) {
+        operations.add(() -> performOperation(unresolveds, operationResult, bulkIdKeyToOperationResult, transitiveReverseDependencies, baseUri));
+      }
+    }
+
+    try {
+      providerExecutor.invokeAll(operations);
+    } catch (RuntimeException e) {
+      throw e;
+    } catch (Exception e) {
+      throw new IllegalStateException("Bulk operation failed", e);
+    }
+  }
+
   /**
    * Delete resources that depend on {@code bulkIdKeyToCleanup}, remove
    * {@link BulkOperation}s data, and set their code and response
@@ -385,13 +447,13 @@ public class BulkResourceImpl implements BulkResource {
    * @param unresolveds
    * @param operationResult
    * @param bulkIdKeyToOperationResult
-   * @param uriInfo
+   * @param baseUri
    * @throws UnableToCreateResourceException
    * @throws UnableToDeleteResourceException
    * @throws UnableToUpdateResourceException
    * @throws UnresolvableOperationException
    */
-  private void handleBulkOperationMethod(List<IWishJavaHadTuples> unresolveds, BulkOperation operationResult, Map<String, BulkOperation> bulkIdKeyToOperationResult, UriInfo uriInfo) throws UnableToCreateResourceException, UnableToDeleteResourceException, UnableToUpdateResourceException, UnresolvableOperationException {
+  private void handleBulkOperationMethod(List<IWishJavaHadTuples> unresolveds, BulkOperation operationResult, Map<String, BulkOperation> bulkIdKeyToOperationResult, URI baseUri) throws UnableToCreateResourceException, UnableToDeleteResourceException, UnableToUpdateResourceException, UnresolvableOperationException {
     ScimResource scimResource = operationResult.getData();
     Method bulkOperationMethod = operationResult.getMethod();
     String bulkId = operationResult.getBulkId();
@@ -420,7 +482,7 @@ public class BulkResourceImpl implements BulkResource {
       ScimResource newScimResource = provider.create(scimResource);
       String bulkOperationPath = operationResult.getPath();
       String newResourceId = newScimResource.getId();
-      String newResourceUri = uriInfo.getBaseUriBuilder()
+      String newResourceUri = UriBuilder.fromUri(baseUri)
                                      .path(bulkOperationPath)
                                      .path(newResourceId)
                                      .build()
@@ -510,7 +572,7 @@ public class BulkResourceImpl implements BulkResource {
   @AllArgsConstructor
   private static class UnresolvedComplex {
     private final Object object;
-    private final Field field;
+    private final AttributeAccessor accessor;
     private final String bulkIdKey;
 
     public void resolve(Map<String, BulkOperation> bulkIdKeyToOperationResult) throws UnresolvableOperationException {
@@ -522,9 +584,9 @@ public class BulkResourceImpl implements BulkResource {
         String resolvedId = resolvedResource.getId();
 
         try {
-          this.field.set(this.object, resolvedId);
-        } catch (IllegalAccessException illegalAccessException) {
-          log.error("Failed to access bulkId field", illegalAccessException);
+          this.accessor.set(this.object, resolvedId);
+        } catch (IllegalStateException illegalStateException) {
+          log.error("Failed to access bulkId field", illegalStateException);
         }
       } else {
         throw new UnresolvableOperationException(String.format(BULK_ID_REFERS_TO_FAILED_RESOURCE, this.bulkIdKey));
@@ -534,7 +596,7 @@ public class BulkResourceImpl implements BulkResource {
 
   @AllArgsConstructor
   private static abstract class UnresolvedTopLevel {
-    protected final Field field;
+    protected final AttributeAccessor accessor;
 
     public abstract void resolve(ScimResource scimResource, Map<String, BulkOperation> bulkIdKeyToOperationResult) throws UnresolvableOperationException;
   }
@@ -542,8 +604,8 @@ public class BulkResourceImpl implements BulkResource {
   private static class UnresolvedTopLevelBulkId extends UnresolvedTopLevel {
     private final String unresolvedBulkIdKey;
 
-    public UnresolvedTopLevelBulkId(Field field, String bulkIdKey) {
-      super(field);
+    public UnresolvedTopLevelBulkId(AttributeAccessor accessor, String bulkIdKey) {
+      super(accessor);
       this.unresolvedBulkIdKey = bulkIdKey;
     }
 
@@ -557,9 +619,9 @@ public class BulkResourceImpl implements BulkResource {
         String resolvedId = resolvedResource.getId();
 
         try {
-          super.field.set(scimResource, resolvedId);
-        } catch (IllegalAccessException illegalAccessException) {
-          log.error("Failed to access bulkId field", illegalAccessException);
+          super.accessor.set(scimResource, resolvedId);
+        } catch (IllegalStateException illegalStateException) {
+          log.error("Failed to access bulkId field", illegalStateException);
         }
       } else {
         throw new UnresolvableOperationException("Bulk ID cannot be resolved because the resource it refers to had failed to be created: " + this.unresolvedBulkIdKey);
@@ -571,8 +633,8 @@ public class BulkResourceImpl implements BulkResource {
     public final Object complex;
     public final List<UnresolvedComplex> unresolveds;
 
-    public UnresolvedTopLevelComplex(Field field, Object complex, List<UnresolvedComplex> unresolveds) {
-      super(field);
+    public UnresolvedTopLevelComplex(AttributeAccessor accessor, Object complex, List<UnresolvedComplex> unresolveds) {
+      super(accessor);
       this.complex = complex;
       this.unresolveds = unresolveds;
     }
@@ -583,9 +645,9 @@ public class BulkResourceImpl implements BulkResource {
         for (UnresolvedComplex unresolved : this.unresolveds) {
           unresolved.resolve(bulkIdKeyToOperationResult);
         }
-        this.field.set(scimResource, this.complex);
-      } catch (IllegalAccessException illegalAccessException) {
-        log.error("Could not resolve top level SCIM resource", illegalAccessException);
+        this.accessor.set(scimResource, this.complex);
+      } catch (IllegalStateException illegalStateException) {
+        log.error("Could not resolve top level SCIM resource", illegalStateException);
       }
     }
   }
@@ -608,12 +670,12 @@ public class BulkResourceImpl implements BulkResource {
     List<Schema.Attribute> attributes = attribute.getAttributes();
 
     for (Schema.Attribute subAttribute : attributes) {
-      Field attributeField = subAttribute.getField();
+      AttributeAccessor attributeAccessor = subAttribute.getAccessor();
 
       try {
         if (subAttribute.isScimResourceIdReference()) {
           // TODO - This will fail if field is a char or Character array
-          String bulkIdKey = (String) attributeField.get(attributeValue);
+          String bulkIdKey = (String) attributeAccessor.get(attributeValue);
 
           if (bulkIdKey != null && bulkIdKey.startsWith("bulkId:")) {
             log.debug("Found bulkId: {}", bulkIdKey);
@@ -625,9 +687,9 @@ public class BulkResourceImpl implements BulkResource {
               if ((response == null || !(response instanceof ErrorResponse)) && resolvedResource != null && resolvedResource.getId() != null) {
                 String resolvedId = resolvedResource.getId();
 
-                attributeField.set(attributeValue, resolvedId);
+                attributeAccessor.set(attributeValue, resolvedId);
               } else {
-                UnresolvedComplex unresolved = new UnresolvedComplex(attributeValue, attributeField, bulkIdKey);
+                UnresolvedComplex unresolved = new UnresolvedComplex(attributeValue, attributeAccessor, bulkIdKey);
 
                 unresolveds.add(unresolved);
               }
@@ -636,7 +698,7 @@ public class BulkResourceImpl implements BulkResource {
             }
           }
         } else if (subAttribute.getType() == Schema.Attribute.Type.COMPLEX) {
-          Object subFieldValue = attributeField.get(attributeValue);
+          Object subFieldValue = attributeAccessor.get(attributeValue);
 
           if (subFieldValue != null) {
             Class<?> subFieldClass = subFieldValue.getClass();
@@ -654,8 +716,8 @@ public class BulkResourceImpl implements BulkResource {
             }
           }
         }
-      } catch (IllegalAccessException illegalAccessException) {
-        log.error("Could not resolve bulkId within ScimResource attribute", illegalAccessException);
+      } catch (IllegalStateException illegalStateException) {
+        log.error("Could not resolve bulkId within ScimResource attribute", illegalStateException);
       }
     }
     log.debug("Resolved attribute had {} unresolved fields", unresolveds.size());
@@ -679,11 +741,11 @@ public class BulkResourceImpl implements BulkResource {
     List<UnresolvedTopLevel> unresolvedTopLevels = new ArrayList<>();
 
     for (Schema.Attribute attribute : schema.getAttributes()) {
-      Field attributeField = attribute.getField();
+      AttributeAccessor attributeAccessor = attribute.getAccessor();
 
       try {
         if (attribute.isScimResourceIdReference()) {
-          String bulkIdKey = (String) attributeField.get(scimResource);
+          String bulkIdKey = (String) attributeAccessor.get(scimResource);
 
           if (bulkIdKey != null && bulkIdKey.startsWith("bulkId:")) {
             if (bulkIdKeyToOperationResult.containsKey(bulkIdKey)) {
@@ -694,11 +756,11 @@ public class BulkResourceImpl implements BulkResource {
               if ((response == null || !(response instanceof ErrorResponse)) && resolvedResource != null) {
                 String resolvedId = resolvedResource.getId();
 
-                attributeField.set(scimResource, resolvedId);
+                attributeAccessor.set(scimResource, resolvedId);
               } else {
-                UnresolvedTopLevel unresolved = new UnresolvedTopLevelBulkId(attributeField, bulkIdKey);
+                UnresolvedTopLevel unresolved = new UnresolvedTopLevelBulkId(attributeAccessor, bulkIdKey);
 
-                attributeField.set(scimResource, null);
+                attributeAccessor.set(scimResource, null);
                 unresolvedTopLevels.add(unresolved);
               }
             } else {
@@ -706,7 +768,7 @@ public class BulkResourceImpl implements BulkResource {
             }
           }
         } else if (attribute.getType() == Schema.Attribute.Type.COMPLEX) {
-          Object attributeFieldValue = attributeField.get(scimResource);
+          Object attributeFieldValue = attributeAccessor.get(scimResource);
 
           if (attributeFieldValue != null) {
             List<UnresolvedComplex> subUnresolveds = new ArrayList<>();
@@ -725,15 +787,15 @@ public class BulkResourceImpl implements BulkResource {
             }
 
             if (subUnresolveds.size() > 0) {
-              UnresolvedTopLevel unresolved = new UnresolvedTopLevelComplex(attributeField, attributeFieldValue, subUnresolveds);
+              UnresolvedTopLevel unresolved = new UnresolvedTopLevelComplex(attributeAccessor, attributeFieldValue, subUnresolveds);
 
-              attributeField.set(scimResource, null);
+              attributeAccessor.set(scimResource, null);
               unresolvedTopLevels.add(unresolved);
             }
           }
         }
-      } catch (IllegalAccessException illegalAccessException) {
-        log.error("Failed to access a ScimResource ID reference field to resolve it", illegalAccessException);
+      } catch (IllegalStateException illegalStateException) {
+        log.error("Failed to access a ScimResource ID reference field to resolve it", illegalStateException);
       }
     }
     if (unresolvedTopLevels.size() > 0) {
@@ -791,7 +853,7 @@ public class BulkResourceImpl implements BulkResource {
     for (Schema.Attribute scimObjectAttribute : scimObjectAttributes)
       try {
         if (scimObjectAttribute.isScimResourceIdReference()) {
-          String reference = (String) scimObjectAttribute.getField()
+          String reference = (String) scimObjectAttribute.getAccessor()
                                                          .get(scimObject);
 
           if (reference != null && reference.startsWith("bulkId:")) {
@@ -803,7 +865,7 @@ public class BulkResourceImpl implements BulkResource {
                                                           // are COMPLEX, not
                                                           // all COMPLEXES are
                                                           // multiValued
-          Object attributeObject = scimObjectAttribute.getField()
+          Object attributeObject = scimObjectAttribute.getAccessor()
                                                       .get(scimObject);
           Class<?> attributeObjectClass = attributeObject.getClass();
           boolean isCollection = Collection.class.isAssignableFrom(attributeObjectClass);
@@ -814,14 +876,14 @@ public class BulkResourceImpl implements BulkResource {
             generateReverseDependenciesGraph(reverseDependenciesGraph, dependentBulkId, attributeValue, subAttributes);
           }
         } else if (scimObjectAttribute.getType() == Schema.Attribute.Type.COMPLEX) {
-          Object attributeValue = scimObjectAttribute.getField()
+          Object attributeValue = scimObjectAttribute.getAccessor()
                                                      .get(scimObject);
           List<Schema.Attribute> subAttributes = scimObjectAttribute.getAttributes();
 
           generateReverseDependenciesGraph(reverseDependenciesGraph, dependentBulkId, attributeValue, subAttributes);
         }
-      } catch (IllegalAccessException illegalAccessException) {
-        log.error("Resolving reverse dependencies", illegalAccessException);
+      } catch (IllegalStateException illegalStateException) {
+        log.error("Resolving reverse dependencies", illegalStateException);
       }
   }
 
@@ -0,0 +1,286 @@
+/*
+* Licensed to the Apache Software Foundation (ASF) under one
+* or more contributor license agreements.  See the NOTICE file
+* distributed with this work for additional information
+* regarding copyright ownership.  The ASF licenses this file
+* to you under the Apache License, Version 2.0 (the
+* "License"); you may not use this file except in compliance
+* with the License.  You may obtain a copy of the License at
+ 
+* http://www.apache.org/licenses/LICENSE-2.0
+
+* Unless required by applicable law or agreed to in writing,
+* software distributed under the License is distributed on an
+* "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+* KIND, either express or implied.  See the License for the
+* specific language governing permissions and limitations
+* under the License.
+*/
+
+package edu.psu.swe.scim.server.rest;
+
+import java.io.IOException;
+import java.net.URI;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.ejb.ConcurrencyManagement;
+import javax.ejb.ConcurrencyManagementType;
+import javax.ejb.Singleton;
+import javax.inject.Inject;
+import javax.ws.rs.Path;
+import javax.ws.rs.core.EntityTag;
+import javax.ws.rs.core.Request;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.Response.ResponseBuilder;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import edu.psu.swe.scim.server.configuration.ServerConfiguration;
+import edu.psu.swe.scim.server.schema.Registry;
+import edu.psu.swe.scim.server.utility.EndpointPrefixCache;
+import edu.psu.swe.scim.server.utility.EndpointPrefixCache.EndpointPrefixes;
+import edu.psu.swe.scim.server.utility.EtagGenerator;
+import edu.psu.swe.scim.spec.json.ObjectMapperFactory;
+import edu.psu.swe.scim.spec.protocol.Constants;
+import edu.psu.swe.scim.spec.protocol.ResourceTypesResource;
+import edu.psu.swe.scim.spec.protocol.SchemaResource;
+import edu.psu.swe.scim.spec.protocol.ServiceProviderConfigResource;
+import edu.psu.swe.scim.spec.protocol.data.ListResponse;
+import edu.psu.swe.scim.spec.schema.Meta;
+import edu.psu.swe.scim.spec.schema.ResourceType;
+import edu.psu.swe.scim.spec.schema.Schema;
+import edu.psu.swe.scim.spec.schema.ServiceProviderConfiguration;
+
+/**
+ * Renders the discovery documents served from /Schemas, /ResourceTypes and
+ * /ServiceProviderConfig once per base URI and keeps the rendered bytes along
+ * with their entity tags. The schemas and resource types held by the
+ * {@link Registry} are shared between requests, so their meta attributes are
+ * added to a copy of their JSON rather than set on the objects themselves.
+ * The documents are rendered again once the registry changes, which happens
+ * whenever a provider is registered.
+ */
+@Singleton
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
+public class DiscoveryDocumentCache {
+
+  static final String SCHEMAS_ENDPOINT = SchemaResource.class.getAnnotation(Path.class).value();
+
+  static final String RESOURCE_TYPES_ENDPOINT = ResourceTypesResource.class.getAnnotation(Path.class).value();
+
+  static final String SERVICE_PROVIDER_CONFIG_ENDPOINT = ServiceProviderConfigResource.class.getAnnotation(Path.class).value();
+
+  /**
+   * The base URI is derived from the request, so the number of cached entries
+   * is capped rather than trusting every Host header that is presented.
+   */
+  static final int MAXIMUM_BASE_URIS = 64;
+
+  @Inject
+  Registry registry;
+
+  @Inject
+  EndpointPrefixCache endpointPrefixCache;
+
+  @Inject
+  EtagGenerator etagGenerator;
+
+  private final ConcurrentMap<URI, DiscoveryDocuments> documentsByBaseUri = new ConcurrentHashMap<>();
+
+  public DiscoveryDocumentCache() {
+  }
+
+  public DiscoveryDocumentCache(Registry registry, EndpointPrefixCache endpointPrefixCache, EtagGenerator etagGenerator) {
+    this.registry = registry;
+    this.endpointPrefixCache = endpointPrefixCache;
+    this.etagGenerator = etagGenerator;
+  }
+
+  public RenderedDocument getAllSchemas(URI baseUri) throws IOException, NoSuchAlgorithmException {
+    return getDocuments(baseUri).allSchemas;
+  }
+
+  /**
+   * @return the rendered schema, or null if there is no schema with the urn.
+   */
+  public RenderedDocument getSchema(URI baseUri, String urn) throws IOException, NoSuchAlgorithmException {
+    return getDocuments(baseUri).schemas.get(urn);
+  }
+
+  public RenderedDocument getAllResourceTypes(URI baseUri) throws IOException, NoSuchAlgorithmException {
+    return getDocuments(baseUri).allResourceTypes;
+  }
+
+  /**
+   * @return the rendered resource type, or null if there is no resource type
+   *         with the name.
+   */
+  public RenderedDocument getResourceType(URI baseUri, String name) throws IOException, NoSuchAlgorithmException {
+    return getDocuments(baseUri).resourceTypes.get(name);
+  }
+
+  /**
+   * The configuration is mutable, so the document is rendered again if the
+   * configuration no longer has the hash code it had when it was rendered.
+   */
+  public RenderedDocument getServiceProviderConfiguration(URI baseUri, ServerConfiguration serverConfiguration) throws IOException, NoSuchAlgorithmException {
+    DiscoveryDocuments documents = getDocuments(baseUri);
+    int configurationHash = serverConfiguration.hashCode();
+
+    RenderedDocument document = documents.serviceProviderConfiguration;
+    if (document == null || document.sourceHash != configurationHash) {
+      String location = endpointPrefixCache.getPrefixes(baseUri)
+                                           .getPrefix(SERVICE_PROVIDER_CONFIG_ENDPOINT);
+      ServiceProviderConfiguration serviceProviderConfiguration = ServiceProviderConfigResourceImpl.createServiceProviderConfiguration(serverConfiguration, location);
+      EntityTag etag = etagGenerator.generateEtag(serviceProviderConfiguration);
+      byte[] body = ObjectMapperFactory.getObjectMapper()
+                                       .writeValueAsBytes(serviceProviderConfiguration);
+
+      document = new RenderedDocument(body, etag, configurationHash);
+      documents.serviceProviderConfiguration = document;
+    }
+    return document;
+  }
+
+  /**
+   * Drops every rendered document so that they are rendered again on their
+   * next request.
+   */
+  public void invalidate() {
+    documentsByBaseUri.clear();
+  }
+
+  int size() {
+    return documentsByBaseUri.size();
+  }
+
+  private DiscoveryDocuments getDocuments(URI baseUri) throws IOException, NoSuchAlgorithmException {
+    long generation = registry.getGeneration();
+    DiscoveryDocuments documents = documentsByBaseUri.get(baseUri);
+    if (documents == null || documents.generation != generation) {
+      documents = render(baseUri, generation);
+      if (documentsByBaseUri.size() >= MAXIMUM_BASE_URIS) {
+        documentsByBaseUri.clear();
+      }
+      documentsByBaseUri.put(baseUri, documents);
+    }
+    return documents;
+  }
+
+  private DiscoveryDocuments render(URI baseUri, long generation) throws IOException, NoSuchAlgorithmException {
+    ObjectMapper objectMapper = ObjectMapperFactory.getObjectMapper();
+    EndpointPrefixes prefixes = endpointPrefixCache.getPrefixes(baseUri);
+
+    Map<String, RenderedDocument> schemas = new HashMap<>();
+    List<JsonNode> schemaNodes = new ArrayList<>();
+    for (Schema schema : registry.getAllSchemas()) {
+      Meta meta = new Meta();
+      meta.setLocation(prefixes.getLocation(SCHEMAS_ENDPOINT, schema.getId()));
+      meta.setResourceType(Schema.RESOURCE_NAME);
+
+      ObjectNode node = withMeta(objectMapper, schema, meta);
+      schemaNodes.add(node);
+      schemas.put(schema.getId(), render(objectMapper, node));
+    }
+
+    Map<String, RenderedDocument> resourceTypes = new HashMap<>();
+    List<JsonNode> resourceTypeNodes = new ArrayList<>();
+    for (ResourceType resourceType : registry.getAllResourceTypes()) {
+      Meta meta = new Meta();
+      meta.setLocation(prefixes.getLocation(RESOURCE_TYPES_ENDPOINT, resourceType.getName()));
+      meta.setResourceType(resourceType.getResourceType());
+
+      ObjectNode node = withMeta(objectMapper, resourceType, meta);
+      resourceTypeNodes.add(node);
+      resourceTypes.put(resourceType.getName(), render(objectMapper, node));
+    }
+
+    return new DiscoveryDocuments(generation, render(objectMapper, toListResponse(schemaNodes)), schemas, render(objectMapper, toListResponse(resourceTypeNodes)), resourceTypes);
+  }
+
+  private static ObjectNode withMeta(ObjectMapper objectMapper, Object value, Meta meta) {
+    ObjectNode node = objectMapper.valueToTree(value);
+    node.set("meta", objectMapper.valueToTree(meta));
+    return node;
+  }
+
+  private static ListResponse<JsonNode> toListResponse(List<JsonNode> nodes) {
+    ListResponse<JsonNode> listResponse = new ListResponse<>();
+    listResponse.setItemsPerPage(nodes.size());
+    listResponse.setStartIndex(1);
+    listResponse.setTotalResults(nodes.size());
+    listResponse.setResources(nodes);
+    return listResponse;
+  }
+
+  private static RenderedDocument render(ObjectMapper objectMapper, Object value) throws IOException, NoSuchAlgorithmException {
+    byte[] body = objectMapper.writeValueAsBytes(value);
+    return new RenderedDocument(body, EtagGenerator.generateEtag(body), 0);
+  }
+
+  private static final class DiscoveryDocuments {
+    final long generation;
+    final RenderedDocument allSchemas;
+    final Map<String, RenderedDocument> schemas;
+    final RenderedDocument allResourceTypes;
+    final Map<String, RenderedDocument> resourceTypes;
+    volatile RenderedDocument serviceProviderConfiguration;
+
+    DiscoveryDocuments(long generation, RenderedDocument allSchemas, Map<String, RenderedDocument> schemas, RenderedDocument allResourceTypes, Map<String, RenderedDocument> resourceTypes) {
+      this.generation = generation;
+      this.allSchemas = allSchemas;
+      this.schemas = Collections.unmodifiableMap(schemas);
+      this.allResourceTypes = allResourceTypes;
+      this.resourceTypes = Collections.unmodifiableMap(resourceTypes);
+    }
+  }
+
+  /**
+   * A document rendered to bytes. The bytes are handed to the container as
+   * they are, so they must never be modified.
+   */
+  public static final class RenderedDocument {
+    private final byte[] body;
+    private final EntityTag etag;
+    private final int sourceHash;
+
+    RenderedDocument(byte[] body, EntityTag etag, int sourceHash) {
+      this.body = body;
+      this.etag = etag;
+      this.sourceHash = sourceHash;
+    }
+
+    public EntityTag getEtag() {
+      return etag;
+    }
+
+    byte[] getBody() {
+      return body;
+    }
+
+    /**
+     * @return 304 (Not Modified) if the request's If-None-Match matches the
+     *         entity tag, otherwise the document itself.
+     */
+    public Response toResponse(Request request) {
+      if (request != null) {
+        ResponseBuilder notModified = request.evaluatePreconditions(etag);
+        if (notModified != null) {
+          return notModified.build();
+        }
+      }
+      return Response.ok(body, Constants.SCIM_CONTENT_TYPE)
+                     .tag(etag)
+                     .build();
+    }
+  }
+}
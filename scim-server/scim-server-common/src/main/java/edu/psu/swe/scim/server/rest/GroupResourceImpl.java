@@ -26,8 +26,10 @@ import javax.ejb.Stateless;
 import javax.enterprise.inject.Instance;
 import javax.enterprise.inject.spi.CDI;
 import javax.enterprise.util.TypeLiteral;
+import javax.inject.Inject;
 
 import edu.psu.swe.scim.server.provider.Provider;
+import edu.psu.swe.scim.server.provider.ProviderRegistry;
 import edu.psu.swe.scim.spec.protocol.GroupResource;
 import edu.psu.swe.scim.spec.resources.ScimGroup;
 import lombok.extern.slf4j.Slf4j;
@@ -40,13 +42,21 @@ public class GroupResourceImpl extends BaseResourceTypeResourceImpl<ScimGroup> i
 ////  @ProviderQualifier(ScimGroup.class)
 //  Provider<ScimGroup> provider;
 
+  @Inject
+  ProviderRegistry providerRegistry;
+
   @Override
+  @SuppressWarnings("deprecation")
   public Provider<ScimGroup> getProvider() {
     try {
       TypeLiteral<Provider<ScimGroup>> typeLiteral = new TypeLiteral<Provider<ScimGroup>>() {
       };
       Instance<Provider<ScimGroup>> select = CDI.current().select(typeLiteral);
-      return select.get();
+      if (select.isUnsatisfied()) {
+        // The type may have been registered with an AsyncProvider
+        return providerRegistry.getProvider(ScimGroup.class);
+      }
+      return providerRegistry.getDecorated(ScimGroup.class, select.get());
     } catch (Exception e) {
       log.warn("Provider doesn't exist", e);
       return null;
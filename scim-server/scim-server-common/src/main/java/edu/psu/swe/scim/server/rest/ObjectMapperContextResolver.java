@@ -24,42 +24,48 @@ import javax.inject.Inject;
 import javax.ws.rs.ext.ContextResolver;
 import javax.ws.rs.ext.Provider;
 
-import com.fasterxml.jackson.annotation.JsonInclude.Include;
-import com.fasterxml.jackson.databind.AnnotationIntrospector;
-import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.introspect.AnnotationIntrospectorPair;
-import com.fasterxml.jackson.databind.introspect.JacksonAnnotationIntrospector;
 import com.fasterxml.jackson.databind.module.SimpleModule;
-import com.fasterxml.jackson.module.jaxb.JaxbAnnotationIntrospector;
-import com.fasterxml.jackson.module.jaxb.JaxbAnnotationModule;
 
+import edu.psu.swe.scim.server.configuration.ServerConfiguration;
 import edu.psu.swe.scim.server.schema.Registry;
+import edu.psu.swe.scim.spec.json.ObjectMapperFactory;
 import edu.psu.swe.scim.spec.resources.ScimResource;
 
 @Provider
-public class ObjectMapperContextResolver extends edu.psu.swe.commons.jaxrs.server.ObjectMapperContextResolver {
+public class ObjectMapperContextResolver implements ContextResolver<ObjectMapper> {
 
-  private final ObjectMapper objectMapper;
+  private ObjectMapper objectMapper;
 
   @Inject
   Registry registry;
+
+  @Inject
+  ServerConfiguration serverConfiguration;
   
   //Called through normal injection and calls Post Construct
   public ObjectMapperContextResolver() {
-    super();
-    objectMapper = super.getContext(null);
+    objectMapper = ObjectMapperFactory.createObjectMapper();
   }
   
-  //Not call through container context and therefore must manually call postConstruct method
   public ObjectMapperContextResolver(Registry registry) {
+    this(registry, null);
+  }
+
+  //Not call through container context and therefore must manually call postConstruct method
+  public ObjectMapperContextResolver(Registry registry, ServerConfiguration serverConfiguration) {
     this();
     this.registry = registry;
+    this.serverConfiguration = serverConfiguration;
     postConstruct();
   }
 
   @PostConstruct
   protected void postConstruct() {
+    if (serverConfiguration != null && serverConfiguration.isAcceleratedSerialization()) {
+      objectMapper = ObjectMapperFactory.createAcceleratedObjectMapper();
+    }
+
     SimpleModule module = new SimpleModule();
     module.addDeserializer(ScimResource.class, new ScimResourceDeserializer(this.registry, this.objectMapper));
     this.objectMapper.registerModule(module);
@@ -19,31 +19,31 @@
 
 package edu.psu.swe.scim.server.rest;
 
-import java.util.ArrayList;
-import java.util.Collection;
-import java.util.List;
+import java.io.IOException;
+import java.security.NoSuchAlgorithmException;
 
 import javax.ejb.Stateless;
 import javax.inject.Inject;
 import javax.ws.rs.core.Context;
+import javax.ws.rs.core.Request;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.Response.Status;
 import javax.ws.rs.core.UriInfo;
 
-import edu.psu.swe.scim.server.schema.Registry;
+import edu.psu.swe.scim.server.rest.DiscoveryDocumentCache.RenderedDocument;
 import edu.psu.swe.scim.spec.protocol.ResourceTypesResource;
-import edu.psu.swe.scim.spec.protocol.data.ListResponse;
-import edu.psu.swe.scim.spec.schema.Meta;
-import edu.psu.swe.scim.spec.schema.ResourceType;
 
 @Stateless
 public class ResourceTypesResourceImpl implements ResourceTypesResource {
 
   @Inject
-  private Registry registry;
+  DiscoveryDocumentCache discoveryDocumentCache;
   
   @Context 
-  private UriInfo uriInfo;
+  UriInfo uriInfo;
+  
+  @Context
+  Request request;
   
   @Override
   public Response getAllResourceTypes(String filter) {
@@ -52,41 +52,26 @@ public class ResourceTypesResourceImpl implements ResourceTypesResource {
       return Response.status(Status.FORBIDDEN).build();
     }
 
-    Collection<ResourceType> resourceTypes = registry.getAllResourceTypes();
-    
-    for (ResourceType resourceType : resourceTypes) {
-      Meta meta = new Meta();
-      meta.setLocation(uriInfo.getAbsolutePathBuilder().path(resourceType.getName()).build().toString());
-      meta.setResourceType(resourceType.getResourceType());
-      
-      resourceType.setMeta(meta);
+    try {
+      return discoveryDocumentCache.getAllResourceTypes(uriInfo.getBaseUri())
+                                   .toResponse(request);
+    } catch (IOException | NoSuchAlgorithmException e) {
+      return BaseResourceTypeResourceImpl.createGenericExceptionResponse(e, Status.INTERNAL_SERVER_ERROR);
     }
-    
-    ListResponse<ResourceType> listResponse = new ListResponse<>();
-    listResponse.setItemsPerPage(resourceTypes.size());
-    listResponse.setStartIndex(1);
-    listResponse.setTotalResults(resourceTypes.size());
-    
-    List<ResourceType> objectList = new ArrayList<>(resourceTypes);
-    listResponse.setResources(objectList);
-    
-    return Response.ok(listResponse).build();
   }
 
   @Override
   public Response getResourceType(String name) {
-    ResourceType resourceType = registry.getResourceType(name);
-    if (resourceType == null){
-      return Response.status(Status.NOT_FOUND).build();  
+    try {
+      RenderedDocument resourceType = discoveryDocumentCache.getResourceType(uriInfo.getBaseUri(), name);
+      if (resourceType == null){
+        return Response.status(Status.NOT_FOUND).build();  
+      }
+      
+      return resourceType.toResponse(request);
+    } catch (IOException | NoSuchAlgorithmException e) {
+      return BaseResourceTypeResourceImpl.createGenericExceptionResponse(e, Status.INTERNAL_SERVER_ERROR);
     }
-    
-    Meta meta = new Meta();
-    meta.setLocation(uriInfo.getAbsolutePath().toString());
-    meta.setResourceType(resourceType.getResourceType());
-    
-    resourceType.setMeta(meta);
-    
-    return Response.ok(resourceType).build();
   }
 
 }
@@ -19,31 +19,31 @@
 
 package edu.psu.swe.scim.server.rest;
 
-import java.util.ArrayList;
-import java.util.Collection;
-import java.util.List;
+import java.io.IOException;
+import java.security.NoSuchAlgorithmException;
 
 import javax.ejb.Stateless;
 import javax.inject.Inject;
 import javax.ws.rs.core.Context;
+import javax.ws.rs.core.Request;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.Response.Status;
 import javax.ws.rs.core.UriInfo;
 
-import edu.psu.swe.scim.server.schema.Registry;
+import edu.psu.swe.scim.server.rest.DiscoveryDocumentCache.RenderedDocument;
 import edu.psu.swe.scim.spec.protocol.SchemaResource;
-import edu.psu.swe.scim.spec.protocol.data.ListResponse;
-import edu.psu.swe.scim.spec.schema.Meta;
-import edu.psu.swe.scim.spec.schema.Schema;
 
 @Stateless
 public class SchemaResourceImpl implements SchemaResource {
   
   @Inject
-  Registry registry;
+  DiscoveryDocumentCache discoveryDocumentCache;
   
   @Context 
-  private UriInfo uriInfo;
+  UriInfo uriInfo;
+  
+  @Context
+  Request request;
   
   @Override
   public Response getAllSchemas(String filter) {
@@ -52,42 +52,26 @@ public class SchemaResourceImpl implements SchemaResource {
       return Response.status(Status.FORBIDDEN).build();
     }
     
-    ListResponse<Schema> listResponse = new ListResponse<>();
-    Collection<Schema> schemas = registry.getAllSchemas();
-    
-    for (Schema schema : schemas) {
-      Meta meta = new Meta();
-      meta.setLocation(uriInfo.getAbsolutePathBuilder().path(schema.getId()).build().toString());
-      meta.setResourceType(Schema.RESOURCE_NAME);
-      
-      schema.setMeta(meta);
+    try {
+      return discoveryDocumentCache.getAllSchemas(uriInfo.getBaseUri())
+                                   .toResponse(request);
+    } catch (IOException | NoSuchAlgorithmException e) {
+      return BaseResourceTypeResourceImpl.createGenericExceptionResponse(e, Status.INTERNAL_SERVER_ERROR);
     }
-    
-    listResponse.setItemsPerPage(schemas.size());
-    listResponse.setStartIndex(1);
-    listResponse.setTotalResults(schemas.size());
-    
-    List<Schema> objectList = new ArrayList<>(schemas);
-    listResponse.setResources(objectList);
-    
-    return Response.ok(listResponse).build();
   }
 
   @Override
   public Response getSchema(String urn) {
     
-    Schema schema = registry.getSchema(urn);
-    if (schema == null){
-      return Response.status(Status.NOT_FOUND).build();  
+    try {
+      RenderedDocument schema = discoveryDocumentCache.getSchema(uriInfo.getBaseUri(), urn);
+      if (schema == null){
+        return Response.status(Status.NOT_FOUND).build();  
+      }
+      
+      return schema.toResponse(request);
+    } catch (IOException | NoSuchAlgorithmException e) {
+      return BaseResourceTypeResourceImpl.createGenericExceptionResponse(e, Status.INTERNAL_SERVER_ERROR);
     }
-    
-    Meta meta = new Meta();
-    meta.setLocation(uriInfo.getAbsolutePath().toString());
-    meta.setResourceType(Schema.RESOURCE_NAME);
-    
-    schema.setMeta(meta);
-    
-    return Response.ok(schema).build();
-    
   }
 }
@@ -20,22 +20,32 @@
 package edu.psu.swe.scim.server.rest;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 
 import com.fasterxml.jackson.core.JsonLocation;
 import com.fasterxml.jackson.core.JsonParseException;
 import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.core.TreeNode;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.util.JsonParserSequence;
 import com.fasterxml.jackson.databind.DeserializationContext;
 import com.fasterxml.jackson.databind.JsonDeserializer;
-import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
 
 import edu.psu.swe.scim.server.schema.Registry;
 import edu.psu.swe.scim.spec.resources.ScimResource;
 
+/**
+ * Binds a request body to the {@link ScimResource} class registered for one
+ * of the URNs in its "schemas" attribute. Only the attributes that precede
+ * "schemas" are buffered; the rest of the body is bound straight from the
+ * request's parser, so the body is parsed once.
+ */
 public class ScimResourceDeserializer extends JsonDeserializer<ScimResource> {
+  private static final String SCHEMAS = "schemas";
+
   private final Registry registry;
   private final ObjectMapper objectMapper;
 
@@ -46,25 +56,65 @@ public class ScimResourceDeserializer extends JsonDeserializer<ScimResource> {
 
   @Override
   public ScimResource deserialize(JsonParser jsonParser, DeserializationContext deserializationContext) throws IOException, JsonProcessingException {
-    ScimResource scimResource;
     JsonLocation location = jsonParser.getCurrentLocation();
-    TreeNode node = jsonParser.getCodec().readTree(jsonParser);
-    ArrayNode schemas = (ArrayNode) node.get("schemas");
+    TokenBuffer buffer = new TokenBuffer(jsonParser, deserializationContext);
+    buffer.writeStartObject();
+
+    JsonToken token = jsonParser.getCurrentToken();
+    if (token == JsonToken.START_OBJECT) {
+      token = jsonParser.nextToken();
+    }
+
+    List<String> schemas = null;
     Class<? extends ScimResource> scimResourceClass = null;
 
-    for (JsonNode schemaUrnNode : schemas) {
-      String schemaUrn = schemaUrnNode.textValue();
-      scimResourceClass = registry.findScimResourceClass(schemaUrn);
+    for (; token == JsonToken.FIELD_NAME; token = jsonParser.nextToken()) {
+      String fieldName = jsonParser.getCurrentName();
+      buffer.writeFieldName(fieldName);
+      jsonParser.nextToken();
 
-      if (scimResourceClass != null) {
-        break;
+      if (SCHEMAS.equals(fieldName) && jsonParser.getCurrentToken() == JsonToken.START_ARRAY) {
+        schemas = copySchemas(jsonParser, buffer);
+        scimResourceClass = findScimResourceClass(schemas);
+        if (scimResourceClass != null) {
+          break;
+        }
+      } else {
+        buffer.copyCurrentStructure(jsonParser);
       }
     }
+
     if (scimResourceClass == null) {
-      throw new JsonParseException("Could not find a valid schema in: " + schemas + ", valid schemas are: " + registry.getAllSchemaUrns(), location);
+      throw new JsonParseException(jsonParser, "Could not find a valid schema in: " + schemas + ", valid schemas are: " + registry.getAllSchemaUrns(), location);
+    }
+
+    // Replay the buffered attributes, then continue with the rest of the body
+    JsonParser resourceParser = JsonParserSequence.createFlattened(false, buffer.asParser(jsonParser), jsonParser);
+    resourceParser.nextToken();
+
+    return objectMapper.readValue(resourceParser, scimResourceClass);
+  }
+
+  private static List<String> copySchemas(JsonParser jsonParser, TokenBuffer buffer) throws IOException {
+    List<String> schemas = new ArrayList<>();
+    buffer.writeStartArray();
+    while (jsonParser.nextToken() != JsonToken.END_ARRAY) {
+      buffer.copyCurrentStructure(jsonParser);
+      if (jsonParser.getCurrentToken() == JsonToken.VALUE_STRING) {
+        schemas.add(jsonParser.getText());
+      }
     }
-    scimResource = objectMapper.readValue(node.toString(), scimResourceClass);
+    buffer.writeEndArray();
+    return schemas;
+  }
 
-    return scimResource;
+  private Class<? extends ScimResource> findScimResourceClass(List<String> schemas) {
+    for (String schemaUrn : schemas) {
+      Class<? extends ScimResource> scimResourceClass = registry.findScimResourceClass(schemaUrn);
+      if (scimResourceClass != null) {
+        return scimResourceClass;
+      }
+    }
+    return null;
   }
 }
@@ -6,7 +6,7 @@
 * to you under the Apache License, Version 2.0 (the
 * "License"); you may not use this file except in compliance
 * with the License.  You may obtain a copy of the License at
- 
+
 * http://www.apache.org/licenses/LICENSE-2.0
 
 * Unless required by applicable law or agreed to in writing,
@@ -19,8 +19,270 @@
 
 package edu.psu.swe.scim.server.rest;
 
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.Callable;
+
+import javax.ejb.Stateless;
+import javax.inject.Inject;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.Response.Status;
+
+import edu.psu.swe.scim.server.exception.AttributeDoesNotExistException;
+import edu.psu.swe.scim.server.exception.ScimServerException;
+import edu.psu.swe.scim.server.exception.UnableToRetrieveResourceException;
+import edu.psu.swe.scim.server.provider.Provider;
+import edu.psu.swe.scim.server.provider.ProviderRegistry;
+import edu.psu.swe.scim.server.schema.Registry;
+import edu.psu.swe.scim.server.utility.AttributeUtil;
+import edu.psu.swe.scim.server.utility.FilterCostAnalyzer;
+import edu.psu.swe.scim.server.utility.ProviderExecutor;
+import edu.psu.swe.scim.server.utility.SortUtil;
 import edu.psu.swe.scim.spec.protocol.SearchResource;
+import edu.psu.swe.scim.spec.protocol.attribute.AttributeReference;
+import edu.psu.swe.scim.spec.protocol.data.ErrorResponse;
+import edu.psu.swe.scim.spec.protocol.data.ListResponse;
+import edu.psu.swe.scim.spec.protocol.data.SearchRequest;
+import edu.psu.swe.scim.spec.protocol.filter.AttributeComparisonExpression;
+import edu.psu.swe.scim.spec.protocol.filter.AttributePresentExpression;
+import edu.psu.swe.scim.spec.protocol.filter.FilterExpression;
+import edu.psu.swe.scim.spec.protocol.filter.FilterResponse;
+import edu.psu.swe.scim.spec.protocol.filter.GroupExpression;
+import edu.psu.swe.scim.spec.protocol.filter.LogicalExpression;
+import edu.psu.swe.scim.spec.protocol.filter.LogicalOperator;
+import edu.psu.swe.scim.spec.protocol.filter.ValuePathExpression;
+import edu.psu.swe.scim.spec.protocol.search.Filter;
+import edu.psu.swe.scim.spec.protocol.search.PageRequest;
+import edu.psu.swe.scim.spec.protocol.search.SortRequest;
+import edu.psu.swe.scim.spec.resources.ScimResource;
+import edu.psu.swe.scim.spec.schema.ResourceType;
+import edu.psu.swe.scim.spec.schema.ResourceType.SchemaExtentionConfiguration;
+import edu.psu.swe.scim.spec.schema.Schema;
+import edu.psu.swe.scim.spec.schema.Schema.Attribute;
+import lombok.extern.slf4j.Slf4j;
 
+/**
+ * Implements the root search end-point
+ * (https://tools.ietf.org/html/rfc7644#section-3.4.3). The search is sent to
+ * the provider of every resource type whose schemas define the attributes used
+ * in the filter, the providers are queried concurrently and their results are
+ * merged according to the requested sort order and page.
+ */
+@Slf4j
+@Stateless
 public class SearchResourceImpl implements SearchResource {
 
+  private static final Set<String> COMMON_ATTRIBUTES = Collections.unmodifiableSet(new HashSet<>(Arrays.asList("id", "externalid", "meta", "schemas")));
+
+  @Inject
+  ProviderRegistry providerRegistry;
+
+  @Inject
+  Registry registry;
+
+  @Inject
+  AttributeUtil attributeUtil;
+
+  @Inject
+  SortUtil sortUtil;
+
+  @Inject
+  FilterCostAnalyzer filterCostAnalyzer;
+
+  @Inject
+  ProviderExecutor providerExecutor;
+
+  @Override
+  public Response find(SearchRequest request) {
+    Set<AttributeReference> attributeReferences = Optional.ofNullable(request.getAttributes())
+                                                          .orElse(Collections.emptySet());
+    Set<AttributeReference> excludedAttributeReferences = Optional.ofNullable(request.getExcludedAttributes())
+                                                                  .orElse(Collections.emptySet());
+    if (!attributeReferences.isEmpty() && !excludedAttributeReferences.isEmpty()) {
+      ErrorResponse er = new ErrorResponse(Status.BAD_REQUEST, "Cannot include both attributes and excluded attributes in a single request");
+      return er.toResponse();
+    }
+
+    Filter filter = request.getFilter();
+    try {
+      filterCostAnalyzer.checkFilter(filter);
+    } catch (ScimServerException sse) {
+      log.info("Rejected filter " + filter + ": " + sse.getMessage());
+      return sse.getErrorResponse()
+                .toResponse();
+    }
+
+    PageRequest pageRequest = request.getPageRequest();
+    SortRequest sortRequest = request.getSortRequest();
+    PageRequest providerPageRequest = createProviderPageRequest(pageRequest);
+
+    List<Callable<FilterResponse<ScimResource>>> searches = new ArrayList<>();
+    for (ResourceType resourceType : registry.getAllResourceTypes()) {
+      if (filter != null && !isSatisfiable(filter.getExpression(), resourceType)) {
+        log.debug("Skipping resource type " + resourceType.getName() + " for filter " + filter);
+        continue;
+      }
+
+      Class<ScimResource> clazz = registry.findScimResourceClass(resourceType.getSchemaUrn());
+      if (clazz == null) {
+        continue;
+      }
+      @SuppressWarnings("deprecation")
+      Provider<ScimResource> provider = providerRegistry.getProvider(clazz);
+      if (provider == null) {
+        continue;
+      }
+
+      searches.add(() -> provider.find(filter, providerPageRequest, sortRequest));
+    }
+
+    List<FilterResponse<ScimResource>> filterResponses;
+    try {
+      filterResponses = providerExecutor.invokeAll(searches);
+    } catch (UnableToRetrieveResourceException e) {
+      log.info("Caught an UnableToRetrieveResourceException " + e.getMessage() + " : " + e.getStatus());
+      return BaseResourceTypeResourceImpl.createGenericExceptionResponse(e, e.getStatus());
+    } catch (Exception e) {
+      log.error("Uncaught provider exception", e);
+      return BaseResourceTypeResourceImpl.createGenericExceptionResponse(e, Status.INTERNAL_SERVER_ERROR);
+    }
+
+    // Each provider's results are put in the requested order (and truncated
+    // to the requested page) before being merged across resource types.
+    Comparator<ScimResource> comparator = sortUtil.createComparator(sortRequest);
+    List<Collection<ScimResource>> sources = new ArrayList<>();
+    int totalResults = 0;
+    for (FilterResponse<ScimResource> filterResponse : filterResponses) {
+      if (filterResponse == null || filterResponse.getResources() == null) {
+        continue;
+      }
+      Collection<ScimResource> resources = filterResponse.getResources();
+      totalResults += Math.max(filterResponse.getTotalResults(), resources.size());
+      sources.add(SortUtil.page(resources, comparator, providerPageRequest));
+    }
+
+    List<ScimResource> results = new ArrayList<>();
+    for (ScimResource resource : SortUtil.merge(sources, comparator, pageRequest)) {
+      try {
+        if (!excludedAttributeReferences.isEmpty()) {
+          resource = attributeUtil.setExcludedAttributesForDisplay(resource, excludedAttributeReferences);
+        } else {
+          resource = attributeUtil.setAttributesForDisplay(resource, attributeReferences);
+        }
+        results.add(resource);
+      } catch (IllegalArgumentException | IllegalAccessException | AttributeDoesNotExistException | IOException e) {
+        ErrorResponse er = new ErrorResponse(Status.INTERNAL_SERVER_ERROR, "Failed to parse the attribute query value " + e.getMessage());
+        return er.toResponse();
+      }
+    }
+
+    ListResponse<ScimResource> listResponse = new ListResponse<>();
+    listResponse.setTotalResults(totalResults);
+    if (!results.isEmpty()) {
+      listResponse.setStartIndex(pageRequest != null && pageRequest.getStartIndex() != null ? Math.max(1, pageRequest.getStartIndex()) : 1);
+      listResponse.setItemsPerPage(results.size());
+      listResponse.setResources(results);
+    }
+
+    return Response.ok()
+                   .entity(listResponse)
+                   .build();
+  }
+
+  /**
+   * Every provider must return enough resources to fill the requested page
+   * once the results of all the providers have been merged.
+   */
+  private static PageRequest createProviderPageRequest(PageRequest pageRequest) {
+    if (pageRequest == null || pageRequest.getCount() == null) {
+      return pageRequest;
+    }
+
+    int startIndex = pageRequest.getStartIndex() != null ? Math.max(1, pageRequest.getStartIndex()) : 1;
+    PageRequest providerPageRequest = new PageRequest();
+    providerPageRequest.setStartIndex(1);
+    providerPageRequest.setCount((int) Math.min(Integer.MAX_VALUE, (long) startIndex - 1 + Math.max(0, pageRequest.getCount())));
+    return providerPageRequest;
+  }
+
+  /**
+   * Determines whether resources of the resourceType could match the filter
+   * expression, i.e. whether the attributes it references are defined by the
+   * resource type's schemas.
+   */
+  boolean isSatisfiable(FilterExpression expression, ResourceType resourceType) {
+    if (expression == null) {
+      return true;
+    }
+    if (expression instanceof LogicalExpression) {
+      LogicalExpression logicalExpression = (LogicalExpression) expression;
+      boolean left = isSatisfiable(logicalExpression.getLeft(), resourceType);
+      boolean right = isSatisfiable(logicalExpression.getRight(), resourceType);
+      return logicalExpression.getOperator() == LogicalOperator.OR ? left || right : left && right;
+    }
+    if (expression instanceof GroupExpression) {
+      GroupExpression groupExpression = (GroupExpression) expression;
+      // A negated expression matches resources that lack the attribute
+      return groupExpression.isNot() || isSatisfiable(groupExpression.getFilterExpression(), resourceType);
+    }
+    if (expression instanceof AttributeComparisonExpression) {
+      return isDefined(((AttributeComparisonExpression) expression).getAttributePath(), resourceType);
+    }
+    if (expression instanceof AttributePresentExpression) {
+      return isDefined(((AttributePresentExpression) expression).getAttributePath(), resourceType);
+    }
+    if (expression instanceof ValuePathExpression) {
+      return isDefined(((ValuePathExpression) expression).getAttributePath(), resourceType);
+    }
+    return true;
+  }
+
+  private boolean isDefined(AttributeReference attributeReference, ResourceType resourceType) {
+    if (attributeReference == null || attributeReference.getAttributeName() == null) {
+      return true;
+    }
+
+    String urn = attributeReference.getUrn();
+    if (urn == null || urn.isEmpty()) {
+      if (COMMON_ATTRIBUTES.contains(attributeReference.getAttributeName()
+                                                       .toLowerCase())) {
+        return true;
+      }
+      urn = resourceType.getSchemaUrn();
+    } else if (!urn.equals(resourceType.getSchemaUrn()) && !isExtensionOf(urn, resourceType)) {
+      return false;
+    }
+
+    Schema schema = registry.getSchema(urn);
+    if (schema == null) {
+      return false;
+    }
+
+    Attribute attribute = schema.getAttribute(attributeReference.getAttributeName());
+    if (attribute == null) {
+      return false;
+    }
+
+    return attributeReference.getSubAttributeName() == null || attribute.getAttribute(attributeReference.getSubAttributeName()) != null;
+  }
+
+  private static boolean isExtensionOf(String urn, ResourceType resourceType) {
+    if (resourceType.getSchemaExtensions() == null) {
+      return false;
+    }
+    for (SchemaExtentionConfiguration extension : resourceType.getSchemaExtensions()) {
+      if (urn.equals(extension.getSchemaUrn())) {
+        return true;
+      }
+    }
+    return false;
+  }
 }
@@ -19,6 +19,7 @@
 
 package edu.psu.swe.scim.server.rest;
 
+import java.io.IOException;
 import java.io.UnsupportedEncodingException;
 import java.security.NoSuchAlgorithmException;
 import java.time.LocalDateTime;
@@ -26,7 +27,8 @@ import java.util.List;
 
 import javax.ejb.Stateless;
 import javax.inject.Inject;
-import javax.ws.rs.core.EntityTag;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.Request;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.UriInfo;
 import javax.ws.rs.core.Response.Status;
@@ -34,7 +36,6 @@ import javax.ws.rs.core.Response.Status;
 import com.fasterxml.jackson.core.JsonProcessingException;
 
 import edu.psu.swe.scim.server.configuration.ServerConfiguration;
-import edu.psu.swe.scim.server.utility.EtagGenerator;
 import edu.psu.swe.scim.spec.protocol.ServiceProviderConfigResource;
 import edu.psu.swe.scim.spec.protocol.data.ErrorResponse;
 import edu.psu.swe.scim.spec.schema.Meta;
@@ -51,7 +52,10 @@ public class ServiceProviderConfigResourceImpl implements ServiceProviderConfigR
   ServerConfiguration serverConfiguration;
 
   @Inject
-  EtagGenerator etagGenerator;
+  DiscoveryDocumentCache discoveryDocumentCache;
+  
+  @Context
+  Request request;
   
   public ServiceProviderConfigResourceImpl() {
     serverConfiguration = new ServerConfiguration();  
@@ -63,6 +67,17 @@ public class ServiceProviderConfigResourceImpl implements ServiceProviderConfigR
   
   @Override
   public Response getServiceProviderConfiguration(UriInfo uriInfo) {
+    try {
+      return discoveryDocumentCache.getServiceProviderConfiguration(uriInfo.getBaseUri(), serverConfiguration)
+                                   .toResponse(request);
+    } catch (JsonProcessingException | NoSuchAlgorithmException | UnsupportedEncodingException e) {
+      return createETagErrorResponse();
+    } catch (IOException e) {
+      return BaseResourceTypeResourceImpl.createGenericExceptionResponse(e, Status.INTERNAL_SERVER_ERROR);
+    }
+  }
+  
+  static ServiceProviderConfiguration createServiceProviderConfiguration(ServerConfiguration serverConfiguration, String location) {
     ServiceProviderConfiguration serviceProviderConfiguration = new ServiceProviderConfiguration();
     List<AuthenticationSchema> authenticationSchemas = serverConfiguration.getAuthenticationSchemas();
     BulkConfiguration bulk = serverConfiguration.getBulkConfiguration();
@@ -75,7 +90,6 @@ public class ServiceProviderConfigResourceImpl implements ServiceProviderConfigR
     String externalId = serverConfiguration.getId();
     String id = serverConfiguration.getId();
     Meta meta = new Meta();
-    String location = uriInfo.getAbsolutePath().toString();
     String resourceType = "ServiceProviderConfig";
     LocalDateTime now = LocalDateTime.now();
 
@@ -95,12 +109,7 @@ public class ServiceProviderConfigResourceImpl implements ServiceProviderConfigR
     serviceProviderConfiguration.setPatch(patch);
     serviceProviderConfiguration.setSort(sort);
     
-    try {
-      EntityTag etag = etagGenerator.generateEtag(serviceProviderConfiguration);
-      return Response.ok(serviceProviderConfiguration).tag(etag).build();
-    } catch (JsonProcessingException | NoSuchAlgorithmException | UnsupportedEncodingException e) {
-      return createETagErrorResponse();
-    }
+    return serviceProviderConfiguration;
   }
   
   private Response createETagErrorResponse() {
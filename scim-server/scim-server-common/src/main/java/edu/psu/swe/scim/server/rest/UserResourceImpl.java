@@ -26,8 +26,10 @@ import javax.ejb.Stateless;
 import javax.enterprise.inject.Instance;
 import javax.enterprise.inject.spi.CDI;
 import javax.enterprise.util.TypeLiteral;
+import javax.inject.Inject;
 
 import edu.psu.swe.scim.server.provider.Provider;
+import edu.psu.swe.scim.server.provider.ProviderRegistry;
 import edu.psu.swe.scim.spec.protocol.UserResource;
 import edu.psu.swe.scim.spec.resources.ScimUser;
 import lombok.extern.slf4j.Slf4j;
@@ -47,13 +49,21 @@ public class UserResourceImpl extends BaseResourceTypeResourceImpl<ScimUser> imp
 ////  @ProviderQualifier(ScimUser.class)
 //  Provider<ScimUser> provider;
   
+  @Inject
+  ProviderRegistry providerRegistry;
+
   @Override
+  @SuppressWarnings("deprecation")
   public Provider<ScimUser> getProvider() {
     try {
       TypeLiteral<Provider<ScimUser>> typeLiteral = new TypeLiteral<Provider<ScimUser>>() {
       };
       Instance<Provider<ScimUser>> select = CDI.current().select(typeLiteral);
-      return select.get();
+      if (select.isUnsatisfied()) {
+        // The type may have been registered with an AsyncProvider
+        return providerRegistry.getProvider(ScimUser.class);
+      }
+      return providerRegistry.getDecorated(ScimUser.class, select.get());
     } catch (Exception e) {
       log.warn("Provider doesn't exist", e);
       return null;
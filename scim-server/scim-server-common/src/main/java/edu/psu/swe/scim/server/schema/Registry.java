@@ -25,42 +25,51 @@ import java.util.HashMap;
 import java.util.Map;
 import java.util.Set;
 
+import javax.ejb.ConcurrencyManagement;
+import javax.ejb.ConcurrencyManagementType;
 import javax.ejb.Singleton;
 import javax.ejb.Startup;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
 
+import edu.psu.swe.scim.spec.json.ObjectMapperFactory;
 import edu.psu.swe.scim.spec.resources.ScimResource;
 import edu.psu.swe.scim.spec.schema.ResourceType;
 import edu.psu.swe.scim.spec.schema.Schema;
 import lombok.extern.slf4j.Slf4j;
 
+/**
+ * Holds the schemas and resource types known to the server. Each map is an
+ * immutable snapshot published through a volatile field, so lookups are plain
+ * reads that never block. Registrations, which only happen while providers
+ * are being registered, copy the map they change and publish the copy.
+ */
 @Singleton
 @Startup
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
 @Slf4j
 public class Registry {
 
-  private Map<String, Schema> schemaMap = new HashMap<>();
+  private volatile Map<String, Schema> schemaMap = Collections.emptyMap();
   
-  private Map<String, Class<? extends ScimResource>> schemaUrnToScimResourceClass = new HashMap<>();
+  private volatile Map<String, Class<? extends ScimResource>> schemaUrnToScimResourceClass = Collections.emptyMap();
 
-  private Map<String, Class<? extends ScimResource>> endpointToScimResourceClass = new HashMap<>();
+  private volatile Map<String, Class<? extends ScimResource>> endpointToScimResourceClass = Collections.emptyMap();
 
-  private Map<String, ResourceType> resourceTypeMap = new HashMap<>();
-  
-  private ObjectMapper objectMapper;
+  private volatile Map<String, ResourceType> resourceTypeMap = Collections.emptyMap();
+
+  private volatile long generation;
 
   public Schema getSchema(String urn) {
     return schemaMap.get(urn);
   }
 
   public Set<String> getAllSchemaUrns() {
-    return Collections.unmodifiableSet(schemaMap.keySet());
+    return schemaMap.keySet();
   }
 
   public Collection<Schema> getAllSchemas() {
-    return Collections.unmodifiableCollection(schemaMap.values());
+    return schemaMap.values();
   }
   
   public Schema getBaseSchemaOfResourceType(String resourceType) {
@@ -73,27 +82,39 @@ public class Registry {
     return schemaMap.get(schemaUrn);
   }
 
-  public void addSchema(Schema schema) throws JsonProcessingException {
+  public synchronized void addSchema(Schema schema) throws JsonProcessingException {
     log.info("Adding schema " + schema.getId() + " into the registry");
-    schemaMap.put(schema.getId(), schema);
+    schemaMap = copyAndPut(schemaMap, schema.getId(), schema);
+    generation++;
   }
 
-  public void addSchemaDoc(String schemaDoc) {
+  public synchronized void addSchemaDoc(String schemaDoc) {
     // Unmarshall the JSON document to a Schema and its associated object graph.
     try {
-      Schema schema = objectMapper.readValue(schemaDoc, Schema.class);
-      schemaMap.put(schema.getId(), schema);
+      Schema schema = ObjectMapperFactory.getReader(Schema.class)
+                                         .readValue(schemaDoc);
+      schemaMap = copyAndPut(schemaMap, schema.getId(), schema);
+      generation++;
     } catch (Throwable t) {
       log.error("Unexpected Throwable was caught while unmarshalling JSON, schema will not be added: " + t.getLocalizedMessage());
     }
   }
 
-  public <T extends ScimResource> void addScimResourceSchemaUrn(String schemaUrn, Class<T> scimResourceClass) {
-    schemaUrnToScimResourceClass.put(schemaUrn, scimResourceClass);
+  public synchronized <T extends ScimResource> void addScimResourceSchemaUrn(String schemaUrn, Class<T> scimResourceClass) {
+    schemaUrnToScimResourceClass = copyAndPut(schemaUrnToScimResourceClass, schemaUrn, scimResourceClass);
+  }
+
+  public synchronized <T extends ScimResource> void addScimResourceEndPoint(String endpoint, Class<T> scimResourceClass) {
+    endpointToScimResourceClass = copyAndPut(endpointToScimResourceClass, endpoint, scimResourceClass);
   }
 
-  public <T extends ScimResource> void addScimResourceEndPoint(String endpoint, Class<T> scimResourceClass) {
-    endpointToScimResourceClass.put(endpoint, scimResourceClass);
+  /**
+   * @return an immutable snapshot of the registered endpoints. A new map is
+   *         published whenever an endpoint is added, so callers may use the
+   *         identity of the returned map to detect changes.
+   */
+  public Map<String, Class<? extends ScimResource>> getScimResourceEndpoints() {
+    return endpointToScimResourceClass;
   }
 
   public <T extends ScimResource> Class<T> findScimResourceClassFromEndpoint(String endpoint) {
@@ -115,11 +136,27 @@ public class Registry {
   }
   
   public Collection<ResourceType> getAllResourceTypes() {
-    return Collections.unmodifiableCollection(resourceTypeMap.values());
+    return resourceTypeMap.values();
   }
   
-  public void addResourceType(ResourceType resourceType) {
-    resourceTypeMap.put(resourceType.getName(), resourceType);
+  public synchronized void addResourceType(ResourceType resourceType) {
+    resourceTypeMap = copyAndPut(resourceTypeMap, resourceType.getName(), resourceType);
+    generation++;
+  }
+
+  /**
+   * @return a number that changes whenever a schema or resource type is
+   *         added, so that anything derived from them can tell when it needs
+   *         to be rebuilt.
+   */
+  public long getGeneration() {
+    return generation;
+  }
+
+  private static <K, V> Map<K, V> copyAndPut(Map<K, V> map, K key, V value) {
+    Map<K, V> copy = new HashMap<>(map);
+    copy.put(key, value);
+    return Collections.unmodifiableMap(copy);
   }
 
 }
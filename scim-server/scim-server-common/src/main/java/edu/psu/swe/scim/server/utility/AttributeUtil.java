@@ -24,7 +24,6 @@ import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
-import java.lang.reflect.Field;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
@@ -33,30 +32,19 @@ import java.util.Map.Entry;
 import java.util.Set;
 import java.util.function.Function;
 
-import javax.annotation.PostConstruct;
 import javax.ejb.Stateless;
 import javax.inject.Inject;
 
 import org.apache.commons.lang3.StringUtils;
 
-import com.fasterxml.jackson.annotation.JsonInclude.Include;
-import com.fasterxml.jackson.databind.AnnotationIntrospector;
-import com.fasterxml.jackson.databind.DeserializationFeature;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.introspect.AnnotationIntrospectorPair;
-import com.fasterxml.jackson.databind.introspect.JacksonAnnotationIntrospector;
-import com.fasterxml.jackson.databind.module.SimpleModule;
-import com.fasterxml.jackson.module.jaxb.JaxbAnnotationIntrospector;
-import com.fasterxml.jackson.module.jaxb.JaxbAnnotationModule;
-
 import edu.psu.swe.scim.server.exception.AttributeDoesNotExistException;
-import edu.psu.swe.scim.server.rest.ScimResourceDeserializer;
 import edu.psu.swe.scim.server.schema.Registry;
 import edu.psu.swe.scim.spec.protocol.attribute.AttributeReference;
 import edu.psu.swe.scim.spec.resources.ScimExtension;
 import edu.psu.swe.scim.spec.resources.ScimGroup;
 import edu.psu.swe.scim.spec.resources.ScimResource;
 import edu.psu.swe.scim.spec.resources.ScimUser;
+import edu.psu.swe.scim.spec.schema.AttributeAccessor;
 import edu.psu.swe.scim.spec.schema.AttributeContainer;
 import edu.psu.swe.scim.spec.schema.Schema;
 import edu.psu.swe.scim.spec.schema.Schema.Attribute;
@@ -71,28 +59,6 @@ public class AttributeUtil {
   @Inject
   Registry registry;
 
-  ObjectMapper objectMapper;
-
-  @PostConstruct
-  public void init() { // TODO move this to a CDI producer
-    objectMapper = new ObjectMapper();
-
-    JaxbAnnotationModule jaxbAnnotationModule = new JaxbAnnotationModule();
-    objectMapper.registerModule(jaxbAnnotationModule);
-    objectMapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
-
-    AnnotationIntrospector jaxbIntrospector = new JaxbAnnotationIntrospector(objectMapper.getTypeFactory());
-    AnnotationIntrospector jacksonIntrospector = new JacksonAnnotationIntrospector();
-    AnnotationIntrospector pair = new AnnotationIntrospectorPair(jacksonIntrospector, jaxbIntrospector);
-    objectMapper.setAnnotationIntrospector(pair);
-
-    objectMapper.setSerializationInclusion(Include.NON_NULL);
-
-    SimpleModule module = new SimpleModule();
-    module.addDeserializer(ScimResource.class, new ScimResourceDeserializer(this.registry, this.objectMapper));
-    objectMapper.registerModule(module);
-  }
-
   public <T extends ScimResource> T keepAlwaysAttributesForDisplay(T resource) throws IllegalArgumentException, IllegalAccessException, AttributeDoesNotExistException, IOException {
     return setAttributesForDisplayInternal(resource, Returned.DEFAULT, Returned.REQUEST, Returned.NEVER);
   }
@@ -183,8 +149,11 @@ public class AttributeUtil {
     }
   }
 
+  /**
+   * Creates a deep copy of a resource by serializing it.
+   */
   @SuppressWarnings("unchecked")
-  private <T extends ScimResource> T cloneScimResource(T original) throws IOException {
+  public static <T extends ScimResource> T cloneScimResource(T original) throws IOException {
     ByteArrayOutputStream boas = new ByteArrayOutputStream();
     ObjectOutputStream oos = new ObjectOutputStream(boas);
     oos.writeObject(original);
@@ -219,23 +188,21 @@ public class AttributeUtil {
   private void processAttributes(Object object, AttributeContainer attributeContainer, Function<Attribute, Boolean> function) throws IllegalArgumentException, IllegalAccessException {
     if (attributeContainer != null && object != null) {
       for (Attribute attribute : attributeContainer.getAttributes()) {
-        Field field = attribute.getField();
+        AttributeAccessor accessor = attribute.getAccessor();
         if (function.apply(attribute)) {
-          field.setAccessible(true);
-          if (!field.getType().isPrimitive()) {
-            Object obj = field.get(object);
+          if (!accessor.getType().isPrimitive()) {
+            Object obj = accessor.get(object);
             if (obj == null) {
               continue;
             }
             
-            log.info("field to be set to null = " + field.getType().getName());
-            field.set(object, null);
+            log.info("field to be set to null = " + accessor.getType().getName());
+            accessor.set(object, null);
           }
         } else if (!attribute.isMultiValued() && attribute.getType() == Type.COMPLEX) {
-          String name = field.getName();
+          String name = accessor.getFieldName();
           log.debug("### Processing single value complex field " + name);
-          field.setAccessible(true);
-          Object subObject = field.get(object);
+          Object subObject = accessor.get(object);
 
           if (subObject == null) {
             continue;
@@ -248,10 +215,9 @@ public class AttributeUtil {
           }
           processAttributes(subObject, subAttribute, function);
         } else if (attribute.isMultiValued() && attribute.getType() == Type.COMPLEX) {
-          String name = field.getName();
+          String name = accessor.getFieldName();
           log.debug("### Processing multi-valued complex field " + name);
-          field.setAccessible(true);
-          Object subObject = field.get(object);
+          Object subObject = accessor.get(object);
 
           if (subObject == null) {
             continue;
@@ -263,7 +229,7 @@ public class AttributeUtil {
               Attribute subAttribute = attributeContainer.getAttribute(name);
               processAttributes(o, subAttribute, function);
             }
-          } else if (field.getType().isArray()) {
+          } else if (accessor.getType().isArray()) {
             Object[] array = (Object[]) subObject;
 
             for (Object o : array) {
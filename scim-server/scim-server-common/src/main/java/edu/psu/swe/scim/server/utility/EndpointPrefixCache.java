@@ -0,0 +1,179 @@
+/*
+* Licensed to the Apache Software Foundation (ASF) under one
+* or more contributor license agreements.  See the NOTICE file
+* distributed with this work for additional information
+* regarding copyright ownership.  The ASF licenses this file
+* to you under the Apache License, Version 2.0 (the
+* "License"); you may not use this file except in compliance
+* with the License.  You may obtain a copy of the License at
+ 
+* http://www.apache.org/licenses/LICENSE-2.0
+
+* Unless required by applicable law or agreed to in writing,
+* software distributed under the License is distributed on an
+* "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+* KIND, either express or implied.  See the License for the
+* specific language governing permissions and limitations
+* under the License.
+*/
+
+package edu.psu.swe.scim.server.utility;
+
+import java.net.URI;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.ejb.ConcurrencyManagement;
+import javax.ejb.ConcurrencyManagementType;
+import javax.ejb.Singleton;
+import javax.inject.Inject;
+import javax.ws.rs.core.UriBuilder;
+
+import edu.psu.swe.scim.server.schema.Registry;
+import edu.psu.swe.scim.spec.resources.ScimResource;
+
+/**
+ * Caches, per base URI, the absolute URI prefix of every endpoint in the
+ * {@link Registry} so that locations can be built by appending an id rather
+ * than by parsing a URI template for each resource. The prefixes for a base URI
+ * are rebuilt whenever the registry publishes a new endpoint map.
+ */
+@Singleton
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
+public class EndpointPrefixCache {
+
+  /**
+   * The base URI is derived from the request, so the number of cached entries
+   * is capped rather than trusting every Host header that is presented.
+   */
+  static final int MAXIMUM_BASE_URIS = 64;
+
+  @Inject
+  Registry registry;
+
+  private final ConcurrentMap<URI, EndpointPrefixes> prefixesByBaseUri = new ConcurrentHashMap<>();
+
+  public EndpointPrefixCache() {
+  }
+
+  public EndpointPrefixCache(Registry registry) {
+    this.registry = registry;
+  }
+
+  public EndpointPrefixes getPrefixes(URI baseUri) {
+    Map<String, Class<? extends ScimResource>> endpoints = registry.getScimResourceEndpoints();
+    EndpointPrefixes prefixes = prefixesByBaseUri.get(baseUri);
+    if (prefixes == null || prefixes.endpoints != endpoints) {
+      prefixes = new EndpointPrefixes(baseUri, endpoints);
+      if (prefixesByBaseUri.size() >= MAXIMUM_BASE_URIS) {
+        prefixesByBaseUri.clear();
+      }
+      prefixesByBaseUri.put(baseUri, prefixes);
+    }
+    return prefixes;
+  }
+
+  int size() {
+    return prefixesByBaseUri.size();
+  }
+
+  /**
+   * The endpoint prefixes for one base URI. Prefixes never end with a "/".
+   */
+  public static final class EndpointPrefixes {
+
+    private final URI baseUri;
+
+    private final String base;
+
+    private final Map<String, Class<? extends ScimResource>> endpoints;
+
+    private final Map<Class<? extends ScimResource>, String> prefixes;
+
+    EndpointPrefixes(URI baseUri, Map<String, Class<? extends ScimResource>> endpoints) {
+      this.baseUri = baseUri;
+      this.endpoints = endpoints;
+
+      String baseString = baseUri.toString();
+      this.base = baseString.endsWith("/") ? baseString.substring(0, baseString.length() - 1) : baseString;
+
+      Map<Class<? extends ScimResource>, String> map = new HashMap<>();
+      for (Map.Entry<String, Class<? extends ScimResource>> entry : endpoints.entrySet()) {
+        map.put(entry.getValue(), getPrefix(entry.getKey()));
+      }
+      this.prefixes = Collections.unmodifiableMap(map);
+    }
+
+    public URI getBaseUri() {
+      return baseUri;
+    }
+
+    /**
+     * @return the prefix of the endpoint the resource class is registered
+     *         under, or null if it has not been registered.
+     */
+    public String getPrefix(Class<? extends ScimResource> scimResourceClass) {
+      return prefixes.get(scimResourceClass);
+    }
+
+    /**
+     * @return the prefix of an endpoint that is not backed by a resource
+     *         class, such as "Schemas".
+     */
+    public String getPrefix(String endpoint) {
+      if (endpoint.startsWith("/")) {
+        return base + endpoint;
+      }
+      return base + "/" + endpoint;
+    }
+
+    /**
+     * @return the location of the resource, or null if its class has not been
+     *         registered.
+     */
+    public String getLocation(Class<? extends ScimResource> scimResourceClass, String id) {
+      String prefix = getPrefix(scimResourceClass);
+      return prefix != null ? appendId(prefix, id) : null;
+    }
+
+    public String getLocation(String endpoint, String id) {
+      return appendId(getPrefix(endpoint), id);
+    }
+
+    /**
+     * Appends the id to the prefix, falling back to a {@link UriBuilder} only
+     * when the id contains characters that must be encoded.
+     */
+    static String appendId(String prefix, String id) {
+      if (isPathSegment(id)) {
+        return prefix + "/" + id;
+      }
+      return UriBuilder.fromUri(prefix)
+                       .segment(id)
+                       .build()
+                       .toString();
+    }
+
+    /**
+     * @return true if every character may appear unencoded in a path segment
+     *         (RFC 3986 pchar, excluding percent encodings).
+     */
+    static boolean isPathSegment(String id) {
+      int length = id.length();
+      if (length == 0) {
+        return false;
+      }
+      for (int i = 0; i < length; i++) {
+        char c = id.charAt(i);
+        boolean allowed = (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || "-._~!$&'()*+,;=:@".indexOf(c) >= 0;
+        if (!allowed) {
+          return false;
+        }
+      }
+      return true;
+    }
+  }
+}
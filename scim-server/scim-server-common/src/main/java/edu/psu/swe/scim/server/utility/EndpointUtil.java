@@ -22,39 +22,72 @@ package edu.psu.swe.scim.server.utility;
 import java.net.URI;
 
 import javax.enterprise.context.RequestScoped;
+import javax.inject.Inject;
 import javax.ws.rs.core.UriBuilder;
 import javax.ws.rs.core.UriInfo;
 
-import edu.psu.swe.scim.spec.annotation.ScimResourceType;
+import edu.psu.swe.scim.server.utility.EndpointPrefixCache.EndpointPrefixes;
 import edu.psu.swe.scim.spec.exception.InvalidScimResourceException;
 import edu.psu.swe.scim.spec.resources.ScimResource;
 
 @RequestScoped
 public class EndpointUtil {
+  
+  @Inject
+  EndpointPrefixCache endpointPrefixCache;
+  
   private URI baseUri;
   
+  private EndpointPrefixes endpointPrefixes;
+  
   public UriBuilder getBaseUriBuilder() {
     return UriBuilder.fromUri(baseUri);
   }
   
   public UriBuilder getEndpointUriBuilder(Class<? extends ScimResource> resource) {
-    ScimResourceType[] sr = resource.getAnnotationsByType(ScimResourceType.class);
-    
-    if (baseUri == null) {
-      throw new IllegalStateException("BaseUri for Resource "+resource+" was null");
-    }
-
-    if (sr.length == 0 || sr.length > 1) {
-      throw new InvalidScimResourceException("ScimResource class must have a ScimResourceType annotation");
+    return UriBuilder.fromUri(getEndpointPrefix(resource));
+  }
+  
+  /**
+   * @return the absolute URI of the endpoint the resource class was registered
+   *         under, without a trailing "/".
+   */
+  public String getEndpointPrefix(Class<? extends ScimResource> resource) {
+    String prefix = getEndpointPrefixes().getPrefix(resource);
+    if (prefix == null) {
+      throw new InvalidScimResourceException("ScimResource class " + resource + " has not been registered with an endpoint");
     }
-
-    // yuck! TODO where to get REST endpoint from?
-    String resourceName = sr[0].name() + "s";  
-    
-    return UriBuilder.fromUri(baseUri).path(resourceName);
+    return prefix;
+  }
+  
+  /**
+   * @return the absolute URI of the resource, or null if the resource class
+   *         has not been registered with an endpoint.
+   */
+  public String getLocation(Class<? extends ScimResource> resource, String id) {
+    return getEndpointPrefixes().getLocation(resource, id);
+  }
+  
+  /**
+   * @param endpoint an endpoint that is not backed by a resource class, such
+   *        as "Schemas".
+   */
+  public String getLocation(String endpoint, String id) {
+    return getEndpointPrefixes().getLocation(endpoint, id);
   }
   
   public void process(UriInfo uriInfo) {
     baseUri = uriInfo.getBaseUri();
+    endpointPrefixes = null;
+  }
+  
+  private EndpointPrefixes getEndpointPrefixes() {
+    if (baseUri == null) {
+      throw new IllegalStateException("BaseUri was null, process(UriInfo) must be called first");
+    }
+    if (endpointPrefixes == null) {
+      endpointPrefixes = endpointPrefixCache.getPrefixes(baseUri);
+    }
+    return endpointPrefixes;
   }
 }
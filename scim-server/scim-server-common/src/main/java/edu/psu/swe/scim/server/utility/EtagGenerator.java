@@ -27,14 +27,9 @@ import java.util.Base64;
 import javax.ejb.Stateless;
 import javax.ws.rs.core.EntityTag;
 
-import com.fasterxml.jackson.annotation.JsonInclude.Include;
 import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.AnnotationIntrospector;
-import com.fasterxml.jackson.databind.DeserializationFeature;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.module.jaxb.JaxbAnnotationIntrospector;
-import com.fasterxml.jackson.module.jaxb.JaxbAnnotationModule;
 
+import edu.psu.swe.scim.spec.json.ObjectMapperFactory;
 import edu.psu.swe.scim.spec.resources.ScimResource;
 import edu.psu.swe.scim.spec.schema.Meta;
 
@@ -43,16 +38,6 @@ public class EtagGenerator {
 
   public EntityTag generateEtag(ScimResource resource) throws JsonProcessingException, NoSuchAlgorithmException, UnsupportedEncodingException {
 
-    ObjectMapper objectMapper = new ObjectMapper();
-    JaxbAnnotationModule jaxbAnnotationModule = new JaxbAnnotationModule();
-    objectMapper.registerModule(jaxbAnnotationModule);
-
-    AnnotationIntrospector jaxbAnnotationIntrospector = new JaxbAnnotationIntrospector(objectMapper.getTypeFactory());
-    objectMapper.setAnnotationIntrospector(jaxbAnnotationIntrospector);
-
-    objectMapper.setSerializationInclusion(Include.NON_NULL);
-    objectMapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
-
     Meta meta = resource.getMeta();
 
     if (meta == null) {
@@ -60,7 +45,8 @@ public class EtagGenerator {
     }
 
     resource.setMeta(null);
-    String writeValueAsString = objectMapper.writeValueAsString(resource);
+    String writeValueAsString = ObjectMapperFactory.getWriter()
+                                                   .writeValueAsString(resource);
 
     EntityTag etag = hash(writeValueAsString);
     meta.setVersion(etag.getValue());
@@ -70,11 +56,17 @@ public class EtagGenerator {
     return etag;
   }
   
-  private static EntityTag hash(String input) throws NoSuchAlgorithmException, UnsupportedEncodingException {
+  /**
+   * @return a strong entity tag for a body that has already been rendered.
+   */
+  public static EntityTag generateEtag(byte[] body) throws NoSuchAlgorithmException {
     MessageDigest digest = MessageDigest.getInstance("SHA-256");
-    digest.update(input.getBytes("UTF-8"));
-    byte[] hash = digest.digest();
+    byte[] hash = digest.digest(body);
     return new EntityTag(Base64.getEncoder().encodeToString(hash));
   }
   
+  private static EntityTag hash(String input) throws NoSuchAlgorithmException, UnsupportedEncodingException {
+    return generateEtag(input.getBytes("UTF-8"));
+  }
+  
 }
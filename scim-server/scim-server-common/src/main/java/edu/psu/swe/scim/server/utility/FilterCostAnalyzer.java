@@ -0,0 +1,155 @@
+/*
+* Licensed to the Apache Software Foundation (ASF) under one
+* or more contributor license agreements.  See the NOTICE file
+* distributed with this work for additional information
+* regarding copyright ownership.  The ASF licenses this file
+* to you under the Apache License, Version 2.0 (the
+* "License"); you may not use this file except in compliance
+* with the License.  You may obtain a copy of the License at
+
+* http://www.apache.org/licenses/LICENSE-2.0
+
+* Unless required by applicable law or agreed to in writing,
+* software distributed under the License is distributed on an
+* "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+* KIND, either express or implied.  See the License for the
+* specific language governing permissions and limitations
+* under the License.
+*/
+
+package edu.psu.swe.scim.server.utility;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Set;
+
+import javax.ejb.Stateless;
+import javax.inject.Inject;
+import javax.ws.rs.core.Response.Status;
+
+import edu.psu.swe.scim.server.configuration.ServerConfiguration;
+import edu.psu.swe.scim.server.exception.ScimServerException;
+import edu.psu.swe.scim.spec.protocol.ErrorMessageType;
+import edu.psu.swe.scim.spec.protocol.attribute.AttributeReference;
+import edu.psu.swe.scim.spec.protocol.filter.AttributeComparisonExpression;
+import edu.psu.swe.scim.spec.protocol.filter.CompareOperator;
+import edu.psu.swe.scim.spec.protocol.filter.FilterExpression;
+import edu.psu.swe.scim.spec.protocol.filter.GroupExpression;
+import edu.psu.swe.scim.spec.protocol.filter.LogicalExpression;
+import edu.psu.swe.scim.spec.protocol.filter.ValuePathExpression;
+import edu.psu.swe.scim.spec.protocol.search.Filter;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Rejects filters that are too expensive to hand to a provider. The size of a
+ * filter is measured by its number of terms, its nesting depth and the number
+ * of "co" comparisons on attributes that have not been declared as indexed in
+ * the {@link ServerConfiguration}. Only parentheses and value paths nest a
+ * filter, so a long chain of "and" or "or" terms is limited by the number of
+ * terms rather than by the depth.
+ */
+@Stateless
+@Slf4j
+public class FilterCostAnalyzer {
+
+  @Inject
+  ServerConfiguration serverConfiguration;
+
+  /**
+   * @throws ScimServerException with a scimType of tooMany when the filter
+   *         exceeds one of the configured limits.
+   */
+  public void checkFilter(Filter filter) throws ScimServerException {
+    if (filter == null || filter.getExpression() == null) {
+      return;
+    }
+
+    FilterCost cost = analyze(filter.getExpression(), serverConfiguration.getIndexedAttributes());
+    log.debug("Filter cost of " + filter.getFilter() + ": " + cost);
+
+    if (cost.getTerms() > serverConfiguration.getFilterMaxTerms()) {
+      throw new ScimServerException(Status.BAD_REQUEST, ErrorMessageType.TOO_MANY, "The filter contains " + cost.getTerms() + " terms, the maximum is " + serverConfiguration.getFilterMaxTerms());
+    }
+    if (cost.getDepth() > serverConfiguration.getFilterMaxDepth()) {
+      throw new ScimServerException(Status.BAD_REQUEST, ErrorMessageType.TOO_MANY, "The filter is nested " + cost.getDepth() + " levels deep, the maximum is " + serverConfiguration.getFilterMaxDepth());
+    }
+    if (cost.getUnindexedContains() > serverConfiguration.getFilterMaxUnindexedContains()) {
+      throw new ScimServerException(Status.BAD_REQUEST, ErrorMessageType.TOO_MANY, "The filter contains " + cost.getUnindexedContains() + " \"co\" comparisons on attributes that are not indexed, the maximum is " + serverConfiguration.getFilterMaxUnindexedContains());
+    }
+  }
+
+  /**
+   * Measures the expression without recursion so that pathologically deep
+   * expressions can be measured safely.
+   */
+  public static FilterCost analyze(FilterExpression expression, Set<String> indexedAttributes) {
+    FilterCost cost = new FilterCost();
+    Deque<Node> nodes = new ArrayDeque<>();
+    nodes.push(new Node(expression, 1));
+
+    while (!nodes.isEmpty()) {
+      Node node = nodes.pop();
+      FilterExpression current = node.expression;
+      if (current == null) {
+        continue;
+      }
+
+      cost.depth = Math.max(cost.depth, node.depth);
+
+      if (current instanceof LogicalExpression) {
+        LogicalExpression logicalExpression = (LogicalExpression) current;
+        // The parser builds "a or b or c" as nested logical expressions,
+        // which are not nested in the filter that the client wrote
+        nodes.push(new Node(logicalExpression.getLeft(), node.depth));
+        nodes.push(new Node(logicalExpression.getRight(), node.depth));
+      } else if (current instanceof GroupExpression) {
+        nodes.push(new Node(((GroupExpression) current).getFilterExpression(), node.depth + 1));
+      } else if (current instanceof ValuePathExpression) {
+        ValuePathExpression valuePathExpression = (ValuePathExpression) current;
+        if (valuePathExpression.getAttributeExpression() == null) {
+          cost.terms++;
+        } else {
+          nodes.push(new Node(valuePathExpression.getAttributeExpression(), node.depth + 1));
+        }
+      } else {
+        cost.terms++;
+        if (current instanceof AttributeComparisonExpression) {
+          AttributeComparisonExpression comparison = (AttributeComparisonExpression) current;
+          if (comparison.getOperation() == CompareOperator.CO && !isIndexed(comparison.getAttributePath(), indexedAttributes)) {
+            cost.unindexedContains++;
+          }
+        }
+      }
+    }
+
+    return cost;
+  }
+
+  private static boolean isIndexed(AttributeReference attributeReference, Set<String> indexedAttributes) {
+    if (attributeReference == null || indexedAttributes == null || indexedAttributes.isEmpty()) {
+      return false;
+    }
+    return indexedAttributes.contains(attributeReference.getFullAttributeName()
+                                                        .toLowerCase())
+        || indexedAttributes.contains(attributeReference.getFullyQualifiedAttributeName()
+                                                        .toLowerCase());
+  }
+
+  @Data
+  public static class FilterCost {
+    int terms;
+    int depth;
+    int unindexedContains;
+  }
+
+  private static class Node {
+    final FilterExpression expression;
+    final int depth;
+
+    Node(FilterExpression expression, int depth) {
+      this.expression = expression;
+      this.depth = depth;
+    }
+  }
+}
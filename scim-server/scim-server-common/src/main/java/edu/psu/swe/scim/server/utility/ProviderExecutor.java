@@ -0,0 +1,244 @@
+/*
+* Licensed to the Apache Software Foundation (ASF) under one
+* or more contributor license agreements.  See the NOTICE file
+* distributed with this work for additional information
+* regarding copyright ownership.  The ASF licenses this file
+* to you under the Apache License, Version 2.0 (the
+* "License"); you may not use this file except in compliance
+* with the License.  You may obtain a copy of the License at
+ 
+* http://www.apache.org/licenses/LICENSE-2.0
+
+* Unless required by applicable law or agreed to in writing,
+* software distributed under the License is distributed on an
+* "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+* KIND, either express or implied.  See the License for the
+* specific language governing permissions and limitations
+* under the License.
+*/
+
+package edu.psu.swe.scim.server.utility;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import javax.ejb.ConcurrencyManagement;
+import javax.ejb.ConcurrencyManagementType;
+import javax.ejb.Singleton;
+import javax.enterprise.concurrent.ContextService;
+import javax.inject.Inject;
+
+import edu.psu.swe.scim.server.configuration.ServerConfiguration;
+import edu.psu.swe.scim.server.configuration.ServerConfiguration.ProviderExecution;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Runs provider calls that do not depend on each other concurrently, on the
+ * executor selected by {@link ServerConfiguration#getProviderExecution()}.
+ * <p>
+ * Virtual threads are created through reflection so that this class still
+ * runs on JVMs that do not have them. They are not managed by the container,
+ * so each task is wrapped in a contextual proxy of the default
+ * {@link ContextService}, which gives it the naming, security and class
+ * loader context of the thread that submitted it. Without a context service
+ * the managed executor is used instead.
+ */
+@Singleton
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
+@Slf4j
+public class ProviderExecutor {
+
+  @Inject
+  ServerConfiguration serverConfiguration;
+
+  @Resource(lookup = "java:comp/DefaultManagedExecutorService")
+  ExecutorService managedExecutorService;
+
+  @Resource(lookup = "java:comp/DefaultContextService")
+  ContextService contextService;
+
+  private final Supplier<ExecutorService> virtualThreadExecutorFactory;
+
+  private volatile ExecutorService virtualThreadExecutorService;
+
+  private volatile boolean virtualThreadsUnavailable;
+
+  public ProviderExecutor() {
+    this.virtualThreadExecutorFactory = ProviderExecutor::createVirtualThreadExecutorService;
+  }
+
+  public ProviderExecutor(ServerConfiguration serverConfiguration, ExecutorService managedExecutorService) {
+    this(serverConfiguration, managedExecutorService, null);
+  }
+
+  public ProviderExecutor(ServerConfiguration serverConfiguration, ExecutorService managedExecutorService, ContextService contextService) {
+    this(serverConfiguration, managedExecutorService, contextService, ProviderExecutor::createVirtualThreadExecutorService);
+  }
+
+  ProviderExecutor(ServerConfiguration serverConfiguration, ExecutorService managedExecutorService, ContextService contextService, Supplier<ExecutorService> virtualThreadExecutorFactory) {
+    this.serverConfiguration = serverConfiguration;
+    this.managedExecutorService = managedExecutorService;
+    this.contextService = contextService;
+    this.virtualThreadExecutorFactory = virtualThreadExecutorFactory;
+  }
+
+  /**
+   * @return the executor to run provider calls on, or null if they should be
+   *         made on the calling thread.
+   */
+  public ExecutorService getExecutorService() {
+    ProviderExecution providerExecution = serverConfiguration != null ? serverConfiguration.getProviderExecution() : ProviderExecution.MANAGED_EXECUTOR;
+    switch (providerExecution) {
+    case CALLING_THREAD:
+      return null;
+    case VIRTUAL_THREADS:
+      ExecutorService virtualThreads = getVirtualThreadExecutorService();
+      if (virtualThreads != null) {
+        return virtualThreads;
+      }
+      return managedExecutorService;
+    default:
+      return managedExecutorService;
+    }
+  }
+
+  /**
+   * @return true if independent bulk operations should be performed
+   *         concurrently.
+   */
+  public boolean isConcurrentBulk() {
+    return serverConfiguration != null && serverConfiguration.getProviderExecution() == ProviderExecution.VIRTUAL_THREADS && getExecutorService() != null;
+  }
+
+  /**
+   * Runs the calls and returns their results in the same order. A single
+   * call, or all of them when there is no executor, is run on the calling
+   * thread. The first exception thrown by a call is rethrown.
+   */
+  public <V> List<V> invokeAll(List<? extends Callable<V>> calls) throws Exception {
+    List<V> results = new ArrayList<>();
+
+    ExecutorService executorService = getExecutorService();
+    if (executorService == null || calls.size() < 2) {
+      for (Callable<V> call : calls) {
+        results.add(call.call());
+      }
+      return results;
+    }
+
+    List<Future<V>> futures = executorService.invokeAll(calls);
+    for (Future<V> future : futures) {
+      try {
+        results.add(future.get());
+      } catch (ExecutionException e) {
+        Throwable cause = e.getCause();
+        if (cause instanceof Exception) {
+          throw (Exception) cause;
+        }
+        throw e;
+      }
+    }
+    return results;
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    ExecutorService executorService = virtualThreadExecutorService;
+    if (executorService != null) {
+      executorService.shutdown();
+    }
+  }
+
+  private ExecutorService getVirtualThreadExecutorService() {
+    ExecutorService executorService = virtualThreadExecutorService;
+    if (executorService != null || virtualThreadsUnavailable) {
+      return executorService;
+    }
+    synchronized (this) {
+      if (virtualThreadExecutorService == null && !virtualThreadsUnavailable) {
+        if (contextService == null) {
+          log.warn("No context service is available to propagate the container context to virtual threads, using the managed executor instead");
+        } else {
+          ExecutorService virtualThreads = virtualThreadExecutorFactory.get();
+          if (virtualThreads != null) {
+            virtualThreadExecutorService = new ContextualExecutorService(virtualThreads, contextService);
+          }
+        }
+        virtualThreadsUnavailable = virtualThreadExecutorService == null;
+      }
+      return virtualThreadExecutorService;
+    }
+  }
+
+  /**
+   * @return an executor that starts a virtual thread per task or null if the
+   *         JVM does not support virtual threads.
+   */
+  static ExecutorService createVirtualThreadExecutorService() {
+    try {
+      Method method = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+      return (ExecutorService) method.invoke(null);
+    } catch (ReflectiveOperationException | RuntimeException e) {
+      log.warn("Virtual threads are not available on this JVM, using the managed executor instead");
+      return null;
+    }
+  }
+
+  /**
+   * Runs every task through a contextual proxy, so that it sees the context
+   * of the thread that submitted it. The tasks of submit and invokeAll are
+   * passed to execute, so proxying there covers all of them.
+   */
+  private static class ContextualExecutorService extends AbstractExecutorService {
+
+    private final ExecutorService delegate;
+
+    private final ContextService contextService;
+
+    ContextualExecutorService(ExecutorService delegate, ContextService contextService) {
+      this.delegate = delegate;
+      this.contextService = contextService;
+    }
+
+    @Override
+    public void execute(Runnable command) {
+      delegate.execute(contextService.createContextualProxy(command, Runnable.class));
+    }
+
+    @Override
+    public void shutdown() {
+      delegate.shutdown();
+    }
+
+    @Override
+    public List<Runnable> shutdownNow() {
+      return delegate.shutdownNow();
+    }
+
+    @Override
+    public boolean isShutdown() {
+      return delegate.isShutdown();
+    }
+
+    @Override
+    public boolean isTerminated() {
+      return delegate.isTerminated();
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+      return delegate.awaitTermination(timeout, unit);
+    }
+  }
+}
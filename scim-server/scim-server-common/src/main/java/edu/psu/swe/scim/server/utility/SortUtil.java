@@ -0,0 +1,419 @@
+/*
+* Licensed to the Apache Software Foundation (ASF) under one
+* or more contributor license agreements.  See the NOTICE file
+* distributed with this work for additional information
+* regarding copyright ownership.  The ASF licenses this file
+* to you under the Apache License, Version 2.0 (the
+* "License"); you may not use this file except in compliance
+* with the License.  You may obtain a copy of the License at
+
+* http://www.apache.org/licenses/LICENSE-2.0
+
+* Unless required by applicable law or agreed to in writing,
+* software distributed under the License is distributed on an
+* "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+* KIND, either express or implied.  See the License for the
+* specific language governing permissions and limitations
+* under the License.
+*/
+
+package edu.psu.swe.scim.server.utility;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.function.Function;
+
+import javax.ejb.Stateless;
+import javax.inject.Inject;
+
+import org.apache.commons.lang3.StringUtils;
+
+import edu.psu.swe.scim.server.exception.AttributeDoesNotExistException;
+import edu.psu.swe.scim.server.schema.Registry;
+import edu.psu.swe.scim.spec.protocol.attribute.AttributeReference;
+import edu.psu.swe.scim.spec.protocol.search.PageRequest;
+import edu.psu.swe.scim.spec.protocol.search.SortOrder;
+import edu.psu.swe.scim.spec.protocol.search.SortRequest;
+import edu.psu.swe.scim.spec.resources.ScimExtension;
+import edu.psu.swe.scim.spec.resources.ScimResource;
+import edu.psu.swe.scim.spec.schema.AttributeAccessor;
+import edu.psu.swe.scim.spec.schema.Schema;
+import edu.psu.swe.scim.spec.schema.Schema.Attribute;
+import edu.psu.swe.scim.spec.schema.Schema.Attribute.Type;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Sorts and pages {@link ScimResource}s on behalf of providers that cannot do
+ * so natively (see https://tools.ietf.org/html/rfc7644#section-3.4.2.3).
+ *
+ * Values are compared according to the schema {@link Attribute} they belong
+ * to: strings honor {@code caseExact}, multi-valued attributes sort on their
+ * primary (or first) value and resources without a value sort last in
+ * either order. Ties are broken on the resource id so that consecutive
+ * pages are stable.
+ */
+@Stateless
+@Slf4j
+public class SortUtil {
+
+  private static final String PRIMARY = "primary";
+  private static final String VALUE = "value";
+
+  @Inject
+  Registry registry;
+
+  /**
+   * Sorts the resources and returns only the page described by the
+   * pageRequest. When a count is supplied only {@code startIndex - 1 + count}
+   * resources are ever held in a bounded heap, so the cost is O(n log k)
+   * rather than a full sort of every resource.
+   */
+  public <T extends ScimResource> List<T> sort(Collection<T> resources, SortRequest sortRequest, PageRequest pageRequest) throws AttributeDoesNotExistException {
+    if (resources == null || resources.isEmpty()) {
+      return new ArrayList<>();
+    }
+
+    T first = resources.iterator()
+                       .next();
+    Schema baseSchema = registry.getSchema(first.getBaseUrn());
+    Comparator<T> comparator = createComparator(sortRequest, baseSchema);
+
+    return page(resources, comparator, pageRequest);
+  }
+
+  /**
+   * Builds a comparator for the attribute referenced by the sortRequest. The
+   * attribute is resolved against the baseSchema unless it is qualified with
+   * the urn of an extension schema.
+   */
+  public <T extends ScimResource> Comparator<T> createComparator(SortRequest sortRequest, Schema baseSchema) throws AttributeDoesNotExistException {
+    if (sortRequest == null || sortRequest.getSortBy() == null) {
+      return idComparator();
+    }
+
+    SortAttribute sortAttribute = resolve(sortRequest.getSortBy(), baseSchema);
+    boolean descending = isDescending(sortRequest);
+    Comparator<T> comparator = (left, right) -> compareValues(sortAttribute.getValue(left), sortAttribute.getValue(right), sortAttribute.caseExact, descending);
+
+    return withIdTieBreaker(comparator);
+  }
+
+  /**
+   * Builds a comparator that can order resources of different resource types,
+   * resolving the sortBy attribute against each resource's own base schema.
+   * Resources whose schema does not define the attribute are treated as having
+   * no value. The returned comparator caches its lookups and must not be
+   * shared between threads.
+   */
+  public <T extends ScimResource> Comparator<T> createComparator(SortRequest sortRequest) {
+    if (sortRequest == null || sortRequest.getSortBy() == null) {
+      return idComparator();
+    }
+
+    AttributeReference sortBy = sortRequest.getSortBy();
+    Map<String, Optional<SortAttribute>> sortAttributes = new HashMap<>();
+    Function<String, Optional<SortAttribute>> resolver = baseUrn -> {
+      try {
+        return Optional.of(resolve(sortBy, registry.getSchema(baseUrn)));
+      } catch (AttributeDoesNotExistException e) {
+        log.debug("Resources of schema " + baseUrn + " have no " + sortBy.getFullyQualifiedAttributeName() + " attribute");
+        return Optional.empty();
+      }
+    };
+
+    boolean descending = isDescending(sortRequest);
+    Comparator<T> comparator = (left, right) -> {
+      Optional<SortAttribute> leftAttribute = sortAttributes.computeIfAbsent(left.getBaseUrn(), resolver);
+      Optional<SortAttribute> rightAttribute = sortAttributes.computeIfAbsent(right.getBaseUrn(), resolver);
+      Object leftValue = leftAttribute.map(attribute -> attribute.getValue(left))
+                                      .orElse(null);
+      Object rightValue = rightAttribute.map(attribute -> attribute.getValue(right))
+                                        .orElse(null);
+      boolean caseExact = leftAttribute.map(attribute -> attribute.caseExact)
+                                       .orElse(false);
+      return compareValues(leftValue, rightValue, caseExact, descending);
+    };
+
+    return withIdTieBreaker(comparator);
+  }
+
+  private static <T extends ScimResource> Comparator<T> idComparator() {
+    return Comparator.comparing(ScimResource::getId, Comparator.nullsLast(Comparator.naturalOrder()));
+  }
+
+  private static boolean isDescending(SortRequest sortRequest) {
+    return sortRequest.getSortOrder() == SortOrder.DESCENDING;
+  }
+
+  private static <T extends ScimResource> Comparator<T> withIdTieBreaker(Comparator<T> comparator) {
+    return comparator.thenComparing(idComparator());
+  }
+
+  private SortAttribute resolve(AttributeReference sortBy, Schema baseSchema) throws AttributeDoesNotExistException {
+    String urn = sortBy.getUrn();
+    Schema schema = baseSchema;
+    boolean extension = false;
+
+    if (!StringUtils.isEmpty(urn) && (baseSchema == null || !urn.equals(baseSchema.getId()))) {
+      schema = registry.getSchema(urn);
+      extension = true;
+    }
+
+    if (schema == null) {
+      throw new AttributeDoesNotExistException(sortBy.getFullyQualifiedAttributeName());
+    }
+
+    Attribute attribute = schema.getAttribute(sortBy.getAttributeName());
+    if (attribute == null) {
+      throw new AttributeDoesNotExistException(sortBy.getFullyQualifiedAttributeName());
+    }
+
+    Attribute subAttribute = null;
+    if (sortBy.getSubAttributeName() != null) {
+      subAttribute = attribute.getAttribute(sortBy.getSubAttributeName());
+      if (subAttribute == null) {
+        throw new AttributeDoesNotExistException(sortBy.getFullyQualifiedAttributeName());
+      }
+    } else if (attribute.getType() == Type.COMPLEX) {
+      // RFC 7644 only allows complex attributes to be sorted on their value
+      subAttribute = attribute.getAttribute(VALUE);
+      if (subAttribute == null) {
+        throw new AttributeDoesNotExistException(sortBy.getFullyQualifiedAttributeName());
+      }
+    }
+
+    Attribute valueAttribute = subAttribute != null ? subAttribute : attribute;
+    String extensionUrn = extension ? schema.getId() : null;
+    return new SortAttribute(extensionUrn, attribute, subAttribute, valueAttribute.isCaseExact());
+  }
+
+  /**
+   * Missing values sort last in either order, so the order is applied to the
+   * comparison of present values only.
+   */
+  private static int compareValues(Object left, Object right, boolean caseExact, boolean descending) {
+    if (left == right) {
+      return 0;
+    }
+    if (left == null) {
+      return 1;
+    }
+    if (right == null) {
+      return -1;
+    }
+    int result = compareValues(left, right, caseExact);
+    return descending ? Integer.compare(0, result) : result;
+  }
+
+  @SuppressWarnings({ "unchecked", "rawtypes" })
+  private static int compareValues(Object left, Object right, boolean caseExact) {
+    if (left instanceof String && right instanceof String) {
+      return caseExact ? ((String) left).compareTo((String) right) : String.CASE_INSENSITIVE_ORDER.compare((String) left, (String) right);
+    }
+    if (left instanceof Comparable && left.getClass()
+                                          .isInstance(right)) {
+      return ((Comparable) left).compareTo(right);
+    }
+    return compareValues(left.toString(), right.toString(), caseExact);
+  }
+
+  /**
+   * Returns the page of resources described by the pageRequest in the order
+   * defined by the comparator. A null pageRequest or count returns every
+   * resource.
+   */
+  public static <T> List<T> page(Collection<T> resources, Comparator<? super T> comparator, PageRequest pageRequest) {
+    int startIndex = 1;
+    Integer count = null;
+    if (pageRequest != null) {
+      if (pageRequest.getStartIndex() != null && pageRequest.getStartIndex() > 1) {
+        startIndex = pageRequest.getStartIndex();
+      }
+      if (pageRequest.getCount() != null) {
+        count = Math.max(0, pageRequest.getCount());
+      }
+    }
+
+    int skip = startIndex - 1;
+    if (skip >= resources.size() || (count != null && count == 0)) {
+      return new ArrayList<>();
+    }
+
+    long limit = count == null ? Long.MAX_VALUE : (long) skip + count;
+    List<T> sorted;
+
+    if (limit >= resources.size()) {
+      sorted = new ArrayList<>(resources);
+      Collections.sort(sorted, comparator);
+    } else {
+      int k = (int) limit;
+      // Max-heap on the requested order holding the k smallest seen so far
+      PriorityQueue<T> heap = new PriorityQueue<>(k + 1, Collections.reverseOrder(comparator));
+      Iterator<T> iterator = resources.iterator();
+      while (iterator.hasNext()) {
+        T resource = iterator.next();
+        if (heap.size() < k) {
+          heap.add(resource);
+        } else if (comparator.compare(resource, heap.peek()) < 0) {
+          heap.poll();
+          heap.add(resource);
+        }
+      }
+      sorted = new ArrayList<>(heap);
+      Collections.sort(sorted, comparator);
+    }
+
+    return new ArrayList<>(sorted.subList(skip, sorted.size()));
+  }
+
+  /**
+   * Merges collections that are each already ordered by the comparator and
+   * returns the page described by the pageRequest. Only the head of each
+   * collection is held in the heap, so merging k sources costs
+   * O((startIndex + count) log k).
+   */
+  public static <T> List<T> merge(Collection<? extends Collection<T>> sources, Comparator<? super T> comparator, PageRequest pageRequest) {
+    int skip = 0;
+    int count = Integer.MAX_VALUE;
+    if (pageRequest != null) {
+      if (pageRequest.getStartIndex() != null && pageRequest.getStartIndex() > 1) {
+        skip = pageRequest.getStartIndex() - 1;
+      }
+      if (pageRequest.getCount() != null) {
+        count = Math.max(0, pageRequest.getCount());
+      }
+    }
+
+    PriorityQueue<MergeCursor<T>> heads = new PriorityQueue<>(Math.max(1, sources.size()), (left, right) -> comparator.compare(left.head, right.head));
+    for (Collection<T> source : sources) {
+      if (source != null) {
+        MergeCursor<T> cursor = new MergeCursor<>(source.iterator());
+        if (cursor.advance()) {
+          heads.add(cursor);
+        }
+      }
+    }
+
+    List<T> merged = new ArrayList<>();
+    while (!heads.isEmpty() && merged.size() < count) {
+      MergeCursor<T> cursor = heads.poll();
+      if (skip > 0) {
+        skip--;
+      } else {
+        merged.add(cursor.head);
+      }
+      if (cursor.advance()) {
+        heads.add(cursor);
+      }
+    }
+
+    return merged;
+  }
+
+  private static class MergeCursor<T> {
+
+    private final Iterator<T> iterator;
+    private T head;
+
+    MergeCursor(Iterator<T> iterator) {
+      this.iterator = iterator;
+    }
+
+    boolean advance() {
+      if (!iterator.hasNext()) {
+        return false;
+      }
+      head = iterator.next();
+      return true;
+    }
+  }
+
+  private static class SortAttribute {
+
+    private final String extensionUrn;
+    private final Attribute attribute;
+    private final Attribute subAttribute;
+    private final boolean caseExact;
+
+    SortAttribute(String extensionUrn, Attribute attribute, Attribute subAttribute, boolean caseExact) {
+      this.extensionUrn = extensionUrn;
+      this.attribute = attribute;
+      this.subAttribute = subAttribute;
+      this.caseExact = caseExact;
+    }
+
+    private Object getValue(ScimResource resource) {
+      Object target = resource;
+      if (extensionUrn != null) {
+        ScimExtension extension = resource.getExtension(extensionUrn);
+        if (extension == null) {
+          return null;
+        }
+        target = extension;
+      }
+
+      Object value = read(attribute, target);
+      if (value == null) {
+        return null;
+      }
+
+      if (attribute.isMultiValued()) {
+        value = selectValue(value);
+      }
+
+      if (subAttribute != null && value != null) {
+        value = read(subAttribute, value);
+      }
+
+      return value;
+    }
+
+    /**
+     * Multi-valued attributes sort on their primary value, falling back to the
+     * first value when no value is marked primary.
+     */
+    private Object selectValue(Object values) {
+      if (!(values instanceof Collection)) {
+        return values;
+      }
+
+      Collection<?> collection = (Collection<?>) values;
+      if (collection.isEmpty()) {
+        return null;
+      }
+
+      Attribute primary = attribute.getAttribute(PRIMARY);
+      if (primary != null) {
+        for (Object value : collection) {
+          if (value != null && Boolean.TRUE.equals(read(primary, value))) {
+            return value;
+          }
+        }
+      }
+
+      return collection.iterator()
+                       .next();
+    }
+
+    private static Object read(Attribute attribute, Object target) {
+      AttributeAccessor accessor = attribute.getAccessor();
+      if (accessor == null) {
+        return null;
+      }
+      try {
+        return accessor.get(target);
+      } catch (IllegalArgumentException | IllegalStateException | ClassCastException e) {
+        log.warn("Unable to read attribute " + attribute.getName() + " for sorting", e);
+        return null;
+      }
+    }
+  }
+}
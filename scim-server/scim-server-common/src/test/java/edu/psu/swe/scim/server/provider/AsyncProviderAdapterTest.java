@@ -0,0 +1,135 @@
+/*
+* Licensed to the Apache Software Foundation (ASF) under one
+* or more contributor license agreements.  See the NOTICE file
+* distributed with this work for additional information
+* regarding copyright ownership.  The ASF licenses this file
+* to you under the Apache License, Version 2.0 (the
+* "License"); you may not use this file except in compliance
+* with the License.  You may obtain a copy of the License at
+ 
+* http://www.apache.org/licenses/LICENSE-2.0
+
+* Unless required by applicable law or agreed to in writing,
+* software distributed under the License is distributed on an
+* "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+* KIND, either express or implied.  See the License for the
+* specific language governing permissions and limitations
+* under the License.
+*/
+
+package edu.psu.swe.scim.server.provider;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+
+import javax.ws.rs.core.Response.Status;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnit;
+import org.mockito.junit.MockitoRule;
+
+import edu.psu.swe.scim.server.exception.UnableToDeleteResourceException;
+import edu.psu.swe.scim.server.exception.UnableToRetrieveResourceException;
+import edu.psu.swe.scim.spec.resources.ScimUser;
+
+public class AsyncProviderAdapterTest {
+
+  @Rule
+  public MockitoRule mockito = MockitoJUnit.rule();
+
+  @Mock
+  AsyncProvider<ScimUser> asyncProvider;
+
+  AsyncProviderAdapter<ScimUser> adapter;
+
+  @Before
+  public void initialize() {
+    adapter = new AsyncProviderAdapter<>(asyncProvider, Duration.ofSeconds(5));
+  }
+
+  @Test
+  public void testResultOfStageIsReturned() throws Exception {
+    ScimUser user = new ScimUser();
+    CompletableFuture<ScimUser> stage = new CompletableFuture<>();
+    when(asyncProvider.get("1")).thenReturn(stage);
+
+    CompletableFuture.runAsync(() -> stage.complete(user));
+
+    assertThat(adapter.get("1")).isSameAs(user);
+  }
+
+  @Test
+  public void testDeclaredExceptionIsRethrown() throws Exception {
+    UnableToRetrieveResourceException notFound = new UnableToRetrieveResourceException(Status.NOT_FOUND, "gone");
+    when(asyncProvider.get("1")).thenReturn(failed(notFound));
+
+    try {
+      adapter.get("1");
+      fail("Expected the exception of the stage");
+    } catch (UnableToRetrieveResourceException e) {
+      assertThat(e).isSameAs(notFound);
+    }
+  }
+
+  @Test
+  public void testRuntimeExceptionIsRethrown() throws Exception {
+    IllegalStateException broken = new IllegalStateException("broken");
+    when(asyncProvider.get("1")).thenReturn(failed(broken));
+
+    try {
+      adapter.get("1");
+      fail("Expected the exception of the stage");
+    } catch (IllegalStateException e) {
+      assertThat(e).isSameAs(broken);
+    }
+  }
+
+  @Test
+  public void testOtherExceptionsAreWrapped() throws Exception {
+    when(asyncProvider.delete("1")).thenReturn(failed(new IOException("unreachable")));
+
+    try {
+      adapter.delete("1");
+      fail("Expected the exception of the stage");
+    } catch (UnableToDeleteResourceException e) {
+      assertThat(e.getStatus()).isEqualTo(Status.INTERNAL_SERVER_ERROR);
+      assertThat(e.getCause()).hasMessage("unreachable");
+    }
+  }
+
+  @Test
+  public void testStageThatDoesNotCompleteTimesOut() throws Exception {
+    CompletableFuture<ScimUser> stage = new CompletableFuture<>();
+    when(asyncProvider.get("1")).thenReturn(stage);
+    adapter = new AsyncProviderAdapter<>(asyncProvider, Duration.ofMillis(50));
+
+    try {
+      adapter.get("1");
+      fail("Expected the call to time out");
+    } catch (UnableToRetrieveResourceException e) {
+      assertThat(e.getStatus()).isEqualTo(Status.GATEWAY_TIMEOUT);
+      assertThat(stage.isCancelled()).isTrue();
+    }
+  }
+
+  @Test
+  public void testImplementationClassIsTheAsyncProvider() {
+    CachingProvider<ScimUser> decorated = new CachingProvider<>(adapter, new ResourceCache<>(1, Duration.ofSeconds(1)));
+
+    assertThat(DelegatingProvider.getImplementationClass(decorated)).isEqualTo(asyncProvider.getClass());
+  }
+
+  private static <V> CompletableFuture<V> failed(Throwable throwable) {
+    CompletableFuture<V> future = new CompletableFuture<>();
+    future.completeExceptionally(throwable);
+    return future;
+  }
+}
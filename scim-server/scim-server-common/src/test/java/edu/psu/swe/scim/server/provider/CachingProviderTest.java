@@ -0,0 +1,201 @@
+/*
+* Licensed to the Apache Software Foundation (ASF) under one
+* or more contributor license agreements.  See the NOTICE file
+* distributed with this work for additional information
+* regarding copyright ownership.  The ASF licenses this file
+* to you under the Apache License, Version 2.0 (the
+* "License"); you may not use this file except in compliance
+* with the License.  You may obtain a copy of the License at
+ 
+* http://www.apache.org/licenses/LICENSE-2.0
+
+* Unless required by applicable law or agreed to in writing,
+* software distributed under the License is distributed on an
+* "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+* KIND, either express or implied.  See the License for the
+* specific language governing permissions and limitations
+* under the License.
+*/
+
+package edu.psu.swe.scim.server.provider;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnit;
+import org.mockito.junit.MockitoRule;
+
+import edu.psu.swe.scim.spec.resources.ScimUser;
+import edu.psu.swe.scim.spec.schema.Meta;
+
+public class CachingProviderTest {
+
+  @Rule
+  public MockitoRule mockito = MockitoJUnit.rule();
+
+  @Mock
+  Provider<ScimUser> provider;
+
+  @Mock
+  UpdateRequest<ScimUser> updateRequest;
+
+  long now;
+
+  ResourceCache<ScimUser> cache;
+
+  CachingProvider<ScimUser> cachingProvider;
+
+  @Before
+  public void initialize() {
+    cache = new ResourceCache<>(2, Duration.ofMinutes(1), () -> now);
+    cachingProvider = new CachingProvider<>(provider, cache);
+  }
+
+  @Test
+  public void testRepeatedGetIsServedFromCache() throws Exception {
+    ScimUser user = user("1", null);
+    when(provider.get("1")).thenReturn(user);
+
+    assertThat(cachingProvider.get("1")).isEqualTo(user);
+    assertThat(cachingProvider.get("1")).isEqualTo(user);
+
+    verify(provider, times(1)).get("1");
+    ResultCache.Statistics statistics = cache.getStatistics();
+    assertThat(statistics.getHitCount()).isEqualTo(1);
+    assertThat(statistics.getMissCount()).isEqualTo(1);
+    assertThat(statistics.getHitRate()).isEqualTo(0.5);
+  }
+
+  @Test
+  public void testCallersCannotChangeTheCachedResource() throws Exception {
+    ScimUser user = user("1", null);
+    user.setUserName("bjensen");
+    when(provider.get("1")).thenReturn(user);
+
+    cachingProvider.get("1")
+                   .setUserName("changed");
+    ScimUser second = cachingProvider.get("1");
+    second.setUserName("changed too");
+    ScimUser third = cachingProvider.get("1");
+
+    assertThat(third).isNotSameAs(second);
+    assertThat(third.getUserName()).isEqualTo("bjensen");
+  }
+
+  @Test
+  public void testMissingResourceIsNotCached() throws Exception {
+    assertThat(cachingProvider.get("1")).isNull();
+    assertThat(cachingProvider.get("1")).isNull();
+
+    verify(provider, times(2)).get("1");
+  }
+
+  @Test
+  public void testEntriesExpire() throws Exception {
+    when(provider.get("1")).thenReturn(user("1", null));
+
+    cachingProvider.get("1");
+    now += TimeUnit.MINUTES.toNanos(1);
+    cachingProvider.get("1");
+
+    verify(provider, times(2)).get("1");
+    assertThat(cache.getStatistics()
+                    .getExpirationCount()).isEqualTo(1);
+  }
+
+  @Test
+  public void testLeastRecentlyUsedEntryIsEvicted() throws Exception {
+    when(provider.get("1")).thenReturn(user("1", null));
+    when(provider.get("2")).thenReturn(user("2", null));
+    when(provider.get("3")).thenReturn(user("3", null));
+
+    cachingProvider.get("1");
+    cachingProvider.get("2");
+    cachingProvider.get("1");
+    cachingProvider.get("3");
+
+    assertThat(cache.size()).isEqualTo(2);
+    assertThat(cache.getStatistics()
+                    .getEvictionCount()).isEqualTo(1);
+    cachingProvider.get("1");
+    cachingProvider.get("2");
+    verify(provider, times(1)).get("1");
+    verify(provider, times(2)).get("2");
+  }
+
+  @Test
+  public void testUpdateWithVersionReplacesCachedResource() throws Exception {
+    ScimUser updated = user("1", "W/\"2\"");
+    when(provider.get("1")).thenReturn(user("1", "W/\"1\""));
+    when(updateRequest.getId()).thenReturn("1");
+    when(provider.update(updateRequest)).thenReturn(updated);
+
+    cachingProvider.get("1");
+    cachingProvider.update(updateRequest);
+
+    assertThat(cachingProvider.get("1")).isEqualTo(updated);
+    verify(provider, times(1)).get("1");
+  }
+
+  @Test
+  public void testUpdateWithoutVersionInvalidates() throws Exception {
+    when(provider.get("1")).thenReturn(user("1", null));
+    when(updateRequest.getId()).thenReturn("1");
+    when(provider.update(updateRequest)).thenReturn(user("1", null));
+
+    cachingProvider.get("1");
+    cachingProvider.update(updateRequest);
+    cachingProvider.get("1");
+
+    verify(provider, times(2)).get("1");
+  }
+
+  @Test
+  public void testDeleteInvalidates() throws Exception {
+    when(provider.get("1")).thenReturn(user("1", "W/\"1\""));
+
+    cachingProvider.get("1");
+    cachingProvider.delete("1");
+    cachingProvider.get("1");
+
+    verify(provider, times(2)).get("1");
+    assertThat(cache.getStatistics()
+                    .getInvalidationCount()).isEqualTo(1);
+  }
+
+  @Test
+  public void testReadStartedBeforeWriteIsNotCached() throws Exception {
+    long stamp = cache.getModificationCount();
+    long writeStamp = cache.invalidate("1");
+    cache.put("1", user("1", "W/\"1\""), stamp);
+    cache.replace("1", user("1", null), writeStamp);
+    cache.put("1", user("1", "W/\"1\""), writeStamp);
+
+    assertThat(cache.get("1")).isNull();
+  }
+
+  @Test
+  public void testDecoratorsCanBeUnwrapped() {
+    assertThat(DelegatingProvider.unwrap(cachingProvider)).isSameAs(provider);
+  }
+
+  private static ScimUser user(String id, String version) {
+    ScimUser user = new ScimUser();
+    user.setId(id);
+    if (version != null) {
+      Meta meta = new Meta();
+      meta.setVersion(version);
+      user.setMeta(meta);
+    }
+    return user;
+  }
+}
@@ -0,0 +1,212 @@
+/*
+* Licensed to the Apache Software Foundation (ASF) under one
+* or more contributor license agreements.  See the NOTICE file
+* distributed with this work for additional information
+* regarding copyright ownership.  The ASF licenses this file
+* to you under the Apache License, Version 2.0 (the
+* "License"); you may not use this file except in compliance
+* with the License.  You may obtain a copy of the License at
+ 
+* http://www.apache.org/licenses/LICENSE-2.0
+
+* Unless required by applicable law or agreed to in writing,
+* software distributed under the License is distributed on an
+* "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+* KIND, either express or implied.  See the License for the
+* specific language governing permissions and limitations
+* under the License.
+*/
+
+package edu.psu.swe.scim.server.provider;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import javax.ws.rs.core.Response.Status;
+
+import org.junit.After;
+import org.junit.Test;
+
+import edu.psu.swe.scim.server.exception.UnableToRetrieveResourceException;
+import edu.psu.swe.scim.spec.resources.ScimUser;
+
+public class CoalescingProviderTest {
+
+  ExecutorService executor = Executors.newFixedThreadPool(4);
+
+  @After
+  public void shutdown() {
+    executor.shutdownNow();
+  }
+
+  @Test
+  public void testConcurrentGetsShareOneCall() throws Exception {
+    CountDownLatch release = new CountDownLatch(1);
+    BlockingProvider provider = new BlockingProvider(release);
+    CoalescingProvider.Flights<ScimUser> flights = new CoalescingProvider.Flights<>(Duration.ofSeconds(10));
+    CoalescingProvider<ScimUser> coalescingProvider = new CoalescingProvider<>(provider, flights);
+
+    List<Future<ScimUser>> results = new ArrayList<>();
+    for (int i = 0; i < 4; i++) {
+      results.add(executor.submit(() -> coalescingProvider.get("1")));
+    }
+    waitFor(() -> flights.getCoalescedCount() == 3);
+    release.countDown();
+
+    ScimUser first = results.get(0)
+                            .get(10, TimeUnit.SECONDS);
+    Set<ScimUser> instances = Collections.newSetFromMap(new IdentityHashMap<>());
+    for (Future<ScimUser> result : results) {
+      assertThat(result.get(10, TimeUnit.SECONDS)).isEqualTo(first);
+      instances.add(result.get(10, TimeUnit.SECONDS));
+    }
+    assertThat(provider.calls.get()).isEqualTo(1);
+    // Every caller gets an instance of its own
+    assertThat(instances).hasSize(4);
+  }
+
+  @Test
+  public void testSequentialGetsAreNotShared() throws Exception {
+    CountDownLatch release = new CountDownLatch(0);
+    BlockingProvider provider = new BlockingProvider(release);
+    CoalescingProvider<ScimUser> coalescingProvider = new CoalescingProvider<>(provider, new CoalescingProvider.Flights<>(Duration.ofSeconds(10)));
+
+    coalescingProvider.get("1");
+    coalescingProvider.get("1");
+
+    assertThat(provider.calls.get()).isEqualTo(2);
+  }
+
+  @Test
+  public void testWaitingCallersTimeOut() throws Exception {
+    CountDownLatch release = new CountDownLatch(1);
+    SingleFlight<String, String> singleFlight = new SingleFlight<>(Duration.ofMillis(10));
+    CountDownLatch started = new CountDownLatch(1);
+    Future<String> leader = executor.submit(() -> singleFlight.execute("1", () -> {
+      started.countDown();
+      awaitUninterruptibly(release);
+      return "leader";
+    }));
+    started.await();
+
+    try {
+      singleFlight.execute("1", () -> "follower");
+      fail("Expected the call to time out");
+    } catch (UnableToRetrieveResourceException e) {
+      assertThat(e.getStatus()).isEqualTo(Status.GATEWAY_TIMEOUT);
+    } finally {
+      release.countDown();
+    }
+    assertThat(leader.get(10, TimeUnit.SECONDS)).isEqualTo("leader");
+  }
+
+  @Test
+  public void testLeadersCallerCanChangeItsResultWhileOthersCopyIt() throws Exception {
+    CountDownLatch release = new CountDownLatch(1);
+    CountDownLatch changed = new CountDownLatch(1);
+    Thread[] leaderThread = new Thread[1];
+    SingleFlight<String, StringBuilder> singleFlight = new SingleFlight<>(Duration.ofSeconds(10), value -> {
+      if (Thread.currentThread() != leaderThread[0]) {
+        awaitUninterruptibly(changed);
+      }
+      return new StringBuilder(value);
+    });
+    CountDownLatch started = new CountDownLatch(1);
+    Future<StringBuilder> leader = executor.submit(() -> singleFlight.execute("1", () -> {
+      leaderThread[0] = Thread.currentThread();
+      started.countDown();
+      awaitUninterruptibly(release);
+      return new StringBuilder("leader");
+    }));
+    started.await();
+    Future<StringBuilder> follower = executor.submit(() -> singleFlight.execute("1", () -> new StringBuilder("follower")));
+    waitFor(() -> singleFlight.getCoalescedCount() == 1);
+    release.countDown();
+
+    leader.get(10, TimeUnit.SECONDS)
+          .append(" changed by its caller");
+    changed.countDown();
+
+    assertThat(follower.get(10, TimeUnit.SECONDS)
+                       .toString()).isEqualTo("leader");
+  }
+
+  @Test
+  public void testFailuresAreSharedWithWaitingCallers() throws Exception {
+    CountDownLatch release = new CountDownLatch(1);
+    SingleFlight<String, String> singleFlight = new SingleFlight<>(Duration.ofSeconds(10));
+    CountDownLatch started = new CountDownLatch(1);
+    executor.submit(() -> singleFlight.execute("1", () -> {
+      started.countDown();
+      awaitUninterruptibly(release);
+      throw new UnableToRetrieveResourceException(Status.NOT_FOUND, "gone");
+    }));
+    started.await();
+    Future<String> follower = executor.submit(() -> singleFlight.execute("1", () -> "follower"));
+    waitFor(() -> singleFlight.getCoalescedCount() == 1);
+    release.countDown();
+
+    try {
+      follower.get(10, TimeUnit.SECONDS);
+      fail("Expected the call to fail");
+    } catch (ExecutionException e) {
+      assertThat(e.getCause()).isInstanceOf(UnableToRetrieveResourceException.class);
+      assertThat(((UnableToRetrieveResourceException) e.getCause()).getStatus()).isEqualTo(Status.NOT_FOUND);
+    }
+  }
+
+  private static void waitFor(BooleanSupplier condition) throws InterruptedException {
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+    while (!condition.getAsBoolean()) {
+      if (System.nanoTime() > deadline) {
+        fail("Timed out waiting for the condition");
+      }
+      Thread.sleep(1);
+    }
+  }
+
+  private static void awaitUninterruptibly(CountDownLatch latch) {
+    try {
+      latch.await(10, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread()
+            .interrupt();
+    }
+  }
+
+  private static class BlockingProvider extends DelegatingProvider<ScimUser> {
+
+    final CountDownLatch release;
+
+    final AtomicInteger calls = new AtomicInteger();
+
+    BlockingProvider(CountDownLatch release) {
+      super(null);
+      this.release = release;
+    }
+
+    @Override
+    public ScimUser get(String id) {
+      calls.incrementAndGet();
+      awaitUninterruptibly(release);
+      ScimUser user = new ScimUser();
+      user.setId(id);
+      return user;
+    }
+  }
+}
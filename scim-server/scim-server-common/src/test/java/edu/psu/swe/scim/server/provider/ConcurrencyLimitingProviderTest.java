@@ -0,0 +1,89 @@
+/*
+* Licensed to the Apache Software Foundation (ASF) under one
+* or more contributor license agreements.  See the NOTICE file
+* distributed with this work for additional information
+* regarding copyright ownership.  The ASF licenses this file
+* to you under the Apache License, Version 2.0 (the
+* "License"); you may not use this file except in compliance
+* with the License.  You may obtain a copy of the License at
+ 
+* http://www.apache.org/licenses/LICENSE-2.0
+
+* Unless required by applicable law or agreed to in writing,
+* software distributed under the License is distributed on an
+* "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+* KIND, either express or implied.  See the License for the
+* specific language governing permissions and limitations
+* under the License.
+*/
+
+package edu.psu.swe.scim.server.provider;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Test;
+
+import edu.psu.swe.scim.spec.resources.ScimUser;
+
+public class ConcurrencyLimitingProviderTest {
+
+  ExecutorService executor = Executors.newFixedThreadPool(6);
+
+  @After
+  public void shutdown() {
+    executor.shutdownNow();
+  }
+
+  @Test
+  public void testConcurrentCallsAreLimited() throws Exception {
+    CountDownLatch release = new CountDownLatch(1);
+    AtomicInteger running = new AtomicInteger();
+    AtomicInteger maximumRunning = new AtomicInteger();
+    Provider<ScimUser> provider = new DelegatingProvider<ScimUser>(null) {
+      @Override
+      public ScimUser get(String id) {
+        maximumRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+        try {
+          release.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+          Thread.currentThread()
+                .interrupt();
+        }
+        running.decrementAndGet();
+        return new ScimUser();
+      }
+    };
+    ConcurrencyLimitingProvider.Limiter limiter = new ConcurrencyLimitingProvider.Limiter(2);
+    ConcurrencyLimitingProvider<ScimUser> limitingProvider = new ConcurrencyLimitingProvider<>(provider, limiter);
+
+    List<Future<ScimUser>> results = new ArrayList<>();
+    for (int i = 0; i < 6; i++) {
+      String id = Integer.toString(i);
+      results.add(executor.submit(() -> limitingProvider.get(id)));
+    }
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+    while (limiter.getWaitingCalls() < 4 && System.nanoTime() < deadline) {
+      Thread.sleep(1);
+    }
+
+    assertThat(limiter.getActiveCalls()).isEqualTo(2);
+    assertThat(limiter.getWaitingCalls()).isEqualTo(4);
+
+    release.countDown();
+    for (Future<ScimUser> result : results) {
+      assertThat(result.get(10, TimeUnit.SECONDS)).isNotNull();
+    }
+    assertThat(maximumRunning.get()).isEqualTo(2);
+    assertThat(limiter.getActiveCalls()).isEqualTo(0);
+  }
+}
@@ -0,0 +1,142 @@
+/*
+* Licensed to the Apache Software Foundation (ASF) under one
+* or more contributor license agreements.  See the NOTICE file
+* distributed with this work for additional information
+* regarding copyright ownership.  The ASF licenses this file
+* to you under the Apache License, Version 2.0 (the
+* "License"); you may not use this file except in compliance
+* with the License.  You may obtain a copy of the License at
+ 
+* http://www.apache.org/licenses/LICENSE-2.0
+
+* Unless required by applicable law or agreed to in writing,
+* software distributed under the License is distributed on an
+* "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+* KIND, either express or implied.  See the License for the
+* specific language governing permissions and limitations
+* under the License.
+*/
+
+package edu.psu.swe.scim.server.provider;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.Duration;
+import java.util.Collections;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnit;
+import org.mockito.junit.MockitoRule;
+
+import edu.psu.swe.scim.server.configuration.ServerConfiguration.CacheConfiguration;
+import edu.psu.swe.scim.spec.protocol.filter.FilterResponse;
+import edu.psu.swe.scim.spec.protocol.search.Filter;
+import edu.psu.swe.scim.spec.protocol.search.PageRequest;
+import edu.psu.swe.scim.spec.protocol.search.SortRequest;
+import edu.psu.swe.scim.spec.resources.ScimUser;
+
+public class FindCachingProviderTest {
+
+  @Rule
+  public MockitoRule mockito = MockitoJUnit.rule();
+
+  @Mock
+  Provider<ScimUser> provider;
+
+  long now;
+
+  FindResultCache<ScimUser> cache;
+
+  FindCachingProvider<ScimUser> findCachingProvider;
+
+  @Before
+  public void initialize() throws Exception {
+    cache = new FindResultCache<>(new CacheConfiguration(10, Duration.ofMinutes(1)), () -> now);
+    findCachingProvider = new FindCachingProvider<>(provider, cache);
+    when(provider.find(any(Filter.class), any(PageRequest.class), any(SortRequest.class))).thenReturn(new FilterResponse<>(Collections.emptyList(), null, 0));
+  }
+
+  @Test
+  public void testEmptyResultsAreCached() throws Exception {
+    Filter filter = new Filter("userName eq \"bjensen\"");
+
+    FilterResponse<ScimUser> first = findCachingProvider.find(filter, null, null);
+    FilterResponse<ScimUser> second = findCachingProvider.find(filter, null, null);
+
+    assertThat(second).isEqualTo(first)
+                      .isNotSameAs(first);
+    verify(provider, times(1)).find(filter, null, null);
+  }
+
+  @Test
+  public void testCallersCannotChangeTheCachedResources() throws Exception {
+    ScimUser user = new ScimUser();
+    user.setUserName("bjensen");
+    Filter filter = new Filter("userName eq \"bjensen\"");
+    when(provider.find(filter, null, null)).thenReturn(new FilterResponse<>(Collections.singletonList(user), null, 1));
+
+    findCachingProvider.find(filter, null, null)
+                       .getResources()
+                       .iterator()
+                       .next()
+                       .setUserName("changed");
+    FilterResponse<ScimUser> second = findCachingProvider.find(filter, null, null);
+
+    assertThat(second.getResources()).extracting(ScimUser::getUserName)
+                                     .containsExactly("bjensen");
+  }
+
+  @Test
+  public void testEquivalentFiltersShareAnEntry() throws Exception {
+    findCachingProvider.find(new Filter("userName eq \"bjensen\""), null, null);
+    findCachingProvider.find(new Filter("userName   EQ \"bjensen\""), null, null);
+
+    assertThat(cache.getStatistics()
+                    .getHitCount()).isEqualTo(1);
+  }
+
+  @Test
+  public void testPagesAreCachedSeparately() throws Exception {
+    Filter filter = new Filter("userName eq \"bjensen\"");
+    PageRequest pageRequest = new PageRequest();
+    pageRequest.setStartIndex(1);
+    pageRequest.setCount(10);
+
+    findCachingProvider.find(filter, null, null);
+    findCachingProvider.find(filter, pageRequest, null);
+
+    assertThat(cache.size()).isEqualTo(2);
+  }
+
+  @Test
+  public void testWritesInvalidateAllResults() throws Exception {
+    Filter filter = new Filter("userName eq \"bjensen\"");
+
+    findCachingProvider.find(filter, null, null);
+    findCachingProvider.create(new ScimUser());
+    findCachingProvider.find(filter, null, null);
+    findCachingProvider.delete("1");
+    findCachingProvider.find(filter, null, null);
+
+    verify(provider, times(3)).find(filter, null, null);
+  }
+
+  @Test
+  public void testResultsExpire() throws Exception {
+    Filter filter = new Filter("userName eq \"bjensen\"");
+
+    findCachingProvider.find(filter, null, null);
+    now += Duration.ofMinutes(1)
+                   .toNanos();
+    findCachingProvider.find(filter, null, null);
+
+    verify(provider, times(2)).find(filter, null, null);
+  }
+}
@@ -20,8 +20,14 @@
 package edu.psu.swe.scim.server.provider;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
 
-import java.util.Collections;
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
 
 import javax.enterprise.inject.Instance;
 
@@ -33,9 +39,23 @@ import org.mockito.Mockito;
 import org.mockito.junit.MockitoJUnit;
 import org.mockito.junit.MockitoRule;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import edu.psu.swe.scim.common.ScimUtils;
+import edu.psu.swe.scim.server.configuration.ServerConfiguration;
+import edu.psu.swe.scim.server.configuration.ServerConfiguration.ResilienceConfiguration;
 import edu.psu.swe.scim.server.schema.Registry;
+import edu.psu.swe.scim.server.utility.ExampleObjectExtension;
+import edu.psu.swe.scim.spec.json.ObjectMapperFactory;
+import edu.psu.swe.scim.spec.resources.BaseResource;
+import edu.psu.swe.scim.spec.resources.ScimGroup;
 import edu.psu.swe.scim.spec.resources.ScimUser;
+import edu.psu.swe.scim.spec.schema.GeneratedSchema;
+import edu.psu.swe.scim.spec.schema.ResourceType;
 import edu.psu.swe.scim.spec.schema.Schema;
+import edu.psu.swe.scim.spec.schema.Schema.Attribute;
+import edu.psu.swe.scim.spec.schema.Schema.Attribute.Type;
 
 public class ProviderRegistryTest {
   
@@ -49,6 +69,12 @@ public class ProviderRegistryTest {
   
   @Mock
   Provider<ScimUser> provider;
+
+  @Mock
+  Instance<Provider<ScimGroup>> groupProviderInstance;
+
+  @Mock
+  Provider<ScimGroup> groupProvider;
   
   ProviderRegistry providerRegistry;
   
@@ -61,6 +87,7 @@ public class ProviderRegistryTest {
   @Before
   public void initialize() {
     Mockito.when(providerInstance.get()).thenReturn(provider);
+    Mockito.when(groupProviderInstance.get()).thenReturn(groupProvider);
 //  Mockito.when(provider.getExtensionList()).thenReturn(Collections.singletonList(Enterprise));
   }
   
@@ -74,4 +101,272 @@ public class ProviderRegistryTest {
     assertThat(schema.getId()).isEqualTo(ScimUser.SCHEMA_URI);
   }
 
+  @Test
+  public void testGeneratedAttributeTypes() throws Exception {
+    Schema schema = ProviderRegistry.generateSchema(ScimUser.class, ScimUtils.getFieldsUpTo(ScimUser.class, BaseResource.class));
+
+    assertThat(schema.getAttribute("userName").getType()).isEqualTo(Type.STRING);
+    assertThat(schema.getAttribute("active").getType()).isEqualTo(Type.BOOLEAN);
+
+    Attribute emails = schema.getAttribute("emails");
+    assertThat(emails.getType()).isEqualTo(Type.COMPLEX);
+    assertThat(emails.isMultiValued()).isTrue();
+
+    Attribute name = schema.getAttribute("name");
+    assertThat(name.isMultiValued()).isFalse();
+    assertThat(name.getAttributes()).extracting(Attribute::getName)
+                                    .doesNotHaveDuplicates()
+                                    .contains("givenName", "familyName");
+
+    Schema extensionSchema = ProviderRegistry.generateSchema(ExampleObjectExtension.class, ScimUtils.getFieldsUpTo(ExampleObjectExtension.class, Object.class));
+    Attribute list = extensionSchema.getAttribute("list");
+    assertThat(list.getType()).isEqualTo(Type.STRING);
+    assertThat(list.isMultiValued()).isTrue();
+    assertThat(list.getSubAttributes()).isNull();
+  }
+
+  @Test
+  public void testGeneratedSchemasMatchReflection() throws Exception {
+    for (Class<?> clazz : Arrays.asList(ScimUser.class, ScimGroup.class)) {
+      GeneratedSchema generatedSchema = GeneratedSchema.forClass(clazz);
+      assertThat(generatedSchema).isNotNull();
+
+      Schema reflectedSchema = ProviderRegistry.generateSchema(clazz, ScimUtils.getFieldsUpTo(clazz, BaseResource.class));
+      assertThat(generatedSchema.createSchema()).isEqualTo(reflectedSchema);
+    }
+  }
+
+  @Test
+  public void testGeneratedAttributesReadTheirFields() throws Exception {
+    Schema schema = GeneratedSchema.forClass(ScimUser.class)
+                                   .createSchema();
+    ScimUser user = new ScimUser();
+    user.setUserName("jdoe");
+    user.setActive(true);
+
+    assertThat(schema.getAttribute("userName").getAccessor().get(user)).isEqualTo("jdoe");
+    schema.getAttribute("active").getAccessor().set(user, false);
+    assertThat(user.getActive()).isFalse();
+    assertThat(schema.getAttribute("emails").getAccessor().getType()).isEqualTo(List.class);
+  }
+
+  @Test
+  public void testPublishedUserSchema() throws Exception {
+    providerRegistry.registerProvider(ScimUser.class, providerInstance);
+
+    assertSchema(ScimUser.SCHEMA_URI, "/schemas/ScimUser.json");
+  }
+
+  @Test
+  public void testPublishedGroupSchema() throws Exception {
+    providerRegistry.registerProvider(ScimGroup.class, groupProviderInstance);
+
+    assertSchema(ScimGroup.SCHEMA_URI, "/schemas/ScimGroup.json");
+  }
+
+  private void assertSchema(String urn, String expectedResource) throws IOException {
+    ObjectMapper objectMapper = ObjectMapperFactory.getObjectMapper();
+    JsonNode schema = objectMapper.valueToTree(registry.getSchema(urn));
+    JsonNode expected;
+    try (InputStream stream = getClass().getResourceAsStream(expectedResource)) {
+      expected = objectMapper.readTree(stream);
+    }
+
+    assertThat(schema).isEqualTo(expected);
+  }
+
+  @Test
+  public void testRegistrationPublishesNewSnapshots() throws Exception {
+    Collection<ResourceType> resourceTypesBefore = registry.getAllResourceTypes();
+
+    providerRegistry.registerProvider(ScimUser.class, providerInstance);
+
+    assertThat(resourceTypesBefore).isEmpty();
+    assertThat(registry.getAllResourceTypes()).hasSize(1);
+    assertThat(registry.findScimResourceClassFromEndpoint("/Users")).isEqualTo(ScimUser.class);
+    assertThat(providerRegistry.getProvider(ScimUser.class)).isSameAs(provider);
+  }
+
+  @Test
+  public void testProvidersWithResourceCacheAreDecorated() throws Exception {
+    providerRegistry.registerProvider(ScimUser.class, providerInstance);
+    ResourceCache<ScimUser> resourceCache = providerRegistry.enableResourceCache(ScimUser.class, 10, Duration.ofMinutes(1));
+
+    Provider<ScimUser> cached = providerRegistry.getProvider(ScimUser.class);
+
+    assertThat(cached).isInstanceOf(CachingProvider.class);
+    assertThat(((CachingProvider<ScimUser>) cached).getCache()).isSameAs(resourceCache);
+    assertThat(DelegatingProvider.unwrap(cached)).isSameAs(provider);
+    assertThat(providerRegistry.getResourceCacheStatistics(ScimUser.class)
+                               .getSize()).isEqualTo(0);
+
+    providerRegistry.disableResourceCache(ScimUser.class);
+
+    assertThat(providerRegistry.getProvider(ScimUser.class)).isSameAs(provider);
+    assertThat(providerRegistry.getResourceCacheStatistics(ScimUser.class)).isNull();
+  }
+
+  @Test
+  public void testFindResultCacheFollowsServerConfiguration() throws Exception {
+    ServerConfiguration serverConfiguration = new ServerConfiguration();
+    providerRegistry.serverConfiguration = serverConfiguration;
+    providerRegistry.registerProvider(ScimUser.class, providerInstance);
+
+    assertThat(providerRegistry.getProvider(ScimUser.class)).isSameAs(provider);
+
+    serverConfiguration.enableFindResultCache("User", 100, Duration.ofSeconds(30));
+    Provider<ScimUser> cached = providerRegistry.getProvider(ScimUser.class);
+
+    assertThat(cached).isInstanceOf(FindCachingProvider.class);
+    assertThat(providerRegistry.getFindResultCache(ScimUser.class)).isSameAs(providerRegistry.getFindResultCache(ScimUser.class));
+
+    serverConfiguration.disableFindResultCache("User");
+
+    assertThat(providerRegistry.getProvider(ScimUser.class)).isSameAs(provider);
+  }
+
+  @Test
+  public void testInvalidFindResultCacheIsRejectedWhenConfigured() throws Exception {
+    ServerConfiguration serverConfiguration = new ServerConfiguration();
+
+    try {
+      serverConfiguration.enableFindResultCache("User", 0, Duration.ofSeconds(30));
+      fail("Expected a maximum size of 0 to be rejected");
+    } catch (IllegalArgumentException e) {
+      // expected
+    }
+    try {
+      serverConfiguration.enableFindResultCache("User", 100, Duration.ZERO);
+      fail("Expected a time to live of 0 to be rejected");
+    } catch (IllegalArgumentException e) {
+      // expected
+    }
+    assertThat(serverConfiguration.getFindResultCaches()).isEmpty();
+  }
+
+  @Test
+  public void testDecoratorChainIsReusedUntilConfigurationChanges() throws Exception {
+    ServerConfiguration serverConfiguration = new ServerConfiguration();
+    providerRegistry.serverConfiguration = serverConfiguration;
+    providerRegistry.registerProvider(ScimUser.class, providerInstance);
+    serverConfiguration.setProviderConcurrencyLimit("User", 4);
+    serverConfiguration.setUniquenessIndexEnabled(true);
+
+    Provider<ScimUser> first = providerRegistry.getProvider(ScimUser.class);
+
+    assertThat(providerRegistry.getProvider(ScimUser.class)).isSameAs(first);
+    assertThat(providerRegistry.getUniqueAttributes(ScimUser.class)).isSameAs(providerRegistry.getUniqueAttributes(ScimUser.class));
+
+    serverConfiguration.setProviderConcurrencyLimit("User", 8);
+    Provider<ScimUser> limited = providerRegistry.getProvider(ScimUser.class);
+
+    assertThat(limited).isNotSameAs(first);
+    assertThat(providerRegistry.getProvider(ScimUser.class)).isSameAs(limited);
+
+    providerRegistry.enableResourceCache(ScimUser.class, 10, Duration.ofMinutes(1));
+
+    assertThat(providerRegistry.getProvider(ScimUser.class)).isNotSameAs(limited)
+                                                            .isInstanceOf(UniquenessCheckingProvider.class);
+  }
+
+  @Test
+  public void testProvidersLookedUpElsewhereShareTheDecoratorChain() throws Exception {
+    providerRegistry.registerProvider(ScimUser.class, providerInstance);
+    providerRegistry.enableResourceCache(ScimUser.class, 10, Duration.ofMinutes(1));
+
+    Provider<ScimUser> decorated = providerRegistry.getDecorated(ScimUser.class, provider);
+
+    assertThat(decorated).isInstanceOf(CachingProvider.class);
+    assertThat(providerRegistry.getDecorated(ScimUser.class, provider)).isSameAs(decorated);
+    assertThat(providerRegistry.getProvider(ScimUser.class)).isSameAs(decorated);
+  }
+
+  @Test
+  public void testRequestsCoalesceBeneathTheResourceCache() throws Exception {
+    providerRegistry.registerProvider(ScimUser.class, providerInstance);
+    providerRegistry.enableResourceCache(ScimUser.class, 10, Duration.ofMinutes(1));
+    providerRegistry.enableRequestCoalescing(ScimUser.class, Duration.ofSeconds(5));
+
+    Provider<ScimUser> decorated = providerRegistry.getProvider(ScimUser.class);
+
+    assertThat(decorated).isInstanceOf(CachingProvider.class);
+    assertThat(((DelegatingProvider<ScimUser>) decorated).getDelegate()).isInstanceOf(CoalescingProvider.class);
+    assertThat(DelegatingProvider.unwrap(decorated)).isSameAs(provider);
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void testAsyncProvidersAreAdapted() throws Exception {
+    Instance<AsyncProvider<ScimUser>> asyncProviderInstance = Mockito.mock(Instance.class);
+    AsyncProvider<ScimUser> asyncProvider = Mockito.mock(AsyncProvider.class);
+    Mockito.when(asyncProviderInstance.get()).thenReturn(asyncProvider);
+
+    providerRegistry.registerAsyncProvider(ScimUser.class, asyncProviderInstance);
+
+    assertThat(registry.findScimResourceClassFromEndpoint("/Users")).isEqualTo(ScimUser.class);
+    assertThat(providerRegistry.getAsyncProvider(ScimUser.class)).isSameAs(asyncProvider);
+    Provider<ScimUser> adapted = providerRegistry.getProvider(ScimUser.class);
+    assertThat(adapted).isInstanceOf(AsyncProviderAdapter.class);
+    assertThat(((AsyncProviderAdapter<ScimUser>) adapted).getAsyncProvider()).isSameAs(asyncProvider);
+
+    providerRegistry.registerProvider(ScimUser.class, providerInstance);
+
+    assertThat(providerRegistry.getAsyncProvider(ScimUser.class)).isNull();
+    assertThat(providerRegistry.getProvider(ScimUser.class)).isSameAs(provider);
+  }
+
+  @Test
+  public void testConcurrencyLimitFollowsServerConfiguration() throws Exception {
+    ServerConfiguration serverConfiguration = new ServerConfiguration();
+    providerRegistry.serverConfiguration = serverConfiguration;
+    providerRegistry.registerProvider(ScimUser.class, providerInstance);
+    serverConfiguration.setProviderConcurrencyLimit("User", 4);
+
+    Provider<ScimUser> limited = providerRegistry.getProvider(ScimUser.class);
+
+    assertThat(limited).isInstanceOf(ConcurrencyLimitingProvider.class);
+    ConcurrencyLimitingProvider.Limiter limiter = ((ConcurrencyLimitingProvider<ScimUser>) limited).getLimiter();
+    assertThat(limiter.getMaximumConcurrentCalls()).isEqualTo(4);
+    assertThat(providerRegistry.getConcurrencyLimiter(ScimUser.class)).isSameAs(limiter);
+
+    serverConfiguration.setProviderConcurrencyLimit("User", 8);
+
+    assertThat(providerRegistry.getConcurrencyLimiter(ScimUser.class)
+                               .getMaximumConcurrentCalls()).isEqualTo(8);
+  }
+
+  @Test
+  public void testResilienceFollowsServerConfiguration() throws Exception {
+    ServerConfiguration serverConfiguration = new ServerConfiguration();
+    providerRegistry.serverConfiguration = serverConfiguration;
+    providerRegistry.registerProvider(ScimUser.class, providerInstance);
+    ResilienceConfiguration configuration = new ResilienceConfiguration(4, Duration.ofMillis(100), Duration.ofSeconds(5), 3, Duration.ofSeconds(30));
+    serverConfiguration.setProviderResilience("User", configuration);
+
+    Provider<ScimUser> resilient = providerRegistry.getProvider(ScimUser.class);
+
+    assertThat(resilient).isInstanceOf(ResilientProvider.class);
+    assertThat(((ResilientProvider<ScimUser>) resilient).getResilience()).isSameAs(providerRegistry.getResilience(ScimUser.class));
+    assertThat(DelegatingProvider.unwrap(resilient)).isSameAs(provider);
+
+    serverConfiguration.removeProviderResilience("User");
+
+    assertThat(providerRegistry.getProvider(ScimUser.class)).isSameAs(provider);
+  }
+
+  @Test
+  public void testUniquenessIsCheckedWhenEnabled() throws Exception {
+    ServerConfiguration serverConfiguration = new ServerConfiguration();
+    providerRegistry.serverConfiguration = serverConfiguration;
+    providerRegistry.registerProvider(ScimUser.class, providerInstance);
+
+    assertThat(providerRegistry.getProvider(ScimUser.class)).isSameAs(provider);
+
+    serverConfiguration.setUniquenessIndexEnabled(true);
+    Provider<ScimUser> checked = providerRegistry.getProvider(ScimUser.class);
+
+    assertThat(checked).isInstanceOf(UniquenessCheckingProvider.class);
+    assertThat(((UniquenessCheckingProvider<ScimUser>) checked).getUniquenessIndex()).isSameAs(providerRegistry.getUniquenessIndex());
+  }
+
 }
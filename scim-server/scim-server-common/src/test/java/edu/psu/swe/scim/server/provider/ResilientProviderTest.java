@@ -0,0 +1,238 @@
+/*
+* Licensed to the Apache Software Foundation (ASF) under one
+* or more contributor license agreements.  See the NOTICE file
+* distributed with this work for additional information
+* regarding copyright ownership.  The ASF licenses this file
+* to you under the Apache License, Version 2.0 (the
+* "License"); you may not use this file except in compliance
+* with the License.  You may obtain a copy of the License at
+ 
+* http://www.apache.org/licenses/LICENSE-2.0
+
+* Unless required by applicable law or agreed to in writing,
+* software distributed under the License is distributed on an
+* "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+* KIND, either express or implied.  See the License for the
+* specific language governing permissions and limitations
+* under the License.
+*/
+
+package edu.psu.swe.scim.server.provider;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verifyZeroInteractions;
+import static org.mockito.Mockito.when;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.ws.rs.core.Response.Status;
+
+import org.junit.After;
+import org.junit.Test;
+
+import edu.psu.swe.scim.server.configuration.ServerConfiguration.ResilienceConfiguration;
+import edu.psu.swe.scim.server.exception.UnableToRetrieveResourceException;
+import edu.psu.swe.scim.spec.resources.ScimUser;
+
+public class ResilientProviderTest {
+
+  ExecutorService executor = Executors.newCachedThreadPool();
+
+  AtomicLong ticker = new AtomicLong();
+
+  AtomicInteger calls = new AtomicInteger();
+
+  @After
+  public void shutdown() {
+    executor.shutdownNow();
+  }
+
+  @Test
+  public void testCircuitOpensAfterRepeatedFailures() throws Exception {
+    Status[] outcome = { Status.INTERNAL_SERVER_ERROR };
+    ResilientProvider<ScimUser> resilientProvider = createProvider(id -> {
+      if (outcome[0] != null) {
+        throw new UnableToRetrieveResourceException(outcome[0], "Backend failed");
+      }
+      return new ScimUser();
+    }, new ResilienceConfiguration(1, Duration.ZERO, null, 2, Duration.ofSeconds(30)), null);
+    CircuitBreaker circuitBreaker = resilientProvider.getResilience()
+                                                     .getCircuitBreaker();
+
+    assertStatus(resilientProvider, Status.INTERNAL_SERVER_ERROR);
+    assertStatus(resilientProvider, Status.INTERNAL_SERVER_ERROR);
+    assertThat(circuitBreaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+
+    assertStatus(resilientProvider, Status.SERVICE_UNAVAILABLE);
+    assertThat(calls.get()).isEqualTo(2);
+
+    ticker.addAndGet(Duration.ofSeconds(30)
+                             .toNanos());
+    outcome[0] = null;
+
+    assertThat(resilientProvider.get("1")).isNotNull();
+    assertThat(circuitBreaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+  }
+
+  @Test
+  public void testClientErrorsDoNotOpenTheCircuit() throws Exception {
+    ResilientProvider<ScimUser> resilientProvider = createProvider(id -> {
+      throw new UnableToRetrieveResourceException(Status.NOT_FOUND, "No resource " + id);
+    }, new ResilienceConfiguration(1, Duration.ZERO, null, 1, Duration.ofSeconds(30)), null);
+
+    assertStatus(resilientProvider, Status.NOT_FOUND);
+    assertStatus(resilientProvider, Status.NOT_FOUND);
+
+    assertThat(resilientProvider.getResilience()
+                                .getCircuitBreaker()
+                                .getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+  }
+
+  @Test
+  public void testSlowCallsMissTheirDeadlineAndKeepTheirPermit() throws Exception {
+    CountDownLatch release = new CountDownLatch(1);
+    ResilientProvider<ScimUser> resilientProvider = createProvider(id -> {
+      // A stalled backend does not respond to the interrupt of the cancelled call
+      boolean released = false;
+      while (!released) {
+        try {
+          released = release.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+          // Keep waiting
+        }
+      }
+      return new ScimUser();
+    }, new ResilienceConfiguration(1, Duration.ZERO, Duration.ofMillis(50), 5, Duration.ofSeconds(30)), executor);
+    ConcurrencyLimitingProvider.Limiter bulkhead = resilientProvider.getResilience()
+                                                                    .getBulkhead();
+
+    assertStatus(resilientProvider, Status.GATEWAY_TIMEOUT);
+    assertThat(bulkhead.getActiveCalls()).isEqualTo(1);
+
+    assertStatus(resilientProvider, Status.SERVICE_UNAVAILABLE);
+    assertThat(calls.get()).isEqualTo(1);
+
+    release.countDown();
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+    while (bulkhead.getActiveCalls() > 0 && System.nanoTime() < deadline) {
+      Thread.sleep(1);
+    }
+    assertThat(bulkhead.getActiveCalls()).isEqualTo(0);
+  }
+
+  @Test
+  public void testDeadlineOfAsyncProviderIsAppliedOnTheCallingThread() throws Exception {
+    @SuppressWarnings("unchecked")
+    AsyncProvider<ScimUser> asyncProvider = mock(AsyncProvider.class);
+    Thread[] caller = new Thread[1];
+    when(asyncProvider.get("1")).thenAnswer(invocation -> {
+      caller[0] = Thread.currentThread();
+      return new CompletableFuture<ScimUser>();
+    });
+    ResilienceConfiguration configuration = new ResilienceConfiguration(1, Duration.ZERO, Duration.ofMillis(50), 5, Duration.ofSeconds(30));
+    ExecutorService unused = mock(ExecutorService.class);
+    ResilientProvider<ScimUser> resilientProvider = new ResilientProvider<>(new AsyncProviderAdapter<>(asyncProvider, configuration.getTimeout()), new ResilientProvider.Resilience(configuration), unused);
+
+    assertStatus(resilientProvider, Status.GATEWAY_TIMEOUT);
+
+    assertThat(caller[0]).isSameAs(Thread.currentThread());
+    verifyZeroInteractions(unused);
+    assertThat(resilientProvider.getResilience()
+                                .getBulkhead()
+                                .getActiveCalls()).isEqualTo(0);
+  }
+
+  @Test
+  public void testBulkheadRejectsCallsOverTheLimit() throws Exception {
+    CountDownLatch started = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    ResilientProvider<ScimUser> resilientProvider = createProvider(id -> {
+      started.countDown();
+      release.await(10, TimeUnit.SECONDS);
+      return new ScimUser();
+    }, new ResilienceConfiguration(1, Duration.ofMillis(10), null, 5, Duration.ofSeconds(30)), null);
+
+    Future<ScimUser> running = executor.submit(() -> resilientProvider.get("1"));
+    assertThat(started.await(10, TimeUnit.SECONDS)).isTrue();
+
+    assertStatus(resilientProvider, Status.SERVICE_UNAVAILABLE);
+
+    release.countDown();
+    assertThat(running.get(10, TimeUnit.SECONDS)).isNotNull();
+    assertThat(resilientProvider.get("2")).isNotNull();
+  }
+
+  @Test
+  public void testLateSuccessDoesNotCloseAnOpenCircuit() {
+    CircuitBreaker circuitBreaker = new CircuitBreaker(1, Duration.ofSeconds(30), ticker::get);
+    long slow = circuitBreaker.tryAcquire();
+
+    circuitBreaker.onFailure(circuitBreaker.tryAcquire());
+    assertThat(circuitBreaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+
+    circuitBreaker.onSuccess(slow);
+    assertThat(circuitBreaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+    assertThat(circuitBreaker.tryAcquire()).isEqualTo(CircuitBreaker.NO_PERMIT);
+  }
+
+  @Test
+  public void testLateFailureDoesNotEndTheTrial() {
+    CircuitBreaker circuitBreaker = new CircuitBreaker(1, Duration.ofSeconds(30), ticker::get);
+    long slow = circuitBreaker.tryAcquire();
+
+    circuitBreaker.onFailure(circuitBreaker.tryAcquire());
+    ticker.addAndGet(Duration.ofSeconds(30)
+                             .toNanos());
+    long trial = circuitBreaker.tryAcquire();
+    assertThat(trial).isNotEqualTo(CircuitBreaker.NO_PERMIT);
+    assertThat(circuitBreaker.getState()).isEqualTo(CircuitBreaker.State.HALF_OPEN);
+
+    circuitBreaker.onFailure(slow);
+    assertThat(circuitBreaker.getState()).isEqualTo(CircuitBreaker.State.HALF_OPEN);
+    assertThat(circuitBreaker.tryAcquire()).isEqualTo(CircuitBreaker.NO_PERMIT);
+
+    circuitBreaker.onSuccess(trial);
+    assertThat(circuitBreaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+  }
+
+  private ResilientProvider<ScimUser> createProvider(Get get, ResilienceConfiguration configuration, ExecutorService executorService) {
+    Provider<ScimUser> provider = new DelegatingProvider<ScimUser>(null) {
+      @Override
+      public ScimUser get(String id) throws UnableToRetrieveResourceException {
+        calls.incrementAndGet();
+        try {
+          return get.get(id);
+        } catch (InterruptedException e) {
+          Thread.currentThread()
+                .interrupt();
+          throw new UnableToRetrieveResourceException(Status.INTERNAL_SERVER_ERROR, "Interrupted");
+        }
+      }
+    };
+    CircuitBreaker circuitBreaker = new CircuitBreaker(configuration.getFailureThreshold(), configuration.getOpenDuration(), ticker::get);
+    return new ResilientProvider<>(provider, new ResilientProvider.Resilience(configuration, circuitBreaker), executorService);
+  }
+
+  private static void assertStatus(Provider<ScimUser> provider, Status status) {
+    try {
+      provider.get("1");
+      fail("Expected the call to fail with " + status);
+    } catch (UnableToRetrieveResourceException e) {
+      assertThat(e.getStatus()).isEqualTo(status);
+    }
+  }
+
+  private interface Get {
+    ScimUser get(String id) throws UnableToRetrieveResourceException, InterruptedException;
+  }
+}
@@ -0,0 +1,232 @@
+/*
+* Licensed to the Apache Software Foundation (ASF) under one
+* or more contributor license agreements.  See the NOTICE file
+* distributed with this work for additional information
+* regarding copyright ownership.  The ASF licenses this file
+* to you under the Apache License, Version 2.0 (the
+* "License"); you may not use this file except in compliance
+* with the License.  You may obtain a copy of the License at
+ 
+* http://www.apache.org/licenses/LICENSE-2.0
+
+* Unless required by applicable law or agreed to in writing,
+* software distributed under the License is distributed on an
+* "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+* KIND, either express or implied.  See the License for the
+* specific language governing permissions and limitations
+* under the License.
+*/
+
+package edu.psu.swe.scim.server.provider;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.ws.rs.core.Response.Status;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import edu.psu.swe.scim.common.ScimUtils;
+import edu.psu.swe.scim.server.exception.UnableToCreateResourceException;
+import edu.psu.swe.scim.server.exception.UnableToDeleteResourceException;
+import edu.psu.swe.scim.server.exception.UnableToUpdateResourceException;
+import edu.psu.swe.scim.server.schema.Registry;
+import edu.psu.swe.scim.spec.resources.BaseResource;
+import edu.psu.swe.scim.spec.resources.ScimUser;
+import edu.psu.swe.scim.spec.schema.Schema.Attribute;
+import edu.psu.swe.scim.spec.schema.Schema.Attribute.Uniqueness;
+
+public class UniquenessCheckingProviderTest {
+
+  Registry registry = new Registry();
+
+  InMemoryUniquenessIndex uniquenessIndex = new InMemoryUniquenessIndex();
+
+  Map<String, ScimUser> users = new HashMap<>();
+
+  AtomicInteger creates = new AtomicInteger();
+
+  AtomicInteger patches = new AtomicInteger();
+
+  boolean failCreates;
+
+  UniquenessCheckingProvider<ScimUser> uniquenessCheckingProvider;
+
+  ProviderRegistry providerRegistry;
+
+  @Before
+  public void initialize() throws Exception {
+    registry.addSchema(ProviderRegistry.generateSchema(ScimUser.class, ScimUtils.getFieldsUpTo(ScimUser.class, BaseResource.class)));
+    providerRegistry = new ProviderRegistry(registry, null);
+
+    uniquenessCheckingProvider = createProvider("User", users, providerRegistry.getUniqueAttributes(ScimUser.class));
+  }
+
+  @Test
+  public void testUserNameIsTheUniqueAttributeOfUsers() {
+    ProviderRegistry providerRegistry = new ProviderRegistry(registry, null);
+
+    assertThat(providerRegistry.getUniqueAttributes(ScimUser.class)).extracting(Attribute::getName)
+                                                                     .containsExactly("userName");
+  }
+
+  @Test
+  public void testConflictingCreateIsRejectedWithoutCallingTheProvider() throws Exception {
+    uniquenessCheckingProvider.create(user("bjensen"));
+
+    try {
+      uniquenessCheckingProvider.create(user("BJensen"));
+      fail("Expected a conflict");
+    } catch (UnableToCreateResourceException e) {
+      assertThat(e.getStatus()).isEqualTo(Status.CONFLICT);
+      assertThat(e.getMessage()).contains("userName");
+    }
+    assertThat(creates.get()).isEqualTo(1);
+  }
+
+  @Test
+  public void testFailedCreateReleasesItsValues() throws Exception {
+    failCreates = true;
+    try {
+      uniquenessCheckingProvider.create(user("bjensen"));
+      fail("Expected the create to fail");
+    } catch (UnableToCreateResourceException e) {
+      assertThat(e.getStatus()).isEqualTo(Status.INTERNAL_SERVER_ERROR);
+    }
+    assertThat(uniquenessIndex.size()).isEqualTo(0);
+
+    failCreates = false;
+    assertThat(uniquenessCheckingProvider.create(user("bjensen"))
+                                         .getId()).isEqualTo("1");
+  }
+
+  @Test
+  public void testUpdateMovesTheResourcesValue() throws Exception {
+    ScimUser first = uniquenessCheckingProvider.create(user("bjensen"));
+    ScimUser second = uniquenessCheckingProvider.create(user("jsmith"));
+
+    try {
+      uniquenessCheckingProvider.update(updateRequest(second, user("bjensen")));
+      fail("Expected a conflict");
+    } catch (UnableToUpdateResourceException e) {
+      assertThat(e.getStatus()).isEqualTo(Status.CONFLICT);
+    }
+
+    uniquenessCheckingProvider.update(updateRequest(first, user("babs")));
+    uniquenessCheckingProvider.update(updateRequest(second, user("bjensen")));
+
+    assertThat(uniquenessIndex.size()).isEqualTo(2);
+    assertThat(users.get(second.getId())
+                    .getUserName()).isEqualTo("bjensen");
+  }
+
+  @Test
+  public void testPatchIsLeftToTheProvider() throws Exception {
+    ScimUser created = uniquenessCheckingProvider.create(user("bjensen"));
+    UpdateRequest<ScimUser> updateRequest = new UpdateRequest<>(registry);
+    updateRequest.initWithPatch(created.getId(), created, Collections.emptyList());
+
+    assertThat(uniquenessCheckingProvider.update(updateRequest)).isSameAs(created);
+    assertThat(patches.get()).isEqualTo(1);
+    assertThat(uniquenessIndex.size()).isEqualTo(1);
+  }
+
+  @Test
+  public void testDeleteReleasesTheResourcesValues() throws Exception {
+    ScimUser created = uniquenessCheckingProvider.create(user("bjensen"));
+
+    uniquenessCheckingProvider.delete(created.getId());
+
+    assertThat(uniquenessIndex.size()).isEqualTo(0);
+    assertThat(uniquenessCheckingProvider.create(user("bjensen"))).isNotNull();
+  }
+
+  @Test
+  public void testResourcesOfDifferentTypesMayShareAnId() throws Exception {
+    Attribute userName = providerRegistry.getUniqueAttributes(ScimUser.class)
+                                         .get(0);
+    Attribute globalUserName = new Attribute();
+    globalUserName.setUrn(userName.getUrn());
+    globalUserName.setName(userName.getName());
+    globalUserName.setAccessor(userName.getAccessor());
+    globalUserName.setUniqueness(Uniqueness.GLOBAL);
+    List<Attribute> uniqueAttributes = Collections.singletonList(globalUserName);
+    UniquenessCheckingProvider<ScimUser> userProvider = createProvider("User", users, uniqueAttributes);
+    UniquenessCheckingProvider<ScimUser> accountProvider = createProvider("Account", new HashMap<>(), uniqueAttributes);
+
+    ScimUser user = userProvider.create(user("bjensen"));
+    ScimUser account = accountProvider.create(user("admin"));
+    assertThat(account.getId()).isEqualTo(user.getId());
+
+    try {
+      accountProvider.create(user("BJensen"));
+      fail("Expected a conflict");
+    } catch (UnableToCreateResourceException e) {
+      assertThat(e.getStatus()).isEqualTo(Status.CONFLICT);
+    }
+
+    accountProvider.update(updateRequest(account, user("root")));
+    assertThat(uniquenessIndex.size()).isEqualTo(2);
+
+    accountProvider.delete(account.getId());
+    assertThat(uniquenessIndex.size()).isEqualTo(1);
+    try {
+      accountProvider.create(user("bjensen"));
+      fail("Expected a conflict");
+    } catch (UnableToCreateResourceException e) {
+      assertThat(e.getStatus()).isEqualTo(Status.CONFLICT);
+    }
+  }
+
+  private UniquenessCheckingProvider<ScimUser> createProvider(String resourceTypeName, Map<String, ScimUser> store, List<Attribute> uniqueAttributes) {
+    Provider<ScimUser> provider = new DelegatingProvider<ScimUser>(null) {
+      @Override
+      public ScimUser create(ScimUser resource) throws UnableToCreateResourceException {
+        creates.incrementAndGet();
+        if (failCreates) {
+          throw new UnableToCreateResourceException(Status.INTERNAL_SERVER_ERROR, "Backend failed");
+        }
+        resource.setId(Integer.toString(store.size() + 1));
+        store.put(resource.getId(), resource);
+        return resource;
+      }
+
+      @Override
+      public ScimUser update(UpdateRequest<ScimUser> updateRequest) {
+        if (updateRequest.isPatch()) {
+          patches.incrementAndGet();
+          return updateRequest.getOriginal();
+        }
+        ScimUser resource = updateRequest.getResource();
+        store.put(updateRequest.getId(), resource);
+        return resource;
+      }
+
+      @Override
+      public void delete(String id) {
+        store.remove(id);
+      }
+    };
+    return new UniquenessCheckingProvider<>(provider, uniquenessIndex, resourceTypeName, uniqueAttributes);
+  }
+
+  private UpdateRequest<ScimUser> updateRequest(ScimUser original, ScimUser resource) {
+    resource.setId(original.getId());
+    UpdateRequest<ScimUser> updateRequest = new UpdateRequest<>(registry);
+    updateRequest.initWithResource(original.getId(), original, resource);
+    return updateRequest;
+  }
+
+  private static ScimUser user(String userName) {
+    ScimUser user = new ScimUser();
+    user.setUserName(userName);
+    return user;
+  }
+}
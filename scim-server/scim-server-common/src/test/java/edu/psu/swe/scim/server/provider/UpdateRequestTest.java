@@ -23,6 +23,8 @@ import static org.junit.Assert.assertEquals;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
 import java.util.List;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
@@ -68,6 +70,7 @@ import edu.psu.swe.scim.spec.resources.PhoneNumber;
 import edu.psu.swe.scim.spec.resources.PhoneNumber.GlobalPhoneNumberBuilder;
 import edu.psu.swe.scim.spec.resources.Photo;
 import edu.psu.swe.scim.spec.resources.ScimUser;
+import edu.psu.swe.scim.spec.schema.Schema;
 
 @Slf4j
 @RunWith(JUnitParamsRunner.class)
@@ -130,6 +133,21 @@ public class UpdateRequestTest {
               .isNotNull();
   }
 
+  @Test
+  public void testIsPatch() throws Exception {
+    UpdateRequest<ScimUser> updateRequest = new UpdateRequest<>(registry);
+    updateRequest.initWithPatch("1234", createUser1(), createUser1PatchOps());
+    Assertions.assertThat(updateRequest.isPatch())
+              .isTrue();
+
+    updateRequest.initWithResource("1234", createUser1(), createUser1());
+    Assertions.assertThat(updateRequest.isPatch())
+              .isFalse();
+    updateRequest.getPatchOperations();
+    Assertions.assertThat(updateRequest.isPatch())
+              .isFalse();
+  }
+
   @Test(expected=UnsupportedOperationException.class)
   public void testPatchToUpdate() throws Exception {
     UpdateRequest<ScimUser> updateRequest = new UpdateRequest<>(registry);
@@ -138,6 +156,72 @@ public class UpdateRequestTest {
     updateRequest.getResource();
   }
 
+  @Test
+  public void testUnchangedResourceHasNoChangedAttributes() throws Exception {
+    UpdateRequest<ScimUser> updateRequest = new UpdateRequest<>(registry);
+    updateRequest.initWithResource("1234", createUser1(), createUser1());
+
+    Assertions.assertThat(updateRequest.getChangedAttributes()
+                                       .isEmpty())
+              .isTrue();
+    Assertions.assertThat(updateRequest.isChanged())
+              .isFalse();
+  }
+
+  @Test
+  public void testChangedAttributesOfResource() throws Exception {
+    UpdateRequest<ScimUser> updateRequest = new UpdateRequest<>(registry);
+
+    ScimUser user1 = createUser1();
+    ScimUser user2 = copy(user1);
+    user2.setNickName("Jon");
+    user2.getName()
+         .setFormatted("John X. Anyman");
+    user2.getExtension(EnterpriseExtension.class)
+         .setDepartment("Dept XYZ.");
+    updateRequest.initWithResource("1234", user1, user2);
+
+    Assertions.assertThat(updateRequest.getChangedAttributes())
+              .isEqualTo(ordinals(ScimUser.SCHEMA_URI, "nickName", "name"));
+    Assertions.assertThat(updateRequest.getChangedAttributes(EnterpriseExtension.URN))
+              .isEqualTo(ordinals(EnterpriseExtension.URN, "department"));
+    Assertions.assertThat(updateRequest.getChangedAttributes(ExampleObjectExtension.URN)
+                                       .isEmpty())
+              .isTrue();
+    Assertions.assertThat(updateRequest.isChanged())
+              .isTrue();
+  }
+
+  @Test
+  public void testReorderedMultiValuedAttributesAreNotChanged() throws Exception {
+    UpdateRequest<ScimUser> updateRequest = new UpdateRequest<>(registry);
+
+    ScimUser user1 = createUser1();
+    ScimUser user2 = copy(user1);
+    Collections.reverse(user2.getAddresses());
+    Collections.reverse(user2.getEmails());
+    user2.getEmails()
+         .stream()
+         .filter(e -> e.getType()
+                       .equals("work"))
+         .forEach(e -> e.setValue("nobody@example.com"));
+    updateRequest.initWithResource("1234", user1, user2);
+
+    Assertions.assertThat(updateRequest.getChangedAttributes())
+              .isEqualTo(ordinals(ScimUser.SCHEMA_URI, "emails"));
+  }
+
+  @Test
+  public void testChangedAttributesOfPatch() throws Exception {
+    UpdateRequest<ScimUser> updateRequest = new UpdateRequest<>(registry);
+    updateRequest.initWithPatch("1234", createUser1(), createUser1PatchOps());
+
+    Assertions.assertThat(updateRequest.getChangedAttributes())
+              .isEqualTo(ordinals(ScimUser.SCHEMA_URI, "phoneNumbers"));
+    Assertions.assertThat(updateRequest.isChanged())
+              .isTrue();
+  }
+
   @Test
   public void testAddSingleAttribute() throws Exception {
     UpdateRequest<ScimUser> updateRequest = new UpdateRequest<>(registry);
@@ -340,6 +424,62 @@ public class UpdateRequestTest {
     checkAssertions(actual, Type.REPLACE, "emails[type EQ \"work\"].value", "nobody@example.com");
   }
 
+  @Test
+  public void testReorderedMultiValuedAttributeIsUnchanged() throws Exception {
+    UpdateRequest<ScimUser> updateRequest = new UpdateRequest<>(registry);
+
+    ScimUser user1 = createUser1();
+    ScimUser user2 = copy(user1);
+    Collections.reverse(user2.getEmails());
+    Collections.reverse(user2.getAddresses());
+
+    updateRequest.initWithResource("1234", user1, user2);
+    List<PatchOperation> result = updateRequest.getPatchOperations();
+
+    Assertions.assertThat(result)
+              .isEmpty();
+  }
+
+  @Test
+  public void testMultiValuedAttributesAreNotReordered() throws Exception {
+    UpdateRequest<ScimUser> updateRequest = new UpdateRequest<>(registry);
+
+    ScimUser user1 = createUser1();
+    ScimUser user2 = copy(user1);
+    Collections.reverse(user2.getEmails());
+    List<Email> originalEmails = new ArrayList<>(user1.getEmails());
+    List<Email> resourceEmails = new ArrayList<>(user2.getEmails());
+
+    updateRequest.initWithResource("1234", user1, user2);
+    updateRequest.getPatchOperations();
+
+    Assertions.assertThat(user1.getEmails())
+              .containsExactlyElementsOf(originalEmails);
+    Assertions.assertThat(user2.getEmails())
+              .containsExactlyElementsOf(resourceEmails);
+  }
+
+  @Test
+  public void testReplaceMultiValuedAttributeMatchedByType() throws Exception {
+    UpdateRequest<ScimUser> updateRequest = new UpdateRequest<>(registry);
+
+    ScimUser user1 = createUser1();
+    ScimUser user2 = copy(user1);
+    Collections.reverse(user2.getPhoneNumbers());
+    user2.getPhoneNumbers()
+         .stream()
+         .filter(p -> p.getType()
+                       .equals("home"))
+         .forEach(p -> p.setPrimary(false));
+
+    updateRequest.initWithResource("1234", user1, user2);
+    List<PatchOperation> result = updateRequest.getPatchOperations();
+
+    PatchOperation actual = assertSingleResult(result);
+
+    checkAssertions(actual, Type.REPLACE, "phoneNumbers[type EQ \"home\"].primary", false);
+  }
+
   @Test
   public void testRemoveSingleAttribute() throws Exception {
     UpdateRequest<ScimUser> updateRequest = new UpdateRequest<>(registry);
@@ -867,6 +1007,16 @@ public class UpdateRequestTest {
 //    Assert.assertNotEquals(expectedNumberOfOperationsWithoutBug, operations.size());
   }
 
+  private BitSet ordinals(String schemaUrn, String... attributeNames) {
+    Schema schema = registry.getSchema(schemaUrn);
+    BitSet ordinals = new BitSet();
+    for (String attributeName : attributeNames) {
+      ordinals.set(schema.getAttributes()
+                         .indexOf(schema.getAttribute(attributeName)));
+    }
+    return ordinals;
+  }
+
   private PatchOperation assertSingleResult(List<PatchOperation> result) {
     Assertions.assertThat(result)
               .isNotNull();
@@ -34,6 +34,7 @@ import org.junit.Test;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 
+import edu.psu.swe.scim.server.configuration.ServerConfiguration;
 import edu.psu.swe.scim.server.exception.ScimServerException;
 import edu.psu.swe.scim.server.provider.Provider;
 import edu.psu.swe.scim.server.utility.ExampleObjectExtension;
@@ -41,10 +42,12 @@ import edu.psu.swe.scim.server.utility.ExampleObjectExtension.ComplexObject;
 import edu.psu.swe.scim.spec.extension.EnterpriseExtension;
 import edu.psu.swe.scim.spec.extension.EnterpriseExtension.Manager;
 import edu.psu.swe.scim.spec.phonenumber.PhoneNumberParseException;
+import edu.psu.swe.scim.spec.protocol.attribute.AttributeReference;
 import edu.psu.swe.scim.spec.protocol.attribute.AttributeReferenceListWrapper;
 import edu.psu.swe.scim.spec.protocol.data.ErrorResponse;
 import edu.psu.swe.scim.spec.protocol.data.PatchRequest;
 import edu.psu.swe.scim.spec.protocol.data.SearchRequest;
+import edu.psu.swe.scim.spec.protocol.search.SortRequest;
 import edu.psu.swe.scim.spec.resources.Address;
 import edu.psu.swe.scim.spec.resources.Name;
 import edu.psu.swe.scim.spec.resources.PhoneNumber;
@@ -216,6 +219,23 @@ public class BaseResourceTypeResourceImplTest {
     assertTrue(((ErrorResponse)response.getEntity()).getDetail().equals("Cannot include both attributes and excluded attributes in a single request"));
   }
   
+  @Test
+  public void testIsPagedByServer_OnlyWhenSortedByServer() {
+    // given
+    ServerConfiguration serverConfiguration = new ServerConfiguration();
+    SortRequest sortRequest = new SortRequest();
+    sortRequest.setSortBy(new AttributeReference("userName"));
+    
+    // then
+    assertFalse(BaseResourceTypeResourceImpl.isPagedByServer(serverConfiguration, sortRequest));
+    
+    serverConfiguration.setSupportsSort(true);
+    
+    assertTrue(BaseResourceTypeResourceImpl.isPagedByServer(serverConfiguration, sortRequest));
+    assertFalse(BaseResourceTypeResourceImpl.isPagedByServer(serverConfiguration, new SortRequest()));
+    assertFalse(BaseResourceTypeResourceImpl.isPagedByServer(serverConfiguration, null));
+  }
+  
   private ScimUser getScimUser() throws PhoneNumberParseException {
     ScimUser user = new ScimUser();
 
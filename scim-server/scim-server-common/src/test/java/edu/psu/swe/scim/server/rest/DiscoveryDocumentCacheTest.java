@@ -0,0 +1,147 @@
+/*
+* Licensed to the Apache Software Foundation (ASF) under one
+* or more contributor license agreements.  See the NOTICE file
+* distributed with this work for additional information
+* regarding copyright ownership.  The ASF licenses this file
+* to you under the Apache License, Version 2.0 (the
+* "License"); you may not use this file except in compliance
+* with the License.  You may obtain a copy of the License at
+ 
+* http://www.apache.org/licenses/LICENSE-2.0
+
+* Unless required by applicable law or agreed to in writing,
+* software distributed under the License is distributed on an
+* "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+* KIND, either express or implied.  See the License for the
+* specific language governing permissions and limitations
+* under the License.
+*/
+
+package edu.psu.swe.scim.server.rest;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.net.URI;
+
+import javax.ws.rs.core.EntityTag;
+import javax.ws.rs.core.Request;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.Response.Status;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import edu.psu.swe.scim.server.configuration.ServerConfiguration;
+import edu.psu.swe.scim.server.rest.DiscoveryDocumentCache.RenderedDocument;
+import edu.psu.swe.scim.server.schema.Registry;
+import edu.psu.swe.scim.server.utility.EndpointPrefixCache;
+import edu.psu.swe.scim.server.utility.EtagGenerator;
+import edu.psu.swe.scim.spec.json.ObjectMapperFactory;
+import edu.psu.swe.scim.spec.resources.ScimGroup;
+import edu.psu.swe.scim.spec.resources.ScimUser;
+import edu.psu.swe.scim.spec.schema.ResourceType;
+import edu.psu.swe.scim.spec.schema.Schema;
+
+public class DiscoveryDocumentCacheTest {
+
+  private static final URI BASE_URI = URI.create("https://example.com/scim/v2/");
+
+  Registry registry;
+
+  DiscoveryDocumentCache discoveryDocumentCache;
+
+  @Before
+  public void setup() throws Exception {
+    registry = new Registry();
+    registry.addSchema(schema(ScimUser.SCHEMA_URI, "User"));
+    registry.addResourceType(resourceType("User", "/Users", ScimUser.SCHEMA_URI));
+
+    discoveryDocumentCache = new DiscoveryDocumentCache(registry, new EndpointPrefixCache(registry), new EtagGenerator());
+  }
+
+  @Test
+  public void testMetaIsRenderedWithoutChangingTheRegistry() throws Exception {
+    JsonNode schemas = read(discoveryDocumentCache.getAllSchemas(BASE_URI));
+    JsonNode schema = read(discoveryDocumentCache.getSchema(BASE_URI, ScimUser.SCHEMA_URI));
+    JsonNode resourceTypes = read(discoveryDocumentCache.getAllResourceTypes(BASE_URI));
+
+    assertThat(schemas.get("totalResults").asInt()).isEqualTo(1);
+    assertThat(schemas.get("Resources").get(0)).isEqualTo(schema);
+    assertThat(schema.get("meta").get("location").asText()).isEqualTo("https://example.com/scim/v2/Schemas/" + ScimUser.SCHEMA_URI);
+    assertThat(resourceTypes.get("Resources").get(0).get("meta").get("location").asText()).isEqualTo("https://example.com/scim/v2/ResourceTypes/User");
+    assertThat(discoveryDocumentCache.getSchema(BASE_URI, "urn:unknown")).isNull();
+
+    assertThat(registry.getSchema(ScimUser.SCHEMA_URI).getMeta()).isNull();
+    assertThat(registry.getResourceType("User").getMeta()).isNull();
+  }
+
+  @Test
+  public void testDocumentsAreRenderedAgainWhenTheRegistryChanges() throws Exception {
+    RenderedDocument resourceTypes = discoveryDocumentCache.getAllResourceTypes(BASE_URI);
+
+    assertThat(discoveryDocumentCache.getAllResourceTypes(BASE_URI)).isSameAs(resourceTypes);
+
+    registry.addResourceType(resourceType("Group", "/Groups", ScimGroup.SCHEMA_URI));
+    RenderedDocument updated = discoveryDocumentCache.getAllResourceTypes(BASE_URI);
+
+    assertThat(updated).isNotSameAs(resourceTypes);
+    assertThat(updated.getEtag()).isNotEqualTo(resourceTypes.getEtag());
+    assertThat(read(updated).get("totalResults").asInt()).isEqualTo(2);
+  }
+
+  @Test
+  public void testServiceProviderConfigurationIsRenderedAgainWhenTheConfigurationChanges() throws Exception {
+    ServerConfiguration serverConfiguration = new ServerConfiguration();
+    RenderedDocument document = discoveryDocumentCache.getServiceProviderConfiguration(BASE_URI, serverConfiguration);
+
+    assertThat(discoveryDocumentCache.getServiceProviderConfiguration(BASE_URI, serverConfiguration)).isSameAs(document);
+    assertThat(read(document).get("meta").get("location").asText()).isEqualTo("https://example.com/scim/v2/ServiceProviderConfig");
+
+    serverConfiguration.setDocumentationUri("https://example.com/docs");
+    RenderedDocument updated = discoveryDocumentCache.getServiceProviderConfiguration(BASE_URI, serverConfiguration);
+
+    assertThat(updated).isNotSameAs(document);
+    assertThat(read(updated).get("documentationUrl").asText()).isEqualTo("https://example.com/docs");
+  }
+
+  @Test
+  public void testNotModifiedWhenTheEtagMatches() throws Exception {
+    RenderedDocument document = discoveryDocumentCache.getAllSchemas(BASE_URI);
+    EntityTag etag = document.getEtag();
+    Request request = mock(Request.class);
+    when(request.evaluatePreconditions(etag)).thenReturn(Response.notModified(etag));
+
+    assertThat(document.toResponse(request)
+                       .getStatus()).isEqualTo(Status.NOT_MODIFIED.getStatusCode());
+
+    Response response = document.toResponse(mock(Request.class));
+    assertThat(response.getStatus()).isEqualTo(Status.OK.getStatusCode());
+    assertThat(response.getEntity()).isSameAs(document.getBody());
+    assertThat(response.getEntityTag()).isEqualTo(etag);
+    assertThat(etag.isWeak()).isFalse();
+  }
+
+  private static JsonNode read(RenderedDocument document) throws Exception {
+    return ObjectMapperFactory.getObjectMapper()
+                              .readTree(document.getBody());
+  }
+
+  private static Schema schema(String id, String name) {
+    Schema schema = new Schema();
+    schema.setId(id);
+    schema.setName(name);
+    return schema;
+  }
+
+  private static ResourceType resourceType(String name, String endpoint, String schemaUrn) {
+    ResourceType resourceType = new ResourceType();
+    resourceType.setName(name);
+    resourceType.setEndpoint(endpoint);
+    resourceType.setSchemaUrn(schemaUrn);
+    return resourceType;
+  }
+}
@@ -0,0 +1,98 @@
+/*
+* Licensed to the Apache Software Foundation (ASF) under one
+* or more contributor license agreements.  See the NOTICE file
+* distributed with this work for additional information
+* regarding copyright ownership.  The ASF licenses this file
+* to you under the Apache License, Version 2.0 (the
+* "License"); you may not use this file except in compliance
+* with the License.  You may obtain a copy of the License at
+ 
+* http://www.apache.org/licenses/LICENSE-2.0
+
+* Unless required by applicable law or agreed to in writing,
+* software distributed under the License is distributed on an
+* "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+* KIND, either express or implied.  See the License for the
+* specific language governing permissions and limitations
+* under the License.
+*/
+
+package edu.psu.swe.scim.server.rest;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import edu.psu.swe.scim.server.schema.Registry;
+import edu.psu.swe.scim.spec.extension.EnterpriseExtension;
+import edu.psu.swe.scim.spec.extension.ScimExtensionRegistry;
+import edu.psu.swe.scim.spec.resources.ScimGroup;
+import edu.psu.swe.scim.spec.resources.ScimResource;
+import edu.psu.swe.scim.spec.resources.ScimUser;
+
+public class ScimResourceDeserializerTest {
+
+  ObjectMapper objectMapper;
+
+  @Before
+  public void setup() {
+    Registry registry = new Registry();
+    registry.addScimResourceSchemaUrn(ScimUser.SCHEMA_URI, ScimUser.class);
+    registry.addScimResourceSchemaUrn(ScimGroup.SCHEMA_URI, ScimGroup.class);
+    objectMapper = new ObjectMapperContextResolver(registry).getContext(null);
+  }
+
+  @Test
+  public void testSchemasBeforeAttributes() throws Exception {
+    String json = "{\"schemas\":[\"" + ScimUser.SCHEMA_URI + "\"],\"userName\":\"bjensen\",\"name\":{\"givenName\":\"Barbara\"}}";
+
+    ScimResource resource = objectMapper.readValue(json, ScimResource.class);
+
+    assertThat(resource).isInstanceOf(ScimUser.class);
+    ScimUser user = (ScimUser) resource;
+    assertThat(user.getUserName()).isEqualTo("bjensen");
+    assertThat(user.getName().getGivenName()).isEqualTo("Barbara");
+    assertThat(user.getSchemas()).containsExactly(ScimUser.SCHEMA_URI);
+  }
+
+  @Test
+  public void testSchemasAfterAttributes() throws Exception {
+    String json = "{\"displayName\":\"Tour Guides\",\"members\":[{\"value\":\"2819c223\"}],\"schemas\":[\"urn:example:unknown\",\"" + ScimGroup.SCHEMA_URI + "\"],\"externalId\":\"tg\"}";
+
+    ScimResource resource = objectMapper.readValue(json, ScimResource.class);
+
+    assertThat(resource).isInstanceOf(ScimGroup.class);
+    ScimGroup group = (ScimGroup) resource;
+    assertThat(group.getDisplayName()).isEqualTo("Tour Guides");
+    assertThat(group.getMembers()).hasSize(1);
+    assertThat(group.getExternalId()).isEqualTo("tg");
+  }
+
+  @Test
+  public void testExtensionsAreBound() throws Exception {
+    ScimExtensionRegistry.getInstance().registerExtension(ScimUser.class, EnterpriseExtension.class);
+    String json = "{\"schemas\":[\"" + ScimUser.SCHEMA_URI + "\",\"" + EnterpriseExtension.URN + "\"],\"userName\":\"bjensen\",\"" + EnterpriseExtension.URN + "\":{\"employeeNumber\":\"701984\"}}";
+
+    for (int i = 0; i < 2; i++) {
+      ScimUser user = (ScimUser) objectMapper.readValue(json, ScimResource.class);
+
+      EnterpriseExtension extension = user.getExtension(EnterpriseExtension.class);
+      assertThat(extension).isNotNull();
+      assertThat(extension.getEmployeeNumber()).isEqualTo("701984");
+    }
+  }
+
+  @Test(expected = JsonParseException.class)
+  public void testUnknownSchemaIsRejected() throws Exception {
+    objectMapper.readValue("{\"schemas\":[\"urn:example:unknown\"],\"userName\":\"bjensen\"}", ScimResource.class);
+  }
+
+  @Test(expected = JsonParseException.class)
+  public void testMissingSchemasIsRejected() throws Exception {
+    objectMapper.readValue("{\"userName\":\"bjensen\"}", ScimResource.class);
+  }
+}
@@ -0,0 +1,215 @@
+/*
+* Licensed to the Apache Software Foundation (ASF) under one
+* or more contributor license agreements.  See the NOTICE file
+* distributed with this work for additional information
+* regarding copyright ownership.  The ASF licenses this file
+* to you under the Apache License, Version 2.0 (the
+* "License"); you may not use this file except in compliance
+* with the License.  You may obtain a copy of the License at
+
+* http://www.apache.org/licenses/LICENSE-2.0
+
+* Unless required by applicable law or agreed to in writing,
+* software distributed under the License is distributed on an
+* "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+* KIND, either express or implied.  See the License for the
+* specific language governing permissions and limitations
+* under the License.
+*/
+
+package edu.psu.swe.scim.server.rest;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+
+import javax.enterprise.inject.Instance;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.Response.Status;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.MockitoJUnit;
+import org.mockito.junit.MockitoRule;
+
+import edu.psu.swe.scim.server.configuration.ServerConfiguration;
+import edu.psu.swe.scim.server.exception.UnableToRetrieveResourceException;
+import edu.psu.swe.scim.server.provider.Provider;
+import edu.psu.swe.scim.server.provider.ProviderRegistry;
+import edu.psu.swe.scim.server.schema.Registry;
+import edu.psu.swe.scim.server.utility.AttributeUtil;
+import edu.psu.swe.scim.server.utility.FilterCostAnalyzer;
+import edu.psu.swe.scim.server.utility.ProviderExecutor;
+import edu.psu.swe.scim.server.utility.SortUtil;
+import edu.psu.swe.scim.spec.protocol.ErrorMessageType;
+import edu.psu.swe.scim.spec.protocol.attribute.AttributeReference;
+import edu.psu.swe.scim.spec.protocol.data.ErrorResponse;
+import edu.psu.swe.scim.spec.protocol.data.ListResponse;
+import edu.psu.swe.scim.spec.protocol.data.SearchRequest;
+import edu.psu.swe.scim.spec.protocol.filter.FilterResponse;
+import edu.psu.swe.scim.spec.protocol.search.Filter;
+import edu.psu.swe.scim.spec.protocol.search.SortOrder;
+import edu.psu.swe.scim.spec.resources.ScimGroup;
+import edu.psu.swe.scim.spec.resources.ScimResource;
+import edu.psu.swe.scim.spec.resources.ScimUser;
+
+public class SearchResourceImplTest {
+
+  @Rule
+  public MockitoRule mockito = MockitoJUnit.rule();
+
+  @Mock
+  Instance<Provider<ScimUser>> userProviderInstance;
+
+  @Mock
+  Provider<ScimUser> userProvider;
+
+  @Mock
+  Instance<Provider<ScimGroup>> groupProviderInstance;
+
+  @Mock
+  Provider<ScimGroup> groupProvider;
+
+  @Spy
+  Registry registry = new Registry();
+
+  @InjectMocks
+  AttributeUtil attributeUtil;
+
+  @InjectMocks
+  SortUtil sortUtil;
+
+  @Spy
+  ServerConfiguration serverConfiguration = new ServerConfiguration();
+
+  @InjectMocks
+  FilterCostAnalyzer filterCostAnalyzer;
+
+  ExecutorService executorService;
+
+  SearchResourceImpl searchResource;
+
+  @Before
+  public void setup() throws Exception {
+    when(userProviderInstance.get()).thenReturn(userProvider);
+    when(groupProviderInstance.get()).thenReturn(groupProvider);
+
+    ProviderRegistry providerRegistry = new ProviderRegistry();
+    providerRegistry.setRegistry(registry);
+    providerRegistry.registerProvider(ScimUser.class, userProviderInstance);
+    providerRegistry.registerProvider(ScimGroup.class, groupProviderInstance);
+
+    executorService = Executors.newFixedThreadPool(2);
+
+    searchResource = new SearchResourceImpl();
+    searchResource.registry = registry;
+    searchResource.providerRegistry = providerRegistry;
+    searchResource.attributeUtil = attributeUtil;
+    searchResource.sortUtil = sortUtil;
+    searchResource.filterCostAnalyzer = filterCostAnalyzer;
+    searchResource.providerExecutor = new ProviderExecutor(new ServerConfiguration(), executorService);
+  }
+
+  @After
+  public void shutdown() {
+    executorService.shutdownNow();
+  }
+
+  @Test
+  public void testResultsAreMergedAcrossResourceTypes() throws Exception {
+    when(userProvider.find(any(), any(), any())).thenReturn(new FilterResponse<>(Arrays.asList(user("u1", "Charlie"), user("u2", "alpha")), null, 2));
+    when(groupProvider.find(any(), any(), any())).thenReturn(new FilterResponse<>(Arrays.asList(group("g1", "bravo"), group("g2", "delta")), null, 2));
+
+    SearchRequest request = new SearchRequest();
+    request.setSortBy(new AttributeReference("displayName"));
+    request.setSortOrder(SortOrder.ASCENDING);
+    request.setStartIndex(2);
+    request.setCount(2);
+
+    Response response = searchResource.find(request);
+
+    assertThat(response.getStatus()).isEqualTo(Status.OK.getStatusCode());
+    ListResponse<ScimResource> listResponse = listResponse(response);
+    assertThat(listResponse.getTotalResults()).isEqualTo(4);
+    assertThat(listResponse.getStartIndex()).isEqualTo(2);
+    assertThat(ids(listResponse)).containsExactly("g1", "u1");
+  }
+
+  @Test
+  public void testResourceTypesThatCannotMatchTheFilterAreSkipped() throws Exception {
+    when(userProvider.find(any(), any(), any())).thenReturn(new FilterResponse<>(Arrays.asList(user("u1", "Charlie")), null, 1));
+
+    SearchRequest request = new SearchRequest();
+    request.setFilter(new Filter("userName eq \"charlie\""));
+
+    Response response = searchResource.find(request);
+
+    assertThat(response.getStatus()).isEqualTo(Status.OK.getStatusCode());
+    assertThat(ids(listResponse(response))).containsExactly("u1");
+    verify(groupProvider, never()).find(any(), any(), any());
+  }
+
+  @Test
+  public void testProviderExceptionIsReturned() throws Exception {
+    when(userProvider.find(any(), any(), any())).thenThrow(new UnableToRetrieveResourceException(Status.SERVICE_UNAVAILABLE, "unavailable"));
+    when(groupProvider.find(any(), any(), any())).thenReturn(new FilterResponse<>(Arrays.asList(group("g1", "bravo")), null, 1));
+
+    Response response = searchResource.find(new SearchRequest());
+
+    assertThat(response.getStatus()).isEqualTo(Status.SERVICE_UNAVAILABLE.getStatusCode());
+  }
+
+  @Test
+  public void testExpensiveFilterIsRejected() throws Exception {
+    serverConfiguration.setFilterMaxTerms(2);
+
+    SearchRequest request = new SearchRequest();
+    request.setFilter(new Filter("userName eq \"a\" or userName eq \"b\" or userName eq \"c\""));
+
+    Response response = searchResource.find(request);
+
+    assertThat(response.getStatus()).isEqualTo(Status.BAD_REQUEST.getStatusCode());
+    assertThat(((ErrorResponse) response.getEntity()).getScimType()).isEqualTo(ErrorMessageType.TOO_MANY);
+    verify(userProvider, never()).find(any(), any(), any());
+  }
+
+  @SuppressWarnings("unchecked")
+  private static ListResponse<ScimResource> listResponse(Response response) {
+    return (ListResponse<ScimResource>) response.getEntity();
+  }
+
+  private static List<String> ids(ListResponse<ScimResource> listResponse) {
+    return listResponse.getResources()
+                       .stream()
+                       .map(ScimResource::getId)
+                       .collect(Collectors.toList());
+  }
+
+  private static ScimUser user(String id, String displayName) {
+    ScimUser user = new ScimUser();
+    user.setId(id);
+    user.setUserName(displayName.toLowerCase());
+    user.setDisplayName(displayName);
+    return user;
+  }
+
+  private static ScimGroup group(String id, String displayName) {
+    ScimGroup group = new ScimGroup();
+    group.setId(id);
+    group.setDisplayName(displayName);
+    return group;
+  }
+}
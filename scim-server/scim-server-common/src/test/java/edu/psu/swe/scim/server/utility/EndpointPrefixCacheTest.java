@@ -0,0 +1,87 @@
+/*
+* Licensed to the Apache Software Foundation (ASF) under one
+* or more contributor license agreements.  See the NOTICE file
+* distributed with this work for additional information
+* regarding copyright ownership.  The ASF licenses this file
+* to you under the Apache License, Version 2.0 (the
+* "License"); you may not use this file except in compliance
+* with the License.  You may obtain a copy of the License at
+ 
+* http://www.apache.org/licenses/LICENSE-2.0
+
+* Unless required by applicable law or agreed to in writing,
+* software distributed under the License is distributed on an
+* "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+* KIND, either express or implied.  See the License for the
+* specific language governing permissions and limitations
+* under the License.
+*/
+
+package edu.psu.swe.scim.server.utility;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.net.URI;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import edu.psu.swe.scim.server.schema.Registry;
+import edu.psu.swe.scim.server.utility.EndpointPrefixCache.EndpointPrefixes;
+import edu.psu.swe.scim.spec.resources.ScimGroup;
+import edu.psu.swe.scim.spec.resources.ScimUser;
+
+public class EndpointPrefixCacheTest {
+
+  private static final URI BASE_URI = URI.create("https://example.com/scim/v2/");
+
+  Registry registry;
+
+  EndpointPrefixCache endpointPrefixCache;
+
+  @Before
+  public void setup() {
+    registry = new Registry();
+    registry.addScimResourceEndPoint("/Users", ScimUser.class);
+    endpointPrefixCache = new EndpointPrefixCache(registry);
+  }
+
+  @Test
+  public void testLocationsAreBuiltFromTheRegisteredEndpoint() {
+    EndpointPrefixes prefixes = endpointPrefixCache.getPrefixes(BASE_URI);
+
+    assertThat(prefixes.getPrefix(ScimUser.class)).isEqualTo("https://example.com/scim/v2/Users");
+    assertThat(prefixes.getLocation(ScimUser.class, "2819c223")).isEqualTo("https://example.com/scim/v2/Users/2819c223");
+    assertThat(prefixes.getLocation(ScimGroup.class, "2819c223")).isNull();
+    assertThat(prefixes.getLocation("Schemas", "urn:ietf:params:scim:schemas:core:2.0:User")).isEqualTo("https://example.com/scim/v2/Schemas/urn:ietf:params:scim:schemas:core:2.0:User");
+  }
+
+  @Test
+  public void testIdsThatNeedEncodingAreEncoded() {
+    EndpointPrefixes prefixes = endpointPrefixCache.getPrefixes(BASE_URI);
+
+    assertThat(prefixes.getLocation(ScimUser.class, "a b/c")).isEqualTo("https://example.com/scim/v2/Users/a%20b%2Fc");
+  }
+
+  @Test
+  public void testPrefixesAreReusedUntilTheRegistryChanges() {
+    EndpointPrefixes prefixes = endpointPrefixCache.getPrefixes(BASE_URI);
+
+    assertThat(endpointPrefixCache.getPrefixes(BASE_URI)).isSameAs(prefixes);
+
+    registry.addScimResourceEndPoint("/Groups", ScimGroup.class);
+    EndpointPrefixes updated = endpointPrefixCache.getPrefixes(BASE_URI);
+
+    assertThat(updated).isNotSameAs(prefixes);
+    assertThat(updated.getPrefix(ScimGroup.class)).isEqualTo("https://example.com/scim/v2/Groups");
+  }
+
+  @Test
+  public void testNumberOfBaseUrisIsBounded() {
+    for (int i = 0; i < EndpointPrefixCache.MAXIMUM_BASE_URIS * 2; i++) {
+      endpointPrefixCache.getPrefixes(URI.create("https://host" + i + ".example.com/"));
+    }
+
+    assertThat(endpointPrefixCache.size()).isLessThanOrEqualTo(EndpointPrefixCache.MAXIMUM_BASE_URIS);
+  }
+}
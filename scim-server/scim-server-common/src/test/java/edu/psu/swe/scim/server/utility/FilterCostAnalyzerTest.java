@@ -0,0 +1,135 @@
+/*
+* Licensed to the Apache Software Foundation (ASF) under one
+* or more contributor license agreements.  See the NOTICE file
+* distributed with this work for additional information
+* regarding copyright ownership.  The ASF licenses this file
+* to you under the Apache License, Version 2.0 (the
+* "License"); you may not use this file except in compliance
+* with the License.  You may obtain a copy of the License at
+
+* http://www.apache.org/licenses/LICENSE-2.0
+
+* Unless required by applicable law or agreed to in writing,
+* software distributed under the License is distributed on an
+* "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+* KIND, either express or implied.  See the License for the
+* specific language governing permissions and limitations
+* under the License.
+*/
+
+package edu.psu.swe.scim.server.utility;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+
+import java.util.Collections;
+
+import javax.ws.rs.core.Response.Status;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import edu.psu.swe.scim.server.configuration.ServerConfiguration;
+import edu.psu.swe.scim.server.exception.ScimServerException;
+import edu.psu.swe.scim.server.utility.FilterCostAnalyzer.FilterCost;
+import edu.psu.swe.scim.spec.protocol.ErrorMessageType;
+import edu.psu.swe.scim.spec.protocol.search.Filter;
+
+public class FilterCostAnalyzerTest {
+
+  FilterCostAnalyzer filterCostAnalyzer;
+
+  ServerConfiguration serverConfiguration;
+
+  @Before
+  public void setup() {
+    serverConfiguration = new ServerConfiguration();
+    filterCostAnalyzer = new FilterCostAnalyzer();
+    filterCostAnalyzer.serverConfiguration = serverConfiguration;
+  }
+
+  @Test
+  public void testCostOfSimpleFilter() throws Exception {
+    FilterCost cost = FilterCostAnalyzer.analyze(new Filter("userName eq \"bjensen\"").getExpression(), Collections.emptySet());
+
+    assertThat(cost.getTerms()).isEqualTo(1);
+    assertThat(cost.getDepth()).isEqualTo(1);
+    assertThat(cost.getUnindexedContains()).isEqualTo(0);
+  }
+
+  @Test
+  public void testCostOfCompoundFilter() throws Exception {
+    Filter filter = new Filter("title pr and (emails[type eq \"work\" and value co \"@example.com\"] or userName co \"b\")");
+
+    FilterCost cost = FilterCostAnalyzer.analyze(filter.getExpression(), Collections.emptySet());
+
+    assertThat(cost.getTerms()).isEqualTo(4);
+    assertThat(cost.getUnindexedContains()).isEqualTo(2);
+    assertThat(cost.getDepth()).isGreaterThan(2);
+  }
+
+  @Test
+  public void testIndexedAttributesAreNotCountedAsContains() throws Exception {
+    serverConfiguration.addIndexedAttribute("userName");
+    Filter filter = new Filter("userName co \"b\" or displayName co \"b\"");
+
+    FilterCost cost = FilterCostAnalyzer.analyze(filter.getExpression(), serverConfiguration.getIndexedAttributes());
+
+    assertThat(cost.getUnindexedContains()).isEqualTo(1);
+  }
+
+  @Test
+  public void testFilterWithinLimitsIsAccepted() throws Exception {
+    filterCostAnalyzer.checkFilter(new Filter("userName eq \"a\" or userName eq \"b\""));
+    filterCostAnalyzer.checkFilter(null);
+  }
+
+  @Test
+  public void testTooManyTermsIsRejected() throws Exception {
+    serverConfiguration.setFilterMaxTerms(2);
+
+    assertTooMany(new Filter("userName eq \"a\" or userName eq \"b\" or userName eq \"c\""));
+  }
+
+  @Test
+  public void testTooDeepIsRejected() throws Exception {
+    serverConfiguration.setFilterMaxDepth(3);
+
+    assertTooMany(new Filter("((((userName eq \"a\"))))"));
+  }
+
+  @Test
+  public void testChainOfTermsIsNotNested() throws Exception {
+    StringBuilder filter = new StringBuilder("userName eq \"user0\"");
+    for (int i = 1; i <= serverConfiguration.getFilterMaxDepth(); i++) {
+      filter.append(" or userName eq \"user")
+            .append(i)
+            .append("\"");
+    }
+
+    FilterCost cost = FilterCostAnalyzer.analyze(new Filter(filter.toString()).getExpression(), Collections.emptySet());
+
+    assertThat(cost.getTerms()).isEqualTo(serverConfiguration.getFilterMaxDepth() + 1);
+    assertThat(cost.getDepth()).isEqualTo(1);
+    filterCostAnalyzer.checkFilter(new Filter(filter.toString()));
+  }
+
+  @Test
+  public void testTooManyContainsIsRejected() throws Exception {
+    serverConfiguration.setFilterMaxUnindexedContains(1);
+
+    assertTooMany(new Filter("userName co \"a\" and displayName co \"b\""));
+  }
+
+  private void assertTooMany(Filter filter) {
+    try {
+      filterCostAnalyzer.checkFilter(filter);
+      fail("Expected the filter to be rejected");
+    } catch (ScimServerException e) {
+      assertThat(e.getErrorResponse()
+                  .getStatus()).isEqualTo(Status.BAD_REQUEST);
+      assertThat(e.getErrorResponse()
+                  .getScimType()).isEqualTo(ErrorMessageType.TOO_MANY);
+    }
+  }
+}
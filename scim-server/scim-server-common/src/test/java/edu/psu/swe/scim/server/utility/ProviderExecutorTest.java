@@ -0,0 +1,200 @@
+/*
+* Licensed to the Apache Software Foundation (ASF) under one
+* or more contributor license agreements.  See the NOTICE file
+* distributed with this work for additional information
+* regarding copyright ownership.  The ASF licenses this file
+* to you under the Apache License, Version 2.0 (the
+* "License"); you may not use this file except in compliance
+* with the License.  You may obtain a copy of the License at
+ 
+* http://www.apache.org/licenses/LICENSE-2.0
+
+* Unless required by applicable law or agreed to in writing,
+* software distributed under the License is distributed on an
+* "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+* KIND, either express or implied.  See the License for the
+* specific language governing permissions and limitations
+* under the License.
+*/
+
+package edu.psu.swe.scim.server.utility;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import javax.enterprise.concurrent.ContextService;
+import javax.ws.rs.core.Response.Status;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import edu.psu.swe.scim.server.configuration.ServerConfiguration;
+import edu.psu.swe.scim.server.configuration.ServerConfiguration.ProviderExecution;
+import edu.psu.swe.scim.server.exception.UnableToRetrieveResourceException;
+import edu.psu.swe.scim.server.provider.Provider;
+import edu.psu.swe.scim.spec.resources.ScimUser;
+
+public class ProviderExecutorTest {
+
+  static final ThreadLocal<String> CALLER = new ThreadLocal<>();
+
+  ServerConfiguration serverConfiguration;
+
+  ExecutorService managedExecutorService;
+
+  ProviderExecutor providerExecutor;
+
+  @Before
+  public void initialize() {
+    serverConfiguration = new ServerConfiguration();
+    managedExecutorService = Executors.newFixedThreadPool(2);
+    providerExecutor = new ProviderExecutor(serverConfiguration, managedExecutorService);
+  }
+
+  @After
+  public void shutdown() {
+    providerExecutor.shutdown();
+    managedExecutorService.shutdownNow();
+  }
+
+  @Test
+  public void testExecutorFollowsConfiguration() {
+    assertThat(providerExecutor.getExecutorService()).isSameAs(managedExecutorService);
+    assertThat(providerExecutor.isConcurrentBulk()).isFalse();
+
+    serverConfiguration.setProviderExecution(ProviderExecution.CALLING_THREAD);
+
+    assertThat(providerExecutor.getExecutorService()).isNull();
+  }
+
+  @Test
+  public void testVirtualThreadsFallBackToManagedExecutor() {
+    providerExecutor = new ProviderExecutor(serverConfiguration, managedExecutorService, new ThreadLocalContextService());
+    serverConfiguration.setProviderExecution(ProviderExecution.VIRTUAL_THREADS);
+
+    ExecutorService executorService = providerExecutor.getExecutorService();
+
+    if (ProviderExecutor.createVirtualThreadExecutorService() == null) {
+      assertThat(executorService).isSameAs(managedExecutorService);
+    } else {
+      assertThat(executorService).isNotSameAs(managedExecutorService);
+    }
+    assertThat(providerExecutor.isConcurrentBulk()).isTrue();
+  }
+
+  @Test
+  public void testVirtualThreadsNeedAContextService() {
+    providerExecutor = new ProviderExecutor(serverConfiguration, managedExecutorService, null, Executors::newCachedThreadPool);
+    serverConfiguration.setProviderExecution(ProviderExecution.VIRTUAL_THREADS);
+
+    assertThat(providerExecutor.getExecutorService()).isSameAs(managedExecutorService);
+  }
+
+  @Test
+  public void testVirtualThreadsRunWithTheContextOfTheCaller() throws Exception {
+    @SuppressWarnings("unchecked")
+    Provider<ScimUser> provider = mock(Provider.class);
+    when(provider.get("1")).thenAnswer(invocation -> {
+      if (CALLER.get() == null) {
+        throw new UnableToRetrieveResourceException(Status.UNAUTHORIZED, "No caller");
+      }
+      ScimUser user = new ScimUser();
+      user.setUserName(CALLER.get());
+      return user;
+    });
+    providerExecutor = new ProviderExecutor(serverConfiguration, managedExecutorService, new ThreadLocalContextService(), Executors::newCachedThreadPool);
+    serverConfiguration.setProviderExecution(ProviderExecution.VIRTUAL_THREADS);
+    List<Callable<ScimUser>> calls = Arrays.asList(() -> provider.get("1"), () -> provider.get("1"));
+
+    CALLER.set("bjensen");
+    try {
+      List<ScimUser> users = providerExecutor.invokeAll(calls);
+
+      assertThat(users).extracting(ScimUser::getUserName)
+                       .containsExactly("bjensen", "bjensen");
+    } finally {
+      CALLER.remove();
+    }
+  }
+
+  @Test
+  public void testResultsAreReturnedInOrder() throws Exception {
+    List<Callable<String>> calls = Arrays.asList(() -> "a", () -> "b", () -> "c");
+
+    assertThat(providerExecutor.invokeAll(calls)).containsExactly("a", "b", "c");
+
+    serverConfiguration.setProviderExecution(ProviderExecution.CALLING_THREAD);
+
+    assertThat(providerExecutor.invokeAll(calls)).containsExactly("a", "b", "c");
+  }
+
+  @Test
+  public void testExceptionOfCallIsRethrown() throws Exception {
+    List<Callable<String>> calls = Arrays.asList(() -> "a", () -> {
+      throw new IllegalStateException("failed");
+    });
+
+    try {
+      providerExecutor.invokeAll(calls);
+      fail("Expected the exception of the call");
+    } catch (IllegalStateException e) {
+      assertThat(e).hasMessage("failed");
+    }
+  }
+
+  /**
+   * Stands in for the container's context service, the context being the
+   * caller held by {@link #CALLER}.
+   */
+  static class ThreadLocalContextService implements ContextService {
+
+    @Override
+    public <T> T createContextualProxy(T instance, Class<T> intf) {
+      return intf.cast(createContextualProxy(instance, Collections.emptyMap(), new Class<?>[] { intf }));
+    }
+
+    @Override
+    public Object createContextualProxy(Object instance, Class<?>... interfaces) {
+      return createContextualProxy(instance, Collections.emptyMap(), interfaces);
+    }
+
+    @Override
+    public <T> T createContextualProxy(T instance, Map<String, String> executionProperties, Class<T> intf) {
+      return intf.cast(createContextualProxy(instance, executionProperties, new Class<?>[] { intf }));
+    }
+
+    @Override
+    public Object createContextualProxy(Object instance, Map<String, String> executionProperties, Class<?>... interfaces) {
+      String caller = CALLER.get();
+      return Proxy.newProxyInstance(getClass().getClassLoader(), interfaces, (proxy, method, args) -> {
+        String previous = CALLER.get();
+        CALLER.set(caller);
+        try {
+          return method.invoke(instance, args);
+        } catch (InvocationTargetException e) {
+          throw e.getCause();
+        } finally {
+          CALLER.set(previous);
+        }
+      });
+    }
+
+    @Override
+    public Map<String, String> getExecutionProperties(Object contextualProxy) {
+      return Collections.emptyMap();
+    }
+  }
+}
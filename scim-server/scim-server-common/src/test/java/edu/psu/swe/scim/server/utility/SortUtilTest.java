@@ -0,0 +1,256 @@
+/*
+* Licensed to the Apache Software Foundation (ASF) under one
+* or more contributor license agreements.  See the NOTICE file
+* distributed with this work for additional information
+* regarding copyright ownership.  The ASF licenses this file
+* to you under the Apache License, Version 2.0 (the
+* "License"); you may not use this file except in compliance
+* with the License.  You may obtain a copy of the License at
+
+* http://www.apache.org/licenses/LICENSE-2.0
+
+* Unless required by applicable law or agreed to in writing,
+* software distributed under the License is distributed on an
+* "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+* KIND, either express or implied.  See the License for the
+* specific language governing permissions and limitations
+* under the License.
+*/
+
+package edu.psu.swe.scim.server.utility;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.MockitoJUnit;
+import org.mockito.junit.MockitoRule;
+
+import edu.psu.swe.scim.common.ScimUtils;
+import edu.psu.swe.scim.server.exception.AttributeDoesNotExistException;
+import edu.psu.swe.scim.server.provider.ProviderRegistry;
+import edu.psu.swe.scim.server.schema.Registry;
+import edu.psu.swe.scim.spec.extension.EnterpriseExtension;
+import edu.psu.swe.scim.spec.protocol.attribute.AttributeReference;
+import edu.psu.swe.scim.spec.protocol.search.PageRequest;
+import edu.psu.swe.scim.spec.protocol.search.SortOrder;
+import edu.psu.swe.scim.spec.protocol.search.SortRequest;
+import edu.psu.swe.scim.spec.resources.BaseResource;
+import edu.psu.swe.scim.spec.resources.Email;
+import edu.psu.swe.scim.spec.resources.ScimUser;
+import edu.psu.swe.scim.spec.schema.Schema;
+
+public class SortUtilTest {
+
+  @Rule
+  public MockitoRule mockito = MockitoJUnit.rule();
+
+  @Mock
+  Registry registry;
+
+  SortUtil sortUtil;
+
+  Schema scimUserSchema;
+
+  @Before
+  public void setup() throws Exception {
+    sortUtil = new SortUtil();
+    sortUtil.registry = registry;
+    scimUserSchema = ProviderRegistry.generateSchema(ScimUser.class, ScimUtils.getFieldsUpTo(ScimUser.class, BaseResource.class));
+    Schema scimEnterpriseUserSchema = ProviderRegistry.generateSchema(EnterpriseExtension.class, ScimUtils.getFieldsUpTo(EnterpriseExtension.class, Object.class));
+
+    Mockito.when(registry.getSchema(ScimUser.SCHEMA_URI)).thenReturn(scimUserSchema);
+    Mockito.when(registry.getSchema(EnterpriseExtension.URN)).thenReturn(scimEnterpriseUserSchema);
+  }
+
+  @Test
+  public void testSortIgnoresCaseByDefault() throws Exception {
+    List<ScimUser> users = Arrays.asList(user("1", "charlie"), user("2", "Bravo"), user("3", "alpha"));
+
+    List<ScimUser> sorted = sortUtil.sort(users, sortRequest("userName", SortOrder.ASCENDING), null);
+
+    assertThat(ids(sorted)).containsExactly("3", "2", "1");
+  }
+
+  @Test
+  public void testSortHonorsCaseExact() throws Exception {
+    scimUserSchema.getAttribute("userName")
+                  .setCaseExact(true);
+    List<ScimUser> users = Arrays.asList(user("1", "charlie"), user("2", "Bravo"), user("3", "alpha"));
+
+    List<ScimUser> sorted = sortUtil.sort(users, sortRequest("userName", SortOrder.ASCENDING), null);
+
+    assertThat(ids(sorted)).containsExactly("2", "3", "1");
+  }
+
+  @Test
+  public void testDescendingSort() throws Exception {
+    List<ScimUser> users = Arrays.asList(user("1", "charlie"), user("2", "bravo"), user("3", "alpha"));
+
+    List<ScimUser> sorted = sortUtil.sort(users, sortRequest("userName", SortOrder.DESCENDING), null);
+
+    assertThat(ids(sorted)).containsExactly("1", "2", "3");
+  }
+
+  @Test
+  public void testMissingValuesSortLast() throws Exception {
+    List<ScimUser> users = Arrays.asList(user("1", null), user("2", "bravo"), user("3", "alpha"));
+
+    List<ScimUser> sorted = sortUtil.sort(users, sortRequest("userName", SortOrder.ASCENDING), null);
+
+    assertThat(ids(sorted)).containsExactly("3", "2", "1");
+  }
+
+  @Test
+  public void testMissingValuesSortLastWhenDescending() throws Exception {
+    List<ScimUser> users = Arrays.asList(user("1", null), user("2", "alpha"), user("3", "bravo"), user("4", null));
+
+    List<ScimUser> sorted = sortUtil.sort(users, sortRequest("userName", SortOrder.DESCENDING), null);
+
+    assertThat(ids(sorted)).containsExactly("3", "2", "1", "4");
+  }
+
+  @Test
+  public void testDescendingPageKeepsMissingValuesLast() throws Exception {
+    List<ScimUser> users = Arrays.asList(user("1", null), user("2", "alpha"), user("3", "bravo"), user("4", "charlie"));
+    PageRequest pageRequest = new PageRequest();
+    pageRequest.setStartIndex(3);
+    pageRequest.setCount(2);
+
+    List<ScimUser> sorted = sortUtil.sort(users, sortRequest("userName", SortOrder.DESCENDING), pageRequest);
+
+    assertThat(ids(sorted)).containsExactly("2", "1");
+  }
+
+  @Test
+  public void testMultiValuedSortsOnPrimaryValue() throws Exception {
+    ScimUser first = user("1", "a");
+    first.setEmails(Arrays.asList(email("a@example.com", false), email("z@example.com", true)));
+    ScimUser second = user("2", "b");
+    second.setEmails(Arrays.asList(email("m@example.com", false)));
+
+    List<ScimUser> sorted = sortUtil.sort(Arrays.asList(first, second), sortRequest("emails", SortOrder.ASCENDING), null);
+
+    assertThat(ids(sorted)).containsExactly("2", "1");
+  }
+
+  @Test
+  public void testSortOnSubAttribute() throws Exception {
+    ScimUser first = user("1", "a");
+    first.setEmails(Arrays.asList(email("a@example.com", true)));
+    first.getEmails().get(0).setType("work");
+    ScimUser second = user("2", "b");
+    second.setEmails(Arrays.asList(email("m@example.com", true)));
+    second.getEmails().get(0).setType("home");
+
+    List<ScimUser> sorted = sortUtil.sort(Arrays.asList(first, second), sortRequest("emails.type", SortOrder.ASCENDING), null);
+
+    assertThat(ids(sorted)).containsExactly("2", "1");
+  }
+
+  @Test
+  public void testSortOnExtensionAttribute() throws Exception {
+    ScimUser first = user("1", "a");
+    EnterpriseExtension firstExtension = new EnterpriseExtension();
+    firstExtension.setCostCenter("200");
+    first.addExtension(firstExtension);
+    ScimUser second = user("2", "b");
+    EnterpriseExtension secondExtension = new EnterpriseExtension();
+    secondExtension.setCostCenter("100");
+    second.addExtension(secondExtension);
+    ScimUser third = user("3", "c");
+
+    List<ScimUser> sorted = sortUtil.sort(Arrays.asList(first, second, third), sortRequest(EnterpriseExtension.URN + ":costCenter", SortOrder.ASCENDING), null);
+
+    assertThat(ids(sorted)).containsExactly("2", "1", "3");
+  }
+
+  @Test(expected = AttributeDoesNotExistException.class)
+  public void testUnknownAttributeThrows() throws Exception {
+    sortUtil.sort(Arrays.asList(user("1", "a")), sortRequest("doesNotExist", SortOrder.ASCENDING), null);
+  }
+
+  @Test
+  public void testPageMatchesFullSort() throws Exception {
+    List<ScimUser> users = new ArrayList<>();
+    for (int i = 0; i < 50; i++) {
+      users.add(user(Integer.toString(i), "user" + ((i * 37) % 50)));
+    }
+    List<String> expected = ids(sortUtil.sort(users, sortRequest("userName", SortOrder.ASCENDING), null));
+
+    PageRequest pageRequest = new PageRequest();
+    pageRequest.setStartIndex(11);
+    pageRequest.setCount(10);
+    List<ScimUser> page = sortUtil.sort(users, sortRequest("userName", SortOrder.ASCENDING), pageRequest);
+
+    assertThat(ids(page)).isEqualTo(expected.subList(10, 20));
+  }
+
+  @Test
+  public void testPageBeyondEndIsEmpty() throws Exception {
+    PageRequest pageRequest = new PageRequest();
+    pageRequest.setStartIndex(5);
+    pageRequest.setCount(10);
+
+    List<ScimUser> page = sortUtil.sort(Arrays.asList(user("1", "a"), user("2", "b")), sortRequest("userName", SortOrder.ASCENDING), pageRequest);
+
+    assertThat(page).isEmpty();
+  }
+
+  @Test
+  public void testPageWithComparator() {
+    PageRequest pageRequest = new PageRequest();
+    pageRequest.setCount(2);
+
+    List<String> page = SortUtil.page(Arrays.asList("d", "b", "c", "a"), Collections.reverseOrder(), pageRequest);
+
+    assertThat(page).containsExactly("d", "c");
+  }
+
+  @Test
+  public void testMergeOfSortedSources() {
+    PageRequest pageRequest = new PageRequest();
+    pageRequest.setStartIndex(3);
+    pageRequest.setCount(3);
+
+    List<Integer> page = SortUtil.merge(Arrays.asList(Arrays.asList(1, 4, 7), Arrays.asList(2, 5), Arrays.asList(3, 6, 8)), Integer::compare, pageRequest);
+
+    assertThat(page).containsExactly(3, 4, 5);
+  }
+
+  private static SortRequest sortRequest(String attribute, SortOrder sortOrder) {
+    SortRequest sortRequest = new SortRequest();
+    sortRequest.setSortBy(new AttributeReference(attribute));
+    sortRequest.setSortOrder(sortOrder);
+    return sortRequest;
+  }
+
+  private static ScimUser user(String id, String userName) {
+    ScimUser user = new ScimUser();
+    user.setId(id);
+    user.setUserName(userName);
+    return user;
+  }
+
+  private static Email email(String value, boolean primary) {
+    Email email = new Email();
+    email.setValue(value);
+    email.setPrimary(primary);
+    return email;
+  }
+
+  private static List<String> ids(List<ScimUser> users) {
+    return users.stream()
+                .map(ScimUser::getId)
+                .collect(Collectors.toList());
+  }
+}
@@ -19,14 +19,11 @@
 
 package edu.psu.swe.scim.spec.protocol.filter;
 
-import java.text.SimpleDateFormat;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
 import java.util.Date;
 
-import org.apache.commons.lang3.StringEscapeUtils;
-
+import edu.psu.swe.scim.spec.adapter.Iso8601DateTimeCodec;
 import edu.psu.swe.scim.spec.protocol.attribute.AttributeReference;
 import lombok.Value;
 
@@ -35,42 +32,31 @@ public class AttributeComparisonExpression implements FilterExpression, ValueFil
   AttributeReference attributePath;
   CompareOperator operation;
   Object compareValue;
-  
-  private static final String ISO_8601_DATE_FORMAT = "yyyy-MM-dd";
-  private static final String ISO_8601_DATE_TIME_FORMAT = "yyyy-MM-dd'T'HH:mm:ss.SS";
-  private static final String QUOTE = "\"";
 
   @Override
   public String toFilter() {
-    String filter = this.attributePath.getFullyQualifiedAttributeName() + " " + this.operation + " " + this.createCompareValueString();
-
-    return filter;
+    return FilterRenderer.toFilter(this);
   }
 
   @Override
   public String toUnqualifiedFilter() {
-    String subAttributeName = this.attributePath.getSubAttributeName();
-    String unqualifiedAttributeName = subAttributeName != null ? subAttributeName : this.attributePath.getAttributeName();
-
-    return unqualifiedAttributeName + " " + operation + " " + this.createCompareValueString();
+    return FilterRenderer.toUnqualifiedFilter(this);
   }
 
   public static String toDateString(Date date) {
-    SimpleDateFormat dateFormat = new SimpleDateFormat(ISO_8601_DATE_FORMAT);
-    return dateFormat.format(date);
+    return Iso8601DateTimeCodec.toDateString(date);
   }
   
   public static String toDateTimeString(Date date) {
-    SimpleDateFormat dateTimeFormat = new SimpleDateFormat(ISO_8601_DATE_TIME_FORMAT);
-    return dateTimeFormat.format(date);
+    return Iso8601DateTimeCodec.toDateTimeString(date);
   }
   
   public static String toDateString(LocalDate ld) {
-    return ld.format(DateTimeFormatter.ISO_DATE);
+    return Iso8601DateTimeCodec.toDateString(ld);
   }
   
   public static String toDateTimeString(LocalDateTime ldt) {
-    return ldt.format(DateTimeFormatter.ISO_DATE_TIME);
+    return Iso8601DateTimeCodec.toDateTimeString(ldt);
   }
 
   @Override
@@ -80,30 +66,4 @@ public class AttributeComparisonExpression implements FilterExpression, ValueFil
     this.attributePath.setAttributeName(parentAttributeName);
     this.attributePath.setSubAttributeName(subAttributeName);
   }
-
-  private String createCompareValueString() {
-    String compareValueString;
-
-    if (this.compareValue == null) {
-      compareValueString = "null";
-    } else if (this.compareValue instanceof String) {
-      // TODO change this to escapeJson() when dependencies get upgraded
-      String escaped = StringEscapeUtils.escapeEcmaScript((String) this.compareValue)
-          // StringEscapeUtils follows the outdated JSON spec requiring "/" to be escaped, this could subtly break things
-          .replaceAll("\\\\/", "/")
-          // We don't want single-quotes escaped, this will be unnecessary with escapeJson()
-          .replaceAll("\\\\'", "'");
-
-      compareValueString = QUOTE + escaped + QUOTE;
-    } else if (this.compareValue instanceof Date) {
-      compareValueString = QUOTE + toDateTimeString((Date) this.compareValue) + QUOTE;
-    } else if (this.compareValue instanceof LocalDate) {
-      compareValueString = QUOTE + toDateString((LocalDate) this.compareValue) + QUOTE;
-    } else if (this.compareValue instanceof LocalDateTime) {
-      compareValueString = QUOTE + toDateTimeString((LocalDateTime) this.compareValue) + QUOTE;
-    } else {
-      compareValueString = this.compareValue.toString();
-    }
-    return compareValueString;
-  }
 }
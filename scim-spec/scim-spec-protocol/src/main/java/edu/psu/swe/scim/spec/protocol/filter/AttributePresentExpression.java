@@ -28,15 +28,12 @@ public class AttributePresentExpression implements FilterExpression, ValueFilter
 
   @Override
   public String toFilter() {
-    return attributePath.getFullyQualifiedAttributeName() + " PR";
+    return FilterRenderer.toFilter(this);
   }
 
   @Override
   public String toUnqualifiedFilter() {
-    String subAttributeName = this.attributePath.getSubAttributeName();
-    String attributeName = subAttributeName != null ? subAttributeName : this.attributePath.getAttributeName();
-
-    return attributeName + " PR";
+    return FilterRenderer.toUnqualifiedFilter(this);
   }
 
   @Override
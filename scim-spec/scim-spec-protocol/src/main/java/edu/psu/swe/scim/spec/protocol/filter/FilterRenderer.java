@@ -0,0 +1,253 @@
+/*
+* Licensed to the Apache Software Foundation (ASF) under one
+* or more contributor license agreements.  See the NOTICE file
+* distributed with this work for additional information
+* regarding copyright ownership.  The ASF licenses this file
+* to you under the Apache License, Version 2.0 (the
+* "License"); you may not use this file except in compliance
+* with the License.  You may obtain a copy of the License at
+
+* http://www.apache.org/licenses/LICENSE-2.0
+
+* Unless required by applicable law or agreed to in writing,
+* software distributed under the License is distributed on an
+* "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+* KIND, either express or implied.  See the License for the
+* specific language governing permissions and limitations
+* under the License.
+*/
+
+package edu.psu.swe.scim.spec.protocol.filter;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.Date;
+import java.util.Deque;
+
+import edu.psu.swe.scim.spec.protocol.attribute.AttributeReference;
+
+/**
+ * Renders {@link FilterExpression}s to their textual form in a single pass.
+ * The expression tree is walked with an explicit stack rather than by
+ * recursion, so arbitrarily long filters can be rendered without overflowing
+ * the call stack, and everything is appended into one {@link StringBuilder}
+ * that is reused by the calling thread.
+ */
+final class FilterRenderer {
+
+  private static final int MAXIMUM_REUSED_CAPACITY = 8192;
+
+  private static final char[] HEX = "0123456789ABCDEF".toCharArray();
+
+  private static final ThreadLocal<StringBuilder> BUILDER = ThreadLocal.withInitial(StringBuilder::new);
+
+  private FilterRenderer() {
+    // Make this a utility class
+  }
+
+  static String toFilter(FilterExpression expression) {
+    return render(expression, true);
+  }
+
+  static String toUnqualifiedFilter(FilterExpression expression) {
+    return render(expression, false);
+  }
+
+  private static String render(FilterExpression expression, boolean qualified) {
+    StringBuilder sb = BUILDER.get();
+    if (sb.length() > 0) {
+      // The thread's builder is already in use further up the call stack
+      sb = new StringBuilder();
+    }
+
+    try {
+      append(sb, expression, qualified);
+      return sb.toString();
+    } finally {
+      sb.setLength(0);
+      if (sb.capacity() > MAXIMUM_REUSED_CAPACITY) {
+        BUILDER.remove();
+      }
+    }
+  }
+
+  /**
+   * Appends the expression to the builder. Pending work is either a string to
+   * append or an expression still to be expanded, pushed in reverse order.
+   */
+  static void append(StringBuilder sb, FilterExpression expression, boolean qualified) {
+    Deque<Object> pending = new ArrayDeque<>();
+    pending.push(new Pending(expression, qualified));
+
+    while (!pending.isEmpty()) {
+      Object next = pending.pop();
+      if (next instanceof String) {
+        sb.append((String) next);
+        continue;
+      }
+
+      Pending current = (Pending) next;
+      FilterExpression currentExpression = current.expression;
+
+      if (currentExpression instanceof AttributeComparisonExpression) {
+        AttributeComparisonExpression comparison = (AttributeComparisonExpression) currentExpression;
+        appendAttributeName(sb, comparison.getAttributePath(), current.qualified);
+        sb.append(' ')
+          .append(comparison.getOperation())
+          .append(' ');
+        appendCompareValue(sb, comparison.getCompareValue());
+      } else if (currentExpression instanceof AttributePresentExpression) {
+        appendAttributeName(sb, ((AttributePresentExpression) currentExpression).getAttributePath(), current.qualified);
+        sb.append(" PR");
+      } else if (currentExpression instanceof LogicalExpression) {
+        LogicalExpression logical = (LogicalExpression) currentExpression;
+        pushParenthesized(pending, logical.getRight(), current.qualified);
+        pending.push(" " + logical.getOperator() + " ");
+        pushParenthesized(pending, logical.getLeft(), current.qualified);
+      } else if (currentExpression instanceof GroupExpression) {
+        GroupExpression group = (GroupExpression) currentExpression;
+        if (group.isNot()) {
+          sb.append("NOT");
+        }
+        sb.append('(');
+        pending.push(")");
+        pending.push(new Pending(group.getFilterExpression(), current.qualified));
+      } else if (currentExpression instanceof ValuePathExpression) {
+        pushValuePath(sb, pending, (ValuePathExpression) currentExpression, current.qualified);
+      } else if (currentExpression != null) {
+        sb.append(current.qualified ? currentExpression.toFilter() : currentExpression.toUnqualifiedFilter());
+      }
+    }
+  }
+
+  private static void pushParenthesized(Deque<Object> pending, FilterExpression expression, boolean qualified) {
+    boolean parens = expression instanceof LogicalExpression;
+    if (parens) {
+      pending.push(")");
+    }
+    pending.push(new Pending(expression, qualified));
+    if (parens) {
+      pending.push("(");
+    }
+  }
+
+  private static void pushValuePath(StringBuilder sb, Deque<Object> pending, ValuePathExpression valuePath, boolean qualified) {
+    AttributeReference attributePath = valuePath.getAttributePath();
+    String subAttributeName = attributePath.getSubAttributeName();
+
+    if (valuePath.getAttributeExpression() == null) {
+      if (qualified) {
+        sb.append(attributePath.getFullyQualifiedAttributeName());
+      } else {
+        sb.append(attributePath.getAttributeName());
+        if (subAttributeName != null) {
+          sb.append('.')
+            .append(subAttributeName);
+        }
+      }
+      return;
+    }
+
+    if (!qualified) {
+      sb.append(attributePath.getAttributeName());
+    } else if (subAttributeName != null) {
+      sb.append(attributePath.getAttributeBase());
+    } else {
+      sb.append(attributePath.getFullyQualifiedAttributeName());
+    }
+    sb.append('[');
+
+    // The expression inside the brackets is always relative to the attribute
+    pending.push(subAttributeName != null ? "]." + subAttributeName : "]");
+    pending.push(new Pending(valuePath.getAttributeExpression(), false));
+  }
+
+  private static void appendAttributeName(StringBuilder sb, AttributeReference attributePath, boolean qualified) {
+    if (qualified) {
+      sb.append(attributePath.getFullyQualifiedAttributeName());
+    } else {
+      String subAttributeName = attributePath.getSubAttributeName();
+      sb.append(subAttributeName != null ? subAttributeName : attributePath.getAttributeName());
+    }
+  }
+
+  static void appendCompareValue(StringBuilder sb, Object compareValue) {
+    if (compareValue == null) {
+      sb.append("null");
+    } else if (compareValue instanceof String) {
+      sb.append('"');
+      appendJsonEscaped(sb, (String) compareValue);
+      sb.append('"');
+    } else if (compareValue instanceof Date) {
+      sb.append('"')
+        .append(AttributeComparisonExpression.toDateTimeString((Date) compareValue))
+        .append('"');
+    } else if (compareValue instanceof LocalDate) {
+      sb.append('"')
+        .append(AttributeComparisonExpression.toDateString((LocalDate) compareValue))
+        .append('"');
+    } else if (compareValue instanceof LocalDateTime) {
+      sb.append('"')
+        .append(AttributeComparisonExpression.toDateTimeString((LocalDateTime) compareValue))
+        .append('"');
+    } else {
+      sb.append(compareValue.toString());
+    }
+  }
+
+  /**
+   * Escapes the value as the contents of a JSON string. Control characters and
+   * characters outside of ASCII are written as unicode escapes, matching the
+   * output of the escaper that was previously used.
+   */
+  static void appendJsonEscaped(StringBuilder sb, String value) {
+    int length = value.length();
+    for (int i = 0; i < length; i++) {
+      char c = value.charAt(i);
+      switch (c) {
+      case '"':
+        sb.append("\\\"");
+        break;
+      case '\\':
+        sb.append("\\\\");
+        break;
+      case '\b':
+        sb.append("\\b");
+        break;
+      case '\f':
+        sb.append("\\f");
+        break;
+      case '\n':
+        sb.append("\\n");
+        break;
+      case '\r':
+        sb.append("\\r");
+        break;
+      case '\t':
+        sb.append("\\t");
+        break;
+      default:
+        if (c < 0x20 || c > 0x7f) {
+          sb.append("\\u")
+            .append(HEX[(c >> 12) & 0xF])
+            .append(HEX[(c >> 8) & 0xF])
+            .append(HEX[(c >> 4) & 0xF])
+            .append(HEX[c & 0xF]);
+        } else {
+          sb.append(c);
+        }
+      }
+    }
+  }
+
+  private static final class Pending {
+    final FilterExpression expression;
+    final boolean qualified;
+
+    Pending(FilterExpression expression, boolean qualified) {
+      this.expression = expression;
+      this.qualified = qualified;
+    }
+  }
+}
@@ -33,7 +33,7 @@ public class GroupExpression implements FilterExpression, ValueFilterExpression
 
   @Override
   public String toFilter() {
-    return (not ? "NOT" : "") + "(" + filterExpression.toFilter() + ")";
+    return FilterRenderer.toFilter(this);
   }
 
   @Override
@@ -43,6 +43,6 @@ public class GroupExpression implements FilterExpression, ValueFilterExpression
 
   @Override
   public String toUnqualifiedFilter() {
-    return (not ? "NOT" : "") + "(" + filterExpression.toUnqualifiedFilter() + ")";
+    return FilterRenderer.toUnqualifiedFilter(this);
   }
 }
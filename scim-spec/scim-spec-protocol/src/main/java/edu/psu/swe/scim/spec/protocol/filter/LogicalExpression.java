@@ -34,13 +34,7 @@ public class LogicalExpression implements FilterExpression, ValueFilterExpressio
   
   @Override
   public String toFilter() {
-    boolean leftParens = left instanceof LogicalExpression;
-    boolean rightParens = right instanceof LogicalExpression;
-
-    String leftString = (leftParens ? "(" : "") + left.toFilter() + (leftParens ? ")" : "");
-    String rightString = (rightParens ? "(" : "") + right.toFilter() + (rightParens ? ")" : "");
-    
-    return leftString + " " + operator + " " + rightString;
+    return FilterRenderer.toFilter(this);
   }
 
   @Override
@@ -51,12 +45,6 @@ public class LogicalExpression implements FilterExpression, ValueFilterExpressio
 
   @Override
   public String toUnqualifiedFilter() {
-    boolean leftParens = this.left instanceof LogicalExpression;
-    boolean rightParens = this.right instanceof LogicalExpression;
-
-    String leftString = (leftParens ? "(" : "") + left.toUnqualifiedFilter() + (leftParens ? ")" : "");
-    String rightString = (rightParens ? "(" : "") + right.toUnqualifiedFilter() + (rightParens ? ")" : "");
-
-    return leftString + " " + operator + " " + rightString;
+    return FilterRenderer.toUnqualifiedFilter(this);
   }
 }
@@ -51,23 +51,7 @@ public class ValuePathExpression implements FilterExpression {
 
   @Override
   public String toFilter() {
-    String filter;
-
-    if (this.attributeExpression != null) {
-      String subAttributeName = this.attributePath.getSubAttributeName();
-      String attributeExpressionFilter = this.attributeExpression.toUnqualifiedFilter();
-
-      if (subAttributeName != null) {
-        String base = this.attributePath.getAttributeBase();
-        filter = base + "[" + attributeExpressionFilter + "]." + subAttributeName;
-      } else {
-        String attribute = this.attributePath.getFullyQualifiedAttributeName();
-        filter = attribute + "[" + attributeExpressionFilter + "]";
-      }
-    } else {
-      filter = this.attributePath.getFullyQualifiedAttributeName();
-    }
-    return filter;
+    return FilterRenderer.toFilter(this);
   }
 
   @Override
@@ -81,22 +65,6 @@ public class ValuePathExpression implements FilterExpression {
 
   @Override
   public String toUnqualifiedFilter() {
-    String filter;
-
-    if (this.attributeExpression != null) {
-      String attributeName = this.attributePath.getAttributeName();
-      String subAttributeName = this.attributePath.getSubAttributeName();
-      String attributeExpressionFilter = this.attributeExpression.toUnqualifiedFilter();
-
-      if (subAttributeName != null) {
-        filter = attributeName + "[" + attributeExpressionFilter + "]." + subAttributeName;
-      } else {
-        filter = attributeName + "[" + attributeExpressionFilter + "]";
-      }
-    } else {
-      String subAttributeName = this.attributePath.getSubAttributeName();
-      filter = this.attributePath.getAttributeName() + (subAttributeName != null ? "." + subAttributeName : "");
-    }
-    return filter;
+    return FilterRenderer.toUnqualifiedFilter(this);
   }
 }
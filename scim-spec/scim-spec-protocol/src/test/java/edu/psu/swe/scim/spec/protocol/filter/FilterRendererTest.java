@@ -0,0 +1,83 @@
+/*
+* Licensed to the Apache Software Foundation (ASF) under one
+* or more contributor license agreements.  See the NOTICE file
+* distributed with this work for additional information
+* regarding copyright ownership.  The ASF licenses this file
+* to you under the Apache License, Version 2.0 (the
+* "License"); you may not use this file except in compliance
+* with the License.  You may obtain a copy of the License at
+
+* http://www.apache.org/licenses/LICENSE-2.0
+
+* Unless required by applicable law or agreed to in writing,
+* software distributed under the License is distributed on an
+* "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+* KIND, either express or implied.  See the License for the
+* specific language governing permissions and limitations
+* under the License.
+*/
+
+package edu.psu.swe.scim.spec.protocol.filter;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import edu.psu.swe.scim.spec.protocol.attribute.AttributeReference;
+import edu.psu.swe.scim.spec.protocol.search.Filter;
+import junitparams.JUnitParamsRunner;
+import junitparams.Parameters;
+
+@RunWith(JUnitParamsRunner.class)
+public class FilterRendererTest extends AbstractLexerParserTest {
+
+  @SuppressWarnings("unused")
+  private Object[] getEscapedValues() {
+    return new Object[] {
+        new Object[] { "plain", "\"plain\"" },
+        new Object[] { "quote\"d", "\"quote\\\"d\"" },
+        new Object[] { "back\\slash", "\"back\\\\slash\"" },
+        new Object[] { "line\nbreak\ttab", "\"line\\nbreak\\ttab\"" },
+        new Object[] { "slash/and'apostrophe", "\"slash/and'apostrophe\"" },
+        new Object[] { "café\u0001", "\"caf\\u00E9\\u0001\"" }
+    };
+  }
+
+  @Test
+  @Parameters(method = "getEscapedValues")
+  public void testStringValuesAreEscaped(String value, String expected) {
+    AttributeComparisonExpression expression = new AttributeComparisonExpression(new AttributeReference("userName"), CompareOperator.EQ, value);
+
+    Assert.assertEquals("userName EQ " + expected, expression.toFilter());
+  }
+
+  @SuppressWarnings("unused")
+  private String[] getAllFilters() {
+    return ALL;
+  }
+
+  @Test
+  @Parameters(method = "getAllFilters")
+  public void testRenderedFilterCanBeParsedAgain(String text) throws Exception {
+    String rendered = new Filter(text).getExpression()
+                                      .toFilter();
+    String reRendered = new Filter(rendered).getExpression()
+                                            .toFilter();
+
+    Assert.assertEquals(rendered, reRendered);
+  }
+
+  @Test
+  public void testLongFiltersDoNotOverflowTheStack() {
+    FilterExpression expression = new AttributePresentExpression(new AttributeReference("title"));
+    for (int i = 0; i < 50000; i++) {
+      AttributeComparisonExpression comparison = new AttributeComparisonExpression(new AttributeReference("userName"), CompareOperator.EQ, "u" + i);
+      expression = new LogicalExpression(expression, LogicalOperator.OR, comparison);
+    }
+
+    String filter = expression.toFilter();
+
+    Assert.assertTrue(filter.startsWith("((("));
+    Assert.assertTrue(filter.endsWith(") OR userName EQ \"u49999\""));
+  }
+}
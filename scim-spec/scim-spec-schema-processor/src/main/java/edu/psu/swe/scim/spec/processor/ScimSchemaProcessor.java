@@ -0,0 +1,674 @@
+/*
+* Licensed to the Apache Software Foundation (ASF) under one
+* or more contributor license agreements.  See the NOTICE file
+* distributed with this work for additional information
+* regarding copyright ownership.  The ASF licenses this file
+* to you under the Apache License, Version 2.0 (the
+* "License"); you may not use this file except in compliance
+* with the License.  You may obtain a copy of the License at
+ 
+* http://www.apache.org/licenses/LICENSE-2.0
+
+* Unless required by applicable law or agreed to in writing,
+* software distributed under the License is distributed on an
+* "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+* KIND, either express or implied.  See the License for the
+* specific language governing permissions and limitations
+* under the License.
+*/
+
+package edu.psu.swe.scim.spec.processor;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.PrimitiveType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic.Kind;
+import javax.tools.JavaFileObject;
+
+/**
+ * Writes the SCIM schema of every class annotated with
+ * {@code @ScimResourceType} or {@code @ScimExtensionType} at compile time so
+ * that the server does not have to walk the class with reflection when the
+ * resource type is registered. For a class named {@code ScimUser} the
+ * processor writes {@code ScimUser_ScimSchema}, an implementation of
+ * {@code edu.psu.swe.scim.spec.schema.GeneratedSchema} that builds the same
+ * {@code Schema} the reflective path in {@code ProviderRegistry} builds and
+ * whose attributes read and write their values without reflection, through the
+ * field itself or, when the field isn't accessible, its getter and setter.
+ * 
+ * Classes whose schema can't be expressed at compile time (for instance a
+ * primitive attribute that isn't required, or a raw collection) are reported
+ * with a warning and left to the reflective path, which raises the same
+ * errors it always has.
+ */
+@SupportedAnnotationTypes({ ScimSchemaProcessor.SCIM_RESOURCE_TYPE, ScimSchemaProcessor.SCIM_EXTENSION_TYPE })
+public class ScimSchemaProcessor extends AbstractProcessor {
+
+  static final String SCIM_RESOURCE_TYPE = "edu.psu.swe.scim.spec.annotation.ScimResourceType";
+  static final String SCIM_EXTENSION_TYPE = "edu.psu.swe.scim.spec.annotation.ScimExtensionType";
+
+  private static final String SCIM_ATTRIBUTE = "edu.psu.swe.scim.spec.annotation.ScimAttribute";
+  private static final String SCIM_TYPE = "edu.psu.swe.scim.spec.annotation.ScimType";
+  private static final String SCIM_RESOURCE_ID_REFERENCE = "edu.psu.swe.scim.spec.annotation.ScimResourceIdReference";
+  private static final String BASE_RESOURCE = "edu.psu.swe.scim.spec.resources.BaseResource";
+  private static final String XML_ENUM_VALUE = "javax.xml.bind.annotation.XmlEnumValue";
+
+  private static final String SCHEMA = "edu.psu.swe.scim.spec.schema.Schema";
+  private static final String ATTRIBUTE = SCHEMA + ".Attribute";
+  private static final String ATTRIBUTE_ACCESSOR = "edu.psu.swe.scim.spec.schema.AttributeAccessor";
+  private static final String GENERATED_SCHEMA = "edu.psu.swe.scim.spec.schema.GeneratedSchema";
+  private static final String CLASS_NAME_SUFFIX = "_ScimSchema";
+
+  private static final String LOMBOK_DATA = "lombok.Data";
+  private static final String LOMBOK_VALUE = "lombok.Value";
+  private static final String LOMBOK_GETTER = "lombok.Getter";
+  private static final String LOMBOK_SETTER = "lombok.Setter";
+
+  // Must match ProviderRegistry.ATTRIBUTE_TYPES, keyed by the erased type name
+  private static final Map<String, String> ATTRIBUTE_TYPES = new HashMap<>();
+
+  static {
+    ATTRIBUTE_TYPES.put("java.lang.String", "STRING");
+    ATTRIBUTE_TYPES.put("char[]", "STRING");
+    ATTRIBUTE_TYPES.put("java.lang.Character[]", "STRING");
+
+    ATTRIBUTE_TYPES.put("int", "INTEGER");
+    ATTRIBUTE_TYPES.put("java.lang.Integer", "INTEGER");
+
+    ATTRIBUTE_TYPES.put("float", "DECIMAL");
+    ATTRIBUTE_TYPES.put("java.lang.Float", "DECIMAL");
+    ATTRIBUTE_TYPES.put("double", "DECIMAL");
+    ATTRIBUTE_TYPES.put("java.lang.Double", "DECIMAL");
+
+    ATTRIBUTE_TYPES.put("boolean", "BOOLEAN");
+    ATTRIBUTE_TYPES.put("java.lang.Boolean", "BOOLEAN");
+
+    ATTRIBUTE_TYPES.put("byte[]", "BINARY");
+
+    ATTRIBUTE_TYPES.put("java.util.Date", "DATE_TIME");
+    ATTRIBUTE_TYPES.put("java.time.LocalDateTime", "DATE_TIME");
+    ATTRIBUTE_TYPES.put("java.time.LocalTime", "DATE_TIME");
+    ATTRIBUTE_TYPES.put("java.time.LocalDate", "DATE_TIME");
+
+    ATTRIBUTE_TYPES.put("edu.psu.swe.scim.spec.schema.ResourceReference.ReferenceType", "REFERENCE");
+  }
+
+  @Override
+  public SourceVersion getSupportedSourceVersion() {
+    return SourceVersion.latestSupported();
+  }
+
+  @Override
+  public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+    for (TypeElement annotation : annotations) {
+      for (Element element : roundEnv.getElementsAnnotatedWith(annotation)) {
+        TypeElement type = (TypeElement) element;
+        if (type.getKind() == ElementKind.CLASS && isPreferredAnnotation(type, annotation)) {
+          generate(type);
+        }
+      }
+    }
+    return false;
+  }
+
+  // A class carrying both annotations is generated once, as a resource
+  private boolean isPreferredAnnotation(TypeElement type, TypeElement annotation) {
+    return annotation.getQualifiedName().contentEquals(SCIM_RESOURCE_TYPE) || getAnnotation(type, SCIM_RESOURCE_TYPE) == null;
+  }
+
+  private void generate(TypeElement type) {
+    String packageName = processingEnv.getElementUtils().getPackageOf(type).getQualifiedName().toString();
+    String binaryName = processingEnv.getElementUtils().getBinaryName(type).toString();
+    String simpleName = (packageName.isEmpty() ? binaryName : binaryName.substring(packageName.length() + 1)) + CLASS_NAME_SUFFIX;
+
+    String source;
+    try {
+      source = new SchemaWriter(type, packageName, simpleName).write();
+    } catch (UnsupportedSchemaException e) {
+      processingEnv.getMessager().printMessage(Kind.WARNING, "The SCIM schema of " + type.getQualifiedName() + " will be built by reflection at runtime: " + e.getMessage(), e.element);
+      return;
+    }
+
+    String qualifiedName = packageName.isEmpty() ? simpleName : packageName + "." + simpleName;
+    try {
+      JavaFileObject file = processingEnv.getFiler().createSourceFile(qualifiedName, type);
+      try (Writer writer = file.openWriter()) {
+        writer.write(source);
+      }
+    } catch (IOException e) {
+      processingEnv.getMessager().printMessage(Kind.ERROR, "Unable to write " + qualifiedName + ": " + e.getMessage(), type);
+    }
+  }
+
+  private static final class UnsupportedSchemaException extends Exception {
+
+    private static final long serialVersionUID = 1L;
+
+    private final transient Element element;
+
+    UnsupportedSchemaException(String message, Element element) {
+      super(message);
+      this.element = element;
+    }
+  }
+
+  /**
+   * Writes the source of one generated schema. Each attribute is built by its
+   * own static method so that large schemas don't run into the method size
+   * limit.
+   */
+  private final class SchemaWriter {
+
+    private final TypeElement type;
+    private final String packageName;
+    private final String simpleName;
+    private final StringBuilder methods = new StringBuilder();
+    private final Deque<TypeElement> complexTypes = new ArrayDeque<>();
+    private int attributeCount;
+
+    SchemaWriter(TypeElement type, String packageName, String simpleName) {
+      this.type = type;
+      this.packageName = packageName;
+      this.simpleName = simpleName;
+    }
+
+    String write() throws UnsupportedSchemaException {
+      AnnotationMirror resourceType = getAnnotation(type, SCIM_RESOURCE_TYPE);
+      AnnotationMirror extensionType = getAnnotation(type, SCIM_EXTENSION_TYPE);
+
+      String urn = extensionType != null ? getString(extensionType, "id") : getString(resourceType, "schema");
+      AnnotationMirror described = resourceType != null ? resourceType : extensionType;
+      String id = resourceType != null ? getString(resourceType, "schema") : getString(extensionType, "id");
+
+      List<VariableElement> fields = getFieldsUpTo(type, resourceType != null ? BASE_RESOURCE : null);
+      List<String> attributes = writeAttributes(urn, fields, null);
+
+      StringBuilder source = new StringBuilder();
+      if (!packageName.isEmpty()) {
+        source.append("package ").append(packageName).append(";\n\n");
+      }
+      source.append("@javax.annotation.Generated(\"").append(ScimSchemaProcessor.class.getName()).append("\")\n");
+      source.append("@SuppressWarnings({ \"unchecked\", \"rawtypes\" })\n");
+      source.append("public final class ").append(simpleName).append(" implements ").append(GENERATED_SCHEMA).append(" {\n\n");
+      source.append("  @Override\n");
+      source.append("  public ").append(SCHEMA).append(" createSchema() {\n");
+      source.append("    ").append(SCHEMA).append(" schema = new ").append(SCHEMA).append("();\n");
+      source.append("    schema.setId(").append(literal(id)).append(");\n");
+      source.append("    schema.setDescription(").append(literal(getString(described, "description"))).append(");\n");
+      source.append("    schema.setName(").append(literal(getString(described, "name"))).append(");\n");
+      source.append("    schema.setAttributes(new java.util.ArrayList<>(").append(listOf(attributes)).append("));\n");
+      source.append("    return schema;\n");
+      source.append("  }\n");
+      source.append(methods);
+      source.append("}\n");
+      return source.toString();
+    }
+
+    private List<String> writeAttributes(String urn, List<VariableElement> fields, String nameBase) throws UnsupportedSchemaException {
+      List<String> attributes = new ArrayList<>();
+      for (VariableElement field : fields) {
+        AnnotationMirror scimAttribute = getAnnotation(field, SCIM_ATTRIBUTE);
+        if (scimAttribute != null) {
+          attributes.add(writeAttribute(urn, field, scimAttribute, nameBase));
+        }
+      }
+      return attributes;
+    }
+
+    private String writeAttribute(String urn, VariableElement field, AnnotationMirror scimAttribute, String nameBase) throws UnsupportedSchemaException {
+      String fieldName = field.getSimpleName().toString();
+      TypeMirror fieldType = field.asType();
+
+      if (fieldType.getKind().isPrimitive() && !getBoolean(scimAttribute, "required")) {
+        throw new UnsupportedSchemaException("the attribute " + fieldName + " is a primitive and must be required", field);
+      }
+
+      String name = getString(scimAttribute, "name");
+      if (name.isEmpty()) {
+        name = fieldName;
+      }
+      String attributeName = nameBase == null ? name : nameBase + "." + name;
+
+      StringBuilder body = new StringBuilder();
+      body.append("    ").append(ATTRIBUTE).append(" attribute = new ").append(ATTRIBUTE).append("();\n");
+      body.append("    attribute.setAccessor(").append(accessor(field)).append(");\n");
+      body.append("    attribute.setName(").append(literal(name)).append(");\n");
+      body.append("    attribute.setUrn(").append(literal(urn)).append(");\n");
+      body.append("    attribute.setCanonicalValues(").append(canonicalValues(field, scimAttribute, attributeName)).append(");\n");
+      body.append("    attribute.setCaseExact(").append(getBoolean(scimAttribute, "caseExact")).append(");\n");
+      body.append("    attribute.setDescription(").append(literal(getString(scimAttribute, "description"))).append(");\n");
+
+      boolean multiValued = false;
+      TypeMirror attributeType = fieldType;
+      if (isCollection(fieldType)) {
+        List<? extends TypeMirror> typeArguments = ((DeclaredType) fieldType).getTypeArguments();
+        if (typeArguments.isEmpty()) {
+          throw new UnsupportedSchemaException("the attribute " + fieldName + " is a raw collection", field);
+        }
+        attributeType = typeArguments.get(0);
+        if (!isClass(attributeType)) {
+          throw new UnsupportedSchemaException("the element type of the attribute " + fieldName + " is not a class", field);
+        }
+        multiValued = true;
+      } else if (fieldType.getKind() == TypeKind.ARRAY && !ATTRIBUTE_TYPES.containsKey(typeName(fieldType))) {
+        attributeType = ((ArrayType) fieldType).getComponentType();
+        multiValued = true;
+      }
+      String scimType = ATTRIBUTE_TYPES.getOrDefault(typeName(attributeType), "COMPLEX");
+
+      body.append("    attribute.setMultiValued(").append(multiValued).append(");\n");
+      body.append("    attribute.setType(").append(ATTRIBUTE).append(".Type.").append(scimType).append(");\n");
+
+      if (getAnnotation(field, SCIM_RESOURCE_ID_REFERENCE) != null) {
+        if ("STRING".equals(scimType)) {
+          body.append("    attribute.setScimResourceIdReference(true);\n");
+        } else {
+          processingEnv.getMessager().printMessage(Kind.WARNING, "@ScimResourceIdReference is only supported on string attributes, ignoring it on " + fieldName, field);
+        }
+      }
+
+      body.append("    attribute.setMutability(").append(ATTRIBUTE).append(".Mutability.").append(getEnumConstant(scimAttribute, "mutability")).append(");\n");
+      body.append("    attribute.setReferenceTypes(").append(referenceTypes(scimAttribute)).append(");\n");
+      body.append("    attribute.setRequired(").append(getBoolean(scimAttribute, "required")).append(");\n");
+      body.append("    attribute.setReturned(").append(ATTRIBUTE).append(".Returned.").append(getEnumConstant(scimAttribute, "returned")).append(");\n");
+      body.append("    attribute.setUniqueness(").append(ATTRIBUTE).append(".Uniqueness.").append(getEnumConstant(scimAttribute, "uniqueness")).append(");\n");
+
+      boolean scimTypeAnnotated = fieldType.getKind() == TypeKind.DECLARED && getAnnotation(((DeclaredType) fieldType).asElement(), SCIM_TYPE) != null;
+      if ("COMPLEX".equals(scimType) || scimTypeAnnotated) {
+        List<String> subAttributes = Collections.emptyList();
+        if (attributeType.getKind() == TypeKind.DECLARED) {
+          TypeElement complexType = (TypeElement) ((DeclaredType) attributeType).asElement();
+          if (complexTypes.contains(complexType)) {
+            throw new UnsupportedSchemaException("the attribute " + fieldName + " refers to its own type", field);
+          }
+          complexTypes.push(complexType);
+          subAttributes = writeAttributes(urn, getFieldsUpTo(complexType, null), attributeName);
+          complexTypes.pop();
+        }
+        body.append("    attribute.setSubAttributes(").append(listOf(subAttributes)).append(", ").append(ATTRIBUTE).append(".AddAction.APPEND);\n");
+      }
+      body.append("    return attribute;\n");
+
+      String methodName = "attribute" + attributeCount++;
+      methods.append("\n  private static ").append(ATTRIBUTE).append(" ").append(methodName).append("() {\n");
+      methods.append(body);
+      methods.append("  }\n");
+      return methodName + "()";
+    }
+
+    private String canonicalValues(VariableElement field, AnnotationMirror scimAttribute, String attributeName) throws UnsupportedSchemaException {
+      List<String> canonicalValues = new ArrayList<>();
+      List<String> canonicalValueList = getStrings(scimAttribute, "canonicalValueList");
+
+      TypeElement canonicalValueEnum = (TypeElement) ((DeclaredType) getValue(scimAttribute, "canonicalValueEnum")).asElement();
+      List<VariableElement> constants = new ArrayList<>();
+      for (VariableElement enumField : ElementFilter.fieldsIn(canonicalValueEnum.getEnclosedElements())) {
+        if (enumField.getKind() == ElementKind.ENUM_CONSTANT) {
+          constants.add(enumField);
+        }
+      }
+
+      if (!constants.isEmpty() && canonicalValueList.size() != 1 && (canonicalValueList.isEmpty() || !canonicalValueList.get(0).isEmpty())) {
+        throw new UnsupportedSchemaException("the attribute " + attributeName + " has both canonicalValueEnum and canonicalValueList", field);
+      }
+
+      for (VariableElement constant : constants) {
+        AnnotationMirror xmlEnumValue = getAnnotation(constant, XML_ENUM_VALUE);
+        canonicalValues.add(xmlEnumValue != null ? getString(xmlEnumValue, "value") : constant.getSimpleName().toString());
+      }
+      if (constants.isEmpty()) {
+        canonicalValues.addAll(canonicalValueList);
+      }
+
+      if (canonicalValues.isEmpty() || (canonicalValues.size() == 1 && canonicalValues.get(0).isEmpty())) {
+        return "null";
+      }
+      return "new java.util.HashSet<String>(" + listOf(literals(canonicalValues)) + ")";
+    }
+
+    private String referenceTypes(AnnotationMirror scimAttribute) {
+      List<String> referenceTypes = getStrings(scimAttribute, "referenceTypes");
+      if (referenceTypes.isEmpty() || (referenceTypes.size() == 1 && referenceTypes.get(0).isEmpty())) {
+        return "null";
+      }
+      return listOf(literals(referenceTypes));
+    }
+
+    private String accessor(VariableElement field) throws UnsupportedSchemaException {
+      TypeElement declaringType = (TypeElement) field.getEnclosingElement();
+      if (!isAccessible(declaringType)) {
+        throw new UnsupportedSchemaException(declaringType.getQualifiedName() + " is not accessible from " + packageName, field);
+      }
+
+      String declaringName = declaringType.getQualifiedName().toString();
+      String fieldName = field.getSimpleName().toString();
+      String target = "((" + declaringName + ") target)";
+
+      String getter = "null";
+      String setter = "null";
+      // Reflection reads and writes the field itself, so the field is
+      // preferred over a getter or setter that might do more than that
+      if (!field.getModifiers().contains(Modifier.STATIC)) {
+        boolean accessible = isAccessible(field);
+        String getterName = accessible ? null : findGetter(declaringType, field);
+        if (accessible) {
+          getter = "target -> " + target + "." + fieldName;
+        } else if (getterName != null) {
+          getter = "target -> " + target + "." + getterName + "()";
+        }
+
+        String valueType = typeName(boxed(processingEnv.getTypeUtils().erasure(field.asType())));
+        boolean writable = accessible && !field.getModifiers().contains(Modifier.FINAL);
+        String setterName = writable ? null : findSetter(declaringType, field);
+        if (writable) {
+          setter = "(target, value) -> " + target + "." + fieldName + " = (" + valueType + ") value";
+        } else if (setterName != null) {
+          setter = "(target, value) -> " + target + "." + setterName + "((" + valueType + ") value)";
+        }
+      }
+
+      String type = typeName(processingEnv.getTypeUtils().erasure(field.asType())) + ".class";
+      return "new " + ATTRIBUTE_ACCESSOR + "(" + declaringName + ".class, " + literal(fieldName) + ", " + type + ", " + getter + ", " + setter + ")";
+    }
+
+    private String findGetter(TypeElement declaringType, VariableElement field) {
+      String fieldName = field.getSimpleName().toString();
+      boolean primitiveBoolean = field.asType().getKind() == TypeKind.BOOLEAN;
+      List<String> names = new ArrayList<>();
+      if (primitiveBoolean) {
+        names.add(lombokBooleanGetterName(fieldName));
+      }
+      names.add("get" + capitalize(fieldName));
+
+      for (ExecutableElement method : ElementFilter.methodsIn(processingEnv.getElementUtils().getAllMembers(declaringType))) {
+        if (names.contains(method.getSimpleName().toString()) && method.getParameters().isEmpty() && isCallable(method)) {
+          return method.getSimpleName().toString();
+        }
+      }
+      if (hasLombokAccessor(declaringType, field, LOMBOK_GETTER, true)) {
+        return names.get(0);
+      }
+      return null;
+    }
+
+    private String findSetter(TypeElement declaringType, VariableElement field) {
+      String fieldName = field.getSimpleName().toString();
+      String name = "set" + capitalize(fieldName);
+      if (field.asType().getKind() == TypeKind.BOOLEAN && isPrefixedBoolean(fieldName)) {
+        name = "set" + fieldName.substring(2);
+      }
+      TypeMirror fieldType = processingEnv.getTypeUtils().erasure(field.asType());
+
+      for (ExecutableElement method : ElementFilter.methodsIn(processingEnv.getElementUtils().getAllMembers(declaringType))) {
+        if (method.getSimpleName().contentEquals(name) && method.getParameters().size() == 1 && isCallable(method)) {
+          TypeMirror parameterType = processingEnv.getTypeUtils().erasure(method.getParameters().get(0).asType());
+          return processingEnv.getTypeUtils().isSameType(parameterType, fieldType) ? name : null;
+        }
+      }
+      if (!field.getModifiers().contains(Modifier.FINAL) && hasLombokAccessor(declaringType, field, LOMBOK_SETTER, false)) {
+        return name;
+      }
+      return null;
+    }
+
+    private boolean isCallable(ExecutableElement method) {
+      Set<Modifier> modifiers = method.getModifiers();
+      if (modifiers.contains(Modifier.STATIC) || modifiers.contains(Modifier.PRIVATE)) {
+        return false;
+      }
+      for (TypeMirror thrownType : method.getThrownTypes()) {
+        if (!isUnchecked(thrownType)) {
+          return false;
+        }
+      }
+      return modifiers.contains(Modifier.PUBLIC) || isSamePackage(method);
+    }
+
+    // Lombok's annotations are source retained, so this only sees them on
+    // classes compiled in the same run
+    private boolean hasLombokAccessor(TypeElement declaringType, VariableElement field, String annotation, boolean getter) {
+      AnnotationMirror onField = getAnnotation(field, annotation);
+      if (onField != null) {
+        return isGeneratedAccessible(onField, field);
+      }
+      AnnotationMirror onType = getAnnotation(declaringType, annotation);
+      if (onType != null) {
+        return isGeneratedAccessible(onType, field);
+      }
+      if (getAnnotation(declaringType, LOMBOK_DATA) != null) {
+        return true;
+      }
+      return getter && getAnnotation(declaringType, LOMBOK_VALUE) != null;
+    }
+
+    private boolean isGeneratedAccessible(AnnotationMirror lombokAccessor, Element field) {
+      String level = "PUBLIC";
+      for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> entry : lombokAccessor.getElementValues().entrySet()) {
+        if (entry.getKey().getSimpleName().contentEquals("value")) {
+          level = ((VariableElement) entry.getValue().getValue()).getSimpleName().toString();
+        }
+      }
+      switch (level) {
+      case "PUBLIC":
+        return true;
+      case "PACKAGE":
+      case "PROTECTED":
+        return isSamePackage(field);
+      default:
+        return false;
+      }
+    }
+
+    private boolean isAccessible(Element element) {
+      for (Element current = element; current instanceof TypeElement || current instanceof VariableElement; current = current.getEnclosingElement()) {
+        if (current instanceof TypeElement && ((TypeElement) current).getNestingKind() != NestingKind.TOP_LEVEL && ((TypeElement) current).getNestingKind() != NestingKind.MEMBER) {
+          return false;
+        }
+        Set<Modifier> modifiers = current.getModifiers();
+        if (modifiers.contains(Modifier.PRIVATE)) {
+          return false;
+        }
+        if (!modifiers.contains(Modifier.PUBLIC) && !isSamePackage(current)) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    private boolean isUnchecked(TypeMirror exceptionType) {
+      TypeMirror runtimeException = processingEnv.getElementUtils().getTypeElement(RuntimeException.class.getName()).asType();
+      TypeMirror error = processingEnv.getElementUtils().getTypeElement(Error.class.getName()).asType();
+      return processingEnv.getTypeUtils().isSubtype(exceptionType, runtimeException) || processingEnv.getTypeUtils().isSubtype(exceptionType, error);
+    }
+
+    private boolean isSamePackage(Element element) {
+      PackageElement elementPackage = processingEnv.getElementUtils().getPackageOf(element);
+      return elementPackage.getQualifiedName().contentEquals(packageName);
+    }
+  }
+
+  private List<VariableElement> getFieldsUpTo(TypeElement type, String exclusiveParent) {
+    List<VariableElement> fields = new ArrayList<>();
+    TypeElement current = type;
+    while (current != null) {
+      fields.addAll(ElementFilter.fieldsIn(current.getEnclosedElements()));
+      TypeMirror superclass = current.getSuperclass();
+      if (superclass.getKind() != TypeKind.DECLARED) {
+        break;
+      }
+      current = (TypeElement) ((DeclaredType) superclass).asElement();
+      String name = current.getQualifiedName().toString();
+      if (name.equals(exclusiveParent) || name.equals(Object.class.getName())) {
+        break;
+      }
+    }
+    return fields;
+  }
+
+  private boolean isCollection(TypeMirror type) {
+    if (type.getKind() != TypeKind.DECLARED) {
+      return false;
+    }
+    TypeElement collection = processingEnv.getElementUtils().getTypeElement("java.util.Collection");
+    return processingEnv.getTypeUtils().isAssignable(processingEnv.getTypeUtils().erasure(type), processingEnv.getTypeUtils().erasure(collection.asType()));
+  }
+
+  // Reflection reads the element type of a collection as a Class, so it can't
+  // be a type variable, a wildcard or a parameterized type
+  private static boolean isClass(TypeMirror type) {
+    switch (type.getKind()) {
+    case ARRAY:
+      TypeMirror componentType = ((ArrayType) type).getComponentType();
+      return componentType.getKind().isPrimitive() || isClass(componentType);
+    case DECLARED:
+      return ((DeclaredType) type).getTypeArguments().isEmpty();
+    default:
+      return false;
+    }
+  }
+
+  private TypeMirror boxed(TypeMirror type) {
+    if (type.getKind().isPrimitive()) {
+      return processingEnv.getTypeUtils().boxedClass((PrimitiveType) type).asType();
+    }
+    return type;
+  }
+
+  private String typeName(TypeMirror type) {
+    switch (type.getKind()) {
+    case ARRAY:
+      return typeName(((ArrayType) type).getComponentType()) + "[]";
+    case DECLARED:
+      return ((TypeElement) ((DeclaredType) type).asElement()).getQualifiedName().toString();
+    default:
+      return processingEnv.getTypeUtils().erasure(type).toString();
+    }
+  }
+
+  private static AnnotationMirror getAnnotation(Element element, String annotationName) {
+    for (AnnotationMirror annotation : element.getAnnotationMirrors()) {
+      if (((TypeElement) annotation.getAnnotationType().asElement()).getQualifiedName().contentEquals(annotationName)) {
+        return annotation;
+      }
+    }
+    return null;
+  }
+
+  private Object getValue(AnnotationMirror annotation, String name) {
+    Map<? extends ExecutableElement, ? extends AnnotationValue> values = processingEnv.getElementUtils().getElementValuesWithDefaults(annotation);
+    for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> entry : values.entrySet()) {
+      if (entry.getKey().getSimpleName().contentEquals(name)) {
+        return entry.getValue().getValue();
+      }
+    }
+    throw new IllegalArgumentException(name + " is not a member of " + annotation);
+  }
+
+  private String getString(AnnotationMirror annotation, String name) {
+    return (String) getValue(annotation, name);
+  }
+
+  private boolean getBoolean(AnnotationMirror annotation, String name) {
+    return (Boolean) getValue(annotation, name);
+  }
+
+  private String getEnumConstant(AnnotationMirror annotation, String name) {
+    return ((VariableElement) getValue(annotation, name)).getSimpleName().toString();
+  }
+
+  private List<String> getStrings(AnnotationMirror annotation, String name) {
+    List<String> strings = new ArrayList<>();
+    for (Object value : (List<?>) getValue(annotation, name)) {
+      strings.add((String) ((AnnotationValue) value).getValue());
+    }
+    return strings;
+  }
+
+  private static boolean isPrefixedBoolean(String fieldName) {
+    return fieldName.length() > 2 && fieldName.startsWith("is") && Character.isUpperCase(fieldName.charAt(2));
+  }
+
+  private static String lombokBooleanGetterName(String fieldName) {
+    return isPrefixedBoolean(fieldName) ? fieldName : "is" + capitalize(fieldName);
+  }
+
+  private static String capitalize(String name) {
+    return Character.toUpperCase(name.charAt(0)) + name.substring(1);
+  }
+
+  private static String listOf(List<String> expressions) {
+    if (expressions.isEmpty()) {
+      return "new java.util.ArrayList<>()";
+    }
+    return "java.util.Arrays.asList(" + String.join(", ", expressions) + ")";
+  }
+
+  private static List<String> literals(List<String> values) {
+    List<String> literals = new ArrayList<>();
+    for (String value : values) {
+      literals.add(literal(value));
+    }
+    return literals;
+  }
+
+  static String literal(String value) {
+    if (value == null) {
+      return "null";
+    }
+    StringBuilder literal = new StringBuilder("\"");
+    for (char c : value.toCharArray()) {
+      switch (c) {
+      case '"':
+        literal.append("\\\"");
+        break;
+      case '\\':
+        literal.append("\\\\");
+        break;
+      case '\n':
+        literal.append("\\n");
+        break;
+      case '\r':
+        literal.append("\\r");
+        break;
+      case '\t':
+        literal.append("\\t");
+        break;
+      default:
+        if (c < 0x20 || c > 0x7e) {
+          literal.append(String.format("\\u%04x", (int) c));
+        } else {
+          literal.append(c);
+        }
+      }
+    }
+    return literal.append('"').toString();
+  }
+}
@@ -19,16 +19,12 @@
 
 package edu.psu.swe.scim.spec.adapter;
 
-import java.text.SimpleDateFormat;
 import java.util.Date;
 
 import javax.xml.bind.annotation.adapters.XmlAdapter;
 
 public class Iso8601DateTimeAdapter extends XmlAdapter<String, Date> {
   
-  private static final String ISO_8601_DATE_TIME_FORMAT = "yyyy-MM-dd'T'HH:mm:ss.SS";
-  private SimpleDateFormat dateFormat = new SimpleDateFormat(ISO_8601_DATE_TIME_FORMAT);
-  
   @Override
   public String marshal(Date date)
   {
@@ -37,7 +33,7 @@ public class Iso8601DateTimeAdapter extends XmlAdapter<String, Date> {
       return null;
     }
 
-    return dateFormat.format(date);
+    return Iso8601DateTimeCodec.toDateTimeString(date);
   }
 
   @Override
@@ -48,7 +44,7 @@ public class Iso8601DateTimeAdapter extends XmlAdapter<String, Date> {
       return null;
     }
 
-    return dateFormat.parse(date);
+    return Iso8601DateTimeCodec.parseDateTime(date);
   }
 
 }
@@ -0,0 +1,127 @@
+/*
+* Licensed to the Apache Software Foundation (ASF) under one
+* or more contributor license agreements.  See the NOTICE file
+* distributed with this work for additional information
+* regarding copyright ownership.  The ASF licenses this file
+* to you under the Apache License, Version 2.0 (the
+* "License"); you may not use this file except in compliance
+* with the License.  You may obtain a copy of the License at
+
+* http://www.apache.org/licenses/LICENSE-2.0
+
+* Unless required by applicable law or agreed to in writing,
+* software distributed under the License is distributed on an
+* "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+* KIND, either express or implied.  See the License for the
+* specific language governing permissions and limitations
+* under the License.
+*/
+
+package edu.psu.swe.scim.spec.adapter;
+
+import java.text.ParseException;
+import java.text.ParsePosition;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeFormatterBuilder;
+import java.time.format.DateTimeParseException;
+import java.time.format.SignStyle;
+import java.time.temporal.ChronoField;
+import java.time.temporal.TemporalAccessor;
+import java.util.Date;
+
+/**
+ * Formats and parses the ISO 8601 date and time representations used by SCIM.
+ * The formatters are immutable and thread-safe so, unlike
+ * {@link java.text.SimpleDateFormat}, they are created once and shared.
+ * {@link Date}s are rendered in the JVM's default time zone, as they were by
+ * the SimpleDateFormat instances these methods replace.
+ */
+public final class Iso8601DateTimeCodec {
+
+  /**
+   * yyyy-MM-dd
+   */
+  public static final DateTimeFormatter DATE = DateTimeFormatter.ofPattern("yyyy-MM-dd");
+
+  /**
+   * yyyy-MM-dd'T'HH:mm:ss.SS where the milliseconds are written with at least
+   * two digits, which is how SimpleDateFormat interpreted that pattern.
+   */
+  public static final DateTimeFormatter DATE_TIME_MILLIS = new DateTimeFormatterBuilder().appendPattern("yyyy-MM-dd'T'HH:mm:ss.")
+                                                                                         .appendValue(ChronoField.MILLI_OF_SECOND, 2, 3, SignStyle.NOT_NEGATIVE)
+                                                                                         .toFormatter();
+
+  /**
+   * yyyy-MM-dd'T'HH:mm:ssXXX
+   */
+  public static final DateTimeFormatter DATE_TIME_OFFSET = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ssXXX");
+
+  private static final DateTimeFormatter DATE_TIME_MILLIS_PARSER = new DateTimeFormatterBuilder().appendPattern("yyyy-MM-dd'T'HH:mm:ss.")
+                                                                                                 .appendValue(ChronoField.MILLI_OF_SECOND, 1, 3, SignStyle.NOT_NEGATIVE)
+                                                                                                 .toFormatter();
+
+  private Iso8601DateTimeCodec() {
+    // Make this a utility class
+  }
+
+  public static String toDateString(Date date) {
+    return DATE.format(atDefaultZone(date));
+  }
+
+  public static String toDateTimeString(Date date) {
+    return DATE_TIME_MILLIS.format(atDefaultZone(date));
+  }
+
+  public static String toDateString(LocalDate localDate) {
+    return DateTimeFormatter.ISO_DATE.format(localDate);
+  }
+
+  public static String toDateTimeString(LocalDateTime localDateTime) {
+    return DateTimeFormatter.ISO_DATE_TIME.format(localDateTime);
+  }
+
+  public static String toOffsetDateTimeString(Date date) {
+    return DATE_TIME_OFFSET.format(atDefaultZone(date));
+  }
+
+  /**
+   * Parses a date time written by {@link #toDateTimeString(Date)}. As with
+   * SimpleDateFormat, any text following the date time is ignored.
+   */
+  public static Date parseDateTime(String text) throws ParseException {
+    TemporalAccessor parsed = parse(DATE_TIME_MILLIS_PARSER, text);
+    LocalDateTime localDateTime = LocalDateTime.from(parsed);
+    return Date.from(localDateTime.atZone(ZoneId.systemDefault())
+                                  .toInstant());
+  }
+
+  /**
+   * Parses a date time written by {@link #toOffsetDateTimeString(Date)},
+   * accepting either "Z" or a numeric offset.
+   */
+  public static Date parseOffsetDateTime(String text) throws ParseException {
+    TemporalAccessor parsed = parse(DATE_TIME_OFFSET, text);
+    return Date.from(Instant.from(parsed));
+  }
+
+  private static TemporalAccessor parse(DateTimeFormatter formatter, String text) throws ParseException {
+    ParsePosition position = new ParsePosition(0);
+    try {
+      return formatter.parse(text, position);
+    } catch (DateTimeParseException e) {
+      ParseException parseException = new ParseException("Unparseable date: \"" + text + "\"", e.getErrorIndex());
+      parseException.initCause(e);
+      throw parseException;
+    }
+  }
+
+  private static ZonedDateTime atDefaultZone(Date date) {
+    return date.toInstant()
+               .atZone(ZoneId.systemDefault());
+  }
+}
@@ -19,6 +19,7 @@
 
 package edu.psu.swe.scim.spec.extension;
 
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -28,33 +29,33 @@ import edu.psu.swe.scim.spec.resources.ScimExtension;
 import edu.psu.swe.scim.spec.resources.ScimResource;
 import lombok.extern.slf4j.Slf4j;
 
+/**
+ * Maps resource classes and extension URNs to extension classes. The nested
+ * maps are an immutable snapshot published through a volatile field, so the
+ * lookups made while deserializing every resource never block and never see
+ * a registration that is half done.
+ */
 @Slf4j
 public final class ScimExtensionRegistry {
     
   private static final ScimExtensionRegistry INSTANCE = new ScimExtensionRegistry();
   
-  private Map<Class<? extends ScimResource>, Map<String, Class<? extends ScimExtension>>> registry;
+  private volatile Map<Class<? extends ScimResource>, Map<String, Class<? extends ScimExtension>>> registry;
   
   private ScimExtensionRegistry() {
-    registry = new HashMap<Class<? extends ScimResource>, Map<String, Class<? extends ScimExtension>>>();
+    registry = Collections.emptyMap();
   }
   
   public Class<? extends ScimExtension> getExtensionClass(Class<? extends ScimResource> resourceClass, String urn) {
-    Class<? extends ScimExtension> extensionClass = null;
-    if(registry.containsKey(resourceClass)) {
-      Map<String, Class<? extends ScimExtension>> resourceMap = registry.get(resourceClass);
-      if(resourceMap.containsKey(urn)) {
-        extensionClass = resourceMap.get(urn);
-      }
-    }
-    return extensionClass;
+    Map<String, Class<? extends ScimExtension>> resourceMap = registry.get(resourceClass);
+    return resourceMap != null ? resourceMap.get(urn) : null;
   }
   
   public static ScimExtensionRegistry getInstance() {
     return INSTANCE;
   }
   
-  public void registerExtension(Class<? extends ScimResource> resourceClass, Class<? extends ScimExtension> extensionClass) {
+  public synchronized void registerExtension(Class<? extends ScimResource> resourceClass, Class<? extends ScimExtension> extensionClass) {
     ScimExtensionType[] se = extensionClass.getAnnotationsByType(ScimExtensionType.class);
 
     if (se.length == 0 || se.length > 1) {
@@ -68,14 +69,16 @@ public final class ScimExtensionRegistry {
     log.debug("    (associated extension class: " + extensionClass.getSimpleName() + ")");
     
     Map<String, Class<? extends ScimExtension>> resourceMap = registry.get(resourceClass);
-    if(resourceMap == null) {
-      resourceMap = new HashMap<>();
-      registry.put(resourceClass, resourceMap);
-    }
-    
-    if(!resourceMap.containsKey(urn)) {
-      resourceMap.put(urn, extensionClass);
+    if (resourceMap != null && resourceMap.containsKey(urn)) {
+      return;
     }
+
+    Map<String, Class<? extends ScimExtension>> newResourceMap = resourceMap != null ? new HashMap<>(resourceMap) : new HashMap<>();
+    newResourceMap.put(urn, extensionClass);
+
+    Map<Class<? extends ScimResource>, Map<String, Class<? extends ScimExtension>>> newRegistry = new HashMap<>(registry);
+    newRegistry.put(resourceClass, Collections.unmodifiableMap(newResourceMap));
+    registry = Collections.unmodifiableMap(newRegistry);
   }
 
 }
@@ -0,0 +1,110 @@
+/*
+* Licensed to the Apache Software Foundation (ASF) under one
+* or more contributor license agreements.  See the NOTICE file
+* distributed with this work for additional information
+* regarding copyright ownership.  The ASF licenses this file
+* to you under the Apache License, Version 2.0 (the
+* "License"); you may not use this file except in compliance
+* with the License.  You may obtain a copy of the License at
+ 
+* http://www.apache.org/licenses/LICENSE-2.0
+
+* Unless required by applicable law or agreed to in writing,
+* software distributed under the License is distributed on an
+* "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+* KIND, either express or implied.  See the License for the
+* specific language governing permissions and limitations
+* under the License.
+*/
+
+package edu.psu.swe.scim.spec.json;
+
+import com.fasterxml.jackson.annotation.JsonInclude.Include;
+import com.fasterxml.jackson.databind.AnnotationIntrospector;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.introspect.AnnotationIntrospectorPair;
+import com.fasterxml.jackson.databind.introspect.JacksonAnnotationIntrospector;
+import com.fasterxml.jackson.module.afterburner.AfterburnerModule;
+import com.fasterxml.jackson.module.jaxb.JaxbAnnotationIntrospector;
+import com.fasterxml.jackson.module.jaxb.JaxbAnnotationModule;
+
+/**
+ * Creates the Jackson ObjectMapper used for SCIM resources. Jackson
+ * annotations take precedence over JAXB annotations, null values are not
+ * written and unknown properties are ignored.
+ * <p>
+ * Building and warming up an ObjectMapper is expensive while using a
+ * configured one is thread-safe, so code that doesn't need its own
+ * customizations should share the mapper returned by
+ * {@link #getObjectMapper()} or a reader or writer created from it.
+ */
+public final class ObjectMapperFactory {
+
+  private static final ObjectMapper OBJECT_MAPPER = createObjectMapper();
+
+  private ObjectMapperFactory() {
+    // Make this a utility class
+  }
+
+  /**
+   * @return a new, configured ObjectMapper that the caller can customize
+   */
+  public static ObjectMapper createObjectMapper() {
+    ObjectMapper objectMapper = new ObjectMapper();
+
+    JaxbAnnotationModule jaxbAnnotationModule = new JaxbAnnotationModule();
+    objectMapper.registerModule(jaxbAnnotationModule);
+    objectMapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+    AnnotationIntrospector jaxbIntrospector = new JaxbAnnotationIntrospector(objectMapper.getTypeFactory());
+    AnnotationIntrospector jacksonIntrospector = new JacksonAnnotationIntrospector();
+    AnnotationIntrospector pair = new AnnotationIntrospectorPair(jacksonIntrospector, jaxbIntrospector);
+    objectMapper.setAnnotationIntrospector(pair);
+
+    objectMapper.setSerializationInclusion(Include.NON_NULL);
+
+    return objectMapper;
+  }
+
+  /**
+   * Creates a mapper that produces exactly the same JSON as
+   * {@link #createObjectMapper()} but replaces reflective property access
+   * with generated accessors where it can. This is opt-in because the
+   * generated classes are defined at runtime, which some security managers
+   * and application servers forbid. The jackson-module-afterburner
+   * dependency is optional, so callers must add it themselves.
+   * 
+   * @return a new, configured ObjectMapper that the caller can customize
+   */
+  public static ObjectMapper createAcceleratedObjectMapper() {
+    ObjectMapper objectMapper = createObjectMapper();
+    Afterburner.register(objectMapper);
+    return objectMapper;
+  }
+
+  // Keeps the optional Afterburner classes from being loaded with this class
+  private static final class Afterburner {
+
+    static void register(ObjectMapper objectMapper) {
+      objectMapper.registerModule(new AfterburnerModule());
+    }
+  }
+
+  /**
+   * @return the shared ObjectMapper, which must not be reconfigured
+   */
+  public static ObjectMapper getObjectMapper() {
+    return OBJECT_MAPPER;
+  }
+
+  public static ObjectReader getReader(Class<?> type) {
+    return OBJECT_MAPPER.readerFor(type);
+  }
+
+  public static ObjectWriter getWriter() {
+    return OBJECT_MAPPER.writer();
+  }
+}
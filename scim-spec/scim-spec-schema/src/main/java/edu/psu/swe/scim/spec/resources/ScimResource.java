@@ -35,17 +35,12 @@ import org.slf4j.LoggerFactory;
 
 import com.fasterxml.jackson.annotation.JsonAnyGetter;
 import com.fasterxml.jackson.annotation.JsonAnySetter;
-import com.fasterxml.jackson.databind.AnnotationIntrospector;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.introspect.AnnotationIntrospectorPair;
-import com.fasterxml.jackson.databind.introspect.JacksonAnnotationIntrospector;
-import com.fasterxml.jackson.module.jaxb.JaxbAnnotationIntrospector;
-import com.fasterxml.jackson.module.jaxb.JaxbAnnotationModule;
 
 import edu.psu.swe.scim.spec.annotation.ScimAttribute;
 import edu.psu.swe.scim.spec.annotation.ScimExtensionType;
 import edu.psu.swe.scim.spec.exception.InvalidExtensionException;
 import edu.psu.swe.scim.spec.extension.ScimExtensionRegistry;
+import edu.psu.swe.scim.spec.json.ObjectMapperFactory;
 import edu.psu.swe.scim.spec.schema.Meta;
 import edu.psu.swe.scim.spec.schema.Schema.Attribute.Returned;
 import lombok.Data;
@@ -149,30 +144,13 @@ public abstract class ScimResource extends BaseResource implements Serializable
 
   @JsonAnySetter
   public void setExtensions(String key, Object value) {
-    LOG.debug("Found a ScimExtension");
-    LOG.debug("Extension's URN: " + key);
-    LOG.debug("Extension's string representation: " + value);
-
     Class<? extends ScimResource> resourceClass = getClass();
-    LOG.debug("Resource class: " + resourceClass.getSimpleName());
-
     Class<? extends ScimExtension> extensionClass = ScimExtensionRegistry.getInstance().getExtensionClass(resourceClass, key);
+    LOG.debug("Found extension {} on {}, extension class: {}", key, resourceClass.getSimpleName(), extensionClass);
 
     if (extensionClass != null) {
-      LOG.debug("Extension class: " + extensionClass.getSimpleName());
-
-      ObjectMapper objectMapper = new ObjectMapper();
-      JaxbAnnotationModule jaxbAnnotationModule = new JaxbAnnotationModule();
-      objectMapper.registerModule(jaxbAnnotationModule);
-
-      AnnotationIntrospector jaxbIntrospector = new JaxbAnnotationIntrospector(objectMapper.getTypeFactory());
-      AnnotationIntrospector jacksonIntrospector = new JacksonAnnotationIntrospector();
-      AnnotationIntrospector pair = new AnnotationIntrospectorPair(jacksonIntrospector, jaxbIntrospector);
-      objectMapper.setAnnotationIntrospector(pair);
-
-      ScimExtension extension = objectMapper.convertValue(value, extensionClass);
+      ScimExtension extension = ObjectMapperFactory.getObjectMapper().convertValue(value, extensionClass);
       if (extension != null) {
-        LOG.debug("    ***** Added extension to the resource *****");
         extensions.put(key, extension);
       }
     }
@@ -0,0 +1,134 @@
+/*
+* Licensed to the Apache Software Foundation (ASF) under one
+* or more contributor license agreements.  See the NOTICE file
+* distributed with this work for additional information
+* regarding copyright ownership.  The ASF licenses this file
+* to you under the Apache License, Version 2.0 (the
+* "License"); you may not use this file except in compliance
+* with the License.  You may obtain a copy of the License at
+ 
+* http://www.apache.org/licenses/LICENSE-2.0
+
+* Unless required by applicable law or agreed to in writing,
+* software distributed under the License is distributed on an
+* "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+* KIND, either express or implied.  See the License for the
+* specific language governing permissions and limitations
+* under the License.
+*/
+
+package edu.psu.swe.scim.spec.schema;
+
+import java.lang.reflect.Field;
+import java.util.Objects;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * Reads and writes the Java field that backs a schema attribute. Accessors
+ * created by the schema annotation processor use the field (or its getter and
+ * setter) directly; the reflective {@link Field} is only looked up when it is
+ * asked for or when no typed access could be generated.
+ */
+public final class AttributeAccessor {
+
+  private final Class<?> declaringClass;
+  private final String fieldName;
+  private final Class<?> type;
+  private final Function<Object, Object> getter;
+  private final BiConsumer<Object, Object> setter;
+  private volatile Field field;
+
+  public AttributeAccessor(Class<?> declaringClass, String fieldName, Class<?> type, Function<Object, Object> getter, BiConsumer<Object, Object> setter) {
+    this.declaringClass = declaringClass;
+    this.fieldName = fieldName;
+    this.type = type;
+    this.getter = getter;
+    this.setter = setter;
+  }
+
+  private AttributeAccessor(Field field) {
+    this(field.getDeclaringClass(), field.getName(), field.getType(), null, null);
+    this.field = field;
+  }
+
+  public static AttributeAccessor of(Field field) {
+    field.setAccessible(true);
+    return new AttributeAccessor(field);
+  }
+
+  public Class<?> getDeclaringClass() {
+    return declaringClass;
+  }
+
+  public String getFieldName() {
+    return fieldName;
+  }
+
+  /**
+   * @return the declared type of the field, e.g. to tell whether it can be
+   *         set to null.
+   */
+  public Class<?> getType() {
+    return type;
+  }
+
+  public Object get(Object target) {
+    if (getter != null) {
+      return getter.apply(target);
+    }
+    try {
+      return getField().get(target);
+    } catch (IllegalAccessException e) {
+      throw new IllegalStateException("Unable to read " + this, e);
+    }
+  }
+
+  public void set(Object target, Object value) {
+    if (setter != null) {
+      setter.accept(target, value);
+      return;
+    }
+    try {
+      getField().set(target, value);
+    } catch (IllegalAccessException e) {
+      throw new IllegalStateException("Unable to write " + this, e);
+    }
+  }
+
+  public Field getField() {
+    Field result = field;
+    if (result == null) {
+      try {
+        result = declaringClass.getDeclaredField(fieldName);
+      } catch (NoSuchFieldException e) {
+        throw new IllegalStateException("No field backs " + this, e);
+      }
+      result.setAccessible(true);
+      field = result;
+    }
+    return result;
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    if (this == obj) {
+      return true;
+    }
+    if (!(obj instanceof AttributeAccessor)) {
+      return false;
+    }
+    AttributeAccessor other = (AttributeAccessor) obj;
+    return declaringClass.equals(other.declaringClass) && fieldName.equals(other.fieldName);
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(declaringClass, fieldName);
+  }
+
+  @Override
+  public String toString() {
+    return declaringClass.getName() + "." + fieldName;
+  }
+}
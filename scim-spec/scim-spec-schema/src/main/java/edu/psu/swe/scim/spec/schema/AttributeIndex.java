@@ -0,0 +1,118 @@
+/*
+* Licensed to the Apache Software Foundation (ASF) under one
+* or more contributor license agreements.  See the NOTICE file
+* distributed with this work for additional information
+* regarding copyright ownership.  The ASF licenses this file
+* to you under the Apache License, Version 2.0 (the
+* "License"); you may not use this file except in compliance
+* with the License.  You may obtain a copy of the License at
+ 
+* http://www.apache.org/licenses/LICENSE-2.0
+
+* Unless required by applicable law or agreed to in writing,
+* software distributed under the License is distributed on an
+* "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+* KIND, either express or implied.  See the License for the
+* specific language governing permissions and limitations
+* under the License.
+*/
+
+package edu.psu.swe.scim.spec.schema;
+
+import java.util.Arrays;
+
+import edu.psu.swe.scim.spec.schema.Schema.Attribute;
+
+/**
+ * Finds attributes by name, ignoring case, without allocating. Attribute
+ * names are case insensitive so a lookup previously lowercased the name and
+ * then hashed the copy; this table folds case while hashing and compares
+ * names with {@link String#regionMatches(boolean, int, String, int, int)}
+ * instead. It uses open addressing with linear probing and is kept at most
+ * half full.
+ */
+final class AttributeIndex {
+
+  private static final int INITIAL_CAPACITY = 16;
+
+  private String[] names = new String[INITIAL_CAPACITY];
+
+  private Attribute[] attributes = new Attribute[INITIAL_CAPACITY];
+
+  private int size;
+
+  Attribute get(String name) {
+    int mask = names.length - 1;
+    for (int i = hash(name) & mask; names[i] != null; i = (i + 1) & mask) {
+      if (matches(names[i], name)) {
+        return attributes[i];
+      }
+    }
+    return null;
+  }
+
+  void put(String name, Attribute attribute) {
+    if ((size + 1) * 2 > names.length) {
+      resize(names.length * 2);
+    }
+
+    int mask = names.length - 1;
+    int i = hash(name) & mask;
+    for (; names[i] != null; i = (i + 1) & mask) {
+      if (matches(names[i], name)) {
+        attributes[i] = attribute;
+        return;
+      }
+    }
+    names[i] = name;
+    attributes[i] = attribute;
+    size++;
+  }
+
+  void clear() {
+    Arrays.fill(names, null);
+    Arrays.fill(attributes, null);
+    size = 0;
+  }
+
+  int size() {
+    return size;
+  }
+
+  private void resize(int capacity) {
+    String[] oldNames = names;
+    Attribute[] oldAttributes = attributes;
+    names = new String[capacity];
+    attributes = new Attribute[capacity];
+    size = 0;
+
+    for (int i = 0; i < oldNames.length; i++) {
+      if (oldNames[i] != null) {
+        put(oldNames[i], oldAttributes[i]);
+      }
+    }
+  }
+
+  private static boolean matches(String indexed, String name) {
+    return indexed.length() == name.length() && indexed.regionMatches(true, 0, name, 0, name.length());
+  }
+
+  /**
+   * Hashes the name as if it had been lowercased. ASCII letters are folded
+   * directly, anything else is folded the way regionMatches compares it.
+   */
+  static int hash(String name) {
+    int hash = 0;
+    int length = name.length();
+    for (int i = 0; i < length; i++) {
+      char c = name.charAt(i);
+      if (c >= 'A' && c <= 'Z') {
+        c += 'a' - 'A';
+      } else if (c >= 0x80) {
+        c = Character.toLowerCase(Character.toUpperCase(c));
+      }
+      hash = 31 * hash + c;
+    }
+    return hash ^ (hash >>> 16);
+  }
+}
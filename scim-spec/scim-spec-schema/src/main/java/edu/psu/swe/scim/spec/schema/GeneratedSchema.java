@@ -0,0 +1,63 @@
+/*
+* Licensed to the Apache Software Foundation (ASF) under one
+* or more contributor license agreements.  See the NOTICE file
+* distributed with this work for additional information
+* regarding copyright ownership.  The ASF licenses this file
+* to you under the Apache License, Version 2.0 (the
+* "License"); you may not use this file except in compliance
+* with the License.  You may obtain a copy of the License at
+ 
+* http://www.apache.org/licenses/LICENSE-2.0
+
+* Unless required by applicable law or agreed to in writing,
+* software distributed under the License is distributed on an
+* "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+* KIND, either express or implied.  See the License for the
+* specific language governing permissions and limitations
+* under the License.
+*/
+
+package edu.psu.swe.scim.spec.schema;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Creates the schema of a class annotated with
+ * {@link edu.psu.swe.scim.spec.annotation.ScimResourceType} or
+ * {@link edu.psu.swe.scim.spec.annotation.ScimExtensionType}. Implementations
+ * are written at compile time by the scim-spec-schema-processor module and are
+ * named after the annotated class with a suffix of {@value #CLASS_NAME_SUFFIX}.
+ */
+public interface GeneratedSchema {
+
+  String CLASS_NAME_SUFFIX = "_ScimSchema";
+
+  Schema createSchema();
+
+  /**
+   * Finds the generated schema of a class.
+   * 
+   * @param clazz the annotated resource or extension class
+   * @return the generated schema, or null when none was generated for the
+   *         class and its schema has to be built by reflection
+   */
+  static GeneratedSchema forClass(Class<?> clazz) {
+    Class<?> generatedClass;
+    try {
+      generatedClass = Class.forName(clazz.getName() + CLASS_NAME_SUFFIX, true, clazz.getClassLoader());
+    } catch (ClassNotFoundException e) {
+      return null;
+    }
+    if (!GeneratedSchema.class.isAssignableFrom(generatedClass)) {
+      return null;
+    }
+    try {
+      return (GeneratedSchema) generatedClass.getDeclaredConstructor().newInstance();
+    } catch (ReflectiveOperationException | LinkageError e) {
+      Logger log = LoggerFactory.getLogger(GeneratedSchema.class);
+      log.warn("Unable to use the generated schema of {}, falling back to reflection", clazz.getName(), e);
+      return null;
+    }
+  }
+}
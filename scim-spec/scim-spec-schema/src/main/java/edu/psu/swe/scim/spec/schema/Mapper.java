@@ -23,7 +23,6 @@
 package edu.psu.swe.scim.spec.schema;
 
 import java.text.ParseException;
-import java.text.SimpleDateFormat;
 import java.util.Calendar;
 import java.util.Date;
 import java.util.GregorianCalendar;
@@ -32,6 +31,8 @@ import java.util.TimeZone;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
+import edu.psu.swe.scim.spec.adapter.Iso8601DateTimeCodec;
+
 /**
  * The Mapper provides methods to bi-directionally transform SCIM attribute
  * values into Java types. The eight types supported by SCIM are defined in
@@ -68,16 +69,14 @@ public class Mapper {
   // Format string to create an ISO 8601 date string from a Java date object
   static final String ISO8601_DATETIME_FORMATTER = "yyyy-MM-dd'T'HH:mm:ssXXX";
 
-  SimpleDateFormat iso8601DateFormat;
   Pattern iso8601Pattern;
 
   public Mapper() {
-    iso8601DateFormat = new SimpleDateFormat(ISO8601_DATETIME_FORMATTER);
     iso8601Pattern = Pattern.compile(ISO8601_PATTERN);
   }
 
   public String convertDateTime(Date date) {
-    return iso8601DateFormat.format(date);
+    return Iso8601DateTimeCodec.toOffsetDateTimeString(date);
   }
 
   /**
@@ -105,8 +104,7 @@ public class Mapper {
 //      // TODO - This is an error
 //    }
 //    return calendar.getTime();
-    Date date = iso8601DateFormat.parse(isodate);
-    return date;
+    return Iso8601DateTimeCodec.parseOffsetDateTime(isodate);
   }
 
   /**
@@ -22,9 +22,7 @@ package edu.psu.swe.scim.spec.schema;
 import java.lang.reflect.Field;
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 import java.util.Set;
 
 import javax.validation.constraints.NotNull;
@@ -135,7 +133,7 @@ public class Schema implements AttributeContainer {
     
     @Getter(AccessLevel.NONE)
     @Setter(AccessLevel.NONE)
-    Map<String, Attribute> subAttributeNamesMap = new HashMap<>();
+    transient AttributeIndex subAttributeIndex = new AttributeIndex();
     
     @XmlElement
     boolean multiValued;
@@ -166,8 +164,24 @@ public class Schema implements AttributeContainer {
     
     Field field;
 
+    AttributeAccessor accessor;
+
     private boolean scimResourceIdReference;
 
+    public Field getField() {
+      if (field == null && accessor != null) {
+        field = accessor.getField();
+      }
+      return field;
+    }
+
+    public AttributeAccessor getAccessor() {
+      if (accessor == null && field != null) {
+        accessor = AttributeAccessor.of(field);
+      }
+      return accessor;
+    }
+
     @Override
     public List<Attribute> getAttributes() {
       return Collections.unmodifiableList(subAttributes);
@@ -176,7 +190,7 @@ public class Schema implements AttributeContainer {
     public void setSubAttributes(List<Attribute> attributes, AddAction action) {
       
       if (action.equals(AddAction.REPLACE)) {
-        subAttributeNamesMap.clear();
+        subAttributeIndex.clear();
       }
       
       for (Attribute attribute : attributes) {
@@ -185,7 +199,7 @@ public class Schema implements AttributeContainer {
           LOG.warn("Attribute name was null, skipping name indexing");
           continue;
         }
-        subAttributeNamesMap.put(name.toLowerCase(), attribute);
+        subAttributeIndex.put(name, attribute);
       }
       
       if(action.equals(AddAction.REPLACE)) {
@@ -202,7 +216,7 @@ public class Schema implements AttributeContainer {
       if (name == null) {
         return null;
       }
-      return subAttributeNamesMap.get(name.toLowerCase());
+      return subAttributeIndex.get(name);
     }
 
   }
@@ -226,7 +240,7 @@ public class Schema implements AttributeContainer {
   
   @Getter(AccessLevel.NONE)
   @Setter(AccessLevel.NONE)
-  Map<String, Attribute> attributeNamesMap = new HashMap<>();
+  transient AttributeIndex attributeIndex = new AttributeIndex();
   
   @XmlElement
   Meta meta;
@@ -236,7 +250,7 @@ public class Schema implements AttributeContainer {
   }
   
   public void setAttributes(List<Attribute> attributes) {
-    attributeNamesMap.clear();
+    attributeIndex.clear();
     
     for (Attribute attribute : attributes) {
       String name = attribute.getName();
@@ -244,7 +258,7 @@ public class Schema implements AttributeContainer {
         LOG.warn("Attribute name was null, skipping name indexing");
         continue;
       }
-      attributeNamesMap.put(name.toLowerCase(), attribute);
+      attributeIndex.put(name, attribute);
     }
     
     this.attributes = attributes;
@@ -254,6 +268,6 @@ public class Schema implements AttributeContainer {
     if (name == null) {
       return null;
     }
-    return attributeNamesMap.get(name.toLowerCase());
+    return attributeIndex.get(name);
   }
 }
\ No newline at end of file
@@ -0,0 +1,76 @@
+/*
+* Licensed to the Apache Software Foundation (ASF) under one
+* or more contributor license agreements.  See the NOTICE file
+* distributed with this work for additional information
+* regarding copyright ownership.  The ASF licenses this file
+* to you under the Apache License, Version 2.0 (the
+* "License"); you may not use this file except in compliance
+* with the License.  You may obtain a copy of the License at
+ 
+* http://www.apache.org/licenses/LICENSE-2.0
+
+* Unless required by applicable law or agreed to in writing,
+* software distributed under the License is distributed on an
+* "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+* KIND, either express or implied.  See the License for the
+* specific language governing permissions and limitations
+* under the License.
+*/
+
+package edu.psu.swe.scim.spec.adapter;
+
+import static org.junit.Assert.assertEquals;
+
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.TimeZone;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class Iso8601DateTimeCodecTest {
+
+  private TimeZone defaultTimeZone;
+
+  @Before
+  public void setup() {
+    defaultTimeZone = TimeZone.getDefault();
+    TimeZone.setDefault(TimeZone.getTimeZone("America/New_York"));
+  }
+
+  @After
+  public void teardown() {
+    TimeZone.setDefault(defaultTimeZone);
+  }
+
+  @Test
+  public void testFormattingMatchesSimpleDateFormat() {
+    long[] times = { 0L, 1000L, 1005L, 1050L, 1234L, 1475000000999L };
+    for (long time : times) {
+      Date date = new Date(time);
+      assertEquals(new SimpleDateFormat("yyyy-MM-dd").format(date), Iso8601DateTimeCodec.toDateString(date));
+      assertEquals(new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SS").format(date), Iso8601DateTimeCodec.toDateTimeString(date));
+      assertEquals(new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ssXXX").format(date), Iso8601DateTimeCodec.toOffsetDateTimeString(date));
+    }
+  }
+
+  @Test
+  public void testDateTimeRoundTrip() throws ParseException {
+    Date date = new Date(1475000000123L);
+
+    assertEquals(date, Iso8601DateTimeCodec.parseDateTime(Iso8601DateTimeCodec.toDateTimeString(date)));
+  }
+
+  @Test
+  public void testOffsetDateTimeParsing() throws ParseException {
+    assertEquals(new Date(1475000000000L), Iso8601DateTimeCodec.parseOffsetDateTime("2016-09-27T18:13:20Z"));
+    assertEquals(new Date(1475000000000L), Iso8601DateTimeCodec.parseOffsetDateTime("2016-09-27T14:13:20-04:00"));
+  }
+
+  @Test(expected = ParseException.class)
+  public void testInvalidDateTimeIsRejected() throws ParseException {
+    Iso8601DateTimeCodec.parseDateTime("not a date");
+  }
+}
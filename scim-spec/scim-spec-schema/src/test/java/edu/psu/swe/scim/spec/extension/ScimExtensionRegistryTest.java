@@ -0,0 +1,57 @@
+/*
+* Licensed to the Apache Software Foundation (ASF) under one
+* or more contributor license agreements.  See the NOTICE file
+* distributed with this work for additional information
+* regarding copyright ownership.  The ASF licenses this file
+* to you under the Apache License, Version 2.0 (the
+* "License"); you may not use this file except in compliance
+* with the License.  You may obtain a copy of the License at
+ 
+* http://www.apache.org/licenses/LICENSE-2.0
+
+* Unless required by applicable law or agreed to in writing,
+* software distributed under the License is distributed on an
+* "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+* KIND, either express or implied.  See the License for the
+* specific language governing permissions and limitations
+* under the License.
+*/
+
+package edu.psu.swe.scim.spec.extension;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import org.junit.Test;
+
+import edu.psu.swe.scim.spec.exception.InvalidExtensionException;
+import edu.psu.swe.scim.spec.resources.ScimExtension;
+import edu.psu.swe.scim.spec.resources.ScimGroup;
+import edu.psu.swe.scim.spec.resources.ScimUser;
+
+public class ScimExtensionRegistryTest {
+
+  @Test
+  public void testRegisteredExtensionIsFound() {
+    ScimExtensionRegistry registry = ScimExtensionRegistry.getInstance();
+    registry.registerExtension(ScimUser.class, EnterpriseExtension.class);
+
+    assertEquals(EnterpriseExtension.class, registry.getExtensionClass(ScimUser.class, EnterpriseExtension.URN));
+    assertNull(registry.getExtensionClass(ScimUser.class, "urn:example:unknown"));
+    assertNull(registry.getExtensionClass(ScimGroup.class, EnterpriseExtension.URN));
+  }
+
+  @Test(expected = InvalidExtensionException.class)
+  public void testExtensionWithoutAnnotationIsRejected() {
+    ScimExtensionRegistry.getInstance().registerExtension(ScimUser.class, UnannotatedExtension.class);
+  }
+
+  private static class UnannotatedExtension implements ScimExtension {
+    private static final long serialVersionUID = 1L;
+
+    @Override
+    public String getUrn() {
+      return "urn:example:unannotated";
+    }
+  }
+}
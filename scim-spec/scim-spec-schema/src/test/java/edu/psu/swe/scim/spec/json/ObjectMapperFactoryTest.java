@@ -0,0 +1,204 @@
+/*
+* Licensed to the Apache Software Foundation (ASF) under one
+* or more contributor license agreements.  See the NOTICE file
+* distributed with this work for additional information
+* regarding copyright ownership.  The ASF licenses this file
+* to you under the Apache License, Version 2.0 (the
+* "License"); you may not use this file except in compliance
+* with the License.  You may obtain a copy of the License at
+ 
+* http://www.apache.org/licenses/LICENSE-2.0
+
+* Unless required by applicable law or agreed to in writing,
+* software distributed under the License is distributed on an
+* "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+* KIND, either express or implied.  See the License for the
+* specific language governing permissions and limitations
+* under the License.
+*/
+
+package edu.psu.swe.scim.spec.json;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.InvocationTargetException;
+import java.time.LocalDateTime;
+import java.util.Collections;
+
+import org.junit.Test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import edu.psu.swe.scim.spec.extension.EnterpriseExtension;
+import edu.psu.swe.scim.spec.phonenumber.PhoneNumberParseException;
+import edu.psu.swe.scim.spec.resources.Address;
+import edu.psu.swe.scim.spec.resources.Email;
+import edu.psu.swe.scim.spec.resources.Name;
+import edu.psu.swe.scim.spec.resources.PhoneNumber;
+import edu.psu.swe.scim.spec.resources.ScimUser;
+import edu.psu.swe.scim.spec.schema.Meta;
+
+public class ObjectMapperFactoryTest {
+
+  @Test
+  public void testSharedMapperIsReused() {
+    assertSame(ObjectMapperFactory.getObjectMapper(), ObjectMapperFactory.getObjectMapper());
+    assertNotSame(ObjectMapperFactory.getObjectMapper(), ObjectMapperFactory.createObjectMapper());
+  }
+
+  @Test
+  public void testNullsAreNotWritten() throws Exception {
+    Name name = new Name();
+    name.setGivenName("Barbara");
+
+    String json = ObjectMapperFactory.getWriter()
+                                     .writeValueAsString(name);
+
+    assertEquals("{\"givenName\":\"Barbara\"}", json);
+    assertFalse(json.contains("null"));
+  }
+
+  @Test
+  public void testAcceleratedMapperWritesIdenticalJson() throws Exception {
+    ScimUser user = createUser();
+
+    String expected = ObjectMapperFactory.createObjectMapper()
+                                         .writeValueAsString(user);
+    ObjectMapper acceleratedObjectMapper = ObjectMapperFactory.createAcceleratedObjectMapper();
+
+    // The first call uses reflection while the accessors are generated
+    for (int i = 0; i < 3; i++) {
+      assertEquals(expected, acceleratedObjectMapper.writeValueAsString(user));
+    }
+    assertEquals(ObjectMapperFactory.getReader(ScimUser.class)
+                                    .readValue(expected),
+                 acceleratedObjectMapper.readValue(expected, ScimUser.class));
+  }
+
+  @Test
+  public void testUnknownPropertiesAreIgnored() throws Exception {
+    Name name = ObjectMapperFactory.getReader(Name.class)
+                                   .readValue("{\"givenName\":\"Barbara\",\"unknown\":true}");
+
+    assertEquals("Barbara", name.getGivenName());
+  }
+
+  @Test
+  public void testFactoryLoadsWithoutAfterburner() throws Exception {
+    ClassLoader classLoader = new AfterburnerHidingClassLoader(getClass().getClassLoader());
+    Class<?> factory = Class.forName(ObjectMapperFactory.class.getName(), true, classLoader);
+
+    assertNotNull(factory.getMethod("getObjectMapper")
+                         .invoke(null));
+    try {
+      factory.getMethod("createAcceleratedObjectMapper")
+             .invoke(null);
+      fail("Afterburner should not be available");
+    } catch (InvocationTargetException e) {
+      assertTrue(e.getCause() instanceof NoClassDefFoundError);
+    }
+  }
+
+  /**
+   * Loads its own copy of ObjectMapperFactory in a class path without the
+   * optional Afterburner module.
+   */
+  private static final class AfterburnerHidingClassLoader extends ClassLoader {
+
+    AfterburnerHidingClassLoader(ClassLoader parent) {
+      super(parent);
+    }
+
+    @Override
+    protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+      if (name.startsWith("com.fasterxml.jackson.module.afterburner.")) {
+        throw new ClassNotFoundException(name);
+      }
+      if (!name.startsWith(ObjectMapperFactory.class.getName())) {
+        return super.loadClass(name, resolve);
+      }
+      synchronized (getClassLoadingLock(name)) {
+        Class<?> clazz = findLoadedClass(name);
+        if (clazz == null) {
+          byte[] bytes = readClass(name);
+          clazz = defineClass(name, bytes, 0, bytes.length);
+        }
+        return clazz;
+      }
+    }
+
+    private byte[] readClass(String name) throws ClassNotFoundException {
+      try (InputStream stream = getParent().getResourceAsStream(name.replace('.', '/') + ".class")) {
+        if (stream == null) {
+          throw new ClassNotFoundException(name);
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        byte[] buffer = new byte[4096];
+        for (int read = stream.read(buffer); read != -1; read = stream.read(buffer)) {
+          bytes.write(buffer, 0, read);
+        }
+        return bytes.toByteArray();
+      } catch (IOException e) {
+        throw new ClassNotFoundException(name, e);
+      }
+    }
+  }
+
+  private static ScimUser createUser() throws PhoneNumberParseException {
+    ScimUser user = new ScimUser();
+    user.setId("2819c223-7f76-453a-919d-413861904646");
+    user.setExternalId("bjensen");
+    user.setUserName("bjensen@example.com");
+    user.setDisplayName("Babs Jensen");
+    user.setActive(true);
+
+    Name name = new Name();
+    name.setGivenName("Barbara");
+    name.setFamilyName("Jensen");
+    name.setFormatted("Ms. Barbara J Jensen, III");
+    user.setName(name);
+
+    Email email = new Email();
+    email.setType("work");
+    email.setValue("bjensen@example.com");
+    email.setPrimary(true);
+    user.setEmails(Collections.singletonList(email));
+
+    Address address = new Address();
+    address.setType("work");
+    address.setStreetAddress("100 Universal City Plaza");
+    address.setLocality("Hollywood");
+    address.setRegion("CA");
+    address.setPostalCode("91608");
+    address.setCountry("USA");
+    user.setAddresses(Collections.singletonList(address));
+
+    PhoneNumber phoneNumber = new PhoneNumber();
+    phoneNumber.setType("work");
+    phoneNumber.setValue("tel:+1-555-555-5555");
+    user.setPhoneNumbers(Collections.singletonList(phoneNumber));
+
+    EnterpriseExtension enterpriseExtension = new EnterpriseExtension();
+    enterpriseExtension.setEmployeeNumber("701984");
+    enterpriseExtension.setDepartment("Tour Operations");
+    user.addExtension(enterpriseExtension);
+
+    Meta meta = new Meta();
+    meta.setResourceType(ScimUser.RESOURCE_NAME);
+    meta.setCreated(LocalDateTime.of(2010, 1, 23, 4, 56, 22));
+    meta.setLastModified(LocalDateTime.of(2011, 5, 13, 4, 42, 34));
+    meta.setVersion("W/\"3694e05e9dff591\"");
+    user.setMeta(meta);
+
+    return user;
+  }
+}
@@ -0,0 +1,85 @@
+/*
+* Licensed to the Apache Software Foundation (ASF) under one
+* or more contributor license agreements.  See the NOTICE file
+* distributed with this work for additional information
+* regarding copyright ownership.  The ASF licenses this file
+* to you under the Apache License, Version 2.0 (the
+* "License"); you may not use this file except in compliance
+* with the License.  You may obtain a copy of the License at
+ 
+* http://www.apache.org/licenses/LICENSE-2.0
+
+* Unless required by applicable law or agreed to in writing,
+* software distributed under the License is distributed on an
+* "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+* KIND, either express or implied.  See the License for the
+* specific language governing permissions and limitations
+* under the License.
+*/
+
+package edu.psu.swe.scim.spec.schema;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import org.junit.Test;
+
+import edu.psu.swe.scim.spec.schema.Schema.Attribute;
+
+public class AttributeIndexTest {
+
+  @Test
+  public void testLookupIgnoresCase() {
+    AttributeIndex index = new AttributeIndex();
+    Attribute userName = attribute("userName");
+    index.put(userName.getName(), userName);
+
+    assertSame(userName, index.get("userName"));
+    assertSame(userName, index.get("USERNAME"));
+    assertSame(userName, index.get("username"));
+    assertNull(index.get("userNam"));
+    assertNull(index.get("displayName"));
+  }
+
+  @Test
+  public void testPutReplacesNamesThatDifferOnlyByCase() {
+    AttributeIndex index = new AttributeIndex();
+    Attribute first = attribute("title");
+    Attribute second = attribute("Title");
+    index.put(first.getName(), first);
+    index.put(second.getName(), second);
+
+    assertEquals(1, index.size());
+    assertSame(second, index.get("TITLE"));
+  }
+
+  @Test
+  public void testIndexGrows() {
+    AttributeIndex index = new AttributeIndex();
+    for (int i = 0; i < 1000; i++) {
+      index.put("attribute" + i, attribute("attribute" + i));
+    }
+
+    assertEquals(1000, index.size());
+    for (int i = 0; i < 1000; i++) {
+      assertEquals("attribute" + i, index.get("ATTRIBUTE" + i).getName());
+    }
+
+    index.clear();
+    assertEquals(0, index.size());
+    assertNull(index.get("attribute1"));
+  }
+
+  @Test
+  public void testHashFoldsCase() {
+    assertEquals(AttributeIndex.hash("emails"), AttributeIndex.hash("EMAILS"));
+    assertEquals(AttributeIndex.hash("straße"), AttributeIndex.hash("STRAßE"));
+  }
+
+  private static Attribute attribute(String name) {
+    Attribute attribute = new Attribute();
+    attribute.setName(name);
+    return attribute;
+  }
+}
@@ -26,6 +26,8 @@ import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
+import edu.psu.swe.scim.spec.json.ObjectMapperFactory;
+
 /**
  * Validates that a SCIM resource conforms to the associated schema definition.
  * Note that it's possible to validate schemas since the associated schema
@@ -37,10 +39,9 @@ import com.fasterxml.jackson.databind.ObjectMapper;
  */
 public class Lint {
   
-  ObjectMapper objectMapper = new ObjectMapper();
+  ObjectMapper objectMapper = ObjectMapperFactory.getObjectMapper();
 
   JsonNode convert(InputStream inputStream) throws JsonProcessingException, IOException {
-    ObjectMapper objectMapper = new ObjectMapper();
     return objectMapper.readTree(inputStream);
   }
   